@@ -10,15 +10,25 @@ public abstract class Action {
 
 	private static final Object[] EMPTY_PARAMS = new Object[] {};
 
+	private static final ThreadLocal<Object[]> invocationParams = new ThreadLocal<>();
+
+	private static final ThreadLocal<ActionContext> invocationContext = new ThreadLocal<>();
+
+	private final boolean stateless = getClass().isAnnotationPresent(Stateless.class);
+
 	private Object[] params = EMPTY_PARAMS;
 
+	private ActionContext context;
+
 	/**
-	 * Returns a context for this action.
+	 * Returns a context for this action. This is the context of the calling flow, if passed by
+	 * {@link #setContext(ActionContext)}, or the context of the current thread otherwise.
 	 * 
 	 * @return context
 	 */
 	protected final ActionContext getContext() {
-		return ActionContext.getInstance();
+		ActionContext result = stateless ? invocationContext.get() : context;
+		return result != null ? result : ActionContext.getInstance();
 	}
 
 	/**
@@ -27,6 +37,11 @@ public abstract class Action {
 	 * @return input parameters or an empty array if no parameters were passed
 	 */
 	protected final Object[] getInputParameters() {
+		if (stateless) {
+			Object[] result = invocationParams.get();
+			return result != null ? result : EMPTY_PARAMS;
+		}
+
 		return params;
 	}
 
@@ -40,14 +55,41 @@ public abstract class Action {
 	public abstract Object[] execute() throws ActionException;
 
 	/**
-	 * Defines input parameters for this action.
+	 * Defines input parameters for this action. For the {@link Stateless} action the parameters are bound to the
+	 * current thread. The <code>null</code> parameters unbind them, so the thread does not keep the parameters of the
+	 * completed invocation.
 	 * 
 	 * @param params
 	 *            action input
 	 */
 	public final void setInputParameters(Object[] params) {
-		if (params != null) {
+		if (stateless) {
+			if (params != null) {
+				invocationParams.set(params);
+			} else {
+				invocationParams.remove();
+			}
+		} else if (params != null) {
 			this.params = params;
 		}
 	}
+
+	/**
+	 * Defines the context for this action. For the {@link Stateless} action the context is bound to the current thread.
+	 * The <code>null</code> context unbinds it, so the thread does not keep the context of the completed invocation.
+	 * 
+	 * @param context
+	 *            the context of the calling flow or <code>null</code> to use the context of the current thread
+	 */
+	public final void setContext(ActionContext context) {
+		if (stateless) {
+			if (context != null) {
+				invocationContext.set(context);
+			} else {
+				invocationContext.remove();
+			}
+		} else {
+			this.context = context;
+		}
+	}
 }
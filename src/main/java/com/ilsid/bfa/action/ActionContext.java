@@ -1,12 +1,15 @@
 package com.ilsid.bfa.action;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.lang.Validate;
 
 /**
- * Action context.
+ * Action context. The context is owned by the flow execution and is shared by the flow, its sub-flows and actions,
+ * regardless of the threads they are run in. The script runtime passes the context to each action explicitly (see
+ * {@link Action#getContext()}). The thread local instance is kept as the compatibility view only: it refers to the
+ * context of the flow whose action is executed by the current thread.
  * 
  * @author illia.sydorovych
  *
@@ -21,6 +24,8 @@ public abstract class ActionContext {
 		};
 	};
 
+	private volatile FlowThreadBinding threadBinding;
+
 	/**
 	 * Gets parameter's value from the context.
 	 * 
@@ -56,6 +61,16 @@ public abstract class ActionContext {
 	 */
 	public abstract boolean removeParameter(String name);
 
+	/**
+	 * Creates new context instance. This method is intended for the script runtime only. Each top-level flow gets own
+	 * instance.
+	 * 
+	 * @return new context
+	 */
+	public static ActionContext create() {
+		return new ActionContextImpl();
+	}
+
 	/**
 	 * Returns instance for the current thread. Creates new instance on the first invocation or if
 	 * {@linkplain #cleanup()} has been invoked right before. Returns the same instance on the consequent invocations.
@@ -77,13 +92,49 @@ public abstract class ActionContext {
 		contextHolder.remove();
 	}
 
+	/**
+	 * Makes the given context instance current for the current thread. This method is intended for the script runtime
+	 * only. It allows the code executed on behalf of the flow in any thread to see the flow context.
+	 * {@link #cleanup()} must be invoked by the current thread when the context is not needed any more.
+	 * 
+	 * @param context
+	 *            the context instance obtained by another thread
+	 * @throws IllegalArgumentException
+	 *             if the passed context is <code>null</code>
+	 */
+	public static void attach(ActionContext context) {
+		Validate.notNull(context, "Context must not be null");
+		contextHolder.set(context);
+	}
+
+	/**
+	 * Defines the binding of the threads executing the code on behalf of the flow. This method is intended for the
+	 * script runtime only.
+	 * 
+	 * @param threadBinding
+	 *            the binding of the flow that owns this context
+	 */
+	public void setThreadBinding(FlowThreadBinding threadBinding) {
+		this.threadBinding = threadBinding;
+	}
+
+	/**
+	 * Returns the binding of the threads executing the code on behalf of the flow.
+	 * 
+	 * @return the binding or <code>null</code>, if the flow can't be cancelled
+	 */
+	public FlowThreadBinding getThreadBinding() {
+		return threadBinding;
+	}
+
 	private static class ActionContextImpl extends ActionContext {
 
 		private static final String NAME_IS_NULL_ERR_MSG = "Parameter's name must not be null";
 
 		private static final String VALUE_IS_NULL_ERR_MSG = "Parameter's value must not be null";
 
-		private Map<String, Object> params = new HashMap<>();
+		// The instance can be shared by the parallel sub-flows
+		private Map<String, Object> params = new ConcurrentHashMap<>();
 
 		@Override
 		public Object getParameter(String name) {
@@ -0,0 +1,206 @@
+package com.ilsid.bfa.action;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Base class for the non-blocking action. The action is started by {@link #executeAsync()} and its result is obtained
+ * later from the returned future. It allows a flow to start several actions (for example, the calls of the remote
+ * systems) and to wait for all of them at once. The blocking {@link #execute()} method just waits for the result of
+ * {@link #executeAsync()}.
+ * <p>
+ * The action implementation may return the future provided by an asynchronous client library or submit the blocking
+ * code via {@link #submit(Callable)}. The submitted code is executed by the bounded pool shared by all actions. If all
+ * pool threads are busy, the code is executed by the calling thread. The pool thread executing the code is bound to
+ * the flow, so it is interrupted when the flow is cancelled. The pool threads are released by
+ * {@link #shutdownExecutor()}.
+ * </p>
+ *
+ * @author illia.sydorovych
+ *
+ */
+public abstract class AsyncAction extends Action {
+
+	private static final String THREAD_NAME_PREFIX = "bfa-action-";
+
+	private static final long KEEP_ALIVE_SECONDS = 60;
+
+	private static final int POOL_SIZE_DEFAULT_VALUE = 100;
+
+	private static final Object EXECUTOR_LOCK = new Object();
+
+	private static ThreadPoolExecutor executor;
+
+	private static int poolSize = POOL_SIZE_DEFAULT_VALUE;
+
+	/**
+	 * Defines the maximum number of threads executing the code submitted by the actions.
+	 *
+	 * @param size
+	 *            the pool size
+	 */
+	public static void setPoolSize(int size) {
+		synchronized (EXECUTOR_LOCK) {
+			poolSize = size;
+			if (executor != null) {
+				executor.setMaximumPoolSize(size);
+			}
+		}
+	}
+
+	/**
+	 * Stops the threads executing the code submitted by the actions. The already submitted code is completed. The
+	 * code submitted afterwards gets the new threads.
+	 */
+	public static void shutdownExecutor() {
+		synchronized (EXECUTOR_LOCK) {
+			if (executor != null) {
+				executor.shutdown();
+				executor = null;
+			}
+		}
+	}
+
+	/**
+	 * Starts an action. The method must not block waiting for the action completion.
+	 *
+	 * @return the future of the execution result. The result may be <code>null</code> or an empty array, if an action
+	 *         is not supposed to provide any result. The future fails with {@link ActionException} in case of the
+	 *         action failures
+	 * @throws ActionException
+	 *             if the action can't be started
+	 */
+	public abstract Future<Object[]> executeAsync() throws ActionException;
+
+	/**
+	 * Starts an action and waits for its completion.
+	 *
+	 * @return an execution result or an empty array, if an action is not supposed to provide any result
+	 * @throws ActionException
+	 *             in case of any failures
+	 */
+	@Override
+	public final Object[] execute() throws ActionException {
+		return getResult(executeAsync());
+	}
+
+	/**
+	 * Waits for the result of the started action.
+	 *
+	 * @param future
+	 *            the future returned by {@link #executeAsync()}
+	 * @return an execution result
+	 * @throws ActionException
+	 *             if the action failed or the waiting thread was interrupted
+	 */
+	public static Object[] getResult(Future<Object[]> future) throws ActionException {
+		try {
+			return future.get();
+		} catch (ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof ActionException) {
+				throw (ActionException) cause;
+			}
+			throw new ActionException("The action failed", cause);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ActionException("Interrupted while waiting for the action result", e);
+		}
+	}
+
+	/**
+	 * Executes the given blocking code in a separate thread. The code has access to the context and the input
+	 * parameters of this action.
+	 *
+	 * @param task
+	 *            the code producing the action result
+	 * @return the future of the task result
+	 */
+	protected final Future<Object[]> submit(final Callable<Object[]> task) {
+		final ActionContext context = getContext();
+		final FlowThreadBinding threadBinding = context != null ? context.getThreadBinding() : null;
+		final Object[] params = getInputParameters();
+		final Thread callingThread = Thread.currentThread();
+		final ClassLoader contextClassLoader = callingThread.getContextClassLoader();
+
+		return getExecutor().submit(new Callable<Object[]>() {
+
+			public Object[] call() throws Exception {
+				final Thread currentThread = Thread.currentThread();
+				if (currentThread == callingThread) {
+					// The pool is full, the calling thread already has the action state
+					return task.call();
+				}
+
+				final ClassLoader previousClassLoader = currentThread.getContextClassLoader();
+				ActionContext.attach(context);
+				setContext(context);
+				setInputParameters(params);
+				currentThread.setContextClassLoader(contextClassLoader);
+				if (threadBinding != null) {
+					threadBinding.attach();
+				}
+				try {
+					return task.call();
+				} finally {
+					if (threadBinding != null) {
+						threadBinding.detach();
+					}
+					currentThread.setContextClassLoader(previousClassLoader);
+					setInputParameters(null);
+					setContext(null);
+					ActionContext.cleanup();
+				}
+			}
+		});
+	}
+
+	private static ExecutorService getExecutor() {
+		synchronized (EXECUTOR_LOCK) {
+			if (executor == null) {
+				executor = new ThreadPoolExecutor(0, poolSize, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+						new SynchronousQueue<Runnable>(), new ActionThreadFactory(), new CallerRunsUnlessShutdownPolicy());
+			}
+
+			return executor;
+		}
+	}
+
+	/*
+	 * The executor may be shut down after it was obtained by the submitting thread, then the task is rejected.
+	 */
+	private static class CallerRunsUnlessShutdownPolicy implements RejectedExecutionHandler {
+
+		public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+			if (executor.isShutdown()) {
+				throw new RejectedExecutionException("The action executor has been shut down");
+			}
+
+			task.run();
+		}
+
+	}
+
+	private static class ActionThreadFactory implements ThreadFactory {
+
+		private final AtomicInteger threadCount = new AtomicInteger();
+
+		public Thread newThread(Runnable task) {
+			Thread thread = new Thread(task, THREAD_NAME_PREFIX + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+
+			return thread;
+		}
+
+	}
+
+}
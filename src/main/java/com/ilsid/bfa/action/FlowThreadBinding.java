@@ -0,0 +1,23 @@
+package com.ilsid.bfa.action;
+
+/**
+ * Binds the threads executing the code on behalf of a flow to the flow, so the script runtime can interrupt all of
+ * them when the flow is cancelled. The binding of the flow is obtained from its {@link ActionContext}.
+ *
+ * @author illia.sydorovych
+ *
+ */
+public interface FlowThreadBinding {
+
+	/**
+	 * Binds the current thread to the flow. The thread may be bound several times, it stays bound until each binding
+	 * is released by {@link #detach()}.
+	 */
+	void attach();
+
+	/**
+	 * Releases the binding of the current thread made by {@link #attach()}.
+	 */
+	void detach();
+
+}
@@ -0,0 +1,22 @@
+package com.ilsid.bfa.action;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * States that an {@link Action} implementation does not keep any state in its fields. The single instance of such
+ * action is created and reused for all invocations, including the concurrent ones. The input parameters are bound to
+ * the current invocation, so {@link Action#getInputParameters()} can be safely used.
+ * 
+ * @author illia.sydorovych
+ *
+ */
+@Documented
+@Target(value = ElementType.TYPE)
+@Retention(value = RetentionPolicy.RUNTIME)
+public @interface Stateless {
+
+}
@@ -79,7 +79,7 @@ public class ActionClassLoader extends ClassLoader {
 	/**
 	 * Reloads classes related to the given action. Implicitly creates new action loader. The consequent invocation of
 	 * {@linkplain #getLoader(String)} will return this new loader. Does nothing if the action with the given name has
-	 * been never loaded before.
+	 * been never loaded before. The resolved action implementations cached by {@link ActionLocator} are dropped.
 	 * 
 	 * @param actionName
 	 *            action name
@@ -94,6 +94,8 @@ public class ActionClassLoader extends ClassLoader {
 				loaders.put(actionName, loader);
 			}
 		}
+
+		ActionFactoryCache.invalidateAll();
 	}
 
 	/**
@@ -107,12 +109,15 @@ public class ActionClassLoader extends ClassLoader {
 		} finally {
 			WRITE_COMMON_LIBS_LOCK.unlock();
 		}
+
+		ActionFactoryCache.invalidateAll();
 	}
 
 	/**
 	 * Releases resources (like jar files) locked by the given action. The consequent invocation of
 	 * {@linkplain #getLoader(String)} will return new loader for this action. Does nothing if the action with the given
-	 * name has been never loaded before.
+	 * name has been never loaded before. The resolved action implementations cached by {@link ActionLocator} are
+	 * dropped.
 	 * 
 	 * @param actionName
 	 *            action name
@@ -126,6 +131,8 @@ public class ActionClassLoader extends ClassLoader {
 				loader.close();
 			}
 		}
+
+		ActionFactoryCache.invalidateAll();
 	}
 
 	/**
@@ -0,0 +1,127 @@
+package com.ilsid.bfa.action.persistence;
+
+import java.lang.invoke.MethodHandle;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.ilsid.bfa.action.Action;
+
+/**
+ * Caches the action implementations resolved by a single {@link ActionLocator}. The whole cache is dropped when the
+ * locator gets another repository. The action class loaders are shared, so the caches of all locators are dropped on
+ * any action reloading or resources releasing, as these operations are rare. The cached results of the cacheable
+ * actions are dropped as well.
+ * 
+ * @author illia.sydorovych
+ *
+ */
+class ActionFactoryCache {
+
+	private static final Set<ActionFactoryCache> caches = Collections
+			.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<ActionFactoryCache, Boolean>()));
+
+	private final Map<String, ActionFactory> factories = new ConcurrentHashMap<>();
+
+	private final AtomicInteger generation = new AtomicInteger();
+
+	ActionFactoryCache() {
+		caches.add(this);
+	}
+
+	/**
+	 * Returns the cached factory for the given action.
+	 * 
+	 * @param actionName
+	 *            the action name
+	 * @return the factory or <code>null</code> if the action has not been resolved yet or the cache has been
+	 *         invalidated since then
+	 */
+	ActionFactory get(String actionName) {
+		ActionFactory factory = factories.get(actionName);
+		if (factory != null && factory.generation != generation.get()) {
+			return null;
+		}
+
+		return factory;
+	}
+
+	/**
+	 * Returns the current cache generation. The value must be obtained before the action resolution and passed to the
+	 * created factory.
+	 * 
+	 * @return the current generation
+	 */
+	int currentGeneration() {
+		return generation.get();
+	}
+
+	/**
+	 * Puts the factory for the given action.
+	 * 
+	 * @param actionName
+	 *            the action name
+	 * @param factory
+	 *            the action factory
+	 */
+	void put(String actionName, ActionFactory factory) {
+		factories.put(actionName, factory);
+	}
+
+	/**
+	 * Drops all cached factories.
+	 */
+	void invalidate() {
+		generation.incrementAndGet();
+		factories.clear();
+	}
+
+	/**
+	 * Drops the cached factories of all locators.
+	 */
+	static void invalidateAll() {
+		synchronized (caches) {
+			for (ActionFactoryCache cache : caches) {
+				cache.invalidate();
+			}
+		}
+	}
+
+	/*
+	 * The generation allows to ignore a factory that was cached by a concurrent thread right before the invalidation.
+	 */
+	static class ActionFactory {
+
+		private final MethodHandle constructor;
+
+		private final Action sharedInstance;
+
+		private final int generation;
+
+		private final ActionResultCache resultCache;
+
+		ActionFactory(MethodHandle constructor, Action sharedInstance, int generation,
+				ActionResultCache resultCache) {
+			this.constructor = constructor;
+			this.sharedInstance = sharedInstance;
+			this.generation = generation;
+			this.resultCache = resultCache;
+		}
+
+		Action newInstance() throws Throwable {
+			if (sharedInstance != null) {
+				return sharedInstance;
+			}
+
+			return (Action) constructor.invokeExact();
+		}
+
+		ActionResultCache getResultCache() {
+			return resultCache;
+		}
+	}
+
+}
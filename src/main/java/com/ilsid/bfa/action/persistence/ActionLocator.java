@@ -1,13 +1,25 @@
 package com.ilsid.bfa.action.persistence;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Map;
+
 import javax.inject.Inject;
 
+import com.ilsid.bfa.ConfigurationException;
 import com.ilsid.bfa.action.Action;
 import com.ilsid.bfa.action.ActionException;
+import com.ilsid.bfa.action.Stateless;
+import com.ilsid.bfa.action.persistence.ActionFactoryCache.ActionFactory;
+import com.ilsid.bfa.common.ConfigUtil;
 import com.ilsid.bfa.persistence.PersistenceException;
 
 /**
- * Provides the action implementations.
+ * Provides the action implementations. The resolved implementations are cached until the action is reloaded or its
+ * resources are released (see {@link ActionClassLoader}). The single instance of the {@link Stateless} action is
+ * reused for all lookups. The cacheable actions get the {@link ActionResultCache} that is dropped together with the
+ * resolved implementation.
  * 
  * @author illia.sydorovych
  *
@@ -16,8 +28,16 @@ public class ActionLocator {
 
 	private static final String ACTION_DOES_NOT_EXIST_MSG_TPLT = "Action [%s] does not exist";
 
+	private static final String INSTANTIATION_FAILED_MSG_TPLT = "Failed to instantiate the action [%s]";
+
+	private static final MethodType FACTORY_TYPE = MethodType.methodType(Action.class);
+
+	private static final MethodHandles.Lookup LOOKUP = MethodHandles.publicLookup();
+
 	private ActionRepository repository;
 
+	private final ActionFactoryCache factoryCache = new ActionFactoryCache();
+
 	/**
 	 * Provides the action implementation by the given name.
 	 * 
@@ -28,18 +48,32 @@ public class ActionLocator {
 	 *             if the action with the given name does not exist or the repository access issue occurred
 	 */
 	public Action lookup(String actionName) throws ActionException {
-		String actionClassName = getImplementationClassName(actionName);
+		final ActionFactory factory = getFactory(actionName);
 
-		if (actionClassName == null) {
-			throw new ActionException(String.format(ACTION_DOES_NOT_EXIST_MSG_TPLT, actionName));
+		Action action;
+		try {
+			action = factory.newInstance();
+		} catch (Throwable e) {
+			throw new ActionException(String.format(INSTANTIATION_FAILED_MSG_TPLT, actionName), e);
 		}
 
-		Class<Action> actionClass = loadClass(actionClassName, actionName);
-		Action action = createInstance(actionClass, actionName);
-
 		return action;
 	}
 
+	/**
+	 * Provides the result cache of the given action.
+	 * 
+	 * @param actionName
+	 *            the action name
+	 * @return the result cache or <code>null</code> if the action is not cacheable
+	 * @throws ActionException
+	 *             if the action with the given name does not exist, its cache configuration is invalid or the
+	 *             repository access issue occurred
+	 */
+	public ActionResultCache getResultCache(String actionName) throws ActionException {
+		return getFactory(actionName).getResultCache();
+	}
+
 	/**
 	 * Defines the code repository implementation
 	 * 
@@ -49,6 +83,64 @@ public class ActionLocator {
 	@Inject
 	public void setRepository(ActionRepository repository) {
 		this.repository = repository;
+		factoryCache.invalidate();
+	}
+
+	private ActionFactory getFactory(String actionName) throws ActionException {
+		ActionFactory factory = factoryCache.get(actionName);
+		if (factory == null) {
+			factory = createFactory(actionName);
+			factoryCache.put(actionName, factory);
+		}
+
+		return factory;
+	}
+
+	private ActionFactory createFactory(String actionName) throws ActionException {
+		final int generation = factoryCache.currentGeneration();
+		String actionClassName = getImplementationClassName(actionName);
+
+		if (actionClassName == null) {
+			throw new ActionException(String.format(ACTION_DOES_NOT_EXIST_MSG_TPLT, actionName));
+		}
+
+		Class<Action> actionClass = loadClass(actionClassName, actionName);
+		MethodHandle constructor = getConstructor(actionClass, actionName);
+
+		Action sharedInstance = null;
+		if (actionClass.isAnnotationPresent(Stateless.class)) {
+			try {
+				sharedInstance = (Action) constructor.invokeExact();
+			} catch (Throwable e) {
+				throw new ActionException(String.format(INSTANTIATION_FAILED_MSG_TPLT, actionName), e);
+			}
+		}
+
+		return new ActionFactory(constructor, sharedInstance, generation, createResultCache(actionName));
+	}
+
+	private ActionResultCache createResultCache(String actionName) throws ActionException {
+		Map<String, String> config;
+		try {
+			config = repository.loadConfiguration(actionName);
+		} catch (PersistenceException e) {
+			throw new ActionException(
+					String.format("Failed to load configuration of the action [%s]", actionName), e);
+		}
+
+		if (config == null || config.get(ActionResultCache.CONFIG_PROP_TTL) == null) {
+			return null;
+		}
+
+		try {
+			final int ttl = ConfigUtil.getPositiveIntegerValue(ActionResultCache.CONFIG_PROP_TTL, config, 0);
+			final int size = ConfigUtil.getPositiveIntegerValue(ActionResultCache.CONFIG_PROP_SIZE, config,
+					ActionResultCache.SIZE_DEFAULT_VALUE);
+			return new ActionResultCache(ttl, size);
+		} catch (ConfigurationException e) {
+			throw new ActionException(
+					String.format("Invalid result cache configuration of the action [%s]", actionName), e);
+		}
 	}
 
 	private String getImplementationClassName(String actionName) throws ActionException {
@@ -65,27 +157,29 @@ public class ActionLocator {
 
 	@SuppressWarnings("unchecked")
 	private Class<Action> loadClass(String className, String actionName) throws ActionException {
-		Class<Action> actionClass;
+		Class<?> loadedClass;
 		try {
-			actionClass = (Class<Action>) ActionClassLoader.getLoader(actionName).loadClass(className);
+			loadedClass = ActionClassLoader.getLoader(actionName).loadClass(className);
 		} catch (ClassNotFoundException e) {
 			throw new ActionException(String.format(ACTION_DOES_NOT_EXIST_MSG_TPLT, actionName), e);
-		} catch (ClassCastException e) {
+		}
+
+		if (!Action.class.isAssignableFrom(loadedClass)) {
 			throw new ActionException(
-					String.format("Improper implementation class was loaded for the action [%s]", actionName), e);
+					String.format("Improper implementation class was loaded for the action [%s]", actionName));
 		}
 
-		return actionClass;
+		return (Class<Action>) loadedClass;
 	}
 
-	private Action createInstance(Class<Action> clazz, String actionName) throws ActionException {
-		Action instance;
+	private MethodHandle getConstructor(Class<Action> clazz, String actionName) throws ActionException {
+		MethodHandle constructor;
 		try {
-			instance = clazz.newInstance();
-		} catch (InstantiationException | IllegalAccessException e) {
-			throw new ActionException(String.format("Failed to instantiate the action [%s]", actionName), e);
+			constructor = LOOKUP.findConstructor(clazz, MethodType.methodType(void.class)).asType(FACTORY_TYPE);
+		} catch (NoSuchMethodException | IllegalAccessException e) {
+			throw new ActionException(String.format(INSTANTIATION_FAILED_MSG_TPLT, actionName), e);
 		}
 
-		return instance;
+		return constructor;
 	}
 }
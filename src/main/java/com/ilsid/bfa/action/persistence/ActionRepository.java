@@ -138,6 +138,18 @@ public interface ActionRepository extends Configurable, Transactional {
 	 */
 	ActionInfo loadInfo(String actionName) throws PersistenceException;
 
+	/**
+	 * Loads the configuration properties of the given action, such as the implementation class name and the result
+	 * caching settings.
+	 *
+	 * @param actionName
+	 *            action name
+	 * @return the configuration properties or <code>null</code>, if such action does not exist or has no configuration
+	 * @throws PersistenceException
+	 *             in case of any repository access issues
+	 */
+	Map<String, String> loadConfiguration(String actionName) throws PersistenceException;
+
 	/**
 	 * Deletes action from the repository.
 	 * 
@@ -0,0 +1,249 @@
+package com.ilsid.bfa.action.persistence;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ilsid.bfa.common.JsonUtil;
+import com.ilsid.bfa.common.Metrics;
+
+/**
+ * Caches the results of the idempotent action. The results are kept for the given time and are mapped to the action
+ * input parameters. The number of the kept results is bounded, the least recently used results are evicted.
+ * <p>
+ * The parameters and the results are kept in JSON. So the parameters are compared by their content, including the
+ * script entities that don't implement {@link Object#equals(Object)}, and each caller gets own deep copy of the
+ * result. The call with the parameters or the result that can't be converted to JSON and back is not cached.
+ * </p>
+ * <p>
+ * The action is cacheable if its configuration defines <code>action.cache.ttl</code> property (in milliseconds). The
+ * optional <code>action.cache.size</code> property limits the number of the kept results.
+ * </p>
+ *
+ * @author illia.sydorovych
+ *
+ */
+public class ActionResultCache {
+
+	static final String CONFIG_PROP_TTL = "action.cache.ttl";
+
+	static final String CONFIG_PROP_SIZE = "action.cache.size";
+
+	static final int SIZE_DEFAULT_VALUE = 1000;
+
+	private static final Metrics.Counter HITS_COUNTER = Metrics.counter("bfa_action_cache_hits_total",
+			"Action calls served from the result cache");
+
+	private static final Metrics.Counter MISSES_COUNTER = Metrics.counter("bfa_action_cache_misses_total",
+			"Action calls not found in the result cache");
+
+	private static final Metrics.Counter EVICTIONS_COUNTER = Metrics.counter("bfa_action_cache_evictions_total",
+			"Action results evicted from the cache as expired or exceeding the size limit");
+
+	private final Logger logger = LoggerFactory.getLogger(ActionResultCache.class);
+
+	private final long ttlNanos;
+
+	private final Map<List<String>, CachedResult> results;
+
+	private final AtomicLong hitCount = new AtomicLong();
+
+	private final AtomicLong missCount = new AtomicLong();
+
+	private final AtomicLong evictionCount = new AtomicLong();
+
+	private final AtomicBoolean notCachedCallLogged = new AtomicBoolean();
+
+	/**
+	 * Creates the cache.
+	 *
+	 * @param ttlMillis
+	 *            the time the result is kept, in milliseconds
+	 * @param maxSize
+	 *            the maximum number of the kept results
+	 */
+	@SuppressWarnings("serial")
+	public ActionResultCache(long ttlMillis, final int maxSize) {
+		ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+		results = new LinkedHashMap<List<String>, CachedResult>(16, 0.75f, true) {
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<List<String>, CachedResult> eldest) {
+				if (size() > maxSize) {
+					countEviction();
+					return true;
+				}
+
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Returns the cached result of the action call with the given input parameters.
+	 *
+	 * @param params
+	 *            the action input parameters
+	 * @return the action result or <code>null</code> if the result is not cached or expired
+	 */
+	public Object[] get(Object[] params) {
+		final List<String> key = toKey(params);
+		CachedResult result = null;
+		if (key != null) {
+			synchronized (results) {
+				result = results.get(key);
+				if (result != null && result.isExpired()) {
+					results.remove(key);
+					countEviction();
+					result = null;
+				}
+			}
+		}
+
+		if (result == null) {
+			missCount.incrementAndGet();
+			MISSES_COUNTER.increment();
+			return null;
+		}
+
+		hitCount.incrementAndGet();
+		HITS_COUNTER.increment();
+		try {
+			return result.getValue();
+		} catch (IOException e) {
+			// Not expected, as the result was restored once before caching
+			throw new IllegalStateException("Failed to restore the cached action result", e);
+		}
+	}
+
+	/**
+	 * Caches the result of the action call with the given input parameters.
+	 *
+	 * @param params
+	 *            the action input parameters
+	 * @param result
+	 *            the action result. The <code>null</code> result is cached as an empty one
+	 */
+	public void put(Object[] params, Object[] result) {
+		final List<String> key = toKey(params);
+		if (key == null) {
+			return;
+		}
+
+		CachedResult value;
+		try {
+			value = new CachedResult(result != null ? result : new Object[] {}, System.nanoTime() + ttlNanos);
+			// The result that can't be restored is not cached
+			value.getValue();
+		} catch (IOException e) {
+			logNotCachedCall("The action result is not cached, as it can't be converted to JSON and back", e);
+			return;
+		}
+
+		synchronized (results) {
+			results.put(key, value);
+		}
+	}
+
+	/**
+	 * Returns the number of the cached results, including the expired ones that have not been evicted yet.
+	 *
+	 * @return the number of the results
+	 */
+	public int size() {
+		synchronized (results) {
+			return results.size();
+		}
+	}
+
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	public long getEvictionCount() {
+		return evictionCount.get();
+	}
+
+	/*
+	 * The class name is a part of the key, as the values of different types may have the same JSON
+	 */
+	private List<String> toKey(Object[] params) {
+		List<String> key = new ArrayList<>(params.length);
+		try {
+			for (Object param : params) {
+				key.add(param != null ? param.getClass().getName() + ':' + JsonUtil.toJsonString(param) : null);
+			}
+		} catch (IOException e) {
+			logNotCachedCall("The action result is not cached, as the input parameters can't be converted to JSON", e);
+			return null;
+		}
+
+		return key;
+	}
+
+	/*
+	 * The same call is not cached each time, so only the first occurrence is reported as a warning
+	 */
+	private void logNotCachedCall(String message, IOException e) {
+		if (notCachedCallLogged.compareAndSet(false, true)) {
+			logger.warn(message, e);
+		} else if (logger.isDebugEnabled()) {
+			logger.debug(message, e);
+		}
+	}
+
+	private void countEviction() {
+		evictionCount.incrementAndGet();
+		EVICTIONS_COUNTER.increment();
+	}
+
+	private static class CachedResult {
+
+		private final Class<?>[] types;
+
+		private final String[] values;
+
+		private final long expirationTime;
+
+		CachedResult(Object[] value, long expirationTime) throws IOException {
+			types = new Class<?>[value.length];
+			values = new String[value.length];
+			for (int i = 0; i < value.length; i++) {
+				if (value[i] != null) {
+					types[i] = value[i].getClass();
+					values[i] = JsonUtil.toJsonString(value[i]);
+				}
+			}
+			this.expirationTime = expirationTime;
+		}
+
+		Object[] getValue() throws IOException {
+			Object[] result = new Object[values.length];
+			for (int i = 0; i < result.length; i++) {
+				if (values[i] != null) {
+					result[i] = JsonUtil.toObject(values[i], types[i]);
+				}
+			}
+
+			return result;
+		}
+
+		boolean isExpired() {
+			return System.nanoTime() - expirationTime >= 0;
+		}
+
+	}
+
+}
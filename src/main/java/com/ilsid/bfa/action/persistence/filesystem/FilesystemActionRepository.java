@@ -11,6 +11,7 @@ import java.io.OutputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -230,6 +231,30 @@ public class FilesystemActionRepository extends FilesystemRepository implements
 		return new ActionInfo(implClassName, dependencies);
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.ilsid.bfa.action.persistence.ActionRepository#loadConfiguration(java.lang.String)
+	 */
+	public Map<String, String> loadConfiguration(String actionName) throws PersistenceException {
+		File actionDir = getActionDir(actionName);
+		if (!actionDir.isDirectory()) {
+			return null;
+		}
+
+		Properties props = loadActionProperties(actionDir);
+		if (props == null) {
+			return null;
+		}
+
+		Map<String, String> result = new HashMap<>();
+		for (String propName : props.stringPropertyNames()) {
+			result.put(propName, props.getProperty(propName));
+		}
+
+		return result;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -357,13 +382,9 @@ public class FilesystemActionRepository extends FilesystemRepository implements
 	}
 
 	private String getActionClassName(File actionDir) throws PersistenceException {
-		Properties props = new Properties();
-		try (InputStream is = new FileInputStream(new File(actionDir, CONFIG_FILE_NAME))) {
-			props.load(is);
-		} catch (FileNotFoundException e) {
+		Properties props = loadActionProperties(actionDir);
+		if (props == null) {
 			return null;
-		} catch (IOException e) {
-			throw new PersistenceException("Failed to load the action configuration", e);
 		}
 
 		String className = props.getProperty(CLASS_NAME_PROP);
@@ -374,6 +395,19 @@ public class FilesystemActionRepository extends FilesystemRepository implements
 		return className;
 	}
 
+	private Properties loadActionProperties(File actionDir) throws PersistenceException {
+		Properties props = new Properties();
+		try (InputStream is = new FileInputStream(new File(actionDir, CONFIG_FILE_NAME))) {
+			props.load(is);
+		} catch (FileNotFoundException e) {
+			return null;
+		} catch (IOException e) {
+			throw new PersistenceException("Failed to load the action configuration", e);
+		}
+
+		return props;
+	}
+
 	private boolean actionExists(String actionName) throws PersistenceException {
 		File dir = getActionDir(actionName);
 
@@ -0,0 +1,131 @@
+package com.ilsid.bfa.common;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of latencies measured in nanoseconds. Each power of two range is split into
+ * {@value #SUB_BUCKETS} linear buckets, so the reported quantiles are accurate within 12.5%. The recording does not
+ * allocate any objects and does not block the concurrent recorders.
+ *
+ * @author illia.sydorovych
+ *
+ */
+public final class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 3;
+
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+	private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+	private final AtomicLong count = new AtomicLong();
+
+	private final AtomicLong sum = new AtomicLong();
+
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * Records the value.
+	 *
+	 * @param nanos
+	 *            the latency in nanoseconds. The negative value is recorded as zero
+	 */
+	public void record(long nanos) {
+		final long value = Math.max(nanos, 0);
+		buckets.incrementAndGet(getBucketIndex(value));
+		count.incrementAndGet();
+		sum.addAndGet(value);
+
+		long currentMax = max.get();
+		while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+			currentMax = max.get();
+		}
+	}
+
+	/**
+	 * Returns the number of the recorded values.
+	 *
+	 * @return the values count
+	 */
+	public long getCount() {
+		return count.get();
+	}
+
+	/**
+	 * Returns the sum of the recorded values.
+	 *
+	 * @return the sum in nanoseconds
+	 */
+	public long getSum() {
+		return sum.get();
+	}
+
+	/**
+	 * Returns the maximal recorded value.
+	 *
+	 * @return the maximal value in nanoseconds
+	 */
+	public long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * Returns the value the given fraction of the recorded values does not exceed. The values recorded concurrently
+	 * with this method may be not taken into account.
+	 *
+	 * @param quantile
+	 *            the quantile from 0 to 1
+	 * @return the upper bound of the bucket the quantile falls into, in nanoseconds, but not greater than the maximal
+	 *         recorded value. If there are no recorded values, zero is returned
+	 */
+	public long getValueAtQuantile(double quantile) {
+		long total = 0;
+		final long[] snapshot = new long[BUCKETS];
+		for (int i = 0; i < BUCKETS; i++) {
+			snapshot[i] = buckets.get(i);
+			total += snapshot[i];
+		}
+
+		if (total == 0) {
+			return 0;
+		}
+
+		final long rank = Math.max((long) Math.ceil(quantile * total), 1);
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += snapshot[i];
+			if (seen >= rank) {
+				return Math.min(getBucketUpperBound(i), getMax());
+			}
+		}
+
+		return getMax();
+	}
+
+	static int getBucketIndex(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+
+		final int magnitude = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+		final int shift = magnitude - SUB_BUCKET_BITS;
+		final int subBucket = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+
+		return (shift + 1) * SUB_BUCKETS + subBucket;
+	}
+
+	static long getBucketUpperBound(int index) {
+		if (index < SUB_BUCKETS) {
+			return index;
+		}
+
+		final int shift = index / SUB_BUCKETS - 1;
+		final long lowerBound = ((long) (SUB_BUCKETS + index % SUB_BUCKETS)) << shift;
+
+		return lowerBound + (1L << shift) - 1;
+	}
+
+}
@@ -0,0 +1,512 @@
+package com.ilsid.bfa.common;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The registry of the application metrics. Most metrics are the timers that count the operations, the failed
+ * operations and keep the {@link LatencyHistogram} of the operation durations. The timers of the same group differ by
+ * the value of the single label, such as the script or action name. Besides the timers, the registry keeps the
+ * {@link Gauge gauges} of the current values and the {@link Counter counters} of the events.
+ * <p>
+ * The timers are exported as the list of {@link TimerSnapshot} instances, the gauges and counters as the map of the
+ * current values. All metrics are exported in the Prometheus text format.
+ * </p>
+ *
+ * @author illia.sydorovych
+ *
+ */
+public final class Metrics {
+
+	private static final String DURATION_SUFFIX = "_duration_seconds";
+
+	private static final String FAILURES_SUFFIX = "_failures_total";
+
+	private static final String MAX_SUFFIX = "_max";
+
+	private static final double[] QUANTILES = new double[] { 0.5, 0.9, 0.99, 0.999 };
+
+	private static final double NANOS_IN_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+	private static final double NANOS_IN_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+	private static final String NO_LABEL = "";
+
+	private static final String GAUGE_TYPE = "gauge";
+
+	private static final String COUNTER_TYPE = "counter";
+
+	private static final ConcurrentMap<String, TimerGroup> groups = new ConcurrentSkipListMap<>();
+
+	private static final ConcurrentMap<String, ValueMetric> values = new ConcurrentSkipListMap<>();
+
+	private Metrics() {
+	}
+
+	/**
+	 * Registers the group of the labeled timers. If the group with such name is already registered, it is returned.
+	 *
+	 * @param name
+	 *            the metric name prefix, such as <code>bfa_script</code>
+	 * @param description
+	 *            the description of the measured operation
+	 * @param labelName
+	 *            the name of the label that differs the timers of the group
+	 * @return the timer group
+	 */
+	public static TimerGroup timerGroup(String name, String description, String labelName) {
+		TimerGroup group = groups.get(name);
+		if (group == null) {
+			group = new TimerGroup(name, description, labelName);
+			TimerGroup existingGroup = groups.putIfAbsent(name, group);
+			if (existingGroup != null) {
+				group = existingGroup;
+			}
+		}
+
+		return group;
+	}
+
+	/**
+	 * Registers the single timer without labels. If the timer with such name is already registered, it is returned.
+	 *
+	 * @param name
+	 *            the metric name prefix, such as <code>bfa_class_reload</code>
+	 * @param description
+	 *            the description of the measured operation
+	 * @return the timer
+	 */
+	public static Timer timer(String name, String description) {
+		return timerGroup(name, description, null).get(NO_LABEL);
+	}
+
+	/**
+	 * Registers the gauge. If the gauge with such name is already registered, it is replaced, so the gauge of the
+	 * re-created component reports its values.
+	 *
+	 * @param name
+	 *            the metric name, such as <code>bfa_admission_active</code>
+	 * @param description
+	 *            the description of the measured value
+	 * @param gauge
+	 *            the source of the current value
+	 */
+	public static void gauge(String name, String description, Gauge gauge) {
+		values.put(name, new ValueMetric(description, GAUGE_TYPE, gauge));
+	}
+
+	/**
+	 * Registers the counter. If the counter with such name is already registered, it is returned.
+	 *
+	 * @param name
+	 *            the metric name, such as <code>bfa_admission_rejected_total</code>
+	 * @param description
+	 *            the description of the counted events
+	 * @return the counter
+	 */
+	public static Counter counter(String name, String description) {
+		ValueMetric metric = values.get(name);
+		if (metric == null) {
+			metric = new ValueMetric(description, COUNTER_TYPE, new Counter());
+			ValueMetric existingMetric = values.putIfAbsent(name, metric);
+			if (existingMetric != null) {
+				metric = existingMetric;
+			}
+		}
+
+		return (Counter) metric.source;
+	}
+
+	/**
+	 * Returns the current values of all timers.
+	 *
+	 * @return the timer snapshots ordered by the metric name and the label value
+	 */
+	public static List<TimerSnapshot> getSnapshots() {
+		List<TimerSnapshot> result = new ArrayList<>();
+		for (TimerGroup group : groups.values()) {
+			for (Map.Entry<String, Timer> entry : group.getSortedTimers().entrySet()) {
+				result.add(entry.getValue().createSnapshot(group, entry.getKey()));
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Returns the current values of all gauges and counters.
+	 *
+	 * @return the values ordered by the metric name
+	 */
+	public static Map<String, Long> getValues() {
+		Map<String, Long> result = new TreeMap<>();
+		for (Map.Entry<String, ValueMetric> entry : values.entrySet()) {
+			result.put(entry.getKey(), entry.getValue().source.getValue());
+		}
+
+		return result;
+	}
+
+	/**
+	 * Returns the current values of all metrics in the Prometheus text exposition format. Each timer is exported as the
+	 * <code>summary</code> of the durations in seconds, the <code>gauge</code> of the maximal duration and the
+	 * <code>counter</code> of the failures. The gauges and counters are exported as is.
+	 *
+	 * @return the metrics text
+	 */
+	public static String toPrometheusText() {
+		StringBuilder text = new StringBuilder();
+		for (TimerGroup group : groups.values()) {
+			final Map<String, Timer> timers = group.getSortedTimers();
+			if (timers.isEmpty()) {
+				continue;
+			}
+
+			final String durationName = group.name + DURATION_SUFFIX;
+			appendHeader(text, durationName, group.description + ", in seconds", "summary");
+			for (Map.Entry<String, Timer> entry : timers.entrySet()) {
+				final LatencyHistogram histogram = entry.getValue().histogram;
+				for (double quantile : QUANTILES) {
+					appendSample(text, durationName, group, entry.getKey(), String.valueOf(quantile),
+							toSeconds(histogram.getValueAtQuantile(quantile)));
+				}
+				appendSample(text, durationName + "_sum", group, entry.getKey(), null, toSeconds(histogram.getSum()));
+				appendSample(text, durationName + "_count", group, entry.getKey(), null, histogram.getCount());
+			}
+
+			final String maxName = durationName + MAX_SUFFIX;
+			appendHeader(text, maxName, group.description + ", maximal duration in seconds", "gauge");
+			for (Map.Entry<String, Timer> entry : timers.entrySet()) {
+				appendSample(text, maxName, group, entry.getKey(), null,
+						toSeconds(entry.getValue().histogram.getMax()));
+			}
+
+			final String failuresName = group.name + FAILURES_SUFFIX;
+			appendHeader(text, failuresName, group.description + ", failures", "counter");
+			for (Map.Entry<String, Timer> entry : timers.entrySet()) {
+				appendSample(text, failuresName, group, entry.getKey(), null, entry.getValue().failures.get());
+			}
+		}
+
+		for (Map.Entry<String, ValueMetric> entry : values.entrySet()) {
+			final ValueMetric metric = entry.getValue();
+			appendHeader(text, entry.getKey(), metric.description, metric.type);
+			text.append(entry.getKey()).append(' ').append(metric.source.getValue()).append('\n');
+		}
+
+		return text.toString();
+	}
+
+	/**
+	 * Removes the metrics with the given name. Intended for the tests.
+	 *
+	 * @param name
+	 *            the metric name or the timer name prefix
+	 */
+	static void remove(String name) {
+		groups.remove(name);
+		values.remove(name);
+	}
+
+	private static void appendHeader(StringBuilder text, String name, String help, String type) {
+		text.append("# HELP ").append(name).append(' ').append(help).append('\n');
+		text.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+	}
+
+	private static void appendSample(StringBuilder text, String name, TimerGroup group, String labelValue,
+			String quantile, Object value) {
+		text.append(name);
+		final boolean hasLabel = group.labelName != null;
+		if (hasLabel || quantile != null) {
+			text.append('{');
+			if (hasLabel) {
+				text.append(group.labelName).append("=\"");
+				appendEscaped(text, labelValue);
+				text.append('"');
+			}
+			if (quantile != null) {
+				text.append(hasLabel ? "," : "").append("quantile=\"").append(quantile).append('"');
+			}
+			text.append('}');
+		}
+		text.append(' ').append(value).append('\n');
+	}
+
+	private static void appendEscaped(StringBuilder text, String value) {
+		for (int i = 0; i < value.length(); i++) {
+			final char c = value.charAt(i);
+			if (c == '\\' || c == '"') {
+				text.append('\\').append(c);
+			} else if (c == '\n') {
+				text.append("\\n");
+			} else {
+				text.append(c);
+			}
+		}
+	}
+
+	private static double toSeconds(long nanos) {
+		return nanos / NANOS_IN_SECOND;
+	}
+
+	private static double toMillis(long nanos) {
+		return nanos / NANOS_IN_MILLI;
+	}
+
+	/**
+	 * The source of the current value, such as the number of the running operations.
+	 */
+	public interface Gauge {
+
+		/**
+		 * Returns the current value.
+		 *
+		 * @return the value
+		 */
+		long getValue();
+
+	}
+
+	/**
+	 * Counts the events, such as the rejected operations.
+	 */
+	public static final class Counter implements Gauge {
+
+		private final AtomicLong count = new AtomicLong();
+
+		private Counter() {
+		}
+
+		/**
+		 * Counts the event.
+		 */
+		public void increment() {
+			count.incrementAndGet();
+		}
+
+		/**
+		 * Returns the number of the counted events.
+		 *
+		 * @return the events count
+		 */
+		public long getValue() {
+			return count.get();
+		}
+
+	}
+
+	private static final class ValueMetric {
+
+		private final String description;
+
+		private final String type;
+
+		private final Gauge source;
+
+		private ValueMetric(String description, String type, Gauge source) {
+			this.description = description;
+			this.type = type;
+			this.source = source;
+		}
+
+	}
+
+	/**
+	 * The group of the timers that measure the same operation and differ by the label value.
+	 */
+	public static final class TimerGroup {
+
+		private final String name;
+
+		private final String description;
+
+		private final String labelName;
+
+		private final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<>();
+
+		private TimerGroup(String name, String description, String labelName) {
+			this.name = name;
+			this.description = description;
+			this.labelName = labelName;
+		}
+
+		/**
+		 * Returns the timer for the given label value. The timer is created on the first request.
+		 *
+		 * @param labelValue
+		 *            the label value
+		 * @return the timer
+		 */
+		public Timer get(String labelValue) {
+			Timer timer = timers.get(labelValue);
+			if (timer == null) {
+				timer = new Timer();
+				Timer existingTimer = timers.putIfAbsent(labelValue, timer);
+				if (existingTimer != null) {
+					timer = existingTimer;
+				}
+			}
+
+			return timer;
+		}
+
+		private Map<String, Timer> getSortedTimers() {
+			return new TreeMap<>(timers);
+		}
+
+	}
+
+	/**
+	 * Measures the operation durations and counts the failed operations.
+	 */
+	public static final class Timer {
+
+		private final LatencyHistogram histogram = new LatencyHistogram();
+
+		private final AtomicLong failures = new AtomicLong();
+
+		private Timer() {
+		}
+
+		/**
+		 * Records the successful operation.
+		 *
+		 * @param startTime
+		 *            the operation start time obtained via {@link System#nanoTime()}
+		 */
+		public void record(long startTime) {
+			histogram.record(System.nanoTime() - startTime);
+		}
+
+		/**
+		 * Records the operation.
+		 *
+		 * @param startTime
+		 *            the operation start time obtained via {@link System#nanoTime()}
+		 * @param failed
+		 *            whether the operation failed
+		 */
+		public void record(long startTime, boolean failed) {
+			histogram.record(System.nanoTime() - startTime);
+			if (failed) {
+				failures.incrementAndGet();
+			}
+		}
+
+		/**
+		 * Records the successful operation of the already measured duration.
+		 *
+		 * @param nanos
+		 *            the operation duration in nanoseconds
+		 */
+		public void recordDuration(long nanos) {
+			histogram.record(nanos);
+		}
+
+		private TimerSnapshot createSnapshot(TimerGroup group, String labelValue) {
+			TimerSnapshot snapshot = new TimerSnapshot();
+			snapshot.name = group.name;
+			snapshot.labelName = group.labelName;
+			snapshot.labelValue = group.labelName != null ? labelValue : null;
+			snapshot.count = histogram.getCount();
+			snapshot.failures = failures.get();
+			snapshot.totalMillis = toMillis(histogram.getSum());
+			snapshot.meanMillis = snapshot.count > 0 ? snapshot.totalMillis / snapshot.count : 0;
+			snapshot.p50Millis = toMillis(histogram.getValueAtQuantile(0.5));
+			snapshot.p90Millis = toMillis(histogram.getValueAtQuantile(0.9));
+			snapshot.p99Millis = toMillis(histogram.getValueAtQuantile(0.99));
+			snapshot.p999Millis = toMillis(histogram.getValueAtQuantile(0.999));
+			snapshot.maxMillis = toMillis(histogram.getMax());
+
+			return snapshot;
+		}
+
+	}
+
+	/**
+	 * The values of the single timer.
+	 */
+	public static final class TimerSnapshot {
+
+		private String name;
+
+		private String labelName;
+
+		private String labelValue;
+
+		private long count;
+
+		private long failures;
+
+		private double totalMillis;
+
+		private double meanMillis;
+
+		private double p50Millis;
+
+		private double p90Millis;
+
+		private double p99Millis;
+
+		private double p999Millis;
+
+		private double maxMillis;
+
+		public String getName() {
+			return name;
+		}
+
+		public String getLabelName() {
+			return labelName;
+		}
+
+		public String getLabelValue() {
+			return labelValue;
+		}
+
+		public long getCount() {
+			return count;
+		}
+
+		public long getFailures() {
+			return failures;
+		}
+
+		public double getTotalMillis() {
+			return totalMillis;
+		}
+
+		public double getMeanMillis() {
+			return meanMillis;
+		}
+
+		public double getP50Millis() {
+			return p50Millis;
+		}
+
+		public double getP90Millis() {
+			return p90Millis;
+		}
+
+		public double getP99Millis() {
+			return p99Millis;
+		}
+
+		public double getP999Millis() {
+			return p999Millis;
+		}
+
+		public double getMaxMillis() {
+			return maxMillis;
+		}
+
+	}
+
+}
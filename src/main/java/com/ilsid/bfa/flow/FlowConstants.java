@@ -8,6 +8,8 @@ public class FlowConstants {
 	
 	public static final String SUBFLOW = "Subflow";
 	
+	public static final String PARALLEL_SUBFLOWS = "ParallelSubflows";
+	
 	public static final String TYPE_PROPERTY = "type";
 	
 	public static final String NAME_PROPERTY = "name";
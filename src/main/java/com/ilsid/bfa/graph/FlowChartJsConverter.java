@@ -40,6 +40,7 @@ public class FlowChartJsConverter {
 		DEF_TYPE_MAP.put(FlowConstants.OPERATION, "operation");
 		DEF_TYPE_MAP.put(FlowConstants.CONDITION, "condition");
 		DEF_TYPE_MAP.put(FlowConstants.SUBFLOW, "subroutine");
+		DEF_TYPE_MAP.put(FlowConstants.PARALLEL_SUBFLOWS, "subroutine");
 
 		LABEL_MAP = new HashMap<>();
 		LABEL_MAP.put(FlowConstants.YES_LABEL, "yes");
@@ -19,6 +19,7 @@ import com.github.javaparser.JavaParser;
 import com.github.javaparser.ParseException;
 import com.github.javaparser.ast.CompilationUnit;
 import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.expr.ArrayCreationExpr;
 import com.github.javaparser.ast.expr.BinaryExpr;
 import com.github.javaparser.ast.expr.Expression;
 import com.github.javaparser.ast.expr.MethodCallExpr;
@@ -101,6 +102,8 @@ public class FlowGraphBuilder {
 
 		private static final String QUESTION_MARK = "?";
 
+		private static final String LIST_SEPARATOR = ", ";
+
 		@Override
 		public void visit(MethodCallExpr m, GraphContext context) {
 			for (Node child : m.getChildrenNodes()) {
@@ -199,13 +202,29 @@ public class FlowGraphBuilder {
 			while (matcher.find()) {
 				String placeHolder = matcher.group();
 				int paramIdx = Integer.parseInt(placeHolder.substring(1));
-				String value = ((StringLiteralExpr) methodParams[paramIdx]).getValue();
+				String value = getLiteralValue(methodParams[paramIdx]);
 				name = name.replace(placeHolder, value);
 			}
 
 			return name;
 
 		}
+
+		/*
+		 * Varargs parameters are represented as an array after the source pre-processing. Array elements are joined.
+		 */
+		private String getLiteralValue(Expression param) {
+			if (param instanceof ArrayCreationExpr) {
+				List<String> values = new LinkedList<>();
+				for (Expression element : ((ArrayCreationExpr) param).getInitializer().getValues()) {
+					values.add(((StringLiteralExpr) element).getValue());
+				}
+
+				return StringUtils.join(values, LIST_SEPARATOR);
+			}
+
+			return ((StringLiteralExpr) param).getValue();
+		}
 	}
 
 	private static class OutVertex {
@@ -38,6 +38,7 @@ public class MermaidConverter {
 		DEF_TYPE_MAP.put(FlowConstants.OPERATION, "[\"%s\"]");
 		DEF_TYPE_MAP.put(FlowConstants.CONDITION, "{\"%s\"}");
 		DEF_TYPE_MAP.put(FlowConstants.SUBFLOW, ">\"%s\"]");
+		DEF_TYPE_MAP.put(FlowConstants.PARALLEL_SUBFLOWS, "(\"%s\")");
 
 		LABEL_MAP = new HashMap<>();
 		LABEL_MAP.put(FlowConstants.YES_LABEL, "yes");
@@ -1,9 +1,11 @@
 package com.ilsid.bfa.main;
 
+import java.io.File;
 import java.util.EnumSet;
 import java.util.Map;
 
 import javax.servlet.DispatcherType;
+import javax.servlet.ServletContextListener;
 
 import org.eclipse.jetty.server.Server;
 import org.eclipse.jetty.servlet.DefaultServlet;
@@ -39,16 +41,32 @@ public class HttpServer {
 	private static Server server;
 
 	public static void start() throws Exception {
+		start(new ApplicationConfig(), ConfigUtil.getApplicationSettings());
+	}
+
+	/**
+	 * Starts the server with the given application configuration. Allows to run the services with the alternative
+	 * bindings, for example, in the load tests.
+	 * 
+	 * @param applicationConfig
+	 *            the listener that configures the services
+	 * @param serverConfig
+	 *            the configuration with the optional <code>bfa.http.server.port</code> property
+	 * @throws Exception
+	 *             if the server can't be started
+	 */
+	public static void start(ServletContextListener applicationConfig, Map<String, String> serverConfig)
+			throws Exception {
 		if (server != null && server.isStarted()) {
 			return;
 		}
 		
-		configuration = ConfigUtil.getApplicationSettings();
+		configuration = serverConfig;
 		server = new Server(getServerPort());
 
 		ServletContextHandler contextHandler = new ServletContextHandler(ServletContextHandler.SESSIONS);
 
-		contextHandler.addEventListener(new ApplicationConfig());
+		contextHandler.addEventListener(applicationConfig);
 		contextHandler.addFilter(GuiceFilter.class, SERVICE_URL_PATTERN, EnumSet.allOf(DispatcherType.class));
 		contextHandler.setContextPath(CONTEXT_ROOT);
 		contextHandler.setInitParameter("org.eclipse.jetty.servlet.Default.dirAllowed", "false");
@@ -75,6 +93,11 @@ public class HttpServer {
 	}
 
 	private static void registerWebResources(ServletContextHandler contextHandler) {
+		// Only the services are available, if the server is started outside of the application directory
+		if (!new File(WEBAPP_ROOT_DIR).isDirectory()) {
+			return;
+		}
+
 		ResourceCollection resources = new ResourceCollection(new String[] { WEBAPP_ROOT_DIR });
 		contextHandler.setBaseResource(resources);
 		contextHandler.setWelcomeFiles(new String[] { WEBAPP_WELCOME_FILE });
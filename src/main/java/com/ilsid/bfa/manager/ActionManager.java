@@ -158,6 +158,9 @@ public class ActionManager extends AbstractManager {
 			rollbackTransaction();
 			throw new ManagementException(String.format("Failed to delete the action [%s]", actionName), e);
 		}
+
+		// The action may be resolved again by a concurrent lookup before the deletion is committed
+		ActionClassLoader.releaseResources(actionName);
 	}
 
 	/**
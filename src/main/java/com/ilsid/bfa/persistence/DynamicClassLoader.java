@@ -20,6 +20,7 @@ import javax.inject.Inject;
 
 import com.ilsid.bfa.BFAError;
 import com.ilsid.bfa.common.ClassNameUtil;
+import com.ilsid.bfa.common.Metrics;
 
 /**
  * The class loader for the generated classes. Supports the reloading of the already loaded generated classes.
@@ -49,6 +50,23 @@ public class DynamicClassLoader extends ClassLoader {
 
 	private static final Lock WRITE_RELOAD_LOCK = RELOAD_LOCK.writeLock();
 
+	private static final Metrics.Timer LOAD_TIMER = Metrics.timer("bfa_class_load", "Generated class loading");
+
+	private static final Metrics.Timer RELOAD_TIMER = Metrics.timer("bfa_class_reload", "Generated classes reloading");
+
+	private static final Metrics.TimerGroup LOCK_WAIT_TIMERS = Metrics.timerGroup("bfa_lock_wait", "Lock waiting",
+			"lock");
+
+	/*
+	 * Only the read lock waits longer than this value are recorded, so the uncontended acquisitions do not update the
+	 * shared timer
+	 */
+	private static final long READ_LOCK_WAIT_RECORDING_THRESHOLD_NANOS = 1000;
+
+	private static final Metrics.Timer READ_RELOAD_LOCK_WAIT_TIMER = LOCK_WAIT_TIMERS.get("reload_read");
+
+	private static final Metrics.Timer WRITE_RELOAD_LOCK_WAIT_TIMER = LOCK_WAIT_TIMERS.get("reload_write");
+
 	private static ScriptingRepository repository;
 
 	private DynamicClassLoader() {
@@ -64,7 +82,7 @@ public class DynamicClassLoader extends ClassLoader {
 	 * @see {@link DynamicClassLoader#reloadClasses()}
 	 */
 	public static DynamicClassLoader getInstance() {
-		READ_RELOAD_LOCK.lock();
+		lockForRead();
 		try {
 			return instance;
 		} finally {
@@ -80,7 +98,7 @@ public class DynamicClassLoader extends ClassLoader {
 	 */
 	@Override
 	protected URL findResource(String name) {
-		READ_RELOAD_LOCK.lock();
+		lockForRead();
 		try {
 			return instance.doFindResource(name);
 		} finally {
@@ -101,11 +119,16 @@ public class DynamicClassLoader extends ClassLoader {
 	 */
 	@Override
 	public Class<?> loadClass(String className) throws ClassNotFoundException, IllegalStateException {
-		READ_RELOAD_LOCK.lock();
+		lockForRead();
+		final long startTime = System.nanoTime();
+		boolean failed = true;
 		try {
-			return instance.doLoadClass(className);
+			Class<?> result = instance.doLoadClass(className);
+			failed = false;
+			return result;
 		} finally {
 			READ_RELOAD_LOCK.unlock();
+			LOAD_TIMER.record(startTime, failed);
 		}
 	}
 
@@ -118,11 +141,15 @@ public class DynamicClassLoader extends ClassLoader {
 	 * @see #addReloadListener(ReloadListener)
 	 */
 	public static void reloadClasses() {
+		final long waitStartTime = System.nanoTime();
 		WRITE_RELOAD_LOCK.lock();
+		WRITE_RELOAD_LOCK_WAIT_TIMER.record(waitStartTime);
+		final long startTime = System.nanoTime();
 		try {
 			doReload();
 		} finally {
 			WRITE_RELOAD_LOCK.unlock();
+			RELOAD_TIMER.record(startTime);
 		}
 	}
 
@@ -136,7 +163,7 @@ public class DynamicClassLoader extends ClassLoader {
 	 * @see #reloadClasses()
 	 */
 	public static void addReloadListener(ReloadListener listener) {
-		READ_RELOAD_LOCK.lock();
+		lockForRead();
 		try {
 			reloadListeners.add(listener);
 		} finally {
@@ -154,7 +181,7 @@ public class DynamicClassLoader extends ClassLoader {
 	 * @see #reloadClasses()
 	 */
 	public static void addPermanentReloadListener(ReloadListener listener) {
-		READ_RELOAD_LOCK.lock();
+		lockForRead();
 		try {
 			permanentReloadListeners.add(listener);
 		} finally {
@@ -185,6 +212,15 @@ public class DynamicClassLoader extends ClassLoader {
 
 	}
 
+	private static void lockForRead() {
+		final long startTime = System.nanoTime();
+		READ_RELOAD_LOCK.lock();
+		final long waitTime = System.nanoTime() - startTime;
+		if (waitTime > READ_LOCK_WAIT_RECORDING_THRESHOLD_NANOS) {
+			READ_RELOAD_LOCK_WAIT_TIMER.recordDuration(waitTime);
+		}
+	}
+
 	private static void doReload() {
 		instance = new DynamicClassLoader();
 
@@ -14,6 +14,7 @@ import com.ilsid.bfa.Configurable;
 import com.ilsid.bfa.ConfigurationException;
 import com.ilsid.bfa.common.ClassNameUtil;
 import com.ilsid.bfa.common.Metadata;
+import com.ilsid.bfa.common.Metrics;
 import com.ilsid.bfa.persistence.PersistenceException;
 import com.ilsid.bfa.persistence.PersistenceLogger;
 import com.ilsid.bfa.persistence.RepositoryConfig;
@@ -46,8 +47,22 @@ public abstract class FilesystemRepository implements Configurable, Transactiona
 
 	private static final String VERSION_FILE_NAME = ".version";
 
+	private static final String LOCK_METRIC_LABEL = "fs_repository";
+
+	/*
+	 * The lock is not waited for, so the time of the lock file creation is recorded and the conflicts are counted as
+	 * the failures
+	 */
+	private static final Metrics.Timer LOCK_WAIT_TIMER = Metrics
+			.timerGroup("bfa_lock_wait", "Lock waiting", "lock").get(LOCK_METRIC_LABEL);
+
+	private static final Metrics.Timer LOCK_HOLD_TIMER = Metrics
+			.timerGroup("bfa_lock_hold", "Lock holding", "lock").get(LOCK_METRIC_LABEL);
+
 	private File lockFile;
 
+	private volatile long lockTime;
+
 	private File versionFile;
 
 	private File commonLibDir;
@@ -149,13 +164,19 @@ public abstract class FilesystemRepository implements Configurable, Transactiona
 	 *             if the repository has been already locked
 	 */
 	void lock() throws LockException {
+		final long startTime = System.nanoTime();
+		boolean failed = true;
 		try {
 			if (!lockFile.createNewFile()) {
 				throw new LockException(REPOSITORY_LOCKED_ERR_MSG);
 			}
+			failed = false;
 		} catch (IOException e) {
 			throw new LockException(LOCK_FAILED_ERR_MSG, e);
+		} finally {
+			LOCK_WAIT_TIMER.record(startTime, failed);
 		}
+		lockTime = System.nanoTime();
 	}
 
 	/**
@@ -168,6 +189,12 @@ public abstract class FilesystemRepository implements Configurable, Transactiona
 		} catch (IOException e) {
 			logger.error(LOCK_DELETE_FAILED_MSG_TPLT, lockFile, e);
 		}
+
+		final long startTime = lockTime;
+		if (startTime != 0) {
+			lockTime = 0;
+			LOCK_HOLD_TIMER.record(startTime);
+		}
 	}
 
 	boolean isLocked() {
@@ -0,0 +1,147 @@
+package com.ilsid.bfa.runtime.dto;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import com.ilsid.bfa.dto.RequiredField;
+
+/**
+ * The checkpoint of the completed action. The checkpoint keeps the action result and the state of the local variables
+ * of the script at the moment of the action call. The values are kept in the encoded form, see
+ * <code>com.ilsid.bfa.script.CheckpointCodec</code>.
+ * <p>
+ * Each flow has the root checkpoint with {@link #ROOT_STEP_KEY} step key. The root checkpoint keeps the name and the
+ * input parameters of the top-level script.
+ * </p>
+ *
+ * @author illia.sydorovych
+ *
+ */
+public class FlowCheckpointDTO {
+
+	/**
+	 * The step key of the root checkpoint.
+	 */
+	public static final String ROOT_STEP_KEY = "";
+
+	@RequiredField
+	private Object runtimeId;
+
+	@RequiredField
+	private String stepKey;
+
+	@RequiredField
+	private String scriptName;
+
+	private String actionName;
+
+	private List<String> parameters;
+
+	private List<String> result;
+
+	private Map<String, String> variables;
+
+	@RequiredField
+	private Date checkpointTime;
+
+	public Object getRuntimeId() {
+		return runtimeId;
+	}
+
+	public FlowCheckpointDTO setRuntimeId(Object runtimeId) {
+		this.runtimeId = runtimeId;
+		return this;
+	}
+
+	/**
+	 * Returns the position of the action in the flow. The key is the same for the same action call of the repeated
+	 * flow execution, including the actions of the sub-flows.
+	 *
+	 * @return the step key
+	 */
+	public String getStepKey() {
+		return stepKey;
+	}
+
+	public FlowCheckpointDTO setStepKey(String stepKey) {
+		this.stepKey = stepKey;
+		return this;
+	}
+
+	/**
+	 * Returns the name of the script that called the action or, for the root checkpoint, the name of the top-level
+	 * script.
+	 *
+	 * @return the script name
+	 */
+	public String getScriptName() {
+		return scriptName;
+	}
+
+	public FlowCheckpointDTO setScriptName(String scriptName) {
+		this.scriptName = scriptName;
+		return this;
+	}
+
+	public String getActionName() {
+		return actionName;
+	}
+
+	public FlowCheckpointDTO setActionName(String actionName) {
+		this.actionName = actionName;
+		return this;
+	}
+
+	/**
+	 * Returns the encoded input parameters of the top-level script.
+	 *
+	 * @return the parameters of the root checkpoint or <code>null</code> for the action checkpoint
+	 */
+	public List<String> getParameters() {
+		return parameters;
+	}
+
+	public FlowCheckpointDTO setParameters(List<String> parameters) {
+		this.parameters = parameters;
+		return this;
+	}
+
+	/**
+	 * Returns the encoded action result.
+	 *
+	 * @return the action result or <code>null</code> for the root checkpoint
+	 */
+	public List<String> getResult() {
+		return result;
+	}
+
+	public FlowCheckpointDTO setResult(List<String> result) {
+		this.result = result;
+		return this;
+	}
+
+	/**
+	 * Returns the encoded values of the script local variables mapped to the variable names.
+	 *
+	 * @return the variable values or <code>null</code> for the root checkpoint
+	 */
+	public Map<String, String> getVariables() {
+		return variables;
+	}
+
+	public FlowCheckpointDTO setVariables(Map<String, String> variables) {
+		this.variables = variables;
+		return this;
+	}
+
+	public Date getCheckpointTime() {
+		return checkpointTime;
+	}
+
+	public FlowCheckpointDTO setCheckpointTime(Date checkpointTime) {
+		this.checkpointTime = checkpointTime;
+		return this;
+	}
+
+}
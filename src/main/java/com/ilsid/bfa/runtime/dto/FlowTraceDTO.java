@@ -0,0 +1,165 @@
+package com.ilsid.bfa.runtime.dto;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * The step trace of the slow or failed script execution.
+ *
+ * @author illia.sydorovych
+ *
+ */
+public class FlowTraceDTO {
+
+	private Object runtimeId;
+
+	private String scriptName;
+
+	private Collection<String> callStack;
+
+	private Date startTime;
+
+	private long durationMillis;
+
+	private boolean failed;
+
+	private long droppedSteps;
+
+	private List<Step> steps;
+
+	public Object getRuntimeId() {
+		return runtimeId;
+	}
+
+	public FlowTraceDTO setRuntimeId(Object runtimeId) {
+		this.runtimeId = runtimeId;
+		return this;
+	}
+
+	public String getScriptName() {
+		return scriptName;
+	}
+
+	public FlowTraceDTO setScriptName(String scriptName) {
+		this.scriptName = scriptName;
+		return this;
+	}
+
+	public Collection<String> getCallStack() {
+		return callStack;
+	}
+
+	public FlowTraceDTO setCallStack(Collection<String> callStack) {
+		this.callStack = callStack;
+		return this;
+	}
+
+	public Date getStartTime() {
+		return startTime;
+	}
+
+	public FlowTraceDTO setStartTime(Date startTime) {
+		this.startTime = startTime;
+		return this;
+	}
+
+	public long getDurationMillis() {
+		return durationMillis;
+	}
+
+	public FlowTraceDTO setDurationMillis(long durationMillis) {
+		this.durationMillis = durationMillis;
+		return this;
+	}
+
+	public boolean isFailed() {
+		return failed;
+	}
+
+	public FlowTraceDTO setFailed(boolean failed) {
+		this.failed = failed;
+		return this;
+	}
+
+	/**
+	 * Returns the number of the first steps that were overwritten in the trace buffer.
+	 *
+	 * @return the number of the missing steps
+	 */
+	public long getDroppedSteps() {
+		return droppedSteps;
+	}
+
+	public FlowTraceDTO setDroppedSteps(long droppedSteps) {
+		this.droppedSteps = droppedSteps;
+		return this;
+	}
+
+	public List<Step> getSteps() {
+		return steps;
+	}
+
+	public FlowTraceDTO setSteps(List<Step> steps) {
+		this.steps = steps;
+		return this;
+	}
+
+	/**
+	 * The single step of the script execution. The step lasts till the start of the next step or till the end of the
+	 * script.
+	 */
+	public static class Step {
+
+		private String type;
+
+		private String name;
+
+		private long offsetMicros;
+
+		private long durationMicros;
+
+		public String getType() {
+			return type;
+		}
+
+		public Step setType(String type) {
+			this.type = type;
+			return this;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public Step setName(String name) {
+			this.name = name;
+			return this;
+		}
+
+		/**
+		 * Returns the time from the script start till the step start.
+		 *
+		 * @return the step offset, in microseconds
+		 */
+		public long getOffsetMicros() {
+			return offsetMicros;
+		}
+
+		public Step setOffsetMicros(long offsetMicros) {
+			this.offsetMicros = offsetMicros;
+			return this;
+		}
+
+		public long getDurationMicros() {
+			return durationMicros;
+		}
+
+		public Step setDurationMicros(long durationMicros) {
+			this.durationMicros = durationMicros;
+			return this;
+		}
+
+	}
+
+}
@@ -33,10 +33,14 @@ public class ScriptRuntimeDTO {
 
 	private Date endTime;
 
+	private int branch;
+
 	private Collection<String> callStack;
 
 	private Collection<String> errorDetails;
 
+	private Collection<String> inlinedSubflows;
+
 	public Object getRuntimeId() {
 		return runtimeId;
 	}
@@ -100,6 +104,21 @@ public class ScriptRuntimeDTO {
 		return this;
 	}
 
+	/**
+	 * Returns the index of the branch, if the script is one of the sub-flows run in parallel. The branch index is a
+	 * part of the record key, as such sub-flows may start at the same time.
+	 * 
+	 * @return the branch index or <code>0</code> if the script is not run in parallel with others
+	 */
+	public int getBranch() {
+		return branch;
+	}
+
+	public ScriptRuntimeDTO setBranch(int branch) {
+		this.branch = branch;
+		return this;
+	}
+
 	public Collection<String> getCallStack() {
 		return callStack;
 	}
@@ -118,4 +137,18 @@ public class ScriptRuntimeDTO {
 		return this;
 	}
 
+	/**
+	 * Returns the names of the sub-flows that were run in the context of this script and have no own runtime records.
+	 * 
+	 * @return the sub-flow names in the order of the calls or <code>null</code> if no sub-flows were inlined
+	 */
+	public Collection<String> getInlinedSubflows() {
+		return inlinedSubflows;
+	}
+
+	public ScriptRuntimeDTO setInlinedSubflows(Collection<String> inlinedSubflows) {
+		this.inlinedSubflows = inlinedSubflows;
+		return this;
+	}
+
 }
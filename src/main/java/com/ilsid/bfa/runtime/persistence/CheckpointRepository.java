@@ -0,0 +1,49 @@
+package com.ilsid.bfa.runtime.persistence;
+
+import java.util.List;
+
+import com.ilsid.bfa.Configurable;
+import com.ilsid.bfa.persistence.PersistenceException;
+import com.ilsid.bfa.runtime.dto.FlowCheckpointDTO;
+
+/**
+ * The repository that keeps the checkpoints of the flows. The checkpoints of the failed flow are used to resume it
+ * without the repeated calls of the completed actions.
+ *
+ * @author illia.sydorovych
+ *
+ */
+public interface CheckpointRepository extends Configurable {
+
+	/**
+	 * Saves the checkpoint. The checkpoint with the same runtime identifier and step key is replaced.
+	 *
+	 * @param checkpoint
+	 *            the checkpoint to save
+	 * @throws PersistenceException
+	 *             in case of any repository issues
+	 */
+	void saveCheckpoint(FlowCheckpointDTO checkpoint) throws PersistenceException;
+
+	/**
+	 * Loads all checkpoints of the flow.
+	 *
+	 * @param runtimeId
+	 *            the runtime identifier of the flow
+	 * @return the checkpoints in no particular order or an empty list if the flow has no checkpoints
+	 * @throws PersistenceException
+	 *             in case of any repository access issues
+	 */
+	List<FlowCheckpointDTO> loadCheckpoints(Object runtimeId) throws PersistenceException;
+
+	/**
+	 * Deletes all checkpoints of the flow.
+	 *
+	 * @param runtimeId
+	 *            the runtime identifier of the flow
+	 * @throws PersistenceException
+	 *             in case of any repository issues
+	 */
+	void deleteCheckpoints(Object runtimeId) throws PersistenceException;
+
+}
@@ -0,0 +1,52 @@
+package com.ilsid.bfa.runtime.persistence;
+
+import com.ilsid.bfa.persistence.PersistenceException;
+
+/**
+ * Generates the numeric runtime identifiers from the blocks reserved in the repository. The repository is accessed
+ * once per block, the identifiers within the block are generated locally. The identifiers are unique across the nodes
+ * sharing the repository. The rest of the block is lost on restart.
+ * 
+ * @author illia.sydorovych
+ *
+ */
+public class HiLoRuntimeIdGenerator implements RuntimeIdGenerator {
+
+	private final RuntimeIdBlockAllocator allocator;
+
+	private final int blockSize;
+
+	private long nextId;
+
+	private long maxId = -1;
+
+	/**
+	 * Creates the generator.
+	 * 
+	 * @param allocator
+	 *            the repository the blocks are reserved in
+	 * @param blockSize
+	 *            the number of identifiers reserved at once
+	 */
+	public HiLoRuntimeIdGenerator(RuntimeIdBlockAllocator allocator, int blockSize) {
+		this.allocator = allocator;
+		this.blockSize = blockSize;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.ilsid.bfa.runtime.persistence.RuntimeIdGenerator#nextId()
+	 */
+	@Override
+	public synchronized Object nextId() throws PersistenceException {
+		if (nextId > maxId) {
+			final long lastBlockId = allocator.allocateBlock(blockSize);
+			nextId = lastBlockId - blockSize + 1;
+			maxId = lastBlockId;
+		}
+
+		return nextId++;
+	}
+
+}
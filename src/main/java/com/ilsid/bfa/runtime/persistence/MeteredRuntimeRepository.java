@@ -0,0 +1,141 @@
+package com.ilsid.bfa.runtime.persistence;
+
+import java.util.Map;
+
+import com.ilsid.bfa.ConfigurationException;
+import com.ilsid.bfa.common.Metrics;
+import com.ilsid.bfa.persistence.PersistenceException;
+import com.ilsid.bfa.persistence.QueryPage;
+import com.ilsid.bfa.persistence.QueryPagingOptions;
+import com.ilsid.bfa.runtime.dto.ScriptRuntimeCriteria;
+import com.ilsid.bfa.runtime.dto.ScriptRuntimeDTO;
+
+/**
+ * Runtime repository that measures the calls of the underlying repository. The durations and failures of each
+ * operation are recorded in {@link Metrics}.
+ *
+ * @author illia.sydorovych
+ *
+ */
+public class MeteredRuntimeRepository implements RuntimeRepository {
+
+	private static final Metrics.TimerGroup TIMERS = Metrics.timerGroup("bfa_runtime_repository",
+			"Runtime repository call", "operation");
+
+	private static final Metrics.Timer NEXT_ID_TIMER = TIMERS.get("getNextRuntimeId");
+
+	private static final Metrics.Timer CREATE_TIMER = TIMERS.get("createRuntimeRecord");
+
+	private static final Metrics.Timer UPDATE_TIMER = TIMERS.get("updateRuntimeRecord");
+
+	private static final Metrics.Timer FETCH_TIMER = TIMERS.get("fetch");
+
+	private static final Metrics.Timer ALLOCATE_BLOCK_TIMER = TIMERS.get("allocateBlock");
+
+	private final RuntimeRepository repository;
+
+	private MeteredRuntimeRepository(RuntimeRepository repository) {
+		this.repository = repository;
+	}
+
+	/**
+	 * Creates the metered repository. If the given repository reserves the runtime identifier blocks, the created
+	 * repository does it too.
+	 *
+	 * @param repository
+	 *            the underlying repository
+	 * @return the metered repository
+	 * @see RuntimeIdBlockAllocator
+	 */
+	public static RuntimeRepository wrap(RuntimeRepository repository) {
+		if (repository instanceof RuntimeIdBlockAllocator) {
+			return new MeteredBlockAllocatingRuntimeRepository(repository);
+		}
+
+		return new MeteredRuntimeRepository(repository);
+	}
+
+	/**
+	 * Passes the configuration to the underlying repository.
+	 */
+	@Override
+	public void setConfiguration(Map<String, String> config) throws ConfigurationException {
+		repository.setConfiguration(config);
+	}
+
+	@Override
+	public Object getNextRuntimeId() throws PersistenceException {
+		final long startTime = System.nanoTime();
+		boolean failed = true;
+		try {
+			Object result = repository.getNextRuntimeId();
+			failed = false;
+			return result;
+		} finally {
+			NEXT_ID_TIMER.record(startTime, failed);
+		}
+	}
+
+	@Override
+	public void createRuntimeRecord(ScriptRuntimeDTO record) throws PersistenceException {
+		final long startTime = System.nanoTime();
+		boolean failed = true;
+		try {
+			repository.createRuntimeRecord(record);
+			failed = false;
+		} finally {
+			CREATE_TIMER.record(startTime, failed);
+		}
+	}
+
+	@Override
+	public void updateRuntimeRecord(ScriptRuntimeDTO record) throws PersistenceException {
+		final long startTime = System.nanoTime();
+		boolean failed = true;
+		try {
+			repository.updateRuntimeRecord(record);
+			failed = false;
+		} finally {
+			UPDATE_TIMER.record(startTime, failed);
+		}
+	}
+
+	@Override
+	public QueryPage<ScriptRuntimeDTO> fetch(ScriptRuntimeCriteria criteria, QueryPagingOptions pagingOptions)
+			throws PersistenceException {
+		final long startTime = System.nanoTime();
+		boolean failed = true;
+		try {
+			QueryPage<ScriptRuntimeDTO> result = repository.fetch(criteria, pagingOptions);
+			failed = false;
+			return result;
+		} finally {
+			FETCH_TIMER.record(startTime, failed);
+		}
+	}
+
+	private static class MeteredBlockAllocatingRuntimeRepository extends MeteredRuntimeRepository
+			implements RuntimeIdBlockAllocator {
+
+		private final RuntimeIdBlockAllocator allocator;
+
+		MeteredBlockAllocatingRuntimeRepository(RuntimeRepository repository) {
+			super(repository);
+			allocator = (RuntimeIdBlockAllocator) repository;
+		}
+
+		public long allocateBlock(int blockSize) throws PersistenceException {
+			final long startTime = System.nanoTime();
+			boolean failed = true;
+			try {
+				long result = allocator.allocateBlock(blockSize);
+				failed = false;
+				return result;
+			} finally {
+				ALLOCATE_BLOCK_TIMER.record(startTime, failed);
+			}
+		}
+
+	}
+
+}
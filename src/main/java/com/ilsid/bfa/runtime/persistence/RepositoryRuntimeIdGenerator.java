@@ -0,0 +1,29 @@
+package com.ilsid.bfa.runtime.persistence;
+
+import com.ilsid.bfa.persistence.PersistenceException;
+
+/**
+ * Obtains each runtime identifier from {@link RuntimeRepository#getNextRuntimeId()}.
+ * 
+ * @author illia.sydorovych
+ *
+ */
+public class RepositoryRuntimeIdGenerator implements RuntimeIdGenerator {
+
+	private final RuntimeRepository repository;
+
+	public RepositoryRuntimeIdGenerator(RuntimeRepository repository) {
+		this.repository = repository;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.ilsid.bfa.runtime.persistence.RuntimeIdGenerator#nextId()
+	 */
+	@Override
+	public Object nextId() throws PersistenceException {
+		return repository.getNextRuntimeId();
+	}
+
+}
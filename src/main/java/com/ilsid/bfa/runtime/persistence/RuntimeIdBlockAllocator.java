@@ -0,0 +1,25 @@
+package com.ilsid.bfa.runtime.persistence;
+
+import com.ilsid.bfa.persistence.PersistenceException;
+
+/**
+ * The repository that reserves the blocks of the numeric runtime identifiers.
+ * 
+ * @author illia.sydorovych
+ * @see HiLoRuntimeIdGenerator
+ *
+ */
+public interface RuntimeIdBlockAllocator {
+
+	/**
+	 * Reserves the block of the consequent identifiers. The identifiers of the block are never returned again.
+	 * 
+	 * @param blockSize
+	 *            the number of identifiers to reserve
+	 * @return the last identifier of the reserved block
+	 * @throws PersistenceException
+	 *             in case of any repository access issues
+	 */
+	long allocateBlock(int blockSize) throws PersistenceException;
+
+}
@@ -0,0 +1,22 @@
+package com.ilsid.bfa.runtime.persistence;
+
+import com.ilsid.bfa.persistence.PersistenceException;
+
+/**
+ * Generates the unique script runtime identifiers.
+ * 
+ * @author illia.sydorovych
+ *
+ */
+public interface RuntimeIdGenerator {
+
+	/**
+	 * Generates new unique script runtime id.
+	 * 
+	 * @return the runtime id value
+	 * @throws PersistenceException
+	 *             if the generator depends on the repository and the repository access failed
+	 */
+	Object nextId() throws PersistenceException;
+
+}
@@ -0,0 +1,76 @@
+package com.ilsid.bfa.runtime.persistence;
+
+import java.security.SecureRandom;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates the time-based (version 1) UUIDs locally, without any repository access. The node identifier and the clock
+ * sequence are random, so the identifiers generated by different nodes (and by the same node after restart) do not
+ * collide. The timestamps of the generated identifiers strictly increase within the instance.
+ * 
+ * @author illia.sydorovych
+ *
+ */
+public class TimeBasedUuidGenerator implements RuntimeIdGenerator {
+
+	// The number of 100-nanosecond intervals between the UUID epoch (1582-10-15) and the Unix epoch
+	private static final long UUID_EPOCH_OFFSET = 0x01B21DD213814000L;
+
+	private static final long INTERVALS_IN_MILLISECOND = 10000;
+
+	private static final long VERSION_1 = 0x1000L;
+
+	private static final long IETF_VARIANT = 0x8000L;
+
+	private static final long MULTICAST_BIT = 0x010000000000L;
+
+	private static final long NODE_MASK = 0xFFFFFFFFFFFFL;
+
+	private static final int CLOCK_SEQUENCE_MASK = 0x3FFF;
+
+	private final long clockSequenceAndNode;
+
+	private final AtomicLong lastTimestamp = new AtomicLong();
+
+	public TimeBasedUuidGenerator() {
+		this(new SecureRandom());
+	}
+
+	TimeBasedUuidGenerator(Random random) {
+		// The multicast bit marks the random node identifier, so it never matches a network card address
+		final long node = (random.nextLong() & NODE_MASK) | MULTICAST_BIT;
+		final long clockSequence = random.nextInt() & CLOCK_SEQUENCE_MASK;
+		clockSequenceAndNode = ((IETF_VARIANT | clockSequence) << 48) | node;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.ilsid.bfa.runtime.persistence.RuntimeIdGenerator#nextId()
+	 */
+	@Override
+	public Object nextId() {
+		final long timestamp = nextTimestamp();
+		final long mostSigBits = ((timestamp & 0xFFFFFFFFL) << 32) | (((timestamp >>> 32) & 0xFFFFL) << 16)
+				| VERSION_1 | ((timestamp >>> 48) & 0x0FFFL);
+
+		return new UUID(mostSigBits, clockSequenceAndNode);
+	}
+
+	/*
+	 * More than one identifier per 100 nanoseconds are generated with the timestamps running ahead of the clock.
+	 */
+	private long nextTimestamp() {
+		final long now = System.currentTimeMillis() * INTERVALS_IN_MILLISECOND + UUID_EPOCH_OFFSET;
+		while (true) {
+			final long last = lastTimestamp.get();
+			final long next = now > last ? now : last + 1;
+			if (lastTimestamp.compareAndSet(last, next)) {
+				return next;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,127 @@
+package com.ilsid.bfa.runtime.persistence.cassandra;
+
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
+import com.ilsid.bfa.persistence.PersistenceException;
+import com.ilsid.bfa.persistence.cassandra.CassandraRepository;
+import com.ilsid.bfa.runtime.dto.FlowCheckpointDTO;
+import com.ilsid.bfa.runtime.persistence.CheckpointRepository;
+
+/**
+ * Cassandra based checkpoint repository. The checkpoints of a single flow form one partition. The checkpoints are
+ * expired by the table TTL, if the failed flow is never resumed.
+ *
+ * @author illia.sydorovych
+ *
+ */
+public class CassandraCheckpointRepository extends CassandraRepository implements CheckpointRepository {
+
+	static final String CHECKPOINT_INSERT_STMT = "INSERT INTO flow_checkpoints (runtime_id, step_key, script_name, "
+			+ "action_name, parameters, result, variables, checkpoint_time) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+	static final String CHECKPOINTS_SELECT_STMT = "SELECT runtime_id, step_key, script_name, action_name, parameters, "
+			+ "result, variables, checkpoint_time FROM flow_checkpoints WHERE runtime_id=?";
+
+	static final String CHECKPOINTS_DELETE_STMT = "DELETE FROM flow_checkpoints WHERE runtime_id=?";
+
+	private final Map<String, PreparedStatement> preparedStatements = new HashMap<>();
+
+	@Override
+	protected void prepareStatements(Session session) throws PersistenceException {
+		String[] statements = { CHECKPOINT_INSERT_STMT, CHECKPOINTS_SELECT_STMT, CHECKPOINTS_DELETE_STMT };
+
+		for (String stmt : statements) {
+			preparedStatements.put(stmt, session.prepare(stmt));
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.ilsid.bfa.runtime.persistence.CheckpointRepository#saveCheckpoint(com.ilsid.bfa.runtime.dto.
+	 * FlowCheckpointDTO)
+	 */
+	@Override
+	public void saveCheckpoint(FlowCheckpointDTO checkpoint) throws PersistenceException {
+		final UUID runtimeId = toUUID(checkpoint.getRuntimeId());
+		final Session session = getSession();
+		try {
+			BoundStatement boundStmt = new BoundStatement(preparedStatements.get(CHECKPOINT_INSERT_STMT));
+			boundStmt.setUUID(0, runtimeId);
+			boundStmt.setString(1, checkpoint.getStepKey());
+			boundStmt.setString(2, checkpoint.getScriptName());
+			boundStmt.setString(3, checkpoint.getActionName());
+			boundStmt.setList(4, checkpoint.getParameters());
+			boundStmt.setList(5, checkpoint.getResult());
+			boundStmt.setMap(6, checkpoint.getVariables());
+			boundStmt.setTimestamp(7, checkpoint.getCheckpointTime());
+
+			session.execute(boundStmt);
+		} catch (RuntimeException e) {
+			throw new PersistenceException("Failed to save flow checkpoint", e);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.ilsid.bfa.runtime.persistence.CheckpointRepository#loadCheckpoints(java.lang.Object)
+	 */
+	@Override
+	public List<FlowCheckpointDTO> loadCheckpoints(Object runtimeId) throws PersistenceException {
+		final UUID flowRuntimeId = toUUID(runtimeId);
+		final Session session = getSession();
+		List<FlowCheckpointDTO> result = new LinkedList<>();
+		try {
+			ResultSet rs = session.execute(preparedStatements.get(CHECKPOINTS_SELECT_STMT).bind(flowRuntimeId));
+			for (Row row : rs) {
+				result.add(new FlowCheckpointDTO().setRuntimeId(row.getUUID(0)).setStepKey(row.getString(1))
+						.setScriptName(row.getString(2)).setActionName(row.getString(3))
+						.setParameters(row.getList(4, String.class)).setResult(row.getList(5, String.class))
+						.setVariables(row.getMap(6, String.class, String.class)).setCheckpointTime(row.getTimestamp(7)));
+			}
+		} catch (RuntimeException e) {
+			throw new PersistenceException("Failed to load flow checkpoints", e);
+		}
+
+		return result;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.ilsid.bfa.runtime.persistence.CheckpointRepository#deleteCheckpoints(java.lang.Object)
+	 */
+	@Override
+	public void deleteCheckpoints(Object runtimeId) throws PersistenceException {
+		final UUID flowRuntimeId = toUUID(runtimeId);
+		final Session session = getSession();
+		try {
+			session.execute(preparedStatements.get(CHECKPOINTS_DELETE_STMT).bind(flowRuntimeId));
+		} catch (RuntimeException e) {
+			throw new PersistenceException("Failed to delete flow checkpoints", e);
+		}
+	}
+
+	private UUID toUUID(Object runtimeId) throws PersistenceException {
+		if (runtimeId instanceof UUID) {
+			return (UUID) runtimeId;
+		}
+
+		try {
+			return UUID.fromString(String.valueOf(runtimeId));
+		} catch (IllegalArgumentException e) {
+			throw new PersistenceException(String.format("Invalid flow runtime id [%s]", runtimeId), e);
+		}
+	}
+
+}
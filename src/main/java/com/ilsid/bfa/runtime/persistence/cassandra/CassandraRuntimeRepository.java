@@ -8,17 +8,25 @@ import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import com.datastax.driver.core.BatchStatement;
 import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.KeyspaceMetadata;
 import com.datastax.driver.core.PagingState;
 import com.datastax.driver.core.PreparedStatement;
 import com.datastax.driver.core.ResultSet;
 import com.datastax.driver.core.Row;
 import com.datastax.driver.core.Session;
 import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.TableMetadata;
+import com.google.inject.Inject;
+import com.ilsid.bfa.ConfigurationException;
 import com.ilsid.bfa.persistence.PersistenceException;
 import com.ilsid.bfa.persistence.QueryPage;
 import com.ilsid.bfa.persistence.QueryPagingOptions;
+import com.ilsid.bfa.persistence.RepositoryConfig;
 import com.ilsid.bfa.persistence.cassandra.CassandraRepository;
 import com.ilsid.bfa.persistence.cassandra.CassandraUtil;
 import com.ilsid.bfa.runtime.dto.RuntimeStatusType;
@@ -30,7 +38,12 @@ import com.ilsid.bfa.runtime.persistence.RuntimeRepository;
 // records, as it is going to be a hot spot under a heavy load. Also index for running_flows.completed column is under concern 
 // (see https://docs.datastax.com/en/cql/3.3/cql/cql_using/useWhenIndex.html#useWhenIndex__when-no-index)
 /**
- * Cassandra based runtime repository.
+ * Cassandra based runtime repository. The sub-flows run in parallel are distinguished by the branch index in the record
+ * key. The keyspaces created before the branch index was introduced have no <code>branch</code> column, so the records
+ * are written to them without it. The keyspaces created before the sub-flows inlining was introduced have no
+ * <code>inlined_subflows</code> column, so the records are written to them without the names of the inlined sub-flows.
+ * Such keyspaces must be upgraded with <code>cassandra-keyspace-upgrade.cql</code> script, if the sub-flows inlining is
+ * turned on.
  * 
  * @author illia.sydorovych
  *
@@ -47,22 +60,43 @@ public class CassandraRuntimeRepository extends CassandraRepository implements R
 
 	static final String NEXT_RUNTIME_ID_QUERY = "SELECT uuid() AS " + RUNTIME_ID_ALIAS + " FROM system.local";
 
+	static final String BRANCH_COLUMN = "branch";
+
+	private static final String[] BRANCH_KEY_TABLES = { "running_flows", "completed_flows", "failed_flows" };
+
+	static final String INLINED_SUBFLOWS_COLUMN = "inlined_subflows";
+
+	private static final String[] INLINED_SUBFLOWS_TABLES = { "completed_flows", "failed_flows" };
+
+	private static final String CONFIG_PROP_SUBFLOW_INLINE = "bfa.runtime.subflow.inline";
+
 	static final String RUNNING_FLOWS_INSERT_STMT = "INSERT INTO running_flows (runtime_id, user_name, script_name, parameters, start_date, "
 			+ "start_time, call_stack, completed) VALUES (?, ?, ?, ?, ?, ?, ?, false)";
 
 	static final String RUNNING_FLOWS_UPDATE_STMT = "UPDATE running_flows SET completed=true WHERE start_date=? AND runtime_id=? AND start_time=?";
 
+	static final String RUNNING_FLOWS_BRANCH_INSERT_STMT = "INSERT INTO running_flows (runtime_id, user_name, script_name, parameters, start_date, "
+			+ "start_time, call_stack, branch, completed) VALUES (?, ?, ?, ?, ?, ?, ?, ?, false)";
+
+	static final String RUNNING_FLOWS_BRANCH_UPDATE_STMT = "UPDATE running_flows SET completed=true WHERE start_date=? AND runtime_id=? AND start_time=? AND branch=?";
+
 	static final String COMPLETED_FLOWS_INSERT_STMT = "INSERT INTO completed_flows (runtime_id, user_name, script_name, parameters, start_date, "
-			+ "start_time, call_stack, end_time) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+			+ "start_time, call_stack, end_time, inlined_subflows) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+	static final String COMPLETED_FLOWS_BRANCH_INSERT_STMT = "INSERT INTO completed_flows (runtime_id, user_name, script_name, parameters, start_date, "
+			+ "start_time, call_stack, end_time, inlined_subflows, branch) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
 
 	static final String FAILED_FLOWS_INSERT_STMT = "INSERT INTO failed_flows (runtime_id, user_name, script_name, parameters, start_date, "
-			+ "start_time, call_stack, end_time, error_details) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+			+ "start_time, call_stack, end_time, error_details, inlined_subflows) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+	static final String FAILED_FLOWS_BRANCH_INSERT_STMT = "INSERT INTO failed_flows (runtime_id, user_name, script_name, parameters, start_date, "
+			+ "start_time, call_stack, end_time, error_details, inlined_subflows, branch) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
 
 	static final String FAILED_FLOWS_SELECT_STMT = "SELECT runtime_id, user_name, script_name, parameters, start_date, "
-			+ "start_time, call_stack, end_time, error_details FROM failed_flows WHERE start_date=?";
+			+ "start_time, call_stack, end_time, error_details, inlined_subflows FROM failed_flows WHERE start_date=?";
 
 	static final String FAILED_FLOWS_WITHIN_TIMEFRAME_SELECT_STMT = "SELECT runtime_id, user_name, script_name, parameters, start_date, "
-			+ "start_time, call_stack, end_time, error_details FROM failed_flows WHERE start_date=? AND start_time>=? AND start_time<?";
+			+ "start_time, call_stack, end_time, error_details, inlined_subflows FROM failed_flows WHERE start_date=? AND start_time>=? AND start_time<?";
 
 	static final String RUNNING_FLOWS_SELECT_STMT = "SELECT runtime_id, user_name, script_name, parameters, start_date, "
 			+ "start_time, call_stack FROM running_flows WHERE start_date=? AND completed=false";
@@ -71,24 +105,86 @@ public class CassandraRuntimeRepository extends CassandraRepository implements R
 			+ "start_time, call_stack FROM running_flows WHERE start_date=? AND completed=false AND start_time>=? AND start_time<?";
 
 	static final String COMPLETED_FLOWS_SELECT_STMT = "SELECT runtime_id, user_name, script_name, parameters, start_date, "
-			+ "start_time, call_stack, end_time FROM completed_flows WHERE start_date=?";
+			+ "start_time, call_stack, end_time, inlined_subflows FROM completed_flows WHERE start_date=?";
 
 	static final String COMPLETED_FLOWS_WITHIN_TIMEFRAME_SELECT_STMT = "SELECT runtime_id, user_name, script_name, parameters, start_date, "
-			+ "start_time, call_stack, end_time FROM completed_flows WHERE start_date=? AND start_time>=? AND start_time<?";
+			+ "start_time, call_stack, end_time, inlined_subflows FROM completed_flows WHERE start_date=? AND start_time>=? AND start_time<?";
 
 	private final Map<String, PreparedStatement> preparedStatements = new HashMap<>();
 
+	private boolean branchKeyEnabled;
+
+	private boolean inlinedSubflowsEnabled;
+
+	private boolean subflowInliningConfigured;
+
+	private Logger logger = LoggerFactory.getLogger(CassandraRuntimeRepository.class);
+
+	/**
+	 * Reads <code>bfa.runtime.subflow.inline</code> property before the statements are prepared.
+	 * 
+	 * @see CassandraRepository#setConfiguration(Map)
+	 */
+	@Inject
+	@Override
+	public void setConfiguration(@RepositoryConfig Map<String, String> config) throws ConfigurationException {
+		subflowInliningConfigured = Boolean.parseBoolean(config.get(CONFIG_PROP_SUBFLOW_INLINE));
+		super.setConfiguration(config);
+	}
+
 	@Override
 	protected void prepareStatements(Session session) throws PersistenceException {
-		String[] statements = { NEXT_RUNTIME_ID_QUERY, RUNNING_FLOWS_INSERT_STMT, RUNNING_FLOWS_UPDATE_STMT,
-				COMPLETED_FLOWS_INSERT_STMT, FAILED_FLOWS_INSERT_STMT, FAILED_FLOWS_SELECT_STMT,
-				FAILED_FLOWS_WITHIN_TIMEFRAME_SELECT_STMT, RUNNING_FLOWS_SELECT_STMT,
-				RUNNING_FLOWS_WITHIN_TIMEFRAME_SELECT_STMT, COMPLETED_FLOWS_SELECT_STMT,
-				COMPLETED_FLOWS_WITHIN_TIMEFRAME_SELECT_STMT };
+		final KeyspaceMetadata keyspace = session.getCluster().getMetadata().getKeyspace(session.getLoggedKeyspace());
+		inlinedSubflowsEnabled = keyspace == null
+				|| hasColumn(keyspace, INLINED_SUBFLOWS_TABLES, INLINED_SUBFLOWS_COLUMN);
+		if (!inlinedSubflowsEnabled && subflowInliningConfigured) {
+			throw new PersistenceException(String.format(
+					"The keyspace [%s] has no [%s] column required by [%s] property. It must be upgraded with cassandra-keyspace-upgrade.cql script",
+					keyspace.getName(), INLINED_SUBFLOWS_COLUMN, CONFIG_PROP_SUBFLOW_INLINE));
+		}
+		branchKeyEnabled = keyspace != null && hasColumn(keyspace, BRANCH_KEY_TABLES, BRANCH_COLUMN);
+		if (!branchKeyEnabled) {
+			logger.warn(String.format(
+					"The keyspace [%s] has no [%s] column. The runtime records of the sub-flows started in parallel within the same millisecond "
+							+ "overwrite each other. The runtime tables must be re-created with cassandra-keyspace.cql script",
+					session.getLoggedKeyspace(), BRANCH_COLUMN));
+		}
+
+		String[] statements;
+		if (branchKeyEnabled) {
+			statements = new String[] { NEXT_RUNTIME_ID_QUERY, RUNNING_FLOWS_BRANCH_INSERT_STMT,
+					RUNNING_FLOWS_BRANCH_UPDATE_STMT, COMPLETED_FLOWS_BRANCH_INSERT_STMT,
+					FAILED_FLOWS_BRANCH_INSERT_STMT, FAILED_FLOWS_SELECT_STMT, FAILED_FLOWS_WITHIN_TIMEFRAME_SELECT_STMT,
+					RUNNING_FLOWS_SELECT_STMT, RUNNING_FLOWS_WITHIN_TIMEFRAME_SELECT_STMT, COMPLETED_FLOWS_SELECT_STMT,
+					COMPLETED_FLOWS_WITHIN_TIMEFRAME_SELECT_STMT };
+		} else {
+			statements = new String[] { NEXT_RUNTIME_ID_QUERY, RUNNING_FLOWS_INSERT_STMT, RUNNING_FLOWS_UPDATE_STMT,
+					COMPLETED_FLOWS_INSERT_STMT, FAILED_FLOWS_INSERT_STMT, FAILED_FLOWS_SELECT_STMT,
+					FAILED_FLOWS_WITHIN_TIMEFRAME_SELECT_STMT, RUNNING_FLOWS_SELECT_STMT,
+					RUNNING_FLOWS_WITHIN_TIMEFRAME_SELECT_STMT, COMPLETED_FLOWS_SELECT_STMT,
+					COMPLETED_FLOWS_WITHIN_TIMEFRAME_SELECT_STMT };
+		}
 
 		for (String stmt : statements) {
-			preparedStatements.put(stmt, session.prepare(stmt));
+			preparedStatements.put(stmt, session.prepare(inlinedSubflowsEnabled ? stmt : withoutInlinedSubflows(stmt)));
+		}
+	}
+
+	/*
+	 * The inlined sub-flows column is the last one in the selects and is followed only by the branch column in the
+	 * inserts, so the last placeholder is removed along with it.
+	 */
+	private static String withoutInlinedSubflows(String stmt) {
+		if (!stmt.contains(INLINED_SUBFLOWS_COLUMN)) {
+			return stmt;
+		}
+
+		final String result = stmt.replace(", " + INLINED_SUBFLOWS_COLUMN, "");
+		if (result.startsWith("INSERT")) {
+			return result.replace(", ?)", ")");
 		}
+
+		return result;
 	}
 
 	/*
@@ -122,12 +218,19 @@ public class CassandraRuntimeRepository extends CassandraRepository implements R
 	public void createRuntimeRecord(ScriptRuntimeDTO record) throws PersistenceException {
 		final Session session = getSession();
 		try {
-			PreparedStatement prepStmt = preparedStatements.get(RUNNING_FLOWS_INSERT_STMT);
 			final Date startTime = record.getStartTime();
 
-			BoundStatement boundStmt = prepStmt.bind(record.getRuntimeId(), record.getUserName(),
-					record.getScriptName(), record.getParameters(), CassandraUtil.timestampToDateToken(startTime),
-					startTime, record.getCallStack());
+			BoundStatement boundStmt;
+			if (branchKeyEnabled) {
+				boundStmt = preparedStatements.get(RUNNING_FLOWS_BRANCH_INSERT_STMT).bind(record.getRuntimeId(),
+						record.getUserName(), record.getScriptName(), record.getParameters(),
+						CassandraUtil.timestampToDateToken(startTime), startTime, record.getCallStack(),
+						record.getBranch());
+			} else {
+				boundStmt = preparedStatements.get(RUNNING_FLOWS_INSERT_STMT).bind(record.getRuntimeId(),
+						record.getUserName(), record.getScriptName(), record.getParameters(),
+						CassandraUtil.timestampToDateToken(startTime), startTime, record.getCallStack());
+			}
 
 			session.execute(boundStmt);
 		} catch (RuntimeException e) {
@@ -235,9 +338,11 @@ public class CassandraRuntimeRepository extends CassandraRepository implements R
 		final RuntimeStatusType status = record.getStatus();
 
 		if (status == RuntimeStatusType.COMPLETED) {
-			insertStmt = preparedStatements.get(COMPLETED_FLOWS_INSERT_STMT);
+			insertStmt = preparedStatements
+					.get(branchKeyEnabled ? COMPLETED_FLOWS_BRANCH_INSERT_STMT : COMPLETED_FLOWS_INSERT_STMT);
 		} else if (status == RuntimeStatusType.FAILED) {
-			insertStmt = preparedStatements.get(FAILED_FLOWS_INSERT_STMT);
+			insertStmt = preparedStatements
+					.get(branchKeyEnabled ? FAILED_FLOWS_BRANCH_INSERT_STMT : FAILED_FLOWS_INSERT_STMT);
 		} else {
 			throw new IllegalArgumentException("Illegal flow runtime status: " + status);
 		}
@@ -261,23 +366,59 @@ public class CassandraRuntimeRepository extends CassandraRepository implements R
 
 		boundStmt.setTimestamp(7, record.getEndTime());
 
+		int nextIdx = 8;
 		if (status == RuntimeStatusType.FAILED) {
 			boundStmt.setList(8, new LinkedList<String>(record.getErrorDetails()));
+			nextIdx = 9;
+		}
+
+		if (inlinedSubflowsEnabled) {
+			final Collection<String> inlinedSubflows = record.getInlinedSubflows();
+			if (inlinedSubflows == null) {
+				boundStmt.setList(nextIdx, null);
+			} else {
+				boundStmt.setList(nextIdx, new LinkedList<String>(inlinedSubflows));
+			}
+			nextIdx++;
+		}
+
+		if (branchKeyEnabled) {
+			boundStmt.setInt(nextIdx, record.getBranch());
 		}
 
 		return boundStmt;
 	}
 
 	private BoundStatement createRunningFlowUpdateStatement(Session session, ScriptRuntimeDTO record) {
-		PreparedStatement updateStmt = preparedStatements.get(RUNNING_FLOWS_UPDATE_STMT);
-
 		final Date startTime = record.getStartTime();
-		BoundStatement boundStmt = updateStmt.bind(CassandraUtil.timestampToDateToken(startTime), record.getRuntimeId(),
-				startTime);
+		BoundStatement boundStmt;
+		if (branchKeyEnabled) {
+			boundStmt = preparedStatements.get(RUNNING_FLOWS_BRANCH_UPDATE_STMT).bind(
+					CassandraUtil.timestampToDateToken(startTime), record.getRuntimeId(), startTime,
+					record.getBranch());
+		} else {
+			boundStmt = preparedStatements.get(RUNNING_FLOWS_UPDATE_STMT)
+					.bind(CassandraUtil.timestampToDateToken(startTime), record.getRuntimeId(), startTime);
+		}
 
 		return boundStmt;
 	}
 
+	/*
+	 * The branch index can't be added to the primary key of the existing tables, so the columns are checked once on
+	 * startup.
+	 */
+	private static boolean hasColumn(KeyspaceMetadata keyspace, String[] tableNames, String columnName) {
+		for (String tableName : tableNames) {
+			final TableMetadata table = keyspace.getTable(tableName);
+			if (table == null || table.getColumn(columnName) == null) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
 	private QueryPage<ScriptRuntimeDTO> getPagedResult(Session session, BoundStatement boundStmt,
 			RuntimeRowConverter rowConverter, QueryPagingOptions pagingOptions) throws PersistenceException {
 
@@ -320,6 +461,14 @@ public class CassandraRuntimeRepository extends CassandraRepository implements R
 			return record;
 		};
 
+		protected static List<String> getInlinedSubflows(Row row) {
+			if (!row.getColumnDefinitions().contains(INLINED_SUBFLOWS_COLUMN)) {
+				return null;
+			}
+
+			return row.getList(INLINED_SUBFLOWS_COLUMN, String.class);
+		}
+
 	}
 
 	private static class FailedFlowConverter extends RuntimeRowConverter {
@@ -327,7 +476,7 @@ public class CassandraRuntimeRepository extends CassandraRepository implements R
 		@Override
 		public ScriptRuntimeDTO toRecord(Row row) {
 			return super.toRecord(row).setEndTime(row.getTimestamp(7)).setErrorDetails(row.getList(8, String.class))
-					.setStatus(RuntimeStatusType.FAILED);
+					.setInlinedSubflows(getInlinedSubflows(row)).setStatus(RuntimeStatusType.FAILED);
 		}
 
 	}
@@ -345,7 +494,8 @@ public class CassandraRuntimeRepository extends CassandraRepository implements R
 
 		@Override
 		public ScriptRuntimeDTO toRecord(Row row) {
-			return super.toRecord(row).setEndTime(row.getTimestamp(7)).setStatus(RuntimeStatusType.COMPLETED);
+			return super.toRecord(row).setEndTime(row.getTimestamp(7)).setInlinedSubflows(getInlinedSubflows(row))
+					.setStatus(RuntimeStatusType.COMPLETED);
 		}
 
 	}
@@ -0,0 +1,125 @@
+package com.ilsid.bfa.runtime.persistence.memory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.inject.Inject;
+
+import com.ilsid.bfa.ConfigurationException;
+import com.ilsid.bfa.common.ConfigUtil;
+import com.ilsid.bfa.persistence.PersistenceException;
+import com.ilsid.bfa.persistence.RepositoryConfig;
+import com.ilsid.bfa.runtime.dto.FlowCheckpointDTO;
+import com.ilsid.bfa.runtime.persistence.CheckpointRepository;
+
+/**
+ * Checkpoint repository that keeps the checkpoints in memory. The number of the flows with the kept checkpoints is
+ * bounded, the checkpoints of the oldest flows are evicted. The checkpoints are lost on restart, so only the flows
+ * failed since the start can be resumed.
+ *
+ * @author illia.sydorovych
+ *
+ */
+public class InMemoryCheckpointRepository implements CheckpointRepository {
+
+	private static final String CONFIG_PROP_CAPACITY = "bfa.persistence.runtime.memory.checkpoint_capacity";
+
+	private static final int CAPACITY_DEFAULT_VALUE = 10000;
+
+	private final ConcurrentMap<String, ConcurrentMap<String, FlowCheckpointDTO>> flows = new ConcurrentHashMap<>();
+
+	// The flows are evicted in the order of their first checkpoint. The deleted flows are kept here till the eviction
+	private final Queue<String> flowIds = new ConcurrentLinkedQueue<>();
+
+	private final AtomicInteger flowCount = new AtomicInteger();
+
+	private volatile int capacity = CAPACITY_DEFAULT_VALUE;
+
+	/**
+	 * Defines the maximum number of the flows with the kept checkpoints.
+	 *
+	 * @param config
+	 *            the repository configuration with the optional
+	 *            <code>bfa.persistence.runtime.memory.checkpoint_capacity</code> property
+	 * @throws ConfigurationException
+	 *             if the capacity value is invalid
+	 */
+	@Inject
+	@Override
+	public void setConfiguration(@RepositoryConfig Map<String, String> config) throws ConfigurationException {
+		capacity = ConfigUtil.getPositiveIntegerValue(CONFIG_PROP_CAPACITY, config, CAPACITY_DEFAULT_VALUE);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.ilsid.bfa.runtime.persistence.CheckpointRepository#saveCheckpoint(com.ilsid.bfa.runtime.dto.
+	 * FlowCheckpointDTO)
+	 */
+	@Override
+	public void saveCheckpoint(FlowCheckpointDTO checkpoint) throws PersistenceException {
+		if (checkpoint.getRuntimeId() == null || checkpoint.getStepKey() == null) {
+			throw new PersistenceException("The checkpoint must have the runtime id and the step key");
+		}
+
+		final String flowId = checkpoint.getRuntimeId().toString();
+		ConcurrentMap<String, FlowCheckpointDTO> checkpoints = flows.get(flowId);
+		if (checkpoints == null) {
+			checkpoints = new ConcurrentHashMap<>();
+			ConcurrentMap<String, FlowCheckpointDTO> existingCheckpoints = flows.putIfAbsent(flowId, checkpoints);
+			if (existingCheckpoints != null) {
+				checkpoints = existingCheckpoints;
+			} else {
+				flowIds.add(flowId);
+				evictOldestFlows();
+			}
+		}
+
+		checkpoints.put(checkpoint.getStepKey(), checkpoint);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.ilsid.bfa.runtime.persistence.CheckpointRepository#loadCheckpoints(java.lang.Object)
+	 */
+	@Override
+	public List<FlowCheckpointDTO> loadCheckpoints(Object runtimeId) throws PersistenceException {
+		final Map<String, FlowCheckpointDTO> checkpoints = flows.get(runtimeId.toString());
+		if (checkpoints == null) {
+			return Collections.emptyList();
+		}
+
+		return new ArrayList<>(checkpoints.values());
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.ilsid.bfa.runtime.persistence.CheckpointRepository#deleteCheckpoints(java.lang.Object)
+	 */
+	@Override
+	public void deleteCheckpoints(Object runtimeId) throws PersistenceException {
+		flows.remove(runtimeId.toString());
+	}
+
+	private void evictOldestFlows() {
+		if (flowCount.incrementAndGet() <= capacity) {
+			return;
+		}
+
+		final String evictedId = flowIds.poll();
+		if (evictedId != null) {
+			flows.remove(evictedId);
+			flowCount.decrementAndGet();
+		}
+	}
+
+}
@@ -0,0 +1,358 @@
+package com.ilsid.bfa.runtime.persistence.memory;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.inject.Inject;
+
+import com.ilsid.bfa.ConfigurationException;
+import com.ilsid.bfa.common.ConfigUtil;
+import com.ilsid.bfa.persistence.PersistenceException;
+import com.ilsid.bfa.persistence.QueryPage;
+import com.ilsid.bfa.persistence.QueryPagingOptions;
+import com.ilsid.bfa.persistence.RepositoryConfig;
+import com.ilsid.bfa.runtime.dto.RuntimeStatusType;
+import com.ilsid.bfa.runtime.dto.ScriptRuntimeCriteria;
+import com.ilsid.bfa.runtime.dto.ScriptRuntimeDTO;
+import com.ilsid.bfa.runtime.persistence.RuntimeIdBlockAllocator;
+import com.ilsid.bfa.runtime.persistence.RuntimeRepository;
+
+/**
+ * Runtime repository that keeps the records in memory. The records are stored in the lock-free structures ordered by
+ * the start time, so the concurrent scripts do not block each other. The number of the completed and failed records is
+ * bounded, the oldest completed records are evicted. The records in progress are never evicted.
+ * <p>
+ * The records are queried the same way as in the Cassandra based repository: by the status and the start date,
+ * optionally narrowed to the start time frame. The fetched records are ordered by the descending start time. The
+ * records are lost on restart, so the repository fits the nodes that need the recent history only, the tests and the
+ * benchmarks.
+ * </p>
+ *
+ * @author illia.sydorovych
+ *
+ */
+public class InMemoryRuntimeRepository implements RuntimeRepository, RuntimeIdBlockAllocator {
+
+	private static final String CONFIG_PROP_CAPACITY = "bfa.persistence.runtime.memory.capacity";
+
+	private static final int CAPACITY_DEFAULT_VALUE = 100000;
+
+	private static final String PAGE_TOKEN_SEPARATOR = ":";
+
+	private final ConcurrentSkipListMap<RecordKey, ScriptRuntimeDTO> records = new ConcurrentSkipListMap<>();
+
+	private final ConcurrentMap<RecordId, RecordKey> keys = new ConcurrentHashMap<>();
+
+	private final Queue<RecordId> finishedRecords = new ConcurrentLinkedQueue<>();
+
+	private final AtomicInteger finishedCount = new AtomicInteger();
+
+	private final AtomicLong sequence = new AtomicLong();
+
+	private final AtomicLong runtimeIdSequence = new AtomicLong();
+
+	private volatile int capacity = CAPACITY_DEFAULT_VALUE;
+
+	/**
+	 * Defines the maximum number of the kept completed and failed records.
+	 *
+	 * @param config
+	 *            the repository configuration with the optional <code>bfa.persistence.runtime.memory.capacity</code>
+	 *            property
+	 * @throws ConfigurationException
+	 *             if the capacity value is invalid
+	 */
+	@Inject
+	@Override
+	public void setConfiguration(@RepositoryConfig Map<String, String> config) throws ConfigurationException {
+		capacity = ConfigUtil.getPositiveIntegerValue(CONFIG_PROP_CAPACITY, config, CAPACITY_DEFAULT_VALUE);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.ilsid.bfa.runtime.persistence.RuntimeRepository#getNextRuntimeId()
+	 */
+	@Override
+	public Object getNextRuntimeId() throws PersistenceException {
+		return runtimeIdSequence.incrementAndGet();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.ilsid.bfa.runtime.persistence.RuntimeIdBlockAllocator#allocateBlock(int)
+	 */
+	@Override
+	public long allocateBlock(int blockSize) throws PersistenceException {
+		return runtimeIdSequence.addAndGet(blockSize);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.ilsid.bfa.runtime.persistence.RuntimeRepository#createRuntimeRecord(com.ilsid.bfa.runtime.dto.
+	 * ScriptRuntimeDTO)
+	 */
+	@Override
+	public void createRuntimeRecord(ScriptRuntimeDTO record) throws PersistenceException {
+		checkRecord(record);
+		records.put(getKey(new RecordId(record), record), copy(record));
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.ilsid.bfa.runtime.persistence.RuntimeRepository#updateRuntimeRecord(com.ilsid.bfa.runtime.dto.
+	 * ScriptRuntimeDTO)
+	 */
+	@Override
+	public void updateRuntimeRecord(ScriptRuntimeDTO record) throws PersistenceException {
+		checkRecord(record);
+		final RuntimeStatusType status = record.getStatus();
+		if (status != RuntimeStatusType.COMPLETED && status != RuntimeStatusType.FAILED) {
+			throw new PersistenceException("Illegal flow runtime status: " + status);
+		}
+
+		final RecordId id = new RecordId(record);
+		final ScriptRuntimeDTO previous = records.put(getKey(id, record), copy(record));
+		if (previous == null || previous.getStatus() == RuntimeStatusType.INPROGRESS) {
+			finishedRecords.add(id);
+			if (finishedCount.incrementAndGet() > capacity) {
+				evictOldestFinishedRecord();
+			}
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.ilsid.bfa.runtime.persistence.RuntimeRepository#fetch(com.ilsid.bfa.runtime.dto. ScriptRuntimeCriteria,
+	 * com.ilsid.bfa.persistence.QueryPagingOptions)
+	 */
+	@Override
+	public QueryPage<ScriptRuntimeDTO> fetch(ScriptRuntimeCriteria criteria, QueryPagingOptions pagingOptions)
+			throws PersistenceException {
+		final RuntimeStatusType status = criteria.getStatus();
+		if (status == null) {
+			throw new PersistenceException("Wrong flow runtime status: " + status);
+		}
+
+		final Date startDate = criteria.getStartDate();
+		if (startDate == null) {
+			throw new PersistenceException("Incorrect query criteria: startDate must be set");
+		}
+
+		final Date minTime = criteria.getMinStartTime();
+		final Date maxTime = criteria.getMaxStartTime();
+		if ((minTime != null && maxTime == null) || (minTime == null && maxTime != null)) {
+			throw new PersistenceException(
+					"Incorrect query criteria: both minStartTime and maxStartTime must be set or none of them");
+		}
+
+		Calendar day = Calendar.getInstance();
+		day.setTime(startDate);
+		day.set(Calendar.HOUR_OF_DAY, 0);
+		day.set(Calendar.MINUTE, 0);
+		day.set(Calendar.SECOND, 0);
+		day.set(Calendar.MILLISECOND, 0);
+		long fromTime = day.getTimeInMillis();
+		day.add(Calendar.DAY_OF_MONTH, 1);
+		long toTime = day.getTimeInMillis();
+
+		if (minTime != null) {
+			fromTime = Math.max(fromTime, minTime.getTime());
+			toTime = Math.min(toTime, maxTime.getTime());
+		}
+
+		if (fromTime >= toTime) {
+			return new QueryPage<ScriptRuntimeDTO>(new ArrayList<ScriptRuntimeDTO>(), null);
+		}
+
+		// The page token is the key of the last returned record, the next page starts from the preceding one
+		final String pageToken = pagingOptions.getPageToken();
+		final RecordKey fromKey = new RecordKey(fromTime, 0);
+		RecordKey toKey = new RecordKey(toTime, 0);
+		if (pageToken != null) {
+			final RecordKey lastReturnedKey = toRecordKey(pageToken);
+			if (lastReturnedKey.compareTo(toKey) < 0) {
+				toKey = lastReturnedKey;
+			}
+		}
+		if (fromKey.compareTo(toKey) >= 0) {
+			return new QueryPage<ScriptRuntimeDTO>(new ArrayList<ScriptRuntimeDTO>(), null);
+		}
+
+		final NavigableMap<RecordKey, ScriptRuntimeDTO> range = records.subMap(fromKey, true, toKey, false)
+				.descendingMap();
+		final int resultsPerPage = pagingOptions.getResultsPerPage();
+		List<ScriptRuntimeDTO> result = new ArrayList<>();
+		RecordKey lastKey = null;
+		String nextPageToken = null;
+		for (Map.Entry<RecordKey, ScriptRuntimeDTO> entry : range.entrySet()) {
+			if (entry.getValue().getStatus() != status) {
+				continue;
+			}
+
+			if (result.size() == resultsPerPage) {
+				nextPageToken = toPageToken(lastKey);
+				break;
+			}
+
+			result.add(entry.getValue());
+			lastKey = entry.getKey();
+		}
+
+		return new QueryPage<ScriptRuntimeDTO>(result, nextPageToken);
+	}
+
+	private RecordKey getKey(RecordId id, ScriptRuntimeDTO record) {
+		RecordKey key = keys.get(id);
+		if (key == null) {
+			key = new RecordKey(record.getStartTime().getTime(), sequence.incrementAndGet());
+			RecordKey existingKey = keys.putIfAbsent(id, key);
+			if (existingKey != null) {
+				key = existingKey;
+			}
+		}
+
+		return key;
+	}
+
+	private void evictOldestFinishedRecord() {
+		final RecordId id = finishedRecords.poll();
+		if (id != null) {
+			finishedCount.decrementAndGet();
+			final RecordKey key = keys.remove(id);
+			if (key != null) {
+				records.remove(key);
+			}
+		}
+	}
+
+	private void checkRecord(ScriptRuntimeDTO record) throws PersistenceException {
+		if (record.getRuntimeId() == null || record.getStartTime() == null) {
+			throw new PersistenceException("Flow runtime record must contain runtime id and start time");
+		}
+	}
+
+	/*
+	 * The stored records are not affected by the further changes of the passed ones.
+	 */
+	private static ScriptRuntimeDTO copy(ScriptRuntimeDTO record) {
+		final List<String> parameters = record.getParameters();
+		final Collection<String> callStack = record.getCallStack();
+		final Collection<String> errorDetails = record.getErrorDetails();
+		final Collection<String> inlinedSubflows = record.getInlinedSubflows();
+
+		return new ScriptRuntimeDTO().setRuntimeId(record.getRuntimeId()).setUserName(record.getUserName())
+				.setScriptName(record.getScriptName())
+				.setParameters(parameters != null ? new ArrayList<>(parameters) : null).setStatus(record.getStatus())
+				.setStartTime(record.getStartTime()).setEndTime(record.getEndTime()).setBranch(record.getBranch())
+				.setCallStack(callStack != null ? new ArrayList<>(callStack) : null)
+				.setErrorDetails(errorDetails != null ? new ArrayList<>(errorDetails) : null)
+				.setInlinedSubflows(inlinedSubflows != null ? new ArrayList<>(inlinedSubflows) : null);
+	}
+
+	private static String toPageToken(RecordKey key) {
+		return key.startTime + PAGE_TOKEN_SEPARATOR + key.sequence;
+	}
+
+	private static RecordKey toRecordKey(String pageToken) throws PersistenceException {
+		final int separatorIndex = pageToken.indexOf(PAGE_TOKEN_SEPARATOR);
+		try {
+			return new RecordKey(Long.parseLong(pageToken.substring(0, separatorIndex)),
+					Long.parseLong(pageToken.substring(separatorIndex + 1)));
+		} catch (RuntimeException e) {
+			throw new PersistenceException("Wrong query paging token", e);
+		}
+	}
+
+	/*
+	 * Orders the records by the start time. The sequence number differs the records with the same start time. The
+	 * sequence numbers start from 1, so the key with zero sequence precedes all records started at the given time.
+	 */
+	private static final class RecordKey implements Comparable<RecordKey> {
+
+		private final long startTime;
+
+		private final long sequence;
+
+		RecordKey(long startTime, long sequence) {
+			this.startTime = startTime;
+			this.sequence = sequence;
+		}
+
+		public int compareTo(RecordKey other) {
+			if (startTime != other.startTime) {
+				return startTime < other.startTime ? -1 : 1;
+			}
+
+			return sequence < other.sequence ? -1 : (sequence == other.sequence ? 0 : 1);
+		}
+
+	}
+
+	/*
+	 * Identifies the record of the script or sub-flow execution. The sub-flow records have the same runtime id as the
+	 * parent script record and differ by the call stack. The sub-flows run in parallel differ by the branch index.
+	 */
+	private static final class RecordId {
+
+		private final Object runtimeId;
+
+		private final long startTime;
+
+		private final int branch;
+
+		private final List<String> callStack;
+
+		RecordId(ScriptRuntimeDTO record) {
+			runtimeId = record.getRuntimeId();
+			startTime = record.getStartTime().getTime();
+			branch = record.getBranch();
+			callStack = record.getCallStack() != null ? new ArrayList<>(record.getCallStack()) : null;
+		}
+
+		@Override
+		public int hashCode() {
+			final int prime = 31;
+			int result = 1;
+			result = prime * result + runtimeId.hashCode();
+			result = prime * result + (int) (startTime ^ (startTime >>> 32));
+			result = prime * result + branch;
+			result = prime * result + ((callStack == null) ? 0 : callStack.hashCode());
+			return result;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof RecordId)) {
+				return false;
+			}
+			RecordId other = (RecordId) obj;
+			if (startTime != other.startTime || branch != other.branch || !runtimeId.equals(other.runtimeId)) {
+				return false;
+			}
+
+			return callStack == null ? other.callStack == null : callStack.equals(other.callStack);
+		}
+
+	}
+
+}
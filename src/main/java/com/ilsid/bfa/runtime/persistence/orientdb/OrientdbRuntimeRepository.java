@@ -12,6 +12,7 @@ import com.ilsid.bfa.persistence.orientdb.OrientdbRepository;
 import com.ilsid.bfa.persistence.orientdb.VoidDatabaseCallback;
 import com.ilsid.bfa.runtime.dto.ScriptRuntimeCriteria;
 import com.ilsid.bfa.runtime.dto.ScriptRuntimeDTO;
+import com.ilsid.bfa.runtime.persistence.RuntimeIdBlockAllocator;
 import com.ilsid.bfa.runtime.persistence.RuntimeRepository;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.sql.OCommandSQLResultset;
@@ -24,7 +25,8 @@ import com.tinkerpop.blueprints.impls.orient.OrientGraph;
  * @author illia.sydorovych
  *
  */
-public class OrientdbRuntimeRepository extends OrientdbRepository implements RuntimeRepository {
+public class OrientdbRuntimeRepository extends OrientdbRepository
+		implements RuntimeRepository, RuntimeIdBlockAllocator {
 
 	/*
 	 * (non-Javadoc)
@@ -33,10 +35,22 @@ public class OrientdbRuntimeRepository extends OrientdbRepository implements Run
 	 */
 	@Override
 	public Object getNextRuntimeId() throws PersistenceException {
+		return allocateBlock(1);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.ilsid.bfa.runtime.persistence.RuntimeIdBlockAllocator#allocateBlock(int)
+	 */
+	@Override
+	public long allocateBlock(final int blockSize) throws PersistenceException {
 		List<ODocument> resultSet = executeInTransaction(new DatabaseCallback<List<ODocument>>() {
 
 			public List<ODocument> doInDatabase(OrientGraph connection) throws PersistenceException {
-				String expr = "UPDATE SequenceProvider INCREMENT value = 1 RETURN AFTER $current WHERE name = 'FlowRuntimeSequence'";
+				String expr = String.format(
+						"UPDATE SequenceProvider INCREMENT value = %d RETURN AFTER $current WHERE name = 'FlowRuntimeSequence'",
+						blockSize);
 				OCommandSQLResultset cmd = new OCommandSQLResultset(expr);
 				List<ODocument> result = connection.getRawGraph().command(cmd).execute();
 
@@ -44,7 +58,7 @@ public class OrientdbRuntimeRepository extends OrientdbRepository implements Run
 			}
 		});
 
-		return resultSet.get(0).field("value");
+		return resultSet.get(0).<Number> field("value").longValue();
 	}
 
 	/*
@@ -104,6 +118,9 @@ public class OrientdbRuntimeRepository extends OrientdbRepository implements Run
 				if (record.getErrorDetails() != null) {
 					dbRecord.field("errorDetails", record.getErrorDetails());
 				}
+				if (record.getInlinedSubflows() != null) {
+					dbRecord.field("inlinedSubflows", record.getInlinedSubflows());
+				}
 
 				dbRecord.save();
 
@@ -0,0 +1,489 @@
+package com.ilsid.bfa.runtime.persistence.spool;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import com.ilsid.bfa.persistence.PersistenceException;
+import com.ilsid.bfa.runtime.dto.RuntimeStatusType;
+import com.ilsid.bfa.runtime.dto.ScriptRuntimeDTO;
+
+/**
+ * Memory-mapped ring buffer that keeps the runtime records not written to the repository yet. The records are
+ * appended by the script threads and acknowledged by the flushing thread. The appended entries are taken by the
+ * flushing thread in the order of the appending, see {@link #poll(long)}. The space of the acknowledged records is
+ * reused: if a record does not fit before the end of the file, it is written from the file beginning, provided the
+ * records stored there are acknowledged. The records left after the process crash are returned by
+ * {@link #open(File, int, List)} and must be acknowledged after they are written to the repository.
+ * <p>
+ * The file starts with the offset of the first not acknowledged record. Each record is stored as its length followed
+ * by the content. The length is written after the content, so a partially written record is never read back. The zero
+ * length marks the end of the records. The negative length means the records continue from the file beginning.
+ * </p>
+ *
+ * @author illia.sydorovych
+ *
+ */
+class RuntimeRecordSpool {
+
+	private static final int HEADER_SIZE = 8;
+
+	private static final int LENGTH_SIZE = 4;
+
+	private static final int NULL_LENGTH = -1;
+
+	private static final int WRAP_LENGTH = -1;
+
+	private static final byte NULL_ID = 0;
+
+	private static final byte UUID_ID = 1;
+
+	private static final byte LONG_ID = 2;
+
+	private static final byte INTEGER_ID = 3;
+
+	private static final byte STRING_ID = 4;
+
+	/**
+	 * The record operations.
+	 */
+	enum Operation {
+		CREATE, UPDATE
+	}
+
+	private final RandomAccessFile file;
+
+	private final MappedByteBuffer buffer;
+
+	private final int capacity;
+
+	private final BlockingQueue<Entry> appendedEntries = new LinkedBlockingQueue<>();
+
+	private int writeOffset;
+
+	private int ackOffset;
+
+	private RuntimeRecordSpool(RandomAccessFile file, MappedByteBuffer buffer, int capacity) {
+		this.file = file;
+		this.buffer = buffer;
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Opens the spool file. The file is created if it does not exist. The records not acknowledged before the previous
+	 * shutdown are taken first.
+	 *
+	 * @param spoolFile
+	 *            the spool file
+	 * @param capacity
+	 *            the spool size, in bytes. The size of the existing file is used, if it is greater
+	 * @return the spool
+	 * @throws PersistenceException
+	 *             if the file can't be opened or its content is corrupted
+	 */
+	static RuntimeRecordSpool open(File spoolFile, int capacity) throws PersistenceException {
+		File parentDir = spoolFile.getAbsoluteFile().getParentFile();
+		if (!parentDir.isDirectory() && !parentDir.mkdirs()) {
+			throw new PersistenceException(
+					String.format("Failed to create the directory [%s] for the runtime records spool", parentDir));
+		}
+
+		RuntimeRecordSpool spool;
+		try {
+			RandomAccessFile file = new RandomAccessFile(spoolFile, "rw");
+			try {
+				int actualCapacity = (int) Math.max(capacity, file.length());
+				MappedByteBuffer buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, actualCapacity);
+				spool = new RuntimeRecordSpool(file, buffer, actualCapacity);
+			} catch (IOException | RuntimeException e) {
+				file.close();
+				throw e;
+			}
+		} catch (IOException | RuntimeException e) {
+			throw new PersistenceException(
+					String.format("Failed to open the runtime records spool [%s]", spoolFile.getPath()), e);
+		}
+
+		spool.recover();
+
+		return spool;
+	}
+
+	/**
+	 * Appends the record. Waits for the free space, if the spool is full. The record is encoded before the return, so
+	 * its further changes do not affect the appended entry.
+	 *
+	 * @param operation
+	 *            the record operation
+	 * @param record
+	 *            the record
+	 * @param timeoutMillis
+	 *            maximum time to wait for the free space
+	 * @throws PersistenceException
+	 *             if there is no space for the record within the given timeout
+	 */
+	void append(Operation operation, ScriptRuntimeDTO record, long timeoutMillis) throws PersistenceException {
+		final byte[] content = encode(operation, record);
+		final int entrySize = LENGTH_SIZE + content.length;
+		if (HEADER_SIZE + entrySize + LENGTH_SIZE > capacity) {
+			throw new PersistenceException("The runtime record exceeds the spool size");
+		}
+
+		synchronized (this) {
+			final long deadline = System.currentTimeMillis() + timeoutMillis;
+			int offset;
+			while ((offset = findFreeSpace(entrySize)) < 0) {
+				final long waitTime = deadline - System.currentTimeMillis();
+				if (waitTime <= 0) {
+					throw new PersistenceException("The runtime records spool is full");
+				}
+				try {
+					wait(waitTime);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new PersistenceException("Interrupted while waiting for the free space in the spool", e);
+				}
+			}
+
+			buffer.putInt(offset + entrySize, 0);
+			buffer.position(offset + LENGTH_SIZE);
+			buffer.put(content);
+			buffer.putInt(offset, content.length);
+			if (offset != writeOffset) {
+				// The record is readable after the wrap marker replaces the end marker
+				buffer.putInt(writeOffset, WRAP_LENGTH);
+			}
+			writeOffset = offset + entrySize;
+
+			// The entries are taken in the order of their offsets
+			appendedEntries.add(new Entry(operation, content, writeOffset));
+		}
+	}
+
+	/**
+	 * Takes the earliest appended entry not taken yet. Waits for the entry, if there are no such entries.
+	 *
+	 * @param timeoutMillis
+	 *            maximum time to wait for the entry
+	 * @return the entry or <code>null</code> if no entry was appended within the given timeout
+	 * @throws InterruptedException
+	 *             if the waiting thread is interrupted
+	 */
+	Entry poll(long timeoutMillis) throws InterruptedException {
+		return appendedEntries.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Takes the appended entries not taken yet, without waiting.
+	 *
+	 * @param entries
+	 *            the list the entries are added to
+	 * @param maxEntries
+	 *            maximum number of the taken entries
+	 */
+	void drainTo(List<Entry> entries, int maxEntries) {
+		appendedEntries.drainTo(entries, maxEntries);
+	}
+
+	/**
+	 * Returns the number of the appended entries not taken yet.
+	 *
+	 * @return the number of entries
+	 */
+	int getAppendedCount() {
+		return appendedEntries.size();
+	}
+
+	/**
+	 * Marks all records up to the given entry as written to the repository. Their space is reused by the next records.
+	 *
+	 * @param lastEntry
+	 *            the last written entry
+	 */
+	synchronized void acknowledge(Entry lastEntry) {
+		ackOffset = lastEntry.endOffset;
+		if (ackOffset == writeOffset) {
+			// Nothing is pending, so the spool is rewound. The end marker is written before the header is updated
+			writeOffset = HEADER_SIZE;
+			ackOffset = HEADER_SIZE;
+			buffer.putInt(HEADER_SIZE, 0);
+		} else if (buffer.getInt(ackOffset) == WRAP_LENGTH) {
+			ackOffset = HEADER_SIZE;
+		}
+		buffer.putLong(0, ackOffset);
+
+		notifyAll();
+	}
+
+	/**
+	 * Flushes the spool content to the storage device and closes the file.
+	 */
+	synchronized void close() throws IOException {
+		buffer.force();
+		file.close();
+	}
+
+	/*
+	 * Returns the offset the record of the given size is written at or -1 if there is no space for it. The end marker
+	 * following the record must not overwrite the not acknowledged records.
+	 */
+	private int findFreeSpace(int entrySize) {
+		if (writeOffset < ackOffset) {
+			return writeOffset + entrySize + LENGTH_SIZE <= ackOffset ? writeOffset : -1;
+		}
+
+		if (writeOffset + entrySize + LENGTH_SIZE <= capacity) {
+			return writeOffset;
+		}
+
+		return HEADER_SIZE + entrySize + LENGTH_SIZE <= ackOffset ? HEADER_SIZE : -1;
+	}
+
+	private void recover() throws PersistenceException {
+		long storedAckOffset = buffer.getLong(0);
+		if (storedAckOffset < HEADER_SIZE || storedAckOffset > capacity - LENGTH_SIZE) {
+			// New file
+			storedAckOffset = HEADER_SIZE;
+		}
+
+		int offset = (int) storedAckOffset;
+		boolean wrapped = false;
+		while (offset + LENGTH_SIZE <= capacity) {
+			final int length = buffer.getInt(offset);
+			if (length == WRAP_LENGTH && !wrapped) {
+				offset = HEADER_SIZE;
+				wrapped = true;
+				continue;
+			}
+			if (length <= 0 || offset + LENGTH_SIZE + length > capacity) {
+				break;
+			}
+
+			byte[] content = new byte[length];
+			buffer.position(offset + LENGTH_SIZE);
+			buffer.get(content);
+			offset += LENGTH_SIZE + length;
+			// The content is decoded to check it is not corrupted
+			decode(content);
+			appendedEntries.add(new Entry(decodeOperation(content), content, offset));
+		}
+
+		ackOffset = (int) storedAckOffset;
+		writeOffset = offset;
+		if (appendedEntries.isEmpty()) {
+			ackOffset = HEADER_SIZE;
+			writeOffset = HEADER_SIZE;
+		}
+		if (writeOffset + LENGTH_SIZE <= capacity) {
+			buffer.putInt(writeOffset, 0);
+		}
+		buffer.putLong(0, ackOffset);
+	}
+
+	private static byte[] encode(Operation operation, ScriptRuntimeDTO record) throws PersistenceException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			out.writeByte(operation.ordinal());
+			writeRuntimeId(out, record.getRuntimeId());
+			writeString(out, record.getUserName());
+			writeString(out, record.getScriptName());
+			writeStrings(out, record.getParameters());
+			writeString(out, record.getStatus() != null ? record.getStatus().name() : null);
+			writeDate(out, record.getStartTime());
+			writeDate(out, record.getEndTime());
+			writeStrings(out, record.getCallStack());
+			writeStrings(out, record.getErrorDetails());
+			writeStrings(out, record.getInlinedSubflows());
+			out.writeInt(record.getBranch());
+		} catch (IOException e) {
+			throw new PersistenceException("Failed to write the runtime record to the spool", e);
+		}
+
+		return bytes.toByteArray();
+	}
+
+	private static Operation decodeOperation(byte[] content) throws PersistenceException {
+		try {
+			return Operation.values()[content[0]];
+		} catch (RuntimeException e) {
+			throw new PersistenceException("The runtime records spool is corrupted", e);
+		}
+	}
+
+	private static ScriptRuntimeDTO decode(byte[] content) throws PersistenceException {
+		try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(content))) {
+			// The operation is decoded separately
+			in.readByte();
+			ScriptRuntimeDTO record = new ScriptRuntimeDTO().setRuntimeId(readRuntimeId(in))
+					.setUserName(readString(in)).setScriptName(readString(in)).setParameters(readStrings(in));
+			String status = readString(in);
+			if (status != null) {
+				record.setStatus(RuntimeStatusType.valueOf(status));
+			}
+			record.setStartTime(readDate(in)).setEndTime(readDate(in)).setCallStack(readStrings(in))
+					.setErrorDetails(readStrings(in));
+			// The records spooled by the previous versions end here
+			if (in.available() > 0) {
+				record.setInlinedSubflows(readStrings(in));
+			}
+			if (in.available() > 0) {
+				record.setBranch(in.readInt());
+			}
+
+			return record;
+		} catch (IOException | RuntimeException e) {
+			throw new PersistenceException("The runtime records spool is corrupted", e);
+		}
+	}
+
+	private static void writeRuntimeId(DataOutputStream out, Object runtimeId) throws IOException {
+		if (runtimeId == null) {
+			out.writeByte(NULL_ID);
+		} else if (runtimeId instanceof UUID) {
+			out.writeByte(UUID_ID);
+			out.writeLong(((UUID) runtimeId).getMostSignificantBits());
+			out.writeLong(((UUID) runtimeId).getLeastSignificantBits());
+		} else if (runtimeId instanceof Long) {
+			out.writeByte(LONG_ID);
+			out.writeLong((Long) runtimeId);
+		} else if (runtimeId instanceof Integer) {
+			out.writeByte(INTEGER_ID);
+			out.writeInt((Integer) runtimeId);
+		} else {
+			out.writeByte(STRING_ID);
+			writeString(out, runtimeId.toString());
+		}
+	}
+
+	private static Object readRuntimeId(DataInputStream in) throws IOException {
+		final byte type = in.readByte();
+		switch (type) {
+		case NULL_ID:
+			return null;
+		case UUID_ID:
+			return new UUID(in.readLong(), in.readLong());
+		case LONG_ID:
+			return in.readLong();
+		case INTEGER_ID:
+			return in.readInt();
+		case STRING_ID:
+			return readString(in);
+		default:
+			throw new IOException("Unknown runtime id type: " + type);
+		}
+	}
+
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		if (value == null) {
+			out.writeInt(NULL_LENGTH);
+			return;
+		}
+
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		final int length = in.readInt();
+		if (length == NULL_LENGTH) {
+			return null;
+		}
+
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static void writeStrings(DataOutputStream out, Collection<String> values) throws IOException {
+		if (values == null) {
+			out.writeInt(NULL_LENGTH);
+			return;
+		}
+
+		out.writeInt(values.size());
+		for (String value : values) {
+			writeString(out, value);
+		}
+	}
+
+	private static List<String> readStrings(DataInputStream in) throws IOException {
+		final int size = in.readInt();
+		if (size == NULL_LENGTH) {
+			return null;
+		}
+
+		List<String> result = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			result.add(readString(in));
+		}
+
+		return result;
+	}
+
+	private static void writeDate(DataOutputStream out, Date value) throws IOException {
+		out.writeBoolean(value != null);
+		if (value != null) {
+			out.writeLong(value.getTime());
+		}
+	}
+
+	private static Date readDate(DataInputStream in) throws IOException {
+		if (in.readBoolean()) {
+			return new Date(in.readLong());
+		}
+
+		return null;
+	}
+
+	/**
+	 * The record appended to the spool.
+	 */
+	static class Entry {
+
+		private final Operation operation;
+
+		private final byte[] content;
+
+		private final int endOffset;
+
+		Entry(Operation operation, byte[] content, int endOffset) {
+			this.operation = operation;
+			this.content = content;
+			this.endOffset = endOffset;
+		}
+
+		Operation getOperation() {
+			return operation;
+		}
+
+		/**
+		 * Decodes the record. Each invocation returns the new instance.
+		 *
+		 * @return the record
+		 * @throws PersistenceException
+		 *             if the record can't be decoded
+		 */
+		ScriptRuntimeDTO getRecord() throws PersistenceException {
+			return decode(content);
+		}
+
+	}
+
+}
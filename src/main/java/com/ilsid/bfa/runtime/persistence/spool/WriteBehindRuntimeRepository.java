@@ -0,0 +1,416 @@
+package com.ilsid.bfa.runtime.persistence.spool;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ilsid.bfa.ConfigurationException;
+import com.ilsid.bfa.common.ConfigUtil;
+import com.ilsid.bfa.common.JsonUtil;
+import com.ilsid.bfa.persistence.PersistenceException;
+import com.ilsid.bfa.persistence.QueryPage;
+import com.ilsid.bfa.persistence.QueryPagingOptions;
+import com.ilsid.bfa.runtime.dto.ScriptRuntimeCriteria;
+import com.ilsid.bfa.runtime.dto.ScriptRuntimeDTO;
+import com.ilsid.bfa.runtime.persistence.RuntimeRepository;
+import com.ilsid.bfa.runtime.persistence.spool.RuntimeRecordSpool.Entry;
+import com.ilsid.bfa.runtime.persistence.spool.RuntimeRecordSpool.Operation;
+
+/**
+ * Runtime repository that writes the records to the underlying repository asynchronously. The records are appended to
+ * the memory-mapped spool file and returned to the caller immediately. The separate thread writes them to the
+ * underlying repository in batches. If the underlying repository allows it, only the update is written when the record
+ * creation and update are in the same batch. The records that were not written before the shutdown or crash are
+ * written after the next start.
+ * <p>
+ * The records become visible for {@link #fetch(ScriptRuntimeCriteria, QueryPagingOptions)} with the delay. The failed
+ * writes are retried the configured number of times. Then the records of the batch are written one by one and the
+ * records that still fail are moved to the dead letter file, one JSON record per line, so they do not block the next
+ * ones.
+ * </p>
+ *
+ * @author illia.sydorovych
+ *
+ */
+public class WriteBehindRuntimeRepository implements RuntimeRepository {
+
+	private static final String CONFIG_PROP_ENABLED = "bfa.persistence.runtime.write_behind.enabled";
+
+	private static final String CONFIG_PROP_SPOOL_FILE = "bfa.persistence.runtime.write_behind.spool_file";
+
+	private static final String CONFIG_PROP_SPOOL_SIZE = "bfa.persistence.runtime.write_behind.spool_size";
+
+	private static final String CONFIG_PROP_BATCH_SIZE = "bfa.persistence.runtime.write_behind.batch_size";
+
+	private static final String CONFIG_PROP_MAX_ATTEMPTS = "bfa.persistence.runtime.write_behind.max_attempts";
+
+	private static final String CONFIG_PROP_DEAD_LETTER_FILE = "bfa.persistence.runtime.write_behind.dead_letter_file";
+
+	private static final String SPOOL_FILE_DEFAULT_VALUE = "./tmp/runtime_records.spool";
+
+	private static final int SPOOL_SIZE_DEFAULT_VALUE = 64;
+
+	private static final int BATCH_SIZE_DEFAULT_VALUE = 500;
+
+	private static final int MAX_ATTEMPTS_DEFAULT_VALUE = 10;
+
+	private static final String DEAD_LETTER_FILE_SUFFIX = ".failed";
+
+	private static final String DEAD_LETTER_SEPARATOR = " ";
+
+	private static final int BYTES_IN_MEGABYTE = 1024 * 1024;
+
+	private static final long POLL_TIMEOUT_MILLIS = 100;
+
+	private static final long RETRY_DELAY_MILLIS = 1000;
+
+	private static final long APPEND_TIMEOUT_MILLIS = 10000;
+
+	private static final String FLUSHER_THREAD_NAME = "bfa-runtime-records-writer";
+
+	private final RuntimeRepository repository;
+
+	private final boolean coalescing;
+
+	private Logger logger = LoggerFactory.getLogger(WriteBehindRuntimeRepository.class);
+
+	private RuntimeRecordSpool spool;
+
+	private Thread flusher;
+
+	private int batchSize;
+
+	private int maxAttempts;
+
+	private File deadLetterFile;
+
+	private volatile boolean closed;
+
+	/**
+	 * Creates the instance. Each record creation and update is written to the underlying repository.
+	 *
+	 * @param repository
+	 *            the underlying repository
+	 */
+	public WriteBehindRuntimeRepository(RuntimeRepository repository) {
+		this(repository, false);
+	}
+
+	/**
+	 * Creates the instance.
+	 *
+	 * @param repository
+	 *            the underlying repository
+	 * @param coalescing
+	 *            if <code>true</code>, the record creation is not written when its update is in the same batch. It is
+	 *            allowed only if the underlying repository saves the updated record regardless whether it was created
+	 */
+	public WriteBehindRuntimeRepository(RuntimeRepository repository, boolean coalescing) {
+		this.repository = repository;
+		this.coalescing = coalescing;
+	}
+
+	/**
+	 * Checks whether the write-behind mode is enabled by the given configuration.
+	 *
+	 * @param config
+	 *            the repository configuration
+	 * @return <code>true</code> if the write-behind mode is enabled
+	 */
+	public static boolean isEnabled(Map<String, String> config) {
+		return Boolean.parseBoolean(config.get(CONFIG_PROP_ENABLED));
+	}
+
+	/**
+	 * Opens the spool file and starts the thread that writes the records to the underlying repository. The records
+	 * left in the spool after the previous run are written first. The underlying repository must be already configured.
+	 *
+	 * @param config
+	 *            the repository configuration
+	 * @throws ConfigurationException
+	 *             if the configuration is invalid or the spool file can't be opened
+	 */
+	@Override
+	public void setConfiguration(Map<String, String> config) throws ConfigurationException {
+		final int spoolSize = ConfigUtil.getPositiveIntegerValue(CONFIG_PROP_SPOOL_SIZE, config,
+				SPOOL_SIZE_DEFAULT_VALUE);
+		batchSize = ConfigUtil.getPositiveIntegerValue(CONFIG_PROP_BATCH_SIZE, config, BATCH_SIZE_DEFAULT_VALUE);
+		maxAttempts = ConfigUtil.getPositiveIntegerValue(CONFIG_PROP_MAX_ATTEMPTS, config,
+				MAX_ATTEMPTS_DEFAULT_VALUE);
+
+		String spoolFile = config.get(CONFIG_PROP_SPOOL_FILE);
+		if (spoolFile == null) {
+			spoolFile = SPOOL_FILE_DEFAULT_VALUE;
+		}
+
+		String deadLetterFileName = config.get(CONFIG_PROP_DEAD_LETTER_FILE);
+		if (deadLetterFileName == null) {
+			deadLetterFileName = spoolFile + DEAD_LETTER_FILE_SUFFIX;
+		}
+		deadLetterFile = new File(deadLetterFileName);
+
+		try {
+			spool = RuntimeRecordSpool.open(new File(spoolFile), spoolSize * BYTES_IN_MEGABYTE);
+		} catch (PersistenceException e) {
+			throw new ConfigurationException("Failed to initialize the write-behind runtime repository", e);
+		}
+
+		flusher = new Thread(new Runnable() {
+
+			public void run() {
+				writePendingEntries();
+			}
+		}, FLUSHER_THREAD_NAME);
+		flusher.setDaemon(true);
+		flusher.start();
+	}
+
+	/**
+	 * Defines the logger implementation.
+	 *
+	 * @param loggerImpl
+	 *            the logger instance
+	 */
+	public void setLogger(Logger loggerImpl) {
+		logger = loggerImpl;
+	}
+
+	/**
+	 * Delegates to the underlying repository.
+	 */
+	@Override
+	public Object getNextRuntimeId() throws PersistenceException {
+		return repository.getNextRuntimeId();
+	}
+
+	/**
+	 * Appends the record to the spool. The record is written to the underlying repository asynchronously.
+	 *
+	 * @throws PersistenceException
+	 *             if the spool is full or closed
+	 */
+	@Override
+	public void createRuntimeRecord(ScriptRuntimeDTO record) throws PersistenceException {
+		append(Operation.CREATE, record);
+	}
+
+	/**
+	 * Appends the record to the spool. The record is written to the underlying repository asynchronously.
+	 *
+	 * @throws PersistenceException
+	 *             if the spool is full or closed
+	 */
+	@Override
+	public void updateRuntimeRecord(ScriptRuntimeDTO record) throws PersistenceException {
+		append(Operation.UPDATE, record);
+	}
+
+	/**
+	 * Delegates to the underlying repository. The recently saved records may be not available yet.
+	 */
+	@Override
+	public QueryPage<ScriptRuntimeDTO> fetch(ScriptRuntimeCriteria criteria, QueryPagingOptions pagingOptions)
+			throws PersistenceException {
+		return repository.fetch(criteria, pagingOptions);
+	}
+
+	/**
+	 * Writes the pending records to the underlying repository and closes the spool. The records that can't be written
+	 * are kept in the spool till the next start.
+	 *
+	 * @param timeoutMillis
+	 *            maximum time to wait for the pending records to be written
+	 */
+	public void close(long timeoutMillis) {
+		closed = true;
+		if (flusher == null) {
+			return;
+		}
+
+		try {
+			flusher.join(timeoutMillis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		flusher.interrupt();
+
+		try {
+			spool.close();
+		} catch (IOException e) {
+			logger.warn("Failed to close the runtime records spool", e);
+		}
+	}
+
+	/**
+	 * Returns the number of the records not written to the underlying repository yet.
+	 *
+	 * @return the number of pending records
+	 */
+	public int getPendingCount() {
+		return spool != null ? spool.getAppendedCount() : 0;
+	}
+
+	/*
+	 * The spool keeps the order of the records, so the record creation is never written after its update.
+	 */
+	private void append(Operation operation, ScriptRuntimeDTO record) throws PersistenceException {
+		if (closed) {
+			throw new PersistenceException("The runtime repository is closed");
+		}
+
+		spool.append(operation, record, APPEND_TIMEOUT_MILLIS);
+	}
+
+	private void writePendingEntries() {
+		List<Entry> batch = new ArrayList<>(batchSize);
+		while (true) {
+			Entry first;
+			try {
+				first = spool.poll(POLL_TIMEOUT_MILLIS);
+			} catch (InterruptedException e) {
+				return;
+			}
+
+			if (first == null) {
+				if (closed) {
+					return;
+				}
+				continue;
+			}
+
+			batch.add(first);
+			spool.drainTo(batch, batchSize - 1);
+			if (!writeWithRetry(batch)) {
+				return;
+			}
+			spool.acknowledge(batch.get(batch.size() - 1));
+			batch.clear();
+		}
+	}
+
+	/*
+	 * Returns false if the thread is interrupted before the records are written.
+	 */
+	private boolean writeWithRetry(List<Entry> batch) {
+		List<Entry> writtenBatch = batch;
+		if (coalescing) {
+			try {
+				writtenBatch = coalesce(batch);
+			} catch (PersistenceException e) {
+				logger.error("Failed to coalesce runtime records. All records will be written", e);
+			}
+		}
+
+		for (int attempt = 1; attempt < maxAttempts; attempt++) {
+			try {
+				write(writtenBatch);
+				return true;
+			} catch (PersistenceException | RuntimeException e) {
+				logger.error("Failed to write runtime records. The attempt will be repeated", e);
+			}
+
+			try {
+				Thread.sleep(RETRY_DELAY_MILLIS);
+			} catch (InterruptedException e) {
+				return false;
+			}
+		}
+
+		// The last attempt finds the records that can't be written
+		for (Entry entry : writtenBatch) {
+			try {
+				write(Collections.singletonList(entry));
+			} catch (PersistenceException | RuntimeException e) {
+				moveToDeadLetterFile(entry, e);
+			}
+		}
+
+		return true;
+	}
+
+	private void moveToDeadLetterFile(Entry entry, Exception cause) {
+		String line;
+		try {
+			line = entry.getOperation() + DEAD_LETTER_SEPARATOR + JsonUtil.toJsonString(entry.getRecord());
+		} catch (IOException | PersistenceException e) {
+			logger.error("Failed to write runtime record. The record can't be decoded and is dropped", cause);
+			return;
+		}
+
+		logger.error(String.format("Failed to write runtime record. The record is moved to [%s]: %s",
+				deadLetterFile.getPath(), line), cause);
+		try (Writer writer = new OutputStreamWriter(new FileOutputStream(deadLetterFile, true),
+				StandardCharsets.UTF_8)) {
+			writer.write(line);
+			writer.write(System.lineSeparator());
+		} catch (IOException e) {
+			logger.error("Failed to write runtime record to the dead letter file. The record is dropped", e);
+		}
+	}
+
+	private void write(List<Entry> batch) throws PersistenceException {
+		// The records are decoded for each attempt, as the underlying repository may change them
+		for (Entry entry : batch) {
+			if (entry.getOperation() == Operation.CREATE) {
+				repository.createRuntimeRecord(entry.getRecord());
+			} else {
+				repository.updateRuntimeRecord(entry.getRecord());
+			}
+		}
+	}
+
+	/*
+	 * The update of the record contains all the data of its creation. So, the creation is skipped if the update of the
+	 * same record is in the batch.
+	 */
+	private List<Entry> coalesce(List<Entry> batch) throws PersistenceException {
+		Map<String, Integer> creationIndexes = new HashMap<>();
+		List<Entry> result = new ArrayList<>(batch.size());
+		for (Entry entry : batch) {
+			final String key = toKey(entry.getRecord());
+			if (entry.getOperation() == Operation.CREATE) {
+				creationIndexes.put(key, result.size());
+			} else {
+				Integer creationIndex = creationIndexes.remove(key);
+				if (creationIndex != null) {
+					result.set(creationIndex, null);
+				}
+			}
+			result.add(entry);
+		}
+
+		List<Entry> nonSkippedEntries = new ArrayList<>(result.size());
+		for (Entry entry : result) {
+			if (entry != null) {
+				nonSkippedEntries.add(entry);
+			}
+		}
+
+		return nonSkippedEntries;
+	}
+
+	/*
+	 * Sub-flows share the runtime id of the top-level flow, so the start time, the branch and the call stack depth are
+	 * the part of the key.
+	 */
+	private String toKey(ScriptRuntimeDTO record) {
+		final int callStackDepth = record.getCallStack() != null ? record.getCallStack().size() : 0;
+		final long startTime = record.getStartTime() != null ? record.getStartTime().getTime() : 0;
+
+		return new StringBuilder().append(record.getRuntimeId()).append('|').append(startTime).append('|')
+				.append(record.getBranch()).append('|').append(callStackDepth).append('|')
+				.append(record.getScriptName()).toString();
+	}
+
+}
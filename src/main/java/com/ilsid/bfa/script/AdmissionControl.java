@@ -0,0 +1,189 @@
+package com.ilsid.bfa.script;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.ilsid.bfa.common.Metrics;
+
+/**
+ * Limits the number of the concurrently executed scripts. The global limit is applied to all scripts and the
+ * per-script limit is applied to the scripts with the same name. The caller that exceeds the global limit may wait for
+ * the permit in the bounded queue. The caller that exceeds the per-script limit, can't wait in the queue or waits
+ * longer than the queue timeout is rejected. The per-script limit includes the callers waiting in the queue, so a
+ * single script can't occupy the whole queue.
+ *
+ * @author illia.sydorovych
+ *
+ */
+class AdmissionControl {
+
+	private static final Metrics.Counter REJECTED_COUNTER = Metrics.counter("bfa_admission_rejected_total",
+			"Scripts rejected by the admission control");
+
+	private final Semaphore permits;
+
+	private final int maxConcurrentPerScript;
+
+	private final int queueSize;
+
+	private final long queueTimeoutMillis;
+
+	private final AtomicInteger activeCount = new AtomicInteger();
+
+	private final AtomicInteger waitingCount = new AtomicInteger();
+
+	private final ConcurrentMap<String, AtomicInteger> scriptCounts = new ConcurrentHashMap<>();
+
+	/**
+	 * Creates the instance.
+	 *
+	 * @param maxConcurrent
+	 *            the maximum number of the concurrently executed scripts or <code>0</code> if not limited
+	 * @param maxConcurrentPerScript
+	 *            the maximum number of the concurrently executed scripts with the same name or <code>0</code> if not
+	 *            limited
+	 * @param queueSize
+	 *            the maximum number of the callers waiting for the global limit permit
+	 * @param queueTimeoutMillis
+	 *            the maximum waiting time, in milliseconds
+	 */
+	AdmissionControl(int maxConcurrent, int maxConcurrentPerScript, int queueSize, long queueTimeoutMillis) {
+		permits = maxConcurrent > 0 ? new Semaphore(maxConcurrent, true) : null;
+		this.maxConcurrentPerScript = maxConcurrentPerScript;
+		this.queueSize = queueSize;
+		this.queueTimeoutMillis = queueTimeoutMillis;
+	}
+
+	/**
+	 * Registers the gauges of the running and waiting scripts in {@link Metrics}.
+	 */
+	void registerGauges() {
+		Metrics.gauge("bfa_admission_active", "Scripts admitted for the execution", new Metrics.Gauge() {
+
+			public long getValue() {
+				return activeCount.get();
+			}
+		});
+		Metrics.gauge("bfa_admission_waiting", "Scripts waiting for the admission", new Metrics.Gauge() {
+
+			public long getValue() {
+				return waitingCount.get();
+			}
+		});
+	}
+
+	/**
+	 * Admits the script for the execution. Each successful call must be followed by {@link #release(String)}.
+	 *
+	 * @param scriptName
+	 *            the script name
+	 * @param canWait
+	 *            whether the caller can wait in the queue, if the global limit is exceeded
+	 * @throws ScriptRejectedException
+	 *             if the script is not admitted
+	 */
+	void acquire(String scriptName, boolean canWait) throws ScriptRejectedException {
+		AtomicInteger scriptCount = null;
+		if (maxConcurrentPerScript > 0) {
+			scriptCount = getScriptCount(scriptName);
+			if (scriptCount.incrementAndGet() > maxConcurrentPerScript) {
+				scriptCount.decrementAndGet();
+				throw reject(String.format("The script [%s] is rejected. "
+						+ "The limit of concurrently executed scripts with such name is reached", scriptName), null);
+			}
+		}
+
+		try {
+			acquirePermit(scriptName, canWait);
+		} catch (ScriptRejectedException e) {
+			if (scriptCount != null) {
+				scriptCount.decrementAndGet();
+			}
+			throw e;
+		}
+
+		activeCount.incrementAndGet();
+	}
+
+	/**
+	 * Releases the admission obtained with {@link #acquire(String, boolean)}.
+	 *
+	 * @param scriptName
+	 *            the script name
+	 */
+	void release(String scriptName) {
+		activeCount.decrementAndGet();
+		if (permits != null) {
+			permits.release();
+		}
+		if (maxConcurrentPerScript > 0) {
+			getScriptCount(scriptName).decrementAndGet();
+		}
+	}
+
+	int getActiveCount() {
+		return activeCount.get();
+	}
+
+	int getWaitingCount() {
+		return waitingCount.get();
+	}
+
+	private void acquirePermit(String scriptName, boolean canWait) throws ScriptRejectedException {
+		if (permits == null) {
+			return;
+		}
+
+		// The timed acquisition respects the fairness, so the new callers do not overtake the waiting ones
+		try {
+			if (permits.tryAcquire(0, TimeUnit.MILLISECONDS)) {
+				return;
+			}
+
+			if (!canWait || waitingCount.incrementAndGet() > queueSize) {
+				if (canWait) {
+					waitingCount.decrementAndGet();
+				}
+				throw reject(String.format(
+						"The script [%s] is rejected. The limit of concurrently executed scripts is reached", scriptName),
+						null);
+			}
+
+			try {
+				if (!permits.tryAcquire(queueTimeoutMillis, TimeUnit.MILLISECONDS)) {
+					throw reject(String.format(
+							"The script [%s] is rejected. The waiting time for the execution is exceeded", scriptName),
+							null);
+				}
+			} finally {
+				waitingCount.decrementAndGet();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw reject(String.format("The script [%s] is rejected. Interrupted while waiting for the execution",
+					scriptName), e);
+		}
+	}
+
+	private ScriptRejectedException reject(String message, Throwable cause) {
+		REJECTED_COUNTER.increment();
+		return new ScriptRejectedException(message, cause);
+	}
+
+	private AtomicInteger getScriptCount(String scriptName) {
+		AtomicInteger count = scriptCounts.get(scriptName);
+		if (count == null) {
+			count = new AtomicInteger();
+			AtomicInteger existingCount = scriptCounts.putIfAbsent(scriptName, count);
+			if (existingCount != null) {
+				count = existingCount;
+			}
+		}
+
+		return count;
+	}
+
+}
@@ -0,0 +1,109 @@
+package com.ilsid.bfa.script;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.ilsid.bfa.common.JsonUtil;
+import com.ilsid.bfa.persistence.DynamicClassLoader;
+
+/**
+ * Encodes the values kept in the flow checkpoints. Each value is encoded as <code>&lt;class name&gt;:&lt;JSON&gt;</code>
+ * string, so it is decoded to the instance of the same class. The classes of the script entities are resolved via
+ * {@link DynamicClassLoader}.
+ *
+ * @author illia.sydorovych
+ *
+ */
+class CheckpointCodec {
+
+	private static final char CLASS_NAME_SEPARATOR = ':';
+
+	private static final String NULL_VALUE = CLASS_NAME_SEPARATOR + "null";
+
+	/**
+	 * Encodes the value.
+	 *
+	 * @param value
+	 *            the value to encode, may be <code>null</code>
+	 * @return the encoded value
+	 * @throws IOException
+	 *             if the value can't be converted to JSON
+	 */
+	static String encode(Object value) throws IOException {
+		if (value == null) {
+			return NULL_VALUE;
+		}
+
+		return new StringBuilder(value.getClass().getName()).append(CLASS_NAME_SEPARATOR)
+				.append(JsonUtil.toJsonString(value)).toString();
+	}
+
+	/**
+	 * Encodes each of the values.
+	 *
+	 * @param values
+	 *            the values to encode
+	 * @return the encoded values in the same order
+	 * @throws IOException
+	 *             if any of the values can't be converted to JSON
+	 */
+	static List<String> encode(Object[] values) throws IOException {
+		List<String> result = new ArrayList<>(values.length);
+		for (Object value : values) {
+			result.add(encode(value));
+		}
+
+		return result;
+	}
+
+	/**
+	 * Decodes the value encoded by {@link #encode(Object)}.
+	 *
+	 * @param encodedValue
+	 *            the encoded value
+	 * @return the decoded value
+	 * @throws IOException
+	 *             if the value has invalid format or its class can't be loaded
+	 */
+	static Object decode(String encodedValue) throws IOException {
+		final int separatorIdx = encodedValue.indexOf(CLASS_NAME_SEPARATOR);
+		if (separatorIdx < 0) {
+			throw new IOException(String.format("Invalid format of the checkpoint value [%s]", encodedValue));
+		}
+
+		if (separatorIdx == 0) {
+			return null;
+		}
+
+		final String className = encodedValue.substring(0, separatorIdx);
+		Class<?> valueClass;
+		try {
+			valueClass = DynamicClassLoader.getInstance().loadClass(className);
+		} catch (ClassNotFoundException | IllegalStateException e) {
+			throw new IOException(String.format("Failed to load the class [%s] of the checkpoint value", className),
+					e);
+		}
+
+		return JsonUtil.toObject(encodedValue.substring(separatorIdx + 1), valueClass);
+	}
+
+	/**
+	 * Decodes each of the values encoded by {@link #encode(Object[])}.
+	 *
+	 * @param encodedValues
+	 *            the encoded values
+	 * @return the decoded values in the same order
+	 * @throws IOException
+	 *             if any of the values can't be decoded
+	 */
+	static Object[] decode(List<String> encodedValues) throws IOException {
+		Object[] result = new Object[encodedValues.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = decode(encodedValues.get(i));
+		}
+
+		return result;
+	}
+
+}
@@ -12,6 +12,7 @@ import org.slf4j.Logger;
 
 import com.ilsid.bfa.common.ClassNameUtil;
 import com.ilsid.bfa.common.ExceptionUtil;
+import com.ilsid.bfa.common.Metrics;
 import com.ilsid.bfa.persistence.DynamicClassLoader;
 import com.ilsid.bfa.script.ScriptSourcePreprocessor.ExpressionsUnit;
 
@@ -38,8 +39,28 @@ public class ClassCompiler {
 
 	private static final String DEFAULT_CONSTRUCTOR_TEMPLATE = "new %s();";
 
+	private static final String VAR_SLOT_NAMES_FIELD_TEMPLATE = "private static final String[] VAR_SLOT_NAMES = new String[] { %s };";
+
+	// Javassist compiler does not accept the empty array initializer
+	private static final String NO_VAR_SLOT_NAMES_FIELD_SOURCE = "private static final String[] VAR_SLOT_NAMES = new String[0];";
+
+	private static final String VAR_SLOT_NAMES_METHOD_SOURCE = "protected String[] getVarSlotNames() { return VAR_SLOT_NAMES; }";
+
+	private static final String INLINABLE_METHOD_SOURCE = "protected boolean isInlinable() { return true; }";
+
+	/*
+	 * The maximum number of the flow steps of the script that can be inlined into the calling script
+	 */
+	private static final int INLINABLE_MAX_FLOW_STEPS = 20;
+
+	private static final String DQ = "\"";
+
+	private static final String COMMA = ", ";
+
 	private static final CtClass[] NO_ARGS = {};
 
+	private static final Metrics.Timer COMPILE_TIMER = Metrics.timer("bfa_script_compile", "Script compilation");
+
 	private static final ClassPool classPool;
 
 	private static Logger logger;
@@ -71,13 +92,18 @@ public class ClassCompiler {
 		ScriptCompilationUnit result = new ScriptCompilationUnit();
 		byte[] byteCode;
 
+		final long startTime = System.nanoTime();
+		boolean failed = true;
 		try {
 			CtClass clazz = buildScriptClass(className, scriptBody, result);
 			byteCode = toBytecode(clazz);
+			failed = false;
 		} catch (NotFoundException | CannotCompileException | IOException | ParsingException e) {
 
 			throw new ClassCompilationException(
 					String.format("Compilation of script [%s] failed", ClassNameUtil.getShortClassName(className)), e);
+		} finally {
+			COMPILE_TIMER.record(startTime, failed);
 		}
 
 		result.byteCode = byteCode;
@@ -186,6 +212,10 @@ public class ClassCompiler {
 
 		private String generatedSource;
 
+		private String[] varSlotNames;
+
+		private boolean inlinable;
+
 		public byte[] getByteCode() {
 			return byteCode;
 		}
@@ -198,6 +228,19 @@ public class ClassCompiler {
 			return generatedSource;
 		}
 
+		public String[] getVarSlotNames() {
+			return varSlotNames;
+		}
+
+		/**
+		 * Returns <code>true</code> if the script can be run as the inlined sub-flow.
+		 * 
+		 * @see Script#isInlinable()
+		 */
+		public boolean isInlinable() {
+			return inlinable;
+		}
+
 	}
 
 	private static ClassPool getClassPool() {
@@ -228,6 +271,10 @@ public class ClassCompiler {
 		try {
 			method.setBody(compilationUnit.generatedSource);
 			clazz.addMethod(method);
+			addVarSlotNames(clazz, compilationUnit.varSlotNames);
+			if (compilationUnit.inlinable) {
+				clazz.addMethod(CtMethod.make(INLINABLE_METHOD_SOURCE, clazz));
+			}
 		} finally {
 			classPool.removeClassPath(dynamicClassPath);
 		}
@@ -256,6 +303,30 @@ public class ClassCompiler {
 
 		compilationUnit.generatedSource = expressionsUnit.getSource();
 		compilationUnit.inputParameters = expressionsUnit.getInputParameters();
+		compilationUnit.varSlotNames = expressionsUnit.getVarSlotNames();
+		// Only the small scripts that do not run own sub-flows are inlined, so the inlined sub-flows are never nested
+		compilationUnit.inlinable = !expressionsUnit.callsSubflows()
+				&& expressionsUnit.getFlowStepCount() <= INLINABLE_MAX_FLOW_STEPS;
+	}
+
+	/*
+	 * The generated code addresses the variables by their slots. The script must create its context with the same
+	 * slots.
+	 */
+	private static void addVarSlotNames(CtClass clazz, String[] varSlotNames) throws CannotCompileException {
+		StringBuilder names = new StringBuilder();
+		for (String name : varSlotNames) {
+			if (names.length() > 0) {
+				names.append(COMMA);
+			}
+			// The names are taken from the string literals of the script source, so they are already escaped
+			names.append(DQ).append(name).append(DQ);
+		}
+
+		final String fieldSource = varSlotNames.length > 0 ? String.format(VAR_SLOT_NAMES_FIELD_TEMPLATE, names)
+				: NO_VAR_SLOT_NAMES_FIELD_SOURCE;
+		clazz.addField(CtField.make(fieldSource, clazz));
+		clazz.addMethod(CtMethod.make(VAR_SLOT_NAMES_METHOD_SOURCE, clazz));
 	}
 
 	private static byte[] toBytecode(CtClass clazz) throws CannotCompileException, IOException {
@@ -0,0 +1,128 @@
+package com.ilsid.bfa.script;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+
+import com.ilsid.bfa.common.ClassNameUtil;
+import com.ilsid.bfa.persistence.DynamicClassLoader;
+
+/**
+ * Populates the entities directly from the {@link Map} representation, without the conversion to JSON and back. The
+ * nested entities are populated from the nested maps. The constructors are resolved once per entity class as method
+ * handles and the fields are set via {@link EntityFields}, so the reloaded entity classes get their own binders.
+ *
+ * @author illia.sydorovych
+ *
+ */
+public final class EntityBinder {
+
+	private static final MethodType FACTORY_TYPE = MethodType.methodType(Object.class);
+
+	private static final ClassValue<MethodHandle> factories = new ClassValue<MethodHandle>() {
+
+		@Override
+		protected MethodHandle computeValue(Class<?> type) {
+			try {
+				return MethodHandles.publicLookup().findConstructor(type, MethodType.methodType(void.class))
+						.asType(FACTORY_TYPE);
+			} catch (NoSuchMethodException | IllegalAccessException e) {
+				// The entity can't be instantiated
+				return null;
+			}
+		}
+	};
+
+	private EntityBinder() {
+	}
+
+	/**
+	 * Creates an entity and populates its public fields from the given map. The values are converted to the field
+	 * types. The map values for the entity fields may be the nested maps.
+	 *
+	 * @param values
+	 *            the field values mapped to the field names
+	 * @param type
+	 *            the entity class
+	 * @return the populated entity
+	 * @throws InvalidTypeException
+	 *             <ul>
+	 *             <li>if the entity can't be instantiated</li>
+	 *             <li>if the map contains a name of the non-existent field</li>
+	 *             <li>if some value can't be converted to the field type</li>
+	 *             </ul>
+	 */
+	public static Object bind(Map<?, ?> values, Class<?> type) throws InvalidTypeException {
+		final Object entity = newInstance(values, type);
+		for (Map.Entry<?, ?> entry : values.entrySet()) {
+			final String fieldName = String.valueOf(entry.getKey());
+			Object value = entry.getValue();
+			if (value instanceof Collection && Object[].class == EntityFields.getType(type, fieldName)) {
+				value = ((Collection<?>) value).toArray();
+			}
+
+			try {
+				EntityFields.setValue(entity, fieldName, value);
+			} catch (ScriptException | IllegalStateException e) {
+				throw createInvalidTypeException(values, type, e);
+			}
+		}
+
+		return entity;
+	}
+
+	/**
+	 * Binds the {@link Map} values of the script input parameters to the declared entity types. The values of the
+	 * predefined types and the values that can't be bound are returned as is, so they are resolved (or rejected) by
+	 * the script itself.
+	 *
+	 * @param params
+	 *            the input parameters
+	 * @param declaredTypes
+	 *            the declared types of the input parameters, in the declaration order
+	 * @return the new array with the bound parameters
+	 */
+	public static Object[] bindInputParameters(Object[] params, Collection<String> declaredTypes) {
+		final Object[] result = params.clone();
+		final Iterator<String> typesIterator = declaredTypes.iterator();
+		for (int i = 0; i < result.length && typesIterator.hasNext(); i++) {
+			final String typeName = TypeNameResolver.resolveEntityClassName(typesIterator.next());
+			if (!(result[i] instanceof Map) || PredefinedTypes.isPredefinedJavaType(typeName)) {
+				continue;
+			}
+
+			try {
+				result[i] = bind((Map<?, ?>) result[i], DynamicClassLoader.getInstance().loadClass(typeName));
+			} catch (ClassNotFoundException | InvalidTypeException e) {
+				// The parameter is resolved by the script that reports the failure
+			}
+		}
+
+		return result;
+	}
+
+	private static Object newInstance(Map<?, ?> values, Class<?> type) throws InvalidTypeException {
+		final MethodHandle factory = factories.get(type);
+		if (factory == null) {
+			throw createInvalidTypeException(values, type, null);
+		}
+
+		try {
+			return factory.invokeExact();
+		} catch (Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw createInvalidTypeException(values, type, e);
+		}
+	}
+
+	private static InvalidTypeException createInvalidTypeException(Map<?, ?> values, Class<?> type,
+			Throwable cause) {
+		return new InvalidTypeException(String.format(TypeValueResolver.INVALID_VALUE_MSG_TPLT, values,
+				ClassNameUtil.getShortClassName(type.getName())), cause);
+	}
+
+}
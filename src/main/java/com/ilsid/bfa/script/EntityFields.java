@@ -0,0 +1,134 @@
+package com.ilsid.bfa.script;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Provides the access to the public fields of the entities. The field setters are resolved once per class as method
+ * handles, so setting the field value does not involve the reflection. The setters are kept as long as the entity
+ * class is alive, so the reloaded entity classes get their own setters.
+ * 
+ * @author illia.sydorovych
+ *
+ */
+final class EntityFields {
+
+	private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+	private static final ClassValue<Map<String, FieldSetter>> setters = new ClassValue<Map<String, FieldSetter>>() {
+
+		@Override
+		protected Map<String, FieldSetter> computeValue(Class<?> type) {
+			return createSetters(type);
+		}
+	};
+
+	private EntityFields() {
+	}
+
+	/**
+	 * Sets the value of the public field. The value is converted to the field type.
+	 * 
+	 * @param target
+	 *            the entity instance
+	 * @param fieldName
+	 *            the field name
+	 * @param value
+	 *            the field value
+	 * @throws ScriptException
+	 *             if the value can't be converted to the field type
+	 * @throws IllegalStateException
+	 *             if the entity has no such public field
+	 */
+	static void setValue(Object target, String fieldName, Object value) throws ScriptException {
+		final FieldSetter setter = setters.get(target.getClass()).get(fieldName);
+		if (setter == null) {
+			throw new IllegalStateException(
+					String.format("Failed to set the field [%s] for [%s] instance", fieldName, target.getClass()));
+		}
+
+		setter.setValue(target, value);
+	}
+
+	/**
+	 * Returns the type of the public field.
+	 * 
+	 * @param clazz
+	 *            the entity class
+	 * @param fieldName
+	 *            the field name
+	 * @return the field type or <code>null</code> if the class has no such public field
+	 */
+	static Class<?> getType(Class<?> clazz, String fieldName) {
+		final FieldSetter setter = setters.get(clazz).get(fieldName);
+
+		return setter != null ? setter.type : null;
+	}
+
+	private static Map<String, FieldSetter> createSetters(Class<?> type) {
+		final MethodHandles.Lookup lookup = MethodHandles.lookup();
+		Map<String, FieldSetter> result = new HashMap<>();
+		for (Field field : type.getFields()) {
+			// The fields declared in the subclass hide the ones with the same name declared in the superclass
+			if (result.containsKey(field.getName())) {
+				continue;
+			}
+
+			MethodHandle handle;
+			try {
+				// The access check is suppressed for the fields of non-public classes
+				field.setAccessible(true);
+				handle = lookup.unreflectSetter(field).asType(SETTER_TYPE);
+			} catch (IllegalAccessException | SecurityException e) {
+				// The final fields can only be read
+				handle = null;
+			}
+			result.put(field.getName(), new FieldSetter(field, handle));
+		}
+
+		return Collections.unmodifiableMap(result);
+	}
+
+	private static class FieldSetter {
+
+		private final Class<?> type;
+
+		private final String fieldName;
+
+		private final MethodHandle handle;
+
+		private final TypeValueResolver resolver;
+
+		FieldSetter(Field field, MethodHandle handle) {
+			type = field.getType();
+			fieldName = field.getName();
+			this.handle = handle;
+			resolver = TypeValueResolver.getResolver(type);
+		}
+
+		void setValue(Object target, Object value) throws ScriptException {
+			if (handle == null) {
+				throw new IllegalStateException(String.format("The field [%s] of [%s] instance can't be set",
+						fieldName, target.getClass()));
+			}
+
+			final Object resolvedValue = value != null ? resolver.resolve(value) : null;
+			try {
+				handle.invokeExact(target, resolvedValue);
+			} catch (Error e) {
+				throw e;
+			} catch (Throwable e) {
+				throw new IllegalStateException(
+						String.format("Failed to set the field [%s] for [%s] instance", fieldName, target.getClass()),
+						e);
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,148 @@
+package com.ilsid.bfa.script;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.ilsid.bfa.action.FlowThreadBinding;
+
+/**
+ * The cancellation state shared by the top-level script and all its sub-flows. The script checks the state at the
+ * boundaries of actions, sub-flows and conditions. The flow is cancelled either explicitly or when its deadline is
+ * exceeded. The threads bound to the flow are also interrupted, so the action blocked in the interruptible call is
+ * released too. These are the thread of the top-level script, the threads of the sub-flows run in parallel and the
+ * threads executing the asynchronous actions.
+ *
+ * @author illia.sydorovych
+ *
+ */
+class FlowCancellation implements FlowThreadBinding {
+
+	private final String scriptName;
+
+	private final long timeoutMillis;
+
+	private volatile boolean cancelled;
+
+	private volatile boolean deadlineExceeded;
+
+	/*
+	 * The thread is bound several times, if it runs a parallel sub-flow of its own flow
+	 */
+	private final Map<Thread, Integer> threads = new HashMap<>();
+
+	/**
+	 * Creates the instance.
+	 *
+	 * @param scriptName
+	 *            the name of the top-level script
+	 * @param timeoutMillis
+	 *            the maximum execution time of the flow, in milliseconds, or <code>0</code> if not limited
+	 */
+	FlowCancellation(String scriptName, long timeoutMillis) {
+		this.scriptName = scriptName;
+		this.timeoutMillis = timeoutMillis;
+	}
+
+	long getTimeoutMillis() {
+		return timeoutMillis;
+	}
+
+	/**
+	 * Checks whether the flow can proceed.
+	 *
+	 * @throws ScriptCancelledException
+	 *             if the flow is cancelled or its deadline is exceeded
+	 */
+	void check() throws ScriptCancelledException {
+		if (cancelled) {
+			throw createException(null);
+		}
+	}
+
+	boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * Cancels the flow explicitly.
+	 *
+	 * @return <code>false</code> if the flow has already been cancelled
+	 */
+	boolean cancel() {
+		return cancel(false);
+	}
+
+	/**
+	 * Cancels the flow as its deadline is exceeded.
+	 */
+	void expire() {
+		cancel(true);
+	}
+
+	/**
+	 * Creates the exception that reports the cancellation of the flow.
+	 *
+	 * @param cause
+	 *            the failure caused by the cancellation, for example, the interrupted action failure. May be
+	 *            <code>null</code>
+	 * @return the exception with the cancellation reason
+	 */
+	ScriptCancelledException createException(Throwable cause) {
+		if (deadlineExceeded) {
+			return new ScriptCancelledException(String.format(
+					"The script [%s] is cancelled. The deadline of [%s] ms is exceeded", scriptName, timeoutMillis),
+					cause);
+		}
+
+		return new ScriptCancelledException(String.format("The script [%s] is cancelled", scriptName), cause);
+	}
+
+	/**
+	 * Binds the current thread to the flow, so the thread is interrupted on the cancellation.
+	 */
+	public synchronized void attach() {
+		final Thread thread = Thread.currentThread();
+		final Integer count = threads.get(thread);
+		threads.put(thread, count == null ? 1 : count + 1);
+		if (cancelled) {
+			thread.interrupt();
+		}
+	}
+
+	/**
+	 * Unbinds the current thread from the flow. The interruption caused by the cancellation is cleared, as the thread
+	 * is reused by the runtime.
+	 */
+	public synchronized void detach() {
+		final Thread thread = Thread.currentThread();
+		final Integer count = threads.get(thread);
+		if (count == null) {
+			return;
+		}
+
+		if (count > 1) {
+			threads.put(thread, count - 1);
+			return;
+		}
+
+		threads.remove(thread);
+		if (cancelled) {
+			Thread.interrupted();
+		}
+	}
+
+	private synchronized boolean cancel(boolean byDeadline) {
+		if (cancelled) {
+			return false;
+		}
+
+		deadlineExceeded = byDeadline;
+		cancelled = true;
+		for (Thread thread : threads.keySet()) {
+			thread.interrupt();
+		}
+
+		return true;
+	}
+
+}
@@ -0,0 +1,220 @@
+package com.ilsid.bfa.script;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.ilsid.bfa.persistence.PersistenceException;
+import com.ilsid.bfa.runtime.dto.FlowCheckpointDTO;
+import com.ilsid.bfa.runtime.persistence.CheckpointRepository;
+
+/**
+ * The checkpoints of a single flow. The top-level script and all its sub-flows share the same instance. Each completed
+ * action is saved as the checkpoint. The resumed flow gets the checkpoints of the failed run, so the completed actions
+ * are not called again. Their results and the state of the local variables are restored from the checkpoints instead.
+ *
+ * @author illia.sydorovych
+ *
+ */
+class FlowCheckpoints {
+
+	private final CheckpointRepository repository;
+
+	private final Object runtimeId;
+
+	private final String scriptName;
+
+	private final Object[] params;
+
+	private final Map<String, FlowCheckpointDTO> restoredCheckpoints;
+
+	private volatile boolean rootSaved;
+
+	// The flow with the input parameters that can't be encoded can't be resumed, so it is not checkpointed
+	private volatile boolean disabled;
+
+	/**
+	 * Creates the checkpoints of the new flow.
+	 *
+	 * @param repository
+	 *            the checkpoint repository
+	 * @param runtimeId
+	 *            the runtime identifier of the flow
+	 * @param scriptName
+	 *            the name of the top-level script
+	 * @param params
+	 *            the input parameters of the top-level script
+	 */
+	FlowCheckpoints(CheckpointRepository repository, Object runtimeId, String scriptName, Object[] params) {
+		this(repository, runtimeId, scriptName, params, Collections.<FlowCheckpointDTO> emptyList());
+	}
+
+	/**
+	 * Creates the checkpoints of the resumed flow.
+	 *
+	 * @param repository
+	 *            the checkpoint repository
+	 * @param runtimeId
+	 *            the runtime identifier of the flow
+	 * @param scriptName
+	 *            the name of the top-level script
+	 * @param params
+	 *            the input parameters of the top-level script
+	 * @param checkpoints
+	 *            the checkpoints saved by the previous run, including the root one
+	 */
+	FlowCheckpoints(CheckpointRepository repository, Object runtimeId, String scriptName, Object[] params,
+			List<FlowCheckpointDTO> checkpoints) {
+		this.repository = repository;
+		this.runtimeId = runtimeId;
+		this.scriptName = scriptName;
+		this.params = params;
+
+		restoredCheckpoints = new HashMap<>();
+		for (FlowCheckpointDTO checkpoint : checkpoints) {
+			if (FlowCheckpointDTO.ROOT_STEP_KEY.equals(checkpoint.getStepKey())) {
+				rootSaved = true;
+			} else {
+				restoredCheckpoints.put(checkpoint.getStepKey(), checkpoint);
+			}
+		}
+	}
+
+	/**
+	 * Restores the result of the action completed by the previous run. The local variables of the given context get
+	 * the values they had at the moment of the action completion.
+	 *
+	 * @param stepKey
+	 *            the step key of the action
+	 * @param actionName
+	 *            the action name
+	 * @param scriptContext
+	 *            the context of the calling script
+	 * @return the action result or <code>null</code> if there is no valid checkpoint for the action, so it must be
+	 *         called
+	 */
+	Object[] restore(String stepKey, String actionName, ScriptContext scriptContext) {
+		final FlowCheckpointDTO checkpoint = restoredCheckpoints.get(stepKey);
+		// The flow may be changed since the previous run
+		if (checkpoint == null || !actionName.equals(checkpoint.getActionName())) {
+			return null;
+		}
+
+		Object[] result;
+		Map<Variable, Object> values = new HashMap<>();
+		try {
+			result = CheckpointCodec.decode(checkpoint.getResult());
+			if (checkpoint.getVariables() != null) {
+				for (Map.Entry<String, String> entry : checkpoint.getVariables().entrySet()) {
+					final Variable var = scriptContext.getVar(entry.getKey());
+					if (var != null) {
+						values.put(var, CheckpointCodec.decode(entry.getValue()));
+					}
+				}
+			}
+		} catch (IOException e) {
+			return null;
+		}
+
+		for (Map.Entry<Variable, Object> entry : values.entrySet()) {
+			entry.getKey().setValue(entry.getValue());
+		}
+
+		return result;
+	}
+
+	/**
+	 * Saves the checkpoint of the completed action. The action result or the variable values that can't be encoded are
+	 * not saved, so such action is called again by the resumed flow.
+	 *
+	 * @param stepKey
+	 *            the step key of the action
+	 * @param callerName
+	 *            the name of the calling script
+	 * @param actionName
+	 *            the action name
+	 * @param result
+	 *            the action result
+	 * @param scriptContext
+	 *            the context of the calling script
+	 * @throws ScriptException
+	 *             if the checkpoint can't be saved to the repository
+	 */
+	void save(String stepKey, String callerName, String actionName, Object[] result, ScriptContext scriptContext)
+			throws ScriptException {
+		if (disabled) {
+			return;
+		}
+
+		FlowCheckpointDTO checkpoint;
+		try {
+			Map<String, String> variables = new HashMap<>();
+			for (Variable var : scriptContext.getLocalVars()) {
+				variables.put(var.getName(), CheckpointCodec.encode(var.getValue()));
+			}
+
+			checkpoint = new FlowCheckpointDTO().setRuntimeId(runtimeId).setStepKey(stepKey)
+					.setScriptName(callerName).setActionName(actionName)
+					.setResult(CheckpointCodec.encode(result != null ? result : new Object[] {}))
+					.setVariables(variables).setCheckpointTime(new Date());
+		} catch (IOException e) {
+			return;
+		}
+
+		try {
+			if (saveRoot()) {
+				repository.saveCheckpoint(checkpoint);
+			}
+		} catch (PersistenceException e) {
+			throw new ScriptException(String.format("Failed to save checkpoint of the action [%s]", actionName), e);
+		}
+	}
+
+	/**
+	 * Deletes the checkpoints of the completed flow. The failure is ignored, as the flow itself is completed.
+	 */
+	void deleteAll() {
+		if (!rootSaved) {
+			return;
+		}
+
+		try {
+			repository.deleteCheckpoints(runtimeId);
+		} catch (PersistenceException e) {
+			// The checkpoints of the completed flow are not used anymore
+		}
+	}
+
+	/*
+	 * The root checkpoint is saved only if the flow has any action checkpoints. Returns false if the flow is not
+	 * checkpointed.
+	 */
+	private boolean saveRoot() throws PersistenceException {
+		if (rootSaved) {
+			return true;
+		}
+
+		synchronized (this) {
+			if (!rootSaved && !disabled) {
+				List<String> encodedParams;
+				try {
+					encodedParams = CheckpointCodec.encode(params);
+				} catch (IOException e) {
+					disabled = true;
+					return false;
+				}
+
+				repository.saveCheckpoint(new FlowCheckpointDTO().setRuntimeId(runtimeId)
+						.setStepKey(FlowCheckpointDTO.ROOT_STEP_KEY).setScriptName(scriptName)
+						.setParameters(encodedParams).setCheckpointTime(new Date()));
+				rootSaved = true;
+			}
+		}
+
+		return rootSaved;
+	}
+
+}
@@ -1,15 +1,23 @@
 package com.ilsid.bfa.script;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Deque;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
 import java.util.Queue;
+import java.util.concurrent.Future;
 
 import com.ilsid.bfa.action.Action;
 import com.ilsid.bfa.action.ActionContext;
 import com.ilsid.bfa.action.ActionException;
+import com.ilsid.bfa.action.AsyncAction;
 import com.ilsid.bfa.action.persistence.ActionClassLoader;
 import com.ilsid.bfa.action.persistence.ActionLocator;
+import com.ilsid.bfa.action.persistence.ActionResultCache;
+import com.ilsid.bfa.common.Metrics;
 import com.ilsid.bfa.flow.FlowElement;
 import com.ilsid.bfa.flow.FlowConstants;
 
@@ -18,6 +26,26 @@ import com.ilsid.bfa.flow.FlowConstants;
 //TODO: refactor logging
 public abstract class Script {
 
+	private static final String EQUAL_LOG_PREFIX = "Equal: ";
+
+	private static final String LESS_OR_EQUAL_LOG_PREFIX = "LessOrEqual: ";
+
+	private static final String LOG_VALUES_SEPARATOR = ", ";
+
+	private static final String EQUAL_STEP_NAME = "Equal";
+
+	private static final String LESS_OR_EQUAL_STEP_NAME = "LessOrEqual";
+
+	private static final String PARALLEL_SUBFLOWS_STEP_NAME = "ParallelSubFlows";
+
+	private static final String CHECKPOINT_SCOPE_SEPARATOR = "/";
+
+	private static final Metrics.TimerGroup ACTION_TIMERS = Metrics.timerGroup("bfa_action", "Action execution",
+			"action");
+
+	private static final Metrics.TimerGroup SUBFLOW_TIMERS = Metrics.timerGroup("bfa_subflow",
+			"Sub-flow execution including the runtime records", "subflow");
+
 	protected ScriptContext scriptContext;
 
 	private Queue<Object> inputParams = new LinkedList<>();
@@ -34,14 +62,43 @@ public abstract class Script {
 
 	private RuntimeLogger runtimeLogger;
 
+	private StepTrace stepTrace;
+
+	private Map<String, PendingAction> pendingActions = new LinkedHashMap<>();
+
+	private List<String> inlinedSubflows;
+
+	private Deque<String> inlinedSubflowCallStack;
+
+	private FlowCancellation cancellation;
+
+	private FlowCheckpoints checkpoints;
+
+	private ActionContext actionContext;
+
+	private int branch;
+
+	private String checkpointScope = "";
+
+	private int checkpointStep;
+
+	private String subflowCheckpointScope;
+
 	protected abstract void doExecute() throws ScriptException;
 
 	public Script() {
-		scriptContext = new ScriptContext();
+		scriptContext = new ScriptContext(getVarSlotNames());
 	}
 
 	public void execute() throws ScriptException {
-		doExecute();
+		try {
+			doExecute();
+		} catch (ScriptException | RuntimeException e) {
+			cancelPendingActions();
+			throw e;
+		}
+
+		joinPendingActions();
 	}
 
 	@Var(scope = Var.Scope.INPUT)
@@ -67,9 +124,76 @@ public abstract class Script {
 	@FlowElement(type = FlowConstants.OPERATION, description = "Set %0 = %1")
 	public void SetLocalVar(@ExprParam(replaceOnCompile = false, type = ExprParam.Type.VAR_OR_FLD_NAME) String name,
 			@ExprParam Object expr) throws ScriptException {
+		traceStep(StepTrace.StepType.ASSIGNMENT, name);
 		scriptContext.updateLocalVar(name, expr);
 	}
+
+	/**
+	 * The form of {@link #SetLocalVar(String, Object)} the compiled scripts are using. The variable is addressed by its
+	 * slot in the {@link ScriptContext}.
+	 * 
+	 * @param slot
+	 *            the variable slot
+	 * @param fieldName
+	 *            the field name or <code>null</code> if the variable itself is set
+	 * @param expr
+	 *            the new value
+	 * @throws ScriptException
+	 *             if the variable is not declared or the value is of invalid type
+	 */
+	protected void setLocalVar(int slot, String fieldName, Object expr) throws ScriptException {
+		traceAssignment(slot);
+		scriptContext.updateLocalVar(slot, fieldName, expr);
+	}
 	
+	/**
+	 * The form of {@link #SetLocalVar(String, Object)} the compiled scripts are using for <i>Number</i> variables. The
+	 * value is not boxed.
+	 * 
+	 * @param slot
+	 *            the variable slot
+	 * @param value
+	 *            the new value
+	 * @throws ScriptException
+	 *             if the variable is not declared
+	 */
+	protected void setLocalVar(int slot, int value) throws ScriptException {
+		traceAssignment(slot);
+		scriptContext.updateLocalVar(slot, value);
+	}
+
+	/**
+	 * The form of {@link #SetLocalVar(String, Object)} the compiled scripts are using for <i>Decimal</i> variables.
+	 * The value is not boxed.
+	 * 
+	 * @param slot
+	 *            the variable slot
+	 * @param value
+	 *            the new value
+	 * @throws ScriptException
+	 *             if the variable is not declared
+	 */
+	protected void setLocalVar(int slot, double value) throws ScriptException {
+		traceAssignment(slot);
+		scriptContext.updateLocalVar(slot, value);
+	}
+
+	/**
+	 * The form of {@link #SetLocalVar(String, Object)} the compiled scripts are using for <i>Boolean</i> variables.
+	 * The value is not boxed.
+	 * 
+	 * @param slot
+	 *            the variable slot
+	 * @param value
+	 *            the new value
+	 * @throws ScriptException
+	 *             if the variable is not declared
+	 */
+	protected void setLocalVar(int slot, boolean value) throws ScriptException {
+		traceAssignment(slot);
+		scriptContext.updateLocalVar(slot, value);
+	}
+
 	public Object GetGlobalVar(String name) {
 		return GlobalContext.getInstance().getGlobalVar(name);
 	}
@@ -85,8 +209,10 @@ public abstract class Script {
 
 	@FlowElement(type = FlowConstants.CONDITION, description = "%2")
 	public boolean Equal(@ExprParam Object expr1, @ExprParam Object expr2, String description) throws ScriptException {
+		checkCancellation();
+		traceStep(StepTrace.StepType.CONDITION, EQUAL_STEP_NAME);
 		if (runtimeLogger != null) {
-			runtimeLogger.debug(new StringBuilder("Equal: ").append(expr1).append(", ").append(expr2).toString());
+			logCondition(EQUAL_LOG_PREFIX, expr1, expr2);
 		}
 
 		AbstractCondition condition = new EqualCondition(expr1, expr2);
@@ -105,8 +231,10 @@ public abstract class Script {
 	@FlowElement(type = FlowConstants.CONDITION, description = "%2")
 	public boolean LessOrEqual(@ExprParam Object expr1, @ExprParam Object expr2, String description)
 			throws ScriptException {
+		checkCancellation();
+		traceStep(StepTrace.StepType.CONDITION, LESS_OR_EQUAL_STEP_NAME);
 		if (runtimeLogger != null) {
-			runtimeLogger.debug(new StringBuilder("LessOrEqual: ").append(expr1).append(", ").append(expr2).toString());
+			logCondition(LESS_OR_EQUAL_LOG_PREFIX, expr1, expr2);
 		}
 
 		AbstractCondition condition = new LessOrEqualCondition(expr1, expr2);
@@ -117,23 +245,163 @@ public abstract class Script {
 		return condition.isTrue();
 	}
 
+	/**
+	 * The form of {@link #Equal(Object, Object)} the compiled scripts are using for <i>Number</i> operands. No
+	 * condition object is created and the operands are not boxed.
+	 * 
+	 * @param value1
+	 *            the left operand
+	 * @param value2
+	 *            the right operand
+	 * @return <code>true</code> if the operands are equal
+	 * @throws ScriptException
+	 *             if the flow is cancelled
+	 */
+	protected final boolean equal(int value1, int value2) throws ScriptException {
+		checkCancellation();
+		traceStep(StepTrace.StepType.CONDITION, EQUAL_STEP_NAME);
+		if (runtimeLogger != null) {
+			logCondition(EQUAL_LOG_PREFIX, String.valueOf(value1), String.valueOf(value2));
+		}
+
+		return value1 == value2;
+	}
+
+	/**
+	 * The form of {@link #Equal(Object, Object)} the compiled scripts are using for <i>Decimal</i> operands. The
+	 * operands are compared the same way as {@link Double#equals(Object)} does.
+	 * 
+	 * @param value1
+	 *            the left operand
+	 * @param value2
+	 *            the right operand
+	 * @return <code>true</code> if the operands are equal
+	 * @throws ScriptException
+	 *             if the flow is cancelled
+	 */
+	protected final boolean equal(double value1, double value2) throws ScriptException {
+		checkCancellation();
+		traceStep(StepTrace.StepType.CONDITION, EQUAL_STEP_NAME);
+		if (runtimeLogger != null) {
+			logCondition(EQUAL_LOG_PREFIX, String.valueOf(value1), String.valueOf(value2));
+		}
+
+		return Double.compare(value1, value2) == 0;
+	}
+
+	/**
+	 * The form of {@link #Equal(Object, Object)} the compiled scripts are using for <i>Boolean</i> operands.
+	 * 
+	 * @param value1
+	 *            the left operand
+	 * @param value2
+	 *            the right operand
+	 * @return <code>true</code> if the operands are equal
+	 * @throws ScriptException
+	 *             if the flow is cancelled
+	 */
+	protected final boolean equal(boolean value1, boolean value2) throws ScriptException {
+		checkCancellation();
+		traceStep(StepTrace.StepType.CONDITION, EQUAL_STEP_NAME);
+		if (runtimeLogger != null) {
+			logCondition(EQUAL_LOG_PREFIX, String.valueOf(value1), String.valueOf(value2));
+		}
+
+		return value1 == value2;
+	}
+
+	/**
+	 * The form of {@link #LessOrEqual(Object, Object)} the compiled scripts are using for <i>Number</i> operands.
+	 * 
+	 * @param value1
+	 *            the left operand
+	 * @param value2
+	 *            the right operand
+	 * @return <code>true</code> if the left operand is less or equal the right one
+	 * @throws ScriptException
+	 *             if the flow is cancelled
+	 */
+	protected final boolean lessOrEqual(int value1, int value2) throws ScriptException {
+		checkCancellation();
+		traceStep(StepTrace.StepType.CONDITION, LESS_OR_EQUAL_STEP_NAME);
+		if (runtimeLogger != null) {
+			logCondition(LESS_OR_EQUAL_LOG_PREFIX, String.valueOf(value1), String.valueOf(value2));
+		}
+
+		return value1 <= value2;
+	}
+
+	/**
+	 * The form of {@link #LessOrEqual(Object, Object)} the compiled scripts are using for <i>Decimal</i> operands. The
+	 * operands are compared the same way as {@link Double#compareTo(Double)} does.
+	 * 
+	 * @param value1
+	 *            the left operand
+	 * @param value2
+	 *            the right operand
+	 * @return <code>true</code> if the left operand is less or equal the right one
+	 * @throws ScriptException
+	 *             if the flow is cancelled
+	 */
+	protected final boolean lessOrEqual(double value1, double value2) throws ScriptException {
+		checkCancellation();
+		traceStep(StepTrace.StepType.CONDITION, LESS_OR_EQUAL_STEP_NAME);
+		if (runtimeLogger != null) {
+			logCondition(LESS_OR_EQUAL_LOG_PREFIX, String.valueOf(value1), String.valueOf(value2));
+		}
+
+		return Double.compare(value1, value2) <= 0;
+	}
+
 	@FlowElement(type = FlowConstants.SUBFLOW, description = "%0")
 	public void SubFlow(String name) throws ScriptException {
+		checkCancellation();
+		traceStep(StepTrace.StepType.SUBFLOW, name);
 		if (runtimeLogger != null) {
 			runtimeLogger.debug("SubFlow: ".concat(name));
 		}
 
-		runtime.runScript(name, runtimeId, createSubflowCallStack());
+		nextSubflowCheckpointScope();
+		final long startTime = System.nanoTime();
+		boolean failed = true;
+		try {
+			runtime.runSubflow(this, name);
+			failed = false;
+		} finally {
+			SUBFLOW_TIMERS.get(name).record(startTime, failed);
+		}
 	}
 
 	@FlowElement(type = FlowConstants.SUBFLOW, description = "%0")
 	public void SubFlow(String name, @ExprParam Object... params) throws ScriptException {
+		checkCancellation();
+		traceStep(StepTrace.StepType.SUBFLOW, name);
 		if (runtimeLogger != null) {
 			runtimeLogger.debug(new StringBuilder("SubFlow: ").append(name).append(", parameters: ")
 					.append(Arrays.toString(params)).toString());
 		}
 
-		runtime.runScript(name, params, runtimeId, createSubflowCallStack());
+		nextSubflowCheckpointScope();
+		final long startTime = System.nanoTime();
+		boolean failed = true;
+		try {
+			runtime.runSubflow(this, name, params);
+			failed = false;
+		} finally {
+			SUBFLOW_TIMERS.get(name).record(startTime, failed);
+		}
+	}
+
+	@FlowElement(type = FlowConstants.PARALLEL_SUBFLOWS, description = "Parallel: %0")
+	public void ParallelSubFlows(String... names) throws ScriptException {
+		checkCancellation();
+		traceStep(StepTrace.StepType.SUBFLOW, PARALLEL_SUBFLOWS_STEP_NAME);
+		if (runtimeLogger != null) {
+			runtimeLogger.debug("ParallelSubFlows: ".concat(Arrays.toString(names)));
+		}
+
+		nextSubflowCheckpointScope();
+		runtime.runSubflowsInParallel(this, names);
 	}
 
 	@FlowElement(type = FlowConstants.OPERATION, description = "%0")
@@ -143,37 +411,107 @@ public abstract class Script {
 
 	@FlowElement(type = FlowConstants.OPERATION, description = "%0")
 	public ActionResult Action(String name, @ExprParam Object... params) throws ScriptException {
+		checkCancellation();
+		traceStep(StepTrace.StepType.ACTION, name);
 		if (runtimeLogger != null) {
 			runtimeLogger.debug(new StringBuilder("Action: ").append(name).append(", parameters: ")
 					.append(Arrays.toString(params)).toString());
 		}
 
-		Action action;
-		try {
-			action = actionLocator.lookup(name);
-		} catch (ActionException e) {
-			throw new ScriptException(String.format("Lookup of the action [%s] failed", name), e);
+		if (checkpoints == null) {
+			return createActionResult(callAction(name, params), name);
 		}
 
-		action.setInputParameters(params);
+		// The action completed by the previous run of the resumed flow is not called again
+		final String stepKey = checkpointScope + checkpointStep++;
+		Object[] result = checkpoints.restore(stepKey, name, scriptContext);
+		if (result == null) {
+			result = callAction(name, params);
+			checkpoints.save(stepKey, this.name, name, result, scriptContext);
+		}
 
-		Object[] result;
+		return createActionResult(result, name);
+	}
+
+	@FlowElement(type = FlowConstants.OPERATION, description = "Start %0")
+	public void StartAction(String name) throws ScriptException {
+		StartAction(name, new Object[] {});
+	}
+
+	/**
+	 * Starts an action without waiting for its completion. The result of the action is obtained by
+	 * {@link #JoinAction(String)}. Only {@link AsyncAction} is executed in parallel with the script. Any other action is
+	 * executed immediately, so its result is just kept until the join.
+	 * 
+	 * @param name
+	 *            the action name
+	 * @param params
+	 *            the action input
+	 * @throws ScriptException
+	 *             if the action with such name is already started and not joined yet or if the action can't be started
+	 */
+	@FlowElement(type = FlowConstants.OPERATION, description = "Start %0")
+	public void StartAction(String name, @ExprParam Object... params) throws ScriptException {
+		checkCancellation();
+		traceStep(StepTrace.StepType.ACTION, name);
+		if (runtimeLogger != null) {
+			runtimeLogger.debug(new StringBuilder("StartAction: ").append(name).append(", parameters: ")
+					.append(Arrays.toString(params)).toString());
+		}
+
+		if (pendingActions.containsKey(name)) {
+			throw new ScriptException(String.format("The action [%s] is already started", name));
+		}
+
+		Action action = lookupAction(name, params);
+		if (!(action instanceof AsyncAction)) {
+			pendingActions.put(name, new PendingAction(createActionResult(executeAction(action, name), name)));
+			return;
+		}
+
+		Future<Object[]> future;
 		ClassLoader ctxLoader = Thread.currentThread().getContextClassLoader(); 
 		Thread.currentThread().setContextClassLoader(ActionClassLoader.getCommonLibrariesLoader());
+		attachActionContext();
+		final long startTime = System.nanoTime();
 		try {
-			result = action.execute();
+			future = ((AsyncAction) action).executeAsync();
 		} catch (ActionException e) {
+			ACTION_TIMERS.get(name).record(startTime, true);
 			throw new ScriptException(String.format("Execution of the action [%s] failed", name), e);
 		} finally {
+			// The started action obtains its parameters and context before the return
+			action.setInputParameters(null);
+			action.setContext(null);
 			Thread.currentThread().setContextClassLoader(ctxLoader);
 		}
 
-		if (result == null) {
-			result = new Object[] {};
+		pendingActions.put(name, new PendingAction(future, startTime));
+	}
+
+	/**
+	 * Waits for the completion of the action started by {@link #StartAction(String, Object...)}.
+	 * 
+	 * @param name
+	 *            the action name
+	 * @return the action result
+	 * @throws ScriptException
+	 *             if the action with such name has not been started or the action failed
+	 */
+	@FlowElement(type = FlowConstants.OPERATION, description = "Join %0")
+	public ActionResult JoinAction(String name) throws ScriptException {
+		checkCancellation();
+		traceStep(StepTrace.StepType.ACTION, name);
+		if (runtimeLogger != null) {
+			runtimeLogger.debug("JoinAction: ".concat(name));
 		}
-		ActionResult actionResult = new ActionResultImpl(result, name);
 
-		return actionResult;
+		PendingAction pendingAction = pendingActions.remove(name);
+		if (pendingAction == null) {
+			throw new ScriptException(String.format("The action [%s] has not been started", name));
+		}
+
+		return pendingAction.join(name);
 	}
 
 	public Object getRuntimeId() {
@@ -218,6 +556,62 @@ public abstract class Script {
 		return callStack.size();
 	}
 
+	/**
+	 * Runs the given sub-flow in the context of this script. The sub-flow shares the runtime identifier, the action
+	 * context, the logger and the step trace of this script. The sub-flow has no own runtime record, its name is added
+	 * to {@link #getInlinedSubflows()} instead.
+	 * 
+	 * @param subflow
+	 *            the sub-flow instance
+	 * @param subflowName
+	 *            the sub-flow name
+	 * @param params
+	 *            the sub-flow input parameters
+	 * @throws ScriptException
+	 *             if the sub-flow failed
+	 */
+	void runInlined(Script subflow, String subflowName, Object[] params) throws ScriptException {
+		// The inlined sub-flows do not run own sub-flows, so they share the same call stack
+		if (inlinedSubflowCallStack == null) {
+			inlinedSubflowCallStack = createSubflowCallStack();
+		}
+		if (inlinedSubflows == null) {
+			inlinedSubflows = new ArrayList<>();
+		}
+
+		subflow.setRuntimeId(runtimeId);
+		subflow.setName(subflowName);
+		subflow.setRuntime(runtime);
+		subflow.setActionLocator(actionLocator);
+		subflow.setInputParameters(params);
+		subflow.setCallStack(inlinedSubflowCallStack);
+		subflow.setRuntimeLogger(runtimeLogger);
+		subflow.setStepTrace(stepTrace);
+		subflow.setCancellation(cancellation);
+		subflow.setActionContext(actionContext);
+
+		inlinedSubflows.add(subflowName);
+		try {
+			subflow.execute();
+		} catch (ScriptCancelledException e) {
+			throw e;
+		} catch (ScriptException | RuntimeException e) {
+			throw new ScriptException(String.format("Inlined sub-flow [%s] failed", subflowName), e);
+		} finally {
+			subflow.cleanup();
+		}
+	}
+
+	/**
+	 * Returns the names of the sub-flows run by {@link #runInlined(Script, String, Object[])}, in the order of the
+	 * calls.
+	 * 
+	 * @return the sub-flow names or <code>null</code> if no sub-flows were inlined
+	 */
+	List<String> getInlinedSubflows() {
+		return inlinedSubflows;
+	}
+
 	void setRuntime(ScriptRuntime runtime) {
 		this.runtime = runtime;
 	}
@@ -232,19 +626,249 @@ public abstract class Script {
 		this.runtimeLogger = runtimeLogger;
 	}
 
+	void setStepTrace(StepTrace stepTrace) {
+		this.stepTrace = stepTrace;
+	}
+
+	void setCancellation(FlowCancellation cancellation) {
+		this.cancellation = cancellation;
+	}
+
+	FlowCancellation getCancellation() {
+		return cancellation;
+	}
+
+	/**
+	 * Defines the checkpoints of the flow this script belongs to.
+	 * 
+	 * @param checkpoints
+	 *            the flow checkpoints or <code>null</code> if the flow is not checkpointed
+	 * @param scope
+	 *            the prefix of the step keys of this script actions. The top-level script has the empty scope
+	 */
+	void setCheckpoints(FlowCheckpoints checkpoints, String scope) {
+		this.checkpoints = checkpoints;
+		checkpointScope = scope;
+	}
+
+	FlowCheckpoints getCheckpoints() {
+		return checkpoints;
+	}
+
+	/**
+	 * Defines the action context of the flow this script belongs to. The top-level script and all its sub-flows share
+	 * the same context, regardless of the threads they are run in.
+	 * 
+	 * @param actionContext
+	 *            the flow context
+	 */
+	void setActionContext(ActionContext actionContext) {
+		this.actionContext = actionContext;
+	}
+
+	ActionContext getActionContext() {
+		return actionContext;
+	}
+
+	/**
+	 * Defines the index of the branch, if the script is one of the sub-flows run in parallel.
+	 * 
+	 * @param branch
+	 *            the branch index
+	 */
+	void setBranch(int branch) {
+		this.branch = branch;
+	}
+
+	int getBranch() {
+		return branch;
+	}
+
+	/**
+	 * Returns the checkpoint scope of the sub-flow called by this script.
+	 * 
+	 * @return the scope of the latest sub-flow call or <code>null</code> if no sub-flows have been called yet
+	 */
+	String getSubflowCheckpointScope() {
+		return subflowCheckpointScope;
+	}
+
+	/**
+	 * Returns the checkpoint scope of the given sub-flow of the latest {@link #ParallelSubFlows(String...)} call.
+	 * 
+	 * @param branch
+	 *            the index of the sub-flow in the call
+	 * @return the sub-flow scope
+	 */
+	String getParallelSubflowCheckpointScope(int branch) {
+		return subflowCheckpointScope + branch + CHECKPOINT_SCOPE_SEPARATOR;
+	}
+
 	void cleanup() {
-		// Top-level flow and its sub-flows share the same action context. The context cleanup must be performed only at
-		// the top-level one (after completion of all sub-flows).
+		// Top-level flow and its sub-flows share the same action context. The cleanup of its thread local view must be
+		// performed only at the top-level one (after completion of all sub-flows).
 		if (isTopLevel()) {
 			ActionContext.cleanup();
 		}
 	}
 
+	/**
+	 * Returns the names of the script variables in the order of their slots in the {@link ScriptContext}. The compiled
+	 * scripts override this method.
+	 * 
+	 * @return the variable names or <code>null</code> if the slots are assigned in the order of the variable
+	 *         declarations
+	 */
+	protected String[] getVarSlotNames() {
+		return null;
+	}
+
+	/**
+	 * Defines whether the script can be run as the inlined sub-flow, in the context of the calling script and without
+	 * own runtime record. The compiled scripts that are small and do not run own sub-flows override this method.
+	 * 
+	 * @return <code>true</code> if the script can be inlined
+	 */
+	protected boolean isInlinable() {
+		return false;
+	}
+
+	private void checkCancellation() throws ScriptCancelledException {
+		if (cancellation != null) {
+			cancellation.check();
+		}
+	}
+
+	private void nextSubflowCheckpointScope() {
+		if (checkpoints != null) {
+			subflowCheckpointScope = checkpointScope + checkpointStep++ + CHECKPOINT_SCOPE_SEPARATOR;
+		}
+	}
+
+	private void traceStep(StepTrace.StepType type, String name) {
+		if (stepTrace != null) {
+			stepTrace.record(type, name);
+		}
+	}
+
+	private void traceAssignment(int slot) {
+		if (stepTrace != null) {
+			final Variable var = scriptContext.getVar(slot);
+			stepTrace.record(StepTrace.StepType.ASSIGNMENT, var != null ? var.getName() : null);
+		}
+	}
+
+	private void logCondition(String prefix, Object value1, Object value2) {
+		runtimeLogger.debug(
+				new StringBuilder(prefix).append(value1).append(LOG_VALUES_SEPARATOR).append(value2).toString());
+	}
+
 	private void setLocalVarValue(String name, Object value) throws ScriptException {
 		scriptContext.updateLocalVar(name, value);
 	}
 
-	private Deque<String> createSubflowCallStack() {
+	/*
+	 * The cacheable action is not called, if its result for the same input parameters is cached.
+	 */
+	private Object[] callAction(String name, Object[] params) throws ScriptException {
+		ActionResultCache resultCache;
+		try {
+			resultCache = actionLocator.getResultCache(name);
+		} catch (ActionException e) {
+			throw new ScriptException(String.format("Lookup of the action [%s] failed", name), e);
+		}
+
+		if (resultCache == null) {
+			return executeAction(lookupAction(name, params), name);
+		}
+
+		Object[] result = resultCache.get(params);
+		if (result == null) {
+			result = executeAction(lookupAction(name, params), name);
+			resultCache.put(params, result);
+		}
+
+		return result;
+	}
+
+	private Action lookupAction(String name, Object[] params) throws ScriptException {
+		Action action;
+		try {
+			action = actionLocator.lookup(name);
+		} catch (ActionException e) {
+			throw new ScriptException(String.format("Lookup of the action [%s] failed", name), e);
+		}
+
+		action.setInputParameters(params);
+		action.setContext(actionContext);
+
+		return action;
+	}
+
+	private Object[] executeAction(Action action, String name) throws ScriptException {
+		Object[] result;
+		ClassLoader ctxLoader = Thread.currentThread().getContextClassLoader(); 
+		Thread.currentThread().setContextClassLoader(ActionClassLoader.getCommonLibrariesLoader());
+		attachActionContext();
+		final long startTime = System.nanoTime();
+		boolean failed = true;
+		try {
+			result = action.execute();
+			failed = false;
+		} catch (ActionException e) {
+			throw new ScriptException(String.format("Execution of the action [%s] failed", name), e);
+		} finally {
+			ACTION_TIMERS.get(name).record(startTime, failed);
+			// The thread must not keep the parameters and the context of the stateless action
+			action.setInputParameters(null);
+			action.setContext(null);
+			Thread.currentThread().setContextClassLoader(ctxLoader);
+		}
+
+		return result;
+	}
+
+	/*
+	 * The actions that use the thread local context directly see the flow context in any thread the flow is run in.
+	 */
+	private void attachActionContext() {
+		if (actionContext != null) {
+			ActionContext.attach(actionContext);
+		}
+	}
+
+	private ActionResult createActionResult(Object[] result, String actionName) {
+		if (result == null) {
+			result = new Object[] {};
+		}
+
+		return new ActionResultImpl(result, actionName);
+	}
+
+	/*
+	 * The actions that were started but not joined by the script must not fail silently.
+	 */
+	private void joinPendingActions() throws ScriptException {
+		try {
+			for (Map.Entry<String, PendingAction> entry : pendingActions.entrySet()) {
+				entry.getValue().join(entry.getKey());
+			}
+		} catch (ScriptException e) {
+			cancelPendingActions();
+			throw e;
+		} finally {
+			pendingActions.clear();
+		}
+	}
+
+	private void cancelPendingActions() {
+		for (PendingAction pendingAction : pendingActions.values()) {
+			pendingAction.cancel();
+		}
+		pendingActions.clear();
+	}
+
+	Deque<String> createSubflowCallStack() {
 		// This script's name is added to the call stack of its sub-flow
 		Deque<String> result = new LinkedList<>(callStack);
 		result.addFirst(name);
@@ -256,6 +880,52 @@ public abstract class Script {
 		return callStack.isEmpty();
 	}
 
+	private class PendingAction {
+
+		private final Future<Object[]> future;
+
+		private final ActionResult result;
+
+		private final long startTime;
+
+		PendingAction(Future<Object[]> future, long startTime) {
+			this.future = future;
+			this.startTime = startTime;
+			result = null;
+		}
+
+		PendingAction(ActionResult result) {
+			future = null;
+			startTime = 0;
+			this.result = result;
+		}
+
+		ActionResult join(String actionName) throws ScriptException {
+			if (future == null) {
+				return result;
+			}
+
+			// The asynchronous action is measured from its start till the join
+			boolean failed = true;
+			try {
+				ActionResult actionResult = createActionResult(AsyncAction.getResult(future), actionName);
+				failed = false;
+				return actionResult;
+			} catch (ActionException e) {
+				throw new ScriptException(String.format("Execution of the action [%s] failed", actionName), e);
+			} finally {
+				ACTION_TIMERS.get(actionName).record(startTime, failed);
+			}
+		}
+
+		void cancel() {
+			if (future != null) {
+				future.cancel(true);
+			}
+		}
+
+	}
+
 	private class ActionResultImpl implements ActionResult {
 
 		private Object[] input;
@@ -0,0 +1,141 @@
+package com.ilsid.bfa.script;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+
+import com.ilsid.bfa.runtime.dto.ScriptRuntimeDTO;
+
+/**
+ * The batch of the executions of one script over many inputs, started by
+ * {@link ScriptRuntime#runBatch(String, List)}. The results are returned in the order of the scripts completion. The
+ * next inputs are submitted to the runtime pool as the previous ones complete, so the number of the concurrently
+ * executed scripts of the batch does not exceed the given limit.
+ * <p>
+ * The instance is intended for the usage by a single thread.
+ * </p>
+ *
+ * @author illia.sydorovych
+ *
+ */
+public class ScriptBatch {
+
+	private static final Object[] EMPTY_PARAMS = new Object[] {};
+
+	private final ScriptRuntime runtime;
+
+	private final String scriptName;
+
+	private final List<Object[]> inputs;
+
+	private final Semaphore slots;
+
+	private final BlockingQueue<Result> completed = new LinkedBlockingQueue<>();
+
+	private int submittedCount;
+
+	private int receivedCount;
+
+	ScriptBatch(ScriptRuntime runtime, String scriptName, List<Object[]> inputs, int maxConcurrency) {
+		this.runtime = runtime;
+		this.scriptName = scriptName;
+		this.inputs = inputs;
+		slots = new Semaphore(maxConcurrency);
+	}
+
+	/**
+	 * Returns the number of inputs in the batch.
+	 *
+	 * @return the batch size
+	 */
+	public int size() {
+		return inputs.size();
+	}
+
+	/**
+	 * Checks whether there are results not obtained yet.
+	 *
+	 * @return <code>true</code> if {@link #next()} can be invoked
+	 */
+	public boolean hasNext() {
+		return receivedCount < inputs.size();
+	}
+
+	/**
+	 * Waits for the completion of the next script in the batch.
+	 *
+	 * @return the result of the next completed script
+	 * @throws ScriptException
+	 *             if the waiting thread was interrupted
+	 * @throws IllegalStateException
+	 *             if all results have been already obtained
+	 */
+	public Result next() throws ScriptException {
+		if (!hasNext()) {
+			throw new IllegalStateException("All results of the batch have been already obtained");
+		}
+
+		submitPending();
+
+		Result result;
+		try {
+			result = completed.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ScriptException(
+					String.format("Interrupted while waiting for the batch result of the script [%s]", scriptName), e);
+		}
+		receivedCount++;
+
+		return result;
+	}
+
+	void submitPending() {
+		while (submittedCount < inputs.size() && slots.tryAcquire()) {
+			final int inputIndex = submittedCount++;
+			Object[] params = inputs.get(inputIndex);
+			runtime.startBatchItem(this, inputIndex, scriptName, params != null ? params : EMPTY_PARAMS);
+		}
+	}
+
+	void complete(int inputIndex, ScriptRuntimeDTO state) {
+		completed.add(new Result(inputIndex, state));
+		slots.release();
+	}
+
+	/**
+	 * The final state of the script executed for the particular input of the batch.
+	 */
+	public static class Result {
+
+		private final int inputIndex;
+
+		private final ScriptRuntimeDTO state;
+
+		Result(int inputIndex, ScriptRuntimeDTO state) {
+			this.inputIndex = inputIndex;
+			this.state = state;
+		}
+
+		/**
+		 * Returns the index of the input in the batch.
+		 *
+		 * @return the input index
+		 */
+		public int getInputIndex() {
+			return inputIndex;
+		}
+
+		/**
+		 * Returns the final script state. The runtime identifier is <code>null</code> if it could not be generated.
+		 *
+		 * @return the script state
+		 */
+		public ScriptRuntimeDTO getState() {
+			return state;
+		}
+
+	}
+
+}
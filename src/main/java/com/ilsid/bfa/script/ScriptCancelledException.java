@@ -0,0 +1,20 @@
+package com.ilsid.bfa.script;
+
+/**
+ * Signals that the script was cancelled explicitly or because its deadline was exceeded.
+ *
+ * @author illia.sydorovych
+ *
+ */
+@SuppressWarnings("serial")
+public class ScriptCancelledException extends ScriptException {
+
+	public ScriptCancelledException(String message, Throwable cause) {
+		super(message, cause);
+	}
+
+	public ScriptCancelledException(String message) {
+		super(message);
+	}
+
+}
@@ -1,6 +1,8 @@
 package com.ilsid.bfa.script;
 
-import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -8,6 +10,12 @@ import com.ilsid.bfa.persistence.DynamicClassLoader;
 
 /**
  * Script context. Holds state for a single script.
+ * <p>
+ * Each variable occupies a slot - a fixed index in the array of variables. The compiled scripts access variables by
+ * their slots, so no lookup by name is performed in runtime. The slots are assigned at the compilation stage in the
+ * order of the variable declarations and passed to the runtime context via {@link #ScriptContext(String[])}. The access
+ * by name is kept for the scripts compiled without slots.
+ * </p>
  * 
  * @author illia.sydorovych
  *
@@ -15,34 +23,112 @@ import com.ilsid.bfa.persistence.DynamicClassLoader;
 // TODO: complete javadocs
 public class ScriptContext {
 
+	private static final int INITIAL_SLOTS_COUNT = 8;
+
+	private static final char FIELD_SEPARATOR = '.';
+
 	private Map<String, Variable> inputVars = new HashMap<>();
 
 	private Map<String, Variable> localVars = new HashMap<>();
 
+	private Map<String, Integer> slotIndexes = new HashMap<>();
+
+	private Variable[] slots;
+
+	private int slotsCount;
+
 	private String scriptName;
 
+	/**
+	 * Creates the context that assigns the slots in the order of the variable declarations.
+	 */
+	public ScriptContext() {
+		slots = new Variable[INITIAL_SLOTS_COUNT];
+	}
+
+	/**
+	 * Creates the context with the predefined slots.
+	 * 
+	 * @param slotNames
+	 *            the variable names in the order of their slots. If <code>null</code>, the slots are assigned in the
+	 *            order of the variable declarations
+	 */
+	public ScriptContext(String[] slotNames) {
+		this();
+		if (slotNames != null) {
+			slots = new Variable[Math.max(slotNames.length, INITIAL_SLOTS_COUNT)];
+			for (String name : slotNames) {
+				slotIndexes.put(name, slotsCount++);
+			}
+		}
+	}
+
 	public void addInputVar(String name, String javaType, Object value) throws ScriptException {
 		// FIXME: validate name format
 		checkVarNameUniqueness(name);
 		Object resolvedValue = resolveValue(javaType, value);
-		inputVars.put(name, new Variable(name, javaType, resolvedValue));
+		final Variable var = new Variable(name, javaType, resolvedValue);
+		inputVars.put(name, var);
+		assignSlot(var);
 	}
 
 	public void addLocalVar(String name, String javaType) throws ScriptException {
 		// FIXME: validate name format
 		checkVarNameUniqueness(name);
-		localVars.put(name, new Variable(name, javaType));
+		final Variable var = new Variable(name, javaType);
+		localVars.put(name, var);
+		assignSlot(var);
 	}
 
 	public void addLocalVar(String name, String javaType, Object initValue) throws ScriptException {
 		// FIXME: validate name format
 		checkVarNameUniqueness(name);
 		Object resolvedValue = resolveValue(javaType, initValue);
-		localVars.put(name, new Variable(name, javaType, resolvedValue));
+		final Variable var = new Variable(name, javaType, resolvedValue);
+		localVars.put(name, var);
+		assignSlot(var);
+	}
+
+	/**
+	 * Returns the variable by its slot.
+	 * 
+	 * @param slot
+	 *            the variable slot
+	 * @return variable instance or <code>null</code> if the variable has not been declared yet
+	 */
+	public Variable getVar(int slot) {
+		return slots[slot];
+	}
+
+	/**
+	 * Returns the slot of the declared variable.
+	 * 
+	 * @param name
+	 *            variable name
+	 * @return the variable slot or <code>-1</code> if variable with such name does not exist
+	 */
+	public int getVarSlot(String name) {
+		final Integer slot = slotIndexes.get(name);
+
+		return slot != null ? slot : -1;
 	}
 
 	/**
-	 * Returns the local or the input variable by name.
+	 * Returns the names of the variables in the order of their slots.
+	 * 
+	 * @return the variable names
+	 */
+	public String[] getSlotNames() {
+		String[] result = new String[slotsCount];
+		for (Map.Entry<String, Integer> entry : slotIndexes.entrySet()) {
+			result[entry.getValue()] = entry.getKey();
+		}
+
+		return result;
+	}
+
+	/**
+	 * Returns the local or the input variable by name. The compiled scripts use {@link #getVar(int)} instead.
 	 * 
 	 * @param name
 	 *            variable name
@@ -57,6 +143,15 @@ public class ScriptContext {
 		}
 	}
 
+	/**
+	 * Returns the declared local variables.
+	 * 
+	 * @return the local variables in no particular order
+	 */
+	public Collection<Variable> getLocalVars() {
+		return Collections.unmodifiableCollection(localVars.values());
+	}
+
 	/**
 	 * Pre-condition: The name must have the one of two formats: <var name> or <var name>.<field name>
 	 * 
@@ -65,23 +160,77 @@ public class ScriptContext {
 	 * @throws ScriptException
 	 */
 	public void updateLocalVar(String name, Object value) throws ScriptException {
-		VarNameParts nameParts = getVariableNameParts(name);
-		final String varName = nameParts.getVarName();
-		final String fieldName = nameParts.getFieldName();
-		Variable var = localVars.get(varName);
-
-		if (fieldName == null) {
-			Object resolvedValue = resolveValue(var.getJavaType(), value);
-			var.setValue(resolvedValue);
+		final String varName;
+		final String fieldName;
+		if (name.indexOf(FIELD_SEPARATOR) < 0) {
+			checkLocalVarExists(name);
+			varName = name;
+			fieldName = null;
 		} else {
-			Object varTarget = var.getValue();
-			if (varTarget == null) {
-				varTarget = createInstance(var);
-				var.setValue(varTarget);
-			}
-			setField(varTarget, fieldName, value);
+			VarNameParts nameParts = getVariableNameParts(name);
+			varName = nameParts.getVarName();
+			fieldName = nameParts.getFieldName();
 		}
 
+		updateLocalVar(localVars.get(varName), fieldName, value);
+	}
+
+	/**
+	 * Updates the local variable or its field.
+	 * 
+	 * @param slot
+	 *            the variable slot
+	 * @param fieldName
+	 *            the field name or <code>null</code> if the variable itself is updated
+	 * @param value
+	 *            the new value
+	 * @throws ScriptException
+	 *             if the variable has not been declared yet or the value can't be converted to the variable type
+	 */
+	public void updateLocalVar(int slot, String fieldName, Object value) throws ScriptException {
+		updateLocalVar(getDeclaredVar(slot), fieldName, value);
+	}
+
+	/**
+	 * Updates the local <i>Number</i> variable.
+	 * 
+	 * @param slot
+	 *            the variable slot
+	 * @param value
+	 *            the new value
+	 * @throws ScriptException
+	 *             if the variable has not been declared yet
+	 */
+	public void updateLocalVar(int slot, int value) throws ScriptException {
+		getDeclaredVar(slot).setIntValue(value);
+	}
+
+	/**
+	 * Updates the local <i>Decimal</i> variable.
+	 * 
+	 * @param slot
+	 *            the variable slot
+	 * @param value
+	 *            the new value
+	 * @throws ScriptException
+	 *             if the variable has not been declared yet
+	 */
+	public void updateLocalVar(int slot, double value) throws ScriptException {
+		getDeclaredVar(slot).setDoubleValue(value);
+	}
+
+	/**
+	 * Updates the local <i>Boolean</i> variable.
+	 * 
+	 * @param slot
+	 *            the variable slot
+	 * @param value
+	 *            the new value
+	 * @throws ScriptException
+	 *             if the variable has not been declared yet
+	 */
+	public void updateLocalVar(int slot, boolean value) throws ScriptException {
+		getDeclaredVar(slot).setBooleanValue(value);
 	}
 
 	public String getScriptName() {
@@ -92,6 +241,20 @@ public class ScriptContext {
 		this.scriptName = scriptName;
 	}
 
+	private void updateLocalVar(Variable var, String fieldName, Object value) throws ScriptException {
+		if (fieldName == null) {
+			Object resolvedValue = resolveValue(var.getJavaType(), value);
+			var.setValue(resolvedValue);
+		} else {
+			Object varTarget = var.getValue();
+			if (varTarget == null) {
+				varTarget = createInstance(var);
+				var.setValue(varTarget);
+			}
+			EntityFields.setValue(varTarget, fieldName, value);
+		}
+	}
+
 	static interface VarNameParts {
 
 		String getVarName();
@@ -133,19 +296,6 @@ public class ScriptContext {
 		return parts;
 	}
 
-	private void setField(Object target, String fieldName, Object value) throws ScriptException {
-		Field field;
-		try {
-			field = target.getClass().getField(fieldName);
-			field.setAccessible(true);
-			Object resolvedValue = resolveValue(field.getType().getName(), value);
-			field.set(target, resolvedValue);
-		} catch (NoSuchFieldException | SecurityException | IllegalArgumentException | IllegalAccessException e) {
-			throw new IllegalStateException(
-					String.format("Failed to set the field [%s] for [%s] instance", fieldName, target.getClass()), e);
-		}
-	}
-
 	private Object createInstance(Variable var) {
 		Object result;
 		String className = var.getJavaType();
@@ -158,6 +308,28 @@ public class ScriptContext {
 		return result;
 	}
 
+	private Variable getDeclaredVar(int slot) throws ScriptException {
+		final Variable var = slots[slot];
+		if (var == null) {
+			throw new ScriptException("Local variable with name [" + getSlotNames()[slot] + "] is not declared");
+		}
+
+		return var;
+	}
+
+	private void assignSlot(Variable var) {
+		Integer slot = slotIndexes.get(var.getName());
+		if (slot == null) {
+			slot = slotsCount++;
+			slotIndexes.put(var.getName(), slot);
+			if (slot == slots.length) {
+				slots = Arrays.copyOf(slots, slots.length * 2);
+			}
+		}
+
+		slots[slot] = var;
+	}
+
 	private void checkVarNameUniqueness(String name) throws ScriptException {
 		if (localVars.containsKey(name)) {
 			throw new ScriptException("Local variable with name [" + name + "] has been already declared");
@@ -0,0 +1,361 @@
+package com.ilsid.bfa.script;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.ilsid.bfa.ConfigurationException;
+import com.ilsid.bfa.runtime.dto.RuntimeStatusType;
+import com.ilsid.bfa.runtime.dto.ScriptRuntimeDTO;
+
+/**
+ * Bounded pool for the asynchronous script execution. Keeps the state of the submitted scripts, so it can be queried by
+ * the runtime identifier while a script is queued, running or recently finished. Only the given number of the most
+ * recently finished scripts is kept.
+ * <p>
+ * In {@link ExecutionMode#PLATFORM} mode the scripts are executed by a fixed number of platform threads, and the
+ * exceeding scripts wait in a bounded queue. In {@link ExecutionMode#VIRTUAL} mode each script is executed by its own
+ * virtual thread, and the pool size limits the number of scripts executed concurrently. The synchronously run scripts
+ * get own virtual threads too (see {@link #submitVirtual(Callable)}). Nested sub-flows and actions are executed by the
+ * thread of the top-level script, so they run on a virtual thread too. Virtual threads require Java 21 or later.
+ * </p>
+ * <p>
+ * The sub-flows started in parallel by a running script are executed by the separate bounded executor, as the
+ * parent script waits for them and must not compete with them for the pool threads. If all its threads are busy, the
+ * sub-flow is run by the calling script thread. In {@link ExecutionMode#VIRTUAL} mode each sub-flow gets own virtual
+ * thread.
+ * </p>
+ *
+ * @author illia.sydorovych
+ *
+ */
+class ScriptExecutionPool {
+
+	private static final String THREAD_NAME_PREFIX = "bfa-runtime-";
+
+	private static final String SUBFLOW_THREAD_NAME_PREFIX = "bfa-subflow-";
+
+	private static final long KEEP_ALIVE_SECONDS = 60;
+
+	private static final String VIRTUAL_EXECUTOR_FACTORY_METHOD = "newVirtualThreadPerTaskExecutor";
+
+	/**
+	 * Script execution modes.
+	 */
+	enum ExecutionMode {
+		PLATFORM, VIRTUAL
+	}
+
+	private final ExecutorService executor;
+
+	private final Semaphore permits;
+
+	private final ExecutorService subflowExecutor;
+
+	private final AtomicInteger activeCount = new AtomicInteger();
+
+	private final Map<String, ScriptRuntimeDTO> states = new ConcurrentHashMap<>();
+
+	private final Queue<String> finishedIds = new ConcurrentLinkedQueue<>();
+
+	private final AtomicInteger finishedCount = new AtomicInteger();
+
+	private final int stateCacheSize;
+
+	/**
+	 * Creates the pool in {@link ExecutionMode#PLATFORM} mode.
+	 *
+	 * @param poolSize
+	 *            maximum number of scripts executed concurrently
+	 * @param queueSize
+	 *            maximum number of scripts waiting for execution
+	 * @param stateCacheSize
+	 *            maximum number of finished scripts which state is kept
+	 */
+	ScriptExecutionPool(int poolSize, int queueSize, int stateCacheSize) {
+		this(poolSize, queueSize, poolSize, stateCacheSize);
+	}
+
+	private ScriptExecutionPool(int poolSize, int queueSize, int subflowPoolSize, int stateCacheSize) {
+		executor = createPlatformThreadExecutor(poolSize, queueSize);
+		permits = null;
+		subflowExecutor = createSubflowExecutor(subflowPoolSize);
+		this.stateCacheSize = stateCacheSize;
+	}
+
+	/**
+	 * Creates the pool in the given mode.
+	 *
+	 * @param mode
+	 *            execution mode
+	 * @param poolSize
+	 *            maximum number of scripts executed concurrently
+	 * @param queueSize
+	 *            maximum number of scripts waiting for execution. Not used in {@link ExecutionMode#VIRTUAL} mode
+	 * @param subflowPoolSize
+	 *            maximum number of threads executing the sub-flows started in parallel. Not used in
+	 *            {@link ExecutionMode#VIRTUAL} mode
+	 * @param stateCacheSize
+	 *            maximum number of finished scripts which state is kept
+	 * @throws ConfigurationException
+	 *             if the given mode is not supported by the current Java runtime
+	 */
+	ScriptExecutionPool(ExecutionMode mode, int poolSize, int queueSize, int subflowPoolSize, int stateCacheSize)
+			throws ConfigurationException {
+		if (mode == ExecutionMode.PLATFORM) {
+			executor = createPlatformThreadExecutor(poolSize, queueSize);
+			permits = null;
+			subflowExecutor = createSubflowExecutor(subflowPoolSize);
+		} else {
+			executor = createVirtualThreadExecutor();
+			permits = new Semaphore(poolSize);
+			subflowExecutor = createVirtualThreadExecutor();
+		}
+
+		this.stateCacheSize = stateCacheSize;
+	}
+
+	/**
+	 * Checks whether the current Java runtime supports virtual threads.
+	 *
+	 * @return <code>true</code> if virtual threads are supported
+	 */
+	static boolean isVirtualThreadSupported() {
+		try {
+			Executors.class.getMethod(VIRTUAL_EXECUTOR_FACTORY_METHOD);
+			return true;
+		} catch (NoSuchMethodException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Submits a script for the execution. The given record becomes the initial state of the script.
+	 *
+	 * @param record
+	 *            the initial script state
+	 * @param task
+	 *            the script execution task
+	 * @throws RejectedExecutionException
+	 *             if the pool is saturated or has been shut down
+	 */
+	void submit(ScriptRuntimeDTO record, final Runnable task) throws RejectedExecutionException {
+		if (permits != null && !permits.tryAcquire()) {
+			throw new RejectedExecutionException("Maximum number of concurrently executed scripts is reached");
+		}
+
+		final String key = toKey(record.getRuntimeId());
+		states.put(key, record);
+		try {
+			executor.execute(new Runnable() {
+
+				public void run() {
+					activeCount.incrementAndGet();
+					try {
+						task.run();
+					} finally {
+						activeCount.decrementAndGet();
+						if (permits != null) {
+							permits.release();
+						}
+					}
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			states.remove(key);
+			if (permits != null) {
+				permits.release();
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Submits a sub-flow for the execution in parallel with the calling script. If all sub-flow threads are busy, the
+	 * sub-flow is executed by the calling thread before the return.
+	 *
+	 * @param task
+	 *            the sub-flow execution task
+	 * @return the future of the sub-flow result
+	 * @throws RejectedExecutionException
+	 *             if the pool has been shut down
+	 */
+	<T> Future<T> submitSubflow(Callable<T> task) throws RejectedExecutionException {
+		return subflowExecutor.submit(task);
+	}
+
+	/**
+	 * Submits a synchronously run script for the execution by its own virtual thread. The state of such script is not
+	 * kept and the pool size does not limit it, as the number of synchronous runs is limited by the calling threads and
+	 * the admission control.
+	 *
+	 * @param task
+	 *            the script execution task
+	 * @return the future of the script result
+	 * @throws RejectedExecutionException
+	 *             if the pool has been shut down
+	 * @throws IllegalStateException
+	 *             if the pool is not in {@link ExecutionMode#VIRTUAL} mode
+	 */
+	<T> Future<T> submitVirtual(Callable<T> task) throws RejectedExecutionException {
+		if (permits == null) {
+			throw new IllegalStateException("The pool is not in the virtual thread mode");
+		}
+
+		return executor.submit(task);
+	}
+
+	/**
+	 * Replaces the state of the submitted script. If the new state is not {@link RuntimeStatusType#INPROGRESS}, the
+	 * script is treated as finished and the state of the oldest finished script may be evicted.
+	 *
+	 * @param record
+	 *            the new script state
+	 */
+	void updateState(ScriptRuntimeDTO record) {
+		final String key = toKey(record.getRuntimeId());
+		states.put(key, record);
+
+		if (record.getStatus() != RuntimeStatusType.INPROGRESS) {
+			finishedIds.add(key);
+			if (finishedCount.incrementAndGet() > stateCacheSize) {
+				String evictedKey = finishedIds.poll();
+				if (evictedKey != null) {
+					states.remove(evictedKey);
+					finishedCount.decrementAndGet();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the state of the script with the given runtime identifier.
+	 *
+	 * @param runtimeId
+	 *            the script runtime identifier
+	 * @return the script state or <code>null</code> if the script with such identifier has not been submitted or its
+	 *         state has been already evicted
+	 */
+	ScriptRuntimeDTO getState(Object runtimeId) {
+		return states.get(toKey(runtimeId));
+	}
+
+	/**
+	 * Returns the number of scripts that are currently executed.
+	 *
+	 * @return the number of active scripts
+	 */
+	int getActiveCount() {
+		return activeCount.get();
+	}
+
+	/**
+	 * Returns the number of scripts waiting for the execution.
+	 *
+	 * @return the queue size
+	 */
+	int getQueuedCount() {
+		if (executor instanceof ThreadPoolExecutor) {
+			return ((ThreadPoolExecutor) executor).getQueue().size();
+		}
+
+		return 0;
+	}
+
+	/**
+	 * Stops accepting new scripts. Already submitted scripts are completed.
+	 */
+	void shutdown() {
+		executor.shutdown();
+		subflowExecutor.shutdown();
+	}
+
+	private static ExecutorService createPlatformThreadExecutor(int poolSize, int queueSize) {
+		ThreadPoolExecutor platformExecutor = new ThreadPoolExecutor(poolSize, poolSize, KEEP_ALIVE_SECONDS,
+				TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(queueSize),
+				new RuntimeThreadFactory(THREAD_NAME_PREFIX));
+		platformExecutor.allowCoreThreadTimeOut(true);
+
+		return platformExecutor;
+	}
+
+	private static ExecutorService createSubflowExecutor(int subflowPoolSize) {
+		return new ThreadPoolExecutor(0, subflowPoolSize, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+				new SynchronousQueue<Runnable>(), new RuntimeThreadFactory(SUBFLOW_THREAD_NAME_PREFIX),
+				new CallerRunsUnlessShutdownPolicy());
+	}
+
+	/*
+	 * The code is compiled for Java 7, so the virtual thread executor is obtained via reflection.
+	 */
+	private static ExecutorService createVirtualThreadExecutor() throws ConfigurationException {
+		try {
+			Method factoryMethod = Executors.class.getMethod(VIRTUAL_EXECUTOR_FACTORY_METHOD);
+			return (ExecutorService) factoryMethod.invoke(null);
+		} catch (NoSuchMethodException e) {
+			throw new ConfigurationException(
+					"Virtual threads are not supported by the current Java runtime. Java 21 or later is required");
+		} catch (IllegalAccessException | InvocationTargetException e) {
+			throw new ConfigurationException("Failed to create the virtual thread executor", e);
+		}
+	}
+
+	/*
+	 * Runtime identifiers received from clients are strings, so the string representation is used as a key.
+	 */
+	private String toKey(Object runtimeId) {
+		return runtimeId.toString();
+	}
+
+	/*
+	 * Unlike ThreadPoolExecutor.CallerRunsPolicy, rejects the task after the shutdown, so the calling script fails
+	 * instead of silently dropping the sub-flow.
+	 */
+	private static class CallerRunsUnlessShutdownPolicy implements RejectedExecutionHandler {
+
+		public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+			if (executor.isShutdown()) {
+				throw new RejectedExecutionException("The sub-flow executor has been shut down");
+			}
+
+			task.run();
+		}
+
+	}
+
+	private static class RuntimeThreadFactory implements ThreadFactory {
+
+		private final AtomicInteger threadCount = new AtomicInteger();
+
+		private final String namePrefix;
+
+		RuntimeThreadFactory(String namePrefix) {
+			this.namePrefix = namePrefix;
+		}
+
+		public Thread newThread(Runnable task) {
+			Thread thread = new Thread(task, namePrefix + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+
+			return thread;
+		}
+
+	}
+
+}
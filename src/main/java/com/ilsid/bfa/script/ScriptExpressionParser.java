@@ -1,13 +1,11 @@
 package com.ilsid.bfa.script;
 
-import java.lang.reflect.Field;
 import java.util.Arrays;
 import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.apache.commons.lang3.StringUtils;
-import org.apache.commons.lang3.reflect.FieldUtils;
 
 import com.ilsid.bfa.common.BooleanUtil;
 import com.ilsid.bfa.common.NumberUtil;
@@ -43,6 +41,34 @@ public class ScriptExpressionParser {
 	 *             in case of the parsing failure
 	 */
 	public String parse(String scriptExpression) throws ParsingException {
+		return process(scriptExpression).getResult();
+	}
+
+	/**
+	 * Parses a scripting expression of <i>Number</i>, <i>Decimal</i> or <i>Boolean</i> type. Unlike
+	 * {@link #parse(String)}, the returned Java source code provides the primitive value.
+	 * 
+	 * @param scriptExpression
+	 *            scripting expression
+	 * @param primitiveType
+	 *            the expected primitive type: <code>int</code>, <code>double</code> or <code>boolean</code>
+	 * @return Java source code or <code>null</code> if the expression is not of the expected type
+	 * @throws ParsingException
+	 *             in case of the parsing failure
+	 */
+	public String parsePrimitive(String scriptExpression, Class<?> primitiveType) throws ParsingException {
+		ParsingMachine parsingMachine = process(scriptExpression);
+		if (parsingMachine.getPrimitiveType() != primitiveType) {
+			return null;
+		}
+
+		// The boxing call and the closing bracket are stripped
+		final String result = parsingMachine.getResult();
+		return result.substring(parsingMachine.getBoxingExpression().length(),
+				result.length() - ParsingUtil.RP.length());
+	}
+
+	private ParsingMachine process(String scriptExpression) throws ParsingException {
 		ParsingMachine parsingMachine = new ParsingMachine(scriptExpression, scriptContext);
 		try {
 			parsingMachine.process();
@@ -50,7 +76,7 @@ public class ScriptExpressionParser {
 			throw new ParsingException("Could not parse expression [" + scriptExpression + "]: " + e.getMessage(), e);
 		}
 
-		return parsingMachine.getResult();
+		return parsingMachine;
 	}
 
 	@SuppressWarnings("serial")
@@ -88,12 +114,15 @@ public class ScriptExpressionParser {
 			ParsingUtil.EntityInfo entInfo;
 
 			if (NumberUtil.isInteger(token)) {
+				context.setBoxingExpression(ParsingUtil.INTEGER_VALUEOF_EXPR, int.class);
 				javaExpression.append(ParsingUtil.INTEGER_VALUEOF_EXPR).append(token);
 				context.setState(context.INTEGER_STATE);
 			} else if (NumberUtil.isDouble(token)) {
+				context.setBoxingExpression(ParsingUtil.DOUBLE_VALUEOF_EXPR, double.class);
 				javaExpression.append(ParsingUtil.DOUBLE_VALUEOF_EXPR).append(token);
 				context.setState(context.DOUBLE_STATE);
 			} else if (BooleanUtil.isBoolean(token)) {
+				context.setBoxingExpression(ParsingUtil.BOOLEAN_VALUEOF_EXPR, boolean.class);
 				javaExpression.append(ParsingUtil.BOOLEAN_VALUEOF_EXPR).append(token);
 				context.setState(context.BOOLEAN_STATE);
 			} else if (ParsingUtil.isStringLiteral(token)) {
@@ -101,56 +130,67 @@ public class ScriptExpressionParser {
 				javaExpression.append(ParsingUtil.toJavaStringExpr(token));
 				context.setState(context.STRING_STATE);
 			} else if (ParsingUtil.isIntegerVariable(token, context.getScriptContext())) {
+				context.setBoxingExpression(ParsingUtil.INTEGER_VALUEOF_EXPR, int.class);
 				javaExpression.append(ParsingUtil.INTEGER_VALUEOF_EXPR);
-				javaExpression.append(String.format(ParsingUtil.INTEGER_VAR_EXPR_TEMPLATE, token));
+				javaExpression.append(String.format(ParsingUtil.INTEGER_VAR_EXPR_TEMPLATE,
+						context.getScriptContext().getVarSlot(token)));
 				context.setState(context.INTEGER_STATE);
 			} else if (ParsingUtil.isIntegerField(token, context.getScriptContext(),
 					fldInfo = new ParsingUtil.FieldInfo())) {
+				context.setBoxingExpression(ParsingUtil.INTEGER_VALUEOF_EXPR, int.class);
 				javaExpression.append(ParsingUtil.INTEGER_VALUEOF_EXPR);
 				String fieldExpr = String.format(ParsingUtil.INTEGER_FLD_EXPR_TEMPLATE, fldInfo.varType,
-						fldInfo.varName, fldInfo.fieldName);
+						fldInfo.varSlot, fldInfo.fieldName);
 				javaExpression.append(fieldExpr);
 				context.setState(context.INTEGER_STATE);
 			} else if (ParsingUtil.isDoubleVariable(token, context.getScriptContext())) {
+				context.setBoxingExpression(ParsingUtil.DOUBLE_VALUEOF_EXPR, double.class);
 				javaExpression.append(ParsingUtil.DOUBLE_VALUEOF_EXPR);
-				javaExpression.append(String.format(ParsingUtil.DOUBLE_VAR_EXPR_TEMPLATE, token));
+				javaExpression.append(String.format(ParsingUtil.DOUBLE_VAR_EXPR_TEMPLATE,
+						context.getScriptContext().getVarSlot(token)));
 				context.setState(context.DOUBLE_STATE);
 			} else if (ParsingUtil.isDoubleField(token, context.getScriptContext(),
 					fldInfo = new ParsingUtil.FieldInfo())) {
+				context.setBoxingExpression(ParsingUtil.DOUBLE_VALUEOF_EXPR, double.class);
 				javaExpression.append(ParsingUtil.DOUBLE_VALUEOF_EXPR);
-				String fieldExpr = String.format(ParsingUtil.DOUBLE_FLD_EXPR_TEMPLATE, fldInfo.varType, fldInfo.varName,
+				String fieldExpr = String.format(ParsingUtil.DOUBLE_FLD_EXPR_TEMPLATE, fldInfo.varType, fldInfo.varSlot,
 						fldInfo.fieldName);
 				javaExpression.append(fieldExpr);
 				context.setState(context.DOUBLE_STATE);
 			} else if (ParsingUtil.isBooleanVariable(token, context.getScriptContext())) {
+				context.setBoxingExpression(ParsingUtil.BOOLEAN_VALUEOF_EXPR, boolean.class);
 				javaExpression.append(ParsingUtil.BOOLEAN_VALUEOF_EXPR);
-				javaExpression.append(String.format(ParsingUtil.BOOLEAN_VAR_EXPR_TEMPLATE, token));
+				javaExpression.append(String.format(ParsingUtil.BOOLEAN_VAR_EXPR_TEMPLATE,
+						context.getScriptContext().getVarSlot(token)));
 				context.setState(context.BOOLEAN_STATE);
 			} else if (ParsingUtil.isBooleanField(token, context.getScriptContext(),
 					fldInfo = new ParsingUtil.FieldInfo())) {
+				context.setBoxingExpression(ParsingUtil.BOOLEAN_VALUEOF_EXPR, boolean.class);
 				javaExpression.append(ParsingUtil.BOOLEAN_VALUEOF_EXPR);
 				String fieldExpr = String.format(ParsingUtil.BOOLEAN_FLD_EXPR_TEMPLATE, fldInfo.varType,
-						fldInfo.varName, fldInfo.fieldName);
+						fldInfo.varSlot, fldInfo.fieldName);
 				javaExpression.append(fieldExpr);
 				context.setState(context.BOOLEAN_STATE);
 			} else if (ParsingUtil.isStringVariable(token, context.getScriptContext())) {
 				javaExpression.append(ParsingUtil.LP);
-				javaExpression.append(String.format(ParsingUtil.STRING_VAR_EXPR_TEMPLATE, token));
+				javaExpression.append(String.format(ParsingUtil.STRING_VAR_EXPR_TEMPLATE,
+						context.getScriptContext().getVarSlot(token)));
 				context.setState(context.STRING_STATE);
 			} else if (ParsingUtil.isStringField(token, context.getScriptContext(),
 					fldInfo = new ParsingUtil.FieldInfo())) {
 				javaExpression.append(ParsingUtil.LP);
-				String fieldExpr = String.format(ParsingUtil.STRING_FLD_EXPR_TEMPLATE, fldInfo.varType, fldInfo.varName,
+				String fieldExpr = String.format(ParsingUtil.STRING_FLD_EXPR_TEMPLATE, fldInfo.varType, fldInfo.varSlot,
 						fldInfo.fieldName);
 				javaExpression.append(fieldExpr);
 				context.setState(context.STRING_STATE);
 			} else if (ParsingUtil.isEntityVariable(token, context.getScriptContext(),
 					entInfo = new ParsingUtil.EntityInfo())) {
-				String entityExpr = String.format(ParsingUtil.ENTITY_VAR_EXPR_TEMPLATE, entInfo.varType, token);
+				String entityExpr = String.format(ParsingUtil.ENTITY_VAR_EXPR_TEMPLATE, entInfo.varType,
+						entInfo.varSlot);
 				javaExpression.append(entityExpr);
 				context.setState(context.TERMINATION_STATE);
 			} else if (ParsingUtil.isAccessToArrayVariable(token, context.getScriptContext())) {
-				String arrayExpr = ParsingUtil.getArrayAccessExpression(token);
+				String arrayExpr = ParsingUtil.getArrayAccessExpression(token, context.getScriptContext());
 				javaExpression.append(arrayExpr);
 				context.setState(context.TERMINATION_STATE);
 			} else if (ParsingUtil.isNull(token)) {
@@ -212,9 +252,10 @@ public class ScriptExpressionParser {
 					javaExpression.append(ParsingUtil.BLANK).append(preprocessPrimitiveValueExpression(token));
 				} else if (isProperVariableType(token, context.getScriptContext())) {
 					javaExpression.append(ParsingUtil.BLANK);
-					javaExpression.append(String.format(getVarExpressionTemplate(), token));
+					javaExpression.append(String.format(getVarExpressionTemplate(),
+							context.getScriptContext().getVarSlot(token)));
 				} else if (isProperFieldType(token, context.getScriptContext(), fldInfo)) {
-					String fieldExpr = String.format(getFieldExpressionTemplate(), fldInfo.varType, fldInfo.varName,
+					String fieldExpr = String.format(getFieldExpressionTemplate(), fldInfo.varType, fldInfo.varSlot,
 							fldInfo.fieldName);
 					javaExpression.append(ParsingUtil.BLANK).append(fieldExpr);
 				} else {
@@ -524,6 +565,10 @@ public class ScriptExpressionParser {
 
 		private String currentToken;
 
+		private String boxingExpression;
+
+		private Class<?> primitiveType;
+
 		final StartState START_STATE = new StartState();
 		final IntegerState INTEGER_STATE = new IntegerState();
 		final IntegerOperandState INT_OPERAND_STATE = new IntegerOperandState();
@@ -550,6 +595,19 @@ public class ScriptExpressionParser {
 			this.state = state;
 		}
 
+		void setBoxingExpression(String boxingExpression, Class<?> primitiveType) {
+			this.boxingExpression = boxingExpression;
+			this.primitiveType = primitiveType;
+		}
+
+		String getBoxingExpression() {
+			return boxingExpression;
+		}
+
+		Class<?> getPrimitiveType() {
+			return primitiveType;
+		}
+
 		StringBuilder getJavaExpression() {
 			return javaExpression;
 		}
@@ -622,25 +680,25 @@ public class ScriptExpressionParser {
 
 		private static final char COMMA = ',';
 
-		private static final String INTEGER_VAR_EXPR_TEMPLATE = "((Integer)scriptContext.getVar(\"%s\").getValue()).intValue()";
+		private static final String INTEGER_VAR_EXPR_TEMPLATE = "scriptContext.getVar(%d).getIntValue()";
 
-		private static final String INTEGER_FLD_EXPR_TEMPLATE = "((%s)scriptContext.getVar(\"%s\").getValue()).%s.intValue()";
+		private static final String INTEGER_FLD_EXPR_TEMPLATE = "((%s)scriptContext.getVar(%d).getValue()).%s.intValue()";
 
-		private static final String DOUBLE_VAR_EXPR_TEMPLATE = "((Double)scriptContext.getVar(\"%s\").getValue()).doubleValue()";
+		private static final String DOUBLE_VAR_EXPR_TEMPLATE = "scriptContext.getVar(%d).getDoubleValue()";
 
-		private static final String DOUBLE_FLD_EXPR_TEMPLATE = "((%s)scriptContext.getVar(\"%s\").getValue()).%s.doubleValue()";
+		private static final String DOUBLE_FLD_EXPR_TEMPLATE = "((%s)scriptContext.getVar(%d).getValue()).%s.doubleValue()";
 
-		private static final String BOOLEAN_VAR_EXPR_TEMPLATE = "((Boolean)scriptContext.getVar(\"%s\").getValue()).booleanValue()";
+		private static final String BOOLEAN_VAR_EXPR_TEMPLATE = "scriptContext.getVar(%d).getBooleanValue()";
 
-		private static final String BOOLEAN_FLD_EXPR_TEMPLATE = "((%s)scriptContext.getVar(\"%s\").getValue()).%s.booleanValue()";
+		private static final String BOOLEAN_FLD_EXPR_TEMPLATE = "((%s)scriptContext.getVar(%d).getValue()).%s.booleanValue()";
 
-		private static final String STRING_VAR_EXPR_TEMPLATE = "(String)scriptContext.getVar(\"%s\").getValue()";
+		private static final String STRING_VAR_EXPR_TEMPLATE = "(String)scriptContext.getVar(%d).getValue()";
 
-		private static final String STRING_FLD_EXPR_TEMPLATE = "((%s)scriptContext.getVar(\"%s\").getValue()).%s";
+		private static final String STRING_FLD_EXPR_TEMPLATE = "((%s)scriptContext.getVar(%d).getValue()).%s";
 
-		private static final String ENTITY_VAR_EXPR_TEMPLATE = "(%s)scriptContext.getVar(\"%s\").getValue()";
+		private static final String ENTITY_VAR_EXPR_TEMPLATE = "(%s)scriptContext.getVar(%d).getValue()";
 
-		private static final String ARRAY_ELEMENT_EXPR_TEMPLATE = "((Object[])scriptContext.getVar(\"%s\").getValue())[%s]";
+		private static final String ARRAY_ELEMENT_EXPR_TEMPLATE = "((Object[])scriptContext.getVar(%d).getValue())[%s]";
 
 		static boolean isIntegerVariable(String token, ScriptContext context) {
 			return isVariable(token, context, Integer.class);
@@ -693,7 +751,7 @@ public class ScriptExpressionParser {
 			return NULL_EXPR.equals(token);
 		}
 
-		static String getArrayAccessExpression(String token) {
+		static String getArrayAccessExpression(String token, ScriptContext context) {
 			// Parsing expression "varName[arrIndex]"
 			final int leftBracketIdx = token.indexOf(LSB);
 			String varName = token.substring(0, leftBracketIdx);
@@ -701,7 +759,7 @@ public class ScriptExpressionParser {
 			// Script arrays are started with index of 1 while Java arrays are started with 0
 			int javaArrIndex = Integer.parseInt(arrIndex) - 1;
 
-			return String.format(ARRAY_ELEMENT_EXPR_TEMPLATE, varName, javaArrIndex);
+			return String.format(ARRAY_ELEMENT_EXPR_TEMPLATE, context.getVarSlot(varName), javaArrIndex);
 		}
 
 		static boolean isEntityVariable(String token, ScriptContext context, EntityInfo info) {
@@ -710,6 +768,7 @@ public class ScriptExpressionParser {
 				Class<?> varClass = resolveClass(var.getJavaType());
 				if (varClass != null) {
 					info.varType = varClass.getName();
+					info.varSlot = context.getVarSlot(token);
 
 					return true;
 				}
@@ -778,7 +837,7 @@ public class ScriptExpressionParser {
 						if (isPublicFieldOfGivenType(fieldOwnerClass, fieldName, fieldType)) {
 							fieldNamesExpr.append(fieldName);
 
-							info.varName = varName;
+							info.varSlot = context.getVarSlot(varName);
 							info.fieldName = fieldNamesExpr.toString();
 							info.varType = varClass.getName();
 
@@ -824,17 +883,11 @@ public class ScriptExpressionParser {
 		}
 
 		private static boolean isPublicFieldOfGivenType(Class<?> clazz, String fieldName, Class<?> fieldType) {
-			Field fld = FieldUtils.getField(clazz, fieldName);
-			return fld != null && fld.getType() == fieldType;
+			return EntityFields.getType(clazz, fieldName) == fieldType;
 		}
 
 		private static Class<?> getPublicFieldType(Class<?> clazz, String fieldName) {
-			Field fld = FieldUtils.getField(clazz, fieldName);
-			if (fld != null) {
-				return fld.getType();
-			} else {
-				return null;
-			}
+			return EntityFields.getType(clazz, fieldName);
 		}
 
 		private static Class<?> resolveClass(String name) {
@@ -848,13 +901,14 @@ public class ScriptExpressionParser {
 		}
 
 		static class FieldInfo {
-			String varName;
+			int varSlot;
 			String fieldName;
 			String varType;
 		}
 
 		static class EntityInfo {
 			String varType;
+			int varSlot;
 		}
 	}
 
@@ -0,0 +1,116 @@
+package com.ilsid.bfa.script;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.ilsid.bfa.persistence.DynamicClassLoader;
+
+/**
+ * Caches the resolved class names and the constructors of the scripts. The cached constructors are dropped after
+ * classes reloading, so the scripts are always instantiated from the actual {@link DynamicClassLoader}.
+ *
+ * @author illia.sydorovych
+ *
+ */
+class ScriptFactoryCache {
+
+	private static final MethodType FACTORY_TYPE = MethodType.methodType(Script.class);
+
+	private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+	private static final Map<String, String> classNames = new ConcurrentHashMap<>();
+
+	private static final Map<String, Factory> factories = new ConcurrentHashMap<>();
+
+	private static volatile int generation;
+
+	static {
+		DynamicClassLoader.addPermanentReloadListener(new DynamicClassLoader.ReloadListener() {
+
+			public void execute() {
+				invalidate();
+			}
+		});
+	}
+
+	/**
+	 * Creates new instance of the script with the given name.
+	 *
+	 * @param scriptName
+	 *            the script name
+	 * @return new script instance
+	 * @throws ScriptException
+	 *             <ul>
+	 *             <li>if the script with such name does not exist in the repository</li>
+	 *             <li>if the script instance can't be created</li>
+	 *             </ul>
+	 */
+	static Script newInstance(String scriptName) throws ScriptException {
+		final int currentGeneration = generation;
+		Factory factory = factories.get(scriptName);
+		if (factory == null || factory.generation != currentGeneration) {
+			factory = new Factory(createConstructor(scriptName), currentGeneration);
+			factories.put(scriptName, factory);
+		}
+
+		try {
+			return (Script) factory.constructor.invokeExact();
+		} catch (Throwable e) {
+			throw new ScriptException(String.format("Failed to create an instance of the script [%s]", scriptName), e);
+		}
+	}
+
+	/**
+	 * Drops all cached constructors.
+	 */
+	static void invalidate() {
+		generation++;
+		factories.clear();
+	}
+
+	private static MethodHandle createConstructor(String scriptName) throws ScriptException {
+		String scriptClassName = classNames.get(scriptName);
+		if (scriptClassName == null) {
+			scriptClassName = TypeNameResolver.resolveScriptClassName(scriptName);
+			classNames.put(scriptName, scriptClassName);
+		}
+
+		Class<?> scriptClass;
+		try {
+			scriptClass = DynamicClassLoader.getInstance().loadClass(scriptClassName);
+		} catch (ClassNotFoundException e) {
+			throw new ScriptException(String.format("The script [%s] is not found in the repository", scriptName), e);
+		}
+
+		if (!Script.class.isAssignableFrom(scriptClass)) {
+			throw new ScriptException(
+					"Unexpected class was loaded from the repository. Expected: " + Script.class.getName());
+		}
+
+		try {
+			return LOOKUP.findConstructor(scriptClass, MethodType.methodType(void.class)).asType(FACTORY_TYPE);
+		} catch (NoSuchMethodException | IllegalAccessException e) {
+			throw new ScriptException(String.format("Failed to create an instance of the script [%s]", scriptName), e);
+		}
+	}
+
+	/*
+	 * The generation allows to ignore a constructor that was cached by a concurrent thread right before the
+	 * invalidation.
+	 */
+	private static class Factory {
+
+		final MethodHandle constructor;
+
+		final int generation;
+
+		Factory(MethodHandle constructor, int generation) {
+			this.constructor = constructor;
+			this.generation = generation;
+		}
+	}
+
+}
@@ -0,0 +1,21 @@
+package com.ilsid.bfa.script;
+
+/**
+ * Signals that the script was not admitted for the execution, as the runtime concurrency limits are exceeded. The
+ * script can be run later.
+ *
+ * @author illia.sydorovych
+ *
+ */
+@SuppressWarnings("serial")
+public class ScriptRejectedException extends ScriptException {
+
+	public ScriptRejectedException(String message, Throwable cause) {
+		super(message, cause);
+	}
+
+	public ScriptRejectedException(String message) {
+		super(message);
+	}
+
+}
@@ -1,5 +1,6 @@
 package com.ilsid.bfa.script;
 
+import java.io.IOException;
 import java.net.Inet4Address;
 import java.net.UnknownHostException;
 import java.util.ArrayList;
@@ -7,9 +8,20 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.Deque;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -19,21 +31,32 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.ilsid.bfa.ConfigurationException;
+import com.ilsid.bfa.action.ActionContext;
+import com.ilsid.bfa.action.AsyncAction;
 import com.ilsid.bfa.action.persistence.ActionLocator;
 import com.ilsid.bfa.common.ConfigUtil;
 import com.ilsid.bfa.common.ExceptionUtil;
+import com.ilsid.bfa.common.JsonUtil;
 import com.ilsid.bfa.common.LoggingConfig;
-import com.ilsid.bfa.persistence.DynamicClassLoader;
+import com.ilsid.bfa.common.Metrics;
 import com.ilsid.bfa.persistence.PersistenceException;
 import com.ilsid.bfa.persistence.QueryPage;
 import com.ilsid.bfa.persistence.QueryPagingOptions;
+import com.ilsid.bfa.runtime.dto.FlowCheckpointDTO;
+import com.ilsid.bfa.runtime.dto.FlowTraceDTO;
 import com.ilsid.bfa.runtime.dto.RuntimeStatusType;
 import com.ilsid.bfa.runtime.dto.ScriptRuntimeCriteria;
 import com.ilsid.bfa.runtime.dto.ScriptRuntimeDTO;
 import com.ilsid.bfa.runtime.monitor.MonitoringException;
 import com.ilsid.bfa.runtime.monitor.MonitoringServer;
 import com.ilsid.bfa.runtime.monitor.MonitoringServerConfig;
+import com.ilsid.bfa.runtime.persistence.CheckpointRepository;
+import com.ilsid.bfa.runtime.persistence.HiLoRuntimeIdGenerator;
+import com.ilsid.bfa.runtime.persistence.RepositoryRuntimeIdGenerator;
+import com.ilsid.bfa.runtime.persistence.RuntimeIdBlockAllocator;
+import com.ilsid.bfa.runtime.persistence.RuntimeIdGenerator;
 import com.ilsid.bfa.runtime.persistence.RuntimeRepository;
+import com.ilsid.bfa.runtime.persistence.TimeBasedUuidGenerator;
 
 /**
  * Provides the script runtime operations.
@@ -54,11 +77,73 @@ public class ScriptRuntime {
 
 	private static final int MONITOR_SERVER_PORT_DEFAULT_VALUE = 8025;
 
+	private static final String CONFIG_PROP_RUNTIME_POOL_SIZE = "bfa.runtime.pool_size";
+
+	private static final String CONFIG_PROP_RUNTIME_QUEUE_SIZE = "bfa.runtime.queue_size";
+
+	private static final String CONFIG_PROP_RUNTIME_STATE_CACHE_SIZE = "bfa.runtime.state_cache_size";
+
+	private static final String CONFIG_PROP_RUNTIME_EXECUTION_MODE = "bfa.runtime.execution_mode";
+
+	private static final String CONFIG_PROP_RUNTIME_ID_GENERATOR = "bfa.runtime.id_generator";
+
+	private static final String CONFIG_PROP_RUNTIME_ID_BLOCK_SIZE = "bfa.runtime.id_block_size";
+
+	private static final String CONFIG_PROP_TRACE_THRESHOLD = "bfa.runtime.trace.threshold";
+
+	private static final String CONFIG_PROP_TRACE_STEPS = "bfa.runtime.trace.steps";
+
+	private static final String CONFIG_PROP_TRACE_HISTORY_SIZE = "bfa.runtime.trace.history_size";
+
+	private static final int RUNTIME_POOL_SIZE_DEFAULT_VALUE = 50;
+
+	private static final int RUNTIME_QUEUE_SIZE_DEFAULT_VALUE = 1000;
+
+	private static final int RUNTIME_STATE_CACHE_SIZE_DEFAULT_VALUE = 10000;
+
+	private static final int RUNTIME_ID_BLOCK_SIZE_DEFAULT_VALUE = 1000;
+
+	private static final int SUBFLOW_POOL_SIZE_DEFAULT_VALUE = 100;
+
+	private static final int ACTION_POOL_SIZE_DEFAULT_VALUE = 100;
+
+	private static final String CONFIG_PROP_ADMISSION_MAX_CONCURRENT = "bfa.runtime.admission.max_concurrent";
+
+	private static final String CONFIG_PROP_ADMISSION_MAX_CONCURRENT_PER_SCRIPT =
+			"bfa.runtime.admission.max_concurrent_per_script";
+
+	private static final String CONFIG_PROP_ADMISSION_QUEUE_SIZE = "bfa.runtime.admission.queue_size";
+
+	private static final String CONFIG_PROP_ADMISSION_QUEUE_TIMEOUT = "bfa.runtime.admission.queue_timeout";
+
+	private static final String CONFIG_PROP_SUBFLOW_INLINE = "bfa.runtime.subflow.inline";
+
+	private static final String CONFIG_PROP_SUBFLOW_POOL_SIZE = "bfa.runtime.subflow.pool_size";
+
+	private static final String CONFIG_PROP_ACTION_POOL_SIZE = "bfa.runtime.action.pool_size";
+
+	private static final String CONFIG_PROP_DEADLINE = "bfa.runtime.deadline";
+
+	private static final String CONFIG_PROP_DEADLINE_SCRIPT_PREFIX = "bfa.runtime.deadline.script.";
+
+	private static final String CONFIG_PROP_CHECKPOINT_ENABLED = "bfa.runtime.checkpoint.enabled";
+
+	private static final String DEADLINE_TIMER_THREAD_NAME = "bfa-flow-deadline-timer";
+
+	private static final int TRACE_STEPS_DEFAULT_VALUE = 256;
+
+	private static final int TRACE_HISTORY_SIZE_DEFAULT_VALUE = 100;
+
+	private static final int ADMISSION_QUEUE_TIMEOUT_DEFAULT_VALUE = 1000;
+
 	// FIXME: introduce authentication
 	private static final String STUBBED_USER_NAME = "system";
 
 	private static final Object[] EMPTY_PARAMS = new Object[] {};
 
+	private static final Metrics.TimerGroup SCRIPT_TIMERS = Metrics.timerGroup("bfa_script", "Script execution",
+			"script");
+
 	private final Logger runtimeLogger = LoggerFactory.getLogger("runtime_debug_logger");
 
 	private RuntimeRepository repository;
@@ -69,6 +154,54 @@ public class ScriptRuntime {
 
 	private String monitoringServerURL;
 
+	private int runtimePoolSize = RUNTIME_POOL_SIZE_DEFAULT_VALUE;
+
+	private int runtimeQueueSize = RUNTIME_QUEUE_SIZE_DEFAULT_VALUE;
+
+	private int runtimeStateCacheSize = RUNTIME_STATE_CACHE_SIZE_DEFAULT_VALUE;
+
+	private int subflowPoolSize = SUBFLOW_POOL_SIZE_DEFAULT_VALUE;
+
+	private ScriptExecutionPool.ExecutionMode runtimeExecutionMode = ScriptExecutionPool.ExecutionMode.PLATFORM;
+
+	private volatile ScriptExecutionPool executionPool;
+
+	private IdGeneratorType idGeneratorType = IdGeneratorType.REPOSITORY;
+
+	private int idBlockSize = RUNTIME_ID_BLOCK_SIZE_DEFAULT_VALUE;
+
+	private volatile RuntimeIdGenerator idGenerator;
+
+	private volatile SlowFlowTraces slowFlowTraces;
+
+	private volatile AdmissionControl admissionControl;
+
+	private boolean subflowInliningEnabled;
+
+	private long defaultTimeoutMillis;
+
+	private Map<String, Long> scriptTimeouts = Collections.emptyMap();
+
+	private final ConcurrentMap<String, FlowCancellation> runningFlows = new ConcurrentHashMap<>();
+
+	private volatile ScheduledThreadPoolExecutor deadlineTimer;
+
+	private CheckpointRepository checkpointRepository;
+
+	private boolean checkpointingEnabled;
+
+	/**
+	 * Runtime identifier generation strategies.
+	 */
+	private enum IdGeneratorType {
+		// Each identifier is obtained from the runtime repository
+		REPOSITORY,
+		// Time-based UUIDs are generated locally
+		UUID,
+		// Blocks of identifiers are reserved in the runtime repository
+		HILO
+	}
+
 	/**
 	 * Runs the script with the given name.
 	 * 
@@ -80,10 +213,11 @@ public class ScriptRuntime {
 	 *             <li>if the script with such name does not exist in the repository</li>
 	 *             <li>in case of any repository access issues</li>
 	 *             <li>in case of the script runtime failure</li>
+	 *             <li>if the script is rejected by the admission control ({@link ScriptRejectedException})</li>
 	 *             </ul>
 	 */
 	public Object runScript(String scriptName) throws ScriptException {
-		return runScript(scriptName, EMPTY_PARAMS, null, null);
+		return runScript(scriptName, EMPTY_PARAMS);
 	}
 
 	/**
@@ -99,10 +233,312 @@ public class ScriptRuntime {
 	 *             <li>if the script with such name does not exist in the repository</li>
 	 *             <li>in case of any repository access issues</li>
 	 *             <li>in case of the script runtime failure</li>
+	 *             <li>if the script is rejected by the admission control ({@link ScriptRejectedException})</li>
 	 *             </ul>
 	 */
 	public Object runScript(String scriptName, Object[] params) throws ScriptException {
-		return runScript(scriptName, params, null, null);
+		return runScript(scriptName, params, 0);
+	}
+
+	/**
+	 * Runs the script with the given name and input parameters within the given time. The expired script is cancelled
+	 * at the nearest action, sub-flow or condition. Its thread is interrupted as well, so the blocked action that
+	 * responds to the interruption is released. In the virtual thread execution mode the script, including its nested
+	 * sub-flows and actions, is executed by its own virtual thread, and the calling thread waits for the completion.
+	 * 
+	 * @param scriptName
+	 *            the script name
+	 * @param params
+	 *            input parameters
+	 * @param timeoutMillis
+	 *            the maximum execution time, in milliseconds. If not positive, the time configured for the script or
+	 *            the default one is applied
+	 * @return the script runtime identifier
+	 * @throws ScriptException
+	 *             <ul>
+	 *             <li>if the script with such name does not exist in the repository</li>
+	 *             <li>in case of any repository access issues</li>
+	 *             <li>in case of the script runtime failure</li>
+	 *             <li>if the script is rejected by the admission control ({@link ScriptRejectedException})</li>
+	 *             <li>if the script is cancelled or its deadline is exceeded ({@link ScriptCancelledException})</li>
+	 *             </ul>
+	 * @see #cancelScript(Object)
+	 */
+	public Object runScript(String scriptName, Object[] params, long timeoutMillis) throws ScriptException {
+		final AdmissionControl admission = admissionControl;
+		if (admission == null) {
+			return runTopLevelScript(ScriptFactoryCache.newInstance(scriptName), scriptName, params, null,
+					createCancellation(scriptName, timeoutMillis));
+		}
+
+		admission.acquire(scriptName, true);
+		try {
+			return runTopLevelScript(ScriptFactoryCache.newInstance(scriptName), scriptName, params, null,
+					createCancellation(scriptName, timeoutMillis));
+		} finally {
+			admission.release(scriptName);
+		}
+	}
+
+	/**
+	 * Starts the script with the given name asynchronously. The script is queued for the execution in the runtime pool
+	 * and the runtime identifier is returned immediately. The script state can be queried with
+	 * {@link #getScriptState(Object)}.
+	 * 
+	 * @param scriptName
+	 *            the script name
+	 * @return the script runtime identifier
+	 * @throws ScriptException
+	 *             <ul>
+	 *             <li>in case of any repository access issues</li>
+	 *             <li>if the runtime pool is saturated or the script is rejected by the admission control
+	 *             ({@link ScriptRejectedException})</li>
+	 *             </ul>
+	 */
+	public Object startScript(String scriptName) throws ScriptException {
+		return startScript(scriptName, EMPTY_PARAMS);
+	}
+
+	/**
+	 * Starts the script with the given name and input parameters asynchronously.
+	 * 
+	 * @param scriptName
+	 *            the script name
+	 * @param params
+	 *            input parameters
+	 * @return the script runtime identifier
+	 * @throws ScriptException
+	 *             <ul>
+	 *             <li>in case of any repository access issues</li>
+	 *             <li>if the runtime pool is saturated or the script is rejected by the admission control
+	 *             ({@link ScriptRejectedException})</li>
+	 *             </ul>
+	 * @see #startScript(String)
+	 */
+	public Object startScript(String scriptName, Object[] params) throws ScriptException {
+		return startScript(scriptName, params, 0);
+	}
+
+	/**
+	 * Starts the script with the given name and input parameters asynchronously. The script execution time is limited
+	 * the same way as for {@link #runScript(String, Object[], long)}. The time spent in the runtime pool queue is not
+	 * counted.
+	 * 
+	 * @param scriptName
+	 *            the script name
+	 * @param params
+	 *            input parameters
+	 * @param timeoutMillis
+	 *            the maximum execution time, in milliseconds. If not positive, the time configured for the script or
+	 *            the default one is applied
+	 * @return the script runtime identifier
+	 * @throws ScriptException
+	 *             <ul>
+	 *             <li>in case of any repository access issues</li>
+	 *             <li>if the runtime pool is saturated or the script is rejected by the admission control
+	 *             ({@link ScriptRejectedException})</li>
+	 *             </ul>
+	 * @see #startScript(String)
+	 */
+	public Object startScript(final String scriptName, final Object[] params, final long timeoutMillis)
+			throws ScriptException {
+		final ScriptExecutionPool pool = getExecutionPool();
+		// The started script does not wait for the admission, as the caller expects the immediate response
+		final AdmissionControl admission = admissionControl;
+		if (admission != null) {
+			admission.acquire(scriptName, false);
+		}
+
+		boolean submitted = false;
+		try {
+			final Object runtimeId = generatedRuntimeId(scriptName);
+			final ScriptRuntimeDTO initialState = createState(runtimeId, scriptName, params)
+					.setStatus(RuntimeStatusType.INPROGRESS);
+
+			pool.submit(initialState, new Runnable() {
+
+				public void run() {
+					try {
+						pool.updateState(runSubmittedScript(initialState, params, timeoutMillis));
+					} finally {
+						release(admission, scriptName);
+					}
+				}
+			});
+			submitted = true;
+
+			return runtimeId;
+		} catch (RejectedExecutionException e) {
+			throw createPoolSaturatedException(scriptName, e);
+		} finally {
+			if (!submitted) {
+				release(admission, scriptName);
+			}
+		}
+	}
+
+	/**
+	 * Runs the script with the given name for each of the given inputs. The scripts are executed in parallel in the
+	 * runtime pool, but one batch does not occupy more threads than the pool size. The script instantiation is
+	 * verified once, before the batch is started. The results are obtained from the returned batch in the order of the
+	 * scripts completion. The scripts of the batch do not wait for the admission, the rejected ones are reported as
+	 * failed.
+	 * 
+	 * @param scriptName
+	 *            the script name
+	 * @param inputs
+	 *            input parameters for each script execution
+	 * @return the started batch
+	 * @throws ScriptException
+	 *             <ul>
+	 *             <li>if the script with such name does not exist in the repository</li>
+	 *             <li>if the script instance can't be created</li>
+	 *             </ul>
+	 */
+	public ScriptBatch runBatch(String scriptName, List<Object[]> inputs) throws ScriptException {
+		ScriptFactoryCache.newInstance(scriptName);
+
+		ScriptBatch batch = new ScriptBatch(this, scriptName, inputs, runtimePoolSize);
+		batch.submitPending();
+
+		return batch;
+	}
+
+	/**
+	 * Returns the state of the script started with {@link #startScript(String)} or
+	 * {@link #startScript(String, Object[])}. Only the states of the running and recently finished scripts are kept.
+	 * 
+	 * @param runtimeId
+	 *            the script runtime identifier
+	 * @return the script state or <code>null</code> if the state is not available
+	 */
+	public ScriptRuntimeDTO getScriptState(Object runtimeId) {
+		final ScriptExecutionPool pool = executionPool;
+		if (pool == null) {
+			return null;
+		}
+
+		return pool.getState(runtimeId);
+	}
+
+	/**
+	 * Cancels the running script. The script is stopped at the nearest action, sub-flow or condition and is recorded as
+	 * failed. Its thread is interrupted as well, so the blocked action that responds to the interruption is released.
+	 * The script waiting in the runtime pool queue is not cancelled.
+	 * 
+	 * @param runtimeId
+	 *            the script runtime identifier
+	 * @return <code>true</code> if the script is cancelled or <code>false</code> if the script with such runtime
+	 *         identifier is not running or has already been cancelled
+	 */
+	public boolean cancelScript(Object runtimeId) {
+		final FlowCancellation cancellation = runningFlows.get(runtimeId.toString());
+		if (cancellation == null) {
+			return false;
+		}
+
+		return cancellation.cancel();
+	}
+
+	/**
+	 * Resumes the failed script from its last checkpoint. The script is run again under the same runtime identifier
+	 * and with the same input parameters. The actions completed by the failed run, including the actions of its
+	 * sub-flows, are not called again. Their results and the state of the script variables are restored from the
+	 * checkpoints instead. The started asynchronous actions are not checkpointed, so they are always called again. The
+	 * checkpoints are saved only if the <code>bfa.runtime.checkpoint.enabled</code> runtime property is
+	 * <code>true</code>. The checkpoints of the completed script are deleted.
+	 * 
+	 * @param runtimeId
+	 *            the runtime identifier of the failed script
+	 * @return the script runtime identifier
+	 * @throws ScriptException
+	 *             <ul>
+	 *             <li>if the checkpoints are not enabled</li>
+	 *             <li>if the script with such runtime identifier is running or has no checkpoints</li>
+	 *             <li>in case of any repository access issues</li>
+	 *             <li>in case of the script runtime failure</li>
+	 *             <li>if the script is rejected by the admission control ({@link ScriptRejectedException})</li>
+	 *             </ul>
+	 */
+	public Object resumeScript(Object runtimeId) throws ScriptException {
+		final CheckpointRepository checkpointRepo = checkpointRepository;
+		if (!checkpointingEnabled || checkpointRepo == null) {
+			throw new ScriptException("The script checkpoints are not enabled");
+		}
+
+		List<FlowCheckpointDTO> checkpoints;
+		try {
+			checkpoints = checkpointRepo.loadCheckpoints(runtimeId);
+		} catch (PersistenceException e) {
+			throw new ScriptException(
+					String.format("Failed to load checkpoints of the script with runtime id [%s]", runtimeId), e);
+		}
+
+		FlowCheckpointDTO rootCheckpoint = null;
+		for (FlowCheckpointDTO checkpoint : checkpoints) {
+			if (FlowCheckpointDTO.ROOT_STEP_KEY.equals(checkpoint.getStepKey())) {
+				rootCheckpoint = checkpoint;
+				break;
+			}
+		}
+
+		if (rootCheckpoint == null) {
+			throw new ScriptException(
+					String.format("No checkpoints of the script with runtime id [%s] are found", runtimeId));
+		}
+
+		final String scriptName = rootCheckpoint.getScriptName();
+		Object[] params;
+		try {
+			params = CheckpointCodec.decode(rootCheckpoint.getParameters());
+		} catch (IOException e) {
+			throw new ScriptException(
+					String.format("Failed to restore input parameters of the script [%s]", scriptName), e);
+		}
+
+		// The identifier of the original type is used, as the passed one may be a string
+		final Object flowRuntimeId = rootCheckpoint.getRuntimeId();
+		// The runtime id is reserved before the replay, so the same script is never run twice at once
+		final FlowCancellation cancellation = createCancellation(scriptName, 0);
+		if (runningFlows.putIfAbsent(flowRuntimeId.toString(), cancellation) != null) {
+			throw new ScriptException(String.format("The script with runtime id [%s] is running", runtimeId));
+		}
+
+		try {
+			final Script script = ScriptFactoryCache.newInstance(scriptName);
+			script.setCheckpoints(new FlowCheckpoints(checkpointRepo, flowRuntimeId, scriptName, params, checkpoints),
+					"");
+
+			final AdmissionControl admission = admissionControl;
+			if (admission != null) {
+				admission.acquire(scriptName, true);
+			}
+			try {
+				return runTopLevelScript(script, scriptName, params, flowRuntimeId, cancellation);
+			} finally {
+				release(admission, scriptName);
+			}
+		} finally {
+			runningFlows.remove(flowRuntimeId.toString(), cancellation);
+		}
+	}
+
+	/**
+	 * Stops the runtime pool and the threads of the asynchronous actions. The started scripts are completed, but new
+	 * ones are not accepted.
+	 */
+	public void shutdown() {
+		final ScriptExecutionPool pool = executionPool;
+		if (pool != null) {
+			pool.shutdown();
+		}
+
+		final ScheduledThreadPoolExecutor timer = deadlineTimer;
+		if (timer != null) {
+			timer.shutdownNow();
+		}
+
+		AsyncAction.shutdownExecutor();
 	}
 
 	/**
@@ -167,6 +603,30 @@ public class ScriptRuntime {
 	@Inject
 	public void setRepository(RuntimeRepository repository) {
 		this.repository = repository;
+		idGenerator = null;
+	}
+
+	/**
+	 * Defines the repository of the script checkpoints.
+	 * 
+	 * @param checkpointRepository
+	 *            the checkpoint repository
+	 * @see #resumeScript(Object)
+	 */
+	@Inject
+	public void setCheckpointRepository(CheckpointRepository checkpointRepository) {
+		this.checkpointRepository = checkpointRepository;
+	}
+
+	/**
+	 * Checks whether the script checkpoints are enabled by the given configuration.
+	 * 
+	 * @param runtimeConfig
+	 *            the runtime configuration
+	 * @return <code>true</code> if the checkpoints are enabled
+	 */
+	public static boolean isCheckpointingEnabled(Map<String, String> runtimeConfig) {
+		return Boolean.parseBoolean(runtimeConfig.get(CONFIG_PROP_CHECKPOINT_ENABLED));
 	}
 
 	/**
@@ -197,6 +657,136 @@ public class ScriptRuntime {
 		}
 	}
 
+	/**
+	 * Defines the runtime pool configuration. The pool executes scripts either on platform threads (default) or on
+	 * virtual threads, if <code>bfa.runtime.execution_mode</code> property is set to <code>virtual</code>. The runtime
+	 * identifiers are obtained from the repository (default), generated locally as time-based UUIDs or allocated from
+	 * the blocks reserved in the repository, depending on <code>bfa.runtime.id_generator</code> property. If
+	 * <code>bfa.runtime.trace.threshold</code> property is set, the steps of each script are traced and the traces of
+	 * the scripts that run longer than the threshold (in milliseconds) or fail are kept. If
+	 * <code>bfa.runtime.admission.max_concurrent</code> or <code>bfa.runtime.admission.max_concurrent_per_script</code>
+	 * property is set, the scripts exceeding the limits are rejected with {@link ScriptRejectedException}. If
+	 * <code>bfa.runtime.subflow.inline</code> property is <code>true</code>, the sub-flows compiled as inlinable are
+	 * run in the context of the calling script and are recorded in its runtime record. The number of threads running
+	 * the sub-flows in parallel is limited by <code>bfa.runtime.subflow.pool_size</code> property, the exceeding
+	 * sub-flows are run by the calling script thread. The same applies to the code submitted by {@link AsyncAction}
+	 * and <code>bfa.runtime.action.pool_size</code> property. The execution time of each
+	 * script is limited by <code>bfa.runtime.deadline.script.&lt;script name&gt;</code> property or, if not set, by
+	 * <code>bfa.runtime.deadline</code> property (in milliseconds). By default, the time is not limited. If
+	 * <code>bfa.runtime.checkpoint.enabled</code> property is <code>true</code>, the completed actions are saved as
+	 * checkpoints, so the failed scripts can be resumed with {@link #resumeScript(Object)}.
+	 * 
+	 * @param runtimeConfig
+	 *            runtime configuration
+	 * @throws ConfigurationException
+	 *             <ul>
+	 *             <li>if the configuration contains invalid values</li>
+	 *             <li>if virtual threads are requested, but not supported by the current Java runtime</li>
+	 *             </ul>
+	 */
+	@Inject
+	public void setRuntimeConfig(@RuntimeConfig Map<String, String> runtimeConfig) throws ConfigurationException {
+		runtimePoolSize = ConfigUtil.getPositiveIntegerValue(CONFIG_PROP_RUNTIME_POOL_SIZE, runtimeConfig,
+				RUNTIME_POOL_SIZE_DEFAULT_VALUE);
+		runtimeQueueSize = ConfigUtil.getPositiveIntegerValue(CONFIG_PROP_RUNTIME_QUEUE_SIZE, runtimeConfig,
+				RUNTIME_QUEUE_SIZE_DEFAULT_VALUE);
+		runtimeStateCacheSize = ConfigUtil.getPositiveIntegerValue(CONFIG_PROP_RUNTIME_STATE_CACHE_SIZE,
+				runtimeConfig, RUNTIME_STATE_CACHE_SIZE_DEFAULT_VALUE);
+
+		final String modeValue = runtimeConfig.get(CONFIG_PROP_RUNTIME_EXECUTION_MODE);
+		if (modeValue != null) {
+			try {
+				runtimeExecutionMode = ScriptExecutionPool.ExecutionMode.valueOf(modeValue.trim().toUpperCase());
+			} catch (IllegalArgumentException e) {
+				throw new ConfigurationException(String.format(
+						"The value of the configuration property [%s] must be one of: platform, virtual",
+						CONFIG_PROP_RUNTIME_EXECUTION_MODE));
+			}
+		}
+
+		if (runtimeExecutionMode == ScriptExecutionPool.ExecutionMode.VIRTUAL
+				&& !ScriptExecutionPool.isVirtualThreadSupported()) {
+			throw new ConfigurationException(
+					"Virtual threads are not supported by the current Java runtime. Java 21 or later is required");
+		}
+
+		final String idGeneratorValue = runtimeConfig.get(CONFIG_PROP_RUNTIME_ID_GENERATOR);
+		if (idGeneratorValue != null) {
+			try {
+				idGeneratorType = IdGeneratorType.valueOf(idGeneratorValue.trim().toUpperCase());
+			} catch (IllegalArgumentException e) {
+				throw new ConfigurationException(String.format(
+						"The value of the configuration property [%s] must be one of: repository, uuid, hilo",
+						CONFIG_PROP_RUNTIME_ID_GENERATOR));
+			}
+		}
+		idBlockSize = ConfigUtil.getPositiveIntegerValue(CONFIG_PROP_RUNTIME_ID_BLOCK_SIZE, runtimeConfig,
+				RUNTIME_ID_BLOCK_SIZE_DEFAULT_VALUE);
+		idGenerator = null;
+
+		final int traceThreshold = ConfigUtil.getPositiveIntegerValue(CONFIG_PROP_TRACE_THRESHOLD, runtimeConfig, 0);
+		final int traceSteps = ConfigUtil.getPositiveIntegerValue(CONFIG_PROP_TRACE_STEPS, runtimeConfig,
+				TRACE_STEPS_DEFAULT_VALUE);
+		final int traceHistorySize = ConfigUtil.getPositiveIntegerValue(CONFIG_PROP_TRACE_HISTORY_SIZE, runtimeConfig,
+				TRACE_HISTORY_SIZE_DEFAULT_VALUE);
+		if (traceThreshold > 0) {
+			slowFlowTraces = new SlowFlowTraces(traceThreshold, traceSteps, traceHistorySize);
+		} else {
+			slowFlowTraces = null;
+		}
+
+		final int maxConcurrent = ConfigUtil.getPositiveIntegerValue(CONFIG_PROP_ADMISSION_MAX_CONCURRENT,
+				runtimeConfig, 0);
+		final int maxConcurrentPerScript = ConfigUtil
+				.getPositiveIntegerValue(CONFIG_PROP_ADMISSION_MAX_CONCURRENT_PER_SCRIPT, runtimeConfig, 0);
+		final int admissionQueueSize = ConfigUtil.getPositiveIntegerValue(CONFIG_PROP_ADMISSION_QUEUE_SIZE,
+				runtimeConfig, 0);
+		final int admissionQueueTimeout = ConfigUtil.getPositiveIntegerValue(CONFIG_PROP_ADMISSION_QUEUE_TIMEOUT,
+				runtimeConfig, ADMISSION_QUEUE_TIMEOUT_DEFAULT_VALUE);
+		if (maxConcurrent > 0 || maxConcurrentPerScript > 0) {
+			AdmissionControl admission = new AdmissionControl(maxConcurrent, maxConcurrentPerScript,
+					admissionQueueSize, admissionQueueTimeout);
+			admission.registerGauges();
+			admissionControl = admission;
+		} else {
+			admissionControl = null;
+		}
+
+		subflowInliningEnabled = Boolean.parseBoolean(runtimeConfig.get(CONFIG_PROP_SUBFLOW_INLINE));
+		subflowPoolSize = ConfigUtil.getPositiveIntegerValue(CONFIG_PROP_SUBFLOW_POOL_SIZE, runtimeConfig,
+				SUBFLOW_POOL_SIZE_DEFAULT_VALUE);
+		AsyncAction.setPoolSize(ConfigUtil.getPositiveIntegerValue(CONFIG_PROP_ACTION_POOL_SIZE, runtimeConfig,
+				ACTION_POOL_SIZE_DEFAULT_VALUE));
+
+		defaultTimeoutMillis = ConfigUtil.getPositiveIntegerValue(CONFIG_PROP_DEADLINE, runtimeConfig, 0);
+		Map<String, Long> timeouts = new HashMap<>();
+		for (String propName : runtimeConfig.keySet()) {
+			if (propName.startsWith(CONFIG_PROP_DEADLINE_SCRIPT_PREFIX)
+					&& propName.length() > CONFIG_PROP_DEADLINE_SCRIPT_PREFIX.length()) {
+				timeouts.put(propName.substring(CONFIG_PROP_DEADLINE_SCRIPT_PREFIX.length()),
+						(long) ConfigUtil.getPositiveIntegerValue(propName, runtimeConfig, 0));
+			}
+		}
+		scriptTimeouts = timeouts;
+
+		checkpointingEnabled = isCheckpointingEnabled(runtimeConfig);
+	}
+
+	/**
+	 * Returns the step traces of the scripts that exceeded the latency threshold or failed. The traces are kept only
+	 * if the <code>bfa.runtime.trace.threshold</code> runtime property is set.
+	 * 
+	 * @return the latest traces, the most recent first, or an empty list if the tracing is disabled
+	 */
+	public List<FlowTraceDTO> getSlowFlowTraces() {
+		final SlowFlowTraces traces = slowFlowTraces;
+		if (traces == null) {
+			return Collections.emptyList();
+		}
+
+		return traces.getTraces();
+	}
+
 	/**
 	 * Initializes and starts the monitoring server.
 	 * 
@@ -244,7 +834,219 @@ public class ScriptRuntime {
 
 	Object runScript(String scriptName, Object[] params, Object runtimeId, Deque<String> callStack)
 			throws ScriptException {
-		Script script = createInstance(scriptName);
+		return runScript(scriptName, params, runtimeId, callStack, new Date(), null);
+	}
+
+	/**
+	 * Runs the sub-flow of the given script. If the sub-flow inlining is enabled and the sub-flow is inlinable, it is
+	 * run in the context of the calling script, without own runtime record.
+	 * 
+	 * @param parent
+	 *            the calling script
+	 * @param scriptName
+	 *            the sub-flow name
+	 * @throws ScriptException
+	 *             if the sub-flow failed
+	 * @see Script#isInlinable()
+	 */
+	void runSubflow(Script parent, String scriptName) throws ScriptException {
+		runSubflow(parent, scriptName, EMPTY_PARAMS);
+	}
+
+	/**
+	 * Runs the sub-flow of the given script with the given input parameters.
+	 * 
+	 * @param parent
+	 *            the calling script
+	 * @param scriptName
+	 *            the sub-flow name
+	 * @param params
+	 *            input parameters
+	 * @throws ScriptException
+	 *             if the sub-flow failed
+	 * @see #runSubflow(Script, String)
+	 */
+	void runSubflow(Script parent, String scriptName, Object[] params) throws ScriptException {
+		final Script script = ScriptFactoryCache.newInstance(scriptName);
+		script.setCheckpoints(parent.getCheckpoints(), parent.getSubflowCheckpointScope());
+		script.setActionContext(parent.getActionContext());
+		if (subflowInliningEnabled && script.isInlinable()) {
+			parent.runInlined(script, scriptName, params);
+		} else {
+			runScript(script, scriptName, params, parent.getRuntimeId(), parent.createSubflowCallStack(), new Date(),
+					parent.getCancellation());
+		}
+	}
+
+	/**
+	 * Runs the given sub-flows in parallel and waits for all of them. The first sub-flow is run in the current thread.
+	 * All sub-flows share the given runtime identifier and call stack.
+	 * 
+	 * @param scriptNames
+	 *            the sub-flow names
+	 * @param runtimeId
+	 *            the runtime identifier of the calling script
+	 * @param callStack
+	 *            the call stack for the sub-flows
+	 * @throws ScriptException
+	 *             if any of the sub-flows failed. The failure of the first sub-flow in the given order is reported.
+	 */
+	void runSubflowsInParallel(String[] scriptNames, Object runtimeId, Deque<String> callStack)
+			throws ScriptException {
+		runSubflowsInParallel(scriptNames, runtimeId, callStack, null);
+	}
+
+	/**
+	 * Runs the given sub-flows of the given script in parallel and waits for all of them. The sub-flows share the
+	 * cancellation state and the checkpoints of the calling script.
+	 * 
+	 * @param parent
+	 *            the calling script
+	 * @param scriptNames
+	 *            the sub-flow names
+	 * @throws ScriptException
+	 *             if any of the sub-flows failed. The failure of the first sub-flow in the given order is reported.
+	 * @see #runSubflowsInParallel(String[], Object, Deque)
+	 */
+	void runSubflowsInParallel(Script parent, String[] scriptNames) throws ScriptException {
+		runSubflowsInParallel(scriptNames, parent.getRuntimeId(), parent.createSubflowCallStack(), parent);
+	}
+
+	private void runSubflowsInParallel(String[] scriptNames, final Object runtimeId, final Deque<String> callStack,
+			final Script parent) throws ScriptException {
+		if (scriptNames.length == 0) {
+			return;
+		}
+
+		final FlowCancellation cancellation = parent != null ? parent.getCancellation() : null;
+		final ScriptExecutionPool pool = getExecutionPool();
+		final ActionContext actionContext = parent != null ? parent.getActionContext() : ActionContext.getInstance();
+
+		List<Future<Object>> results = new ArrayList<>(scriptNames.length - 1);
+		try {
+			for (int i = 1; i < scriptNames.length; i++) {
+				final String scriptName = scriptNames[i];
+				final int branch = i;
+				results.add(pool.submitSubflow(new Callable<Object>() {
+
+					public Object call() throws ScriptException {
+						if (cancellation != null) {
+							cancellation.attach();
+						}
+						try {
+							return runScript(createParallelSubflow(parent, scriptName, branch, actionContext),
+									scriptName, EMPTY_PARAMS, runtimeId, new LinkedList<>(callStack), new Date(),
+									cancellation);
+						} finally {
+							if (cancellation != null) {
+								cancellation.detach();
+							}
+							// The sub-flow actions attach the flow context to the pooled thread
+							ActionContext.cleanup();
+						}
+					}
+				}));
+			}
+		} catch (RejectedExecutionException e) {
+			cancel(results);
+			throw new ScriptException("Failed to start sub-flows in parallel. The runtime is shut down", e);
+		}
+
+		ScriptException failure = null;
+		try {
+			runScript(createParallelSubflow(parent, scriptNames[0], 0, actionContext), scriptNames[0], EMPTY_PARAMS,
+					runtimeId, new LinkedList<>(callStack), new Date(), cancellation);
+		} catch (ScriptException e) {
+			failure = e;
+		}
+
+		for (int i = 0; i < results.size(); i++) {
+			try {
+				results.get(i).get();
+			} catch (ExecutionException e) {
+				if (failure == null) {
+					failure = toScriptException(scriptNames[i + 1], e.getCause());
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				cancel(results);
+				throw new ScriptException("Interrupted while waiting for parallel sub-flows", e);
+			}
+		}
+
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	/*
+	 * Each of the sub-flows run in parallel gets own checkpoint scope, as their actions are called in any order. All of
+	 * them share the action context of the calling flow. The branch index is a part of the runtime record key, as the
+	 * sub-flows may start at the same time.
+	 */
+	private Script createParallelSubflow(Script parent, String scriptName, int branch, ActionContext actionContext)
+			throws ScriptException {
+		final Script script = ScriptFactoryCache.newInstance(scriptName);
+		script.setBranch(branch);
+		script.setActionContext(actionContext);
+		if (parent != null && parent.getCheckpoints() != null) {
+			script.setCheckpoints(parent.getCheckpoints(), parent.getParallelSubflowCheckpointScope(branch));
+		}
+
+		return script;
+	}
+
+	/*
+	 * In the virtual thread execution mode the synchronously run script gets own virtual thread, as the started ones
+	 * do. The calling thread just waits for the result.
+	 */
+	private Object runTopLevelScript(final Script script, final String scriptName, final Object[] params,
+			final Object runtimeId, final FlowCancellation cancellation) throws ScriptException {
+		if (runtimeExecutionMode != ScriptExecutionPool.ExecutionMode.VIRTUAL) {
+			return runScript(script, scriptName, params, runtimeId, null, new Date(), cancellation);
+		}
+
+		Future<Object> result;
+		try {
+			result = getExecutionPool().submitVirtual(new Callable<Object>() {
+
+				public Object call() throws ScriptException {
+					return runScript(script, scriptName, params, runtimeId, null, new Date(), cancellation);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			throw new ScriptException(
+					String.format("The script [%s] can't be run. The runtime is shut down", scriptName), e);
+		}
+
+		try {
+			return result.get();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof Error) {
+				throw (Error) e.getCause();
+			}
+			throw toScriptException(scriptName, e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			// The script is stopped at the nearest step, its runtime record is updated by the script thread
+			cancellation.cancel();
+			throw cancellation.createException(e);
+		}
+	}
+
+	private Object runScript(String scriptName, Object[] params, Object runtimeId, Deque<String> callStack,
+			Date startTime, FlowCancellation cancellation) throws ScriptException {
+		return runScript(ScriptFactoryCache.newInstance(scriptName), scriptName, params, runtimeId, callStack,
+				startTime, cancellation);
+	}
+
+	/*
+	 * The script without the call stack is the top-level one. It gets the new cancellation state, if not passed, and
+	 * can be cancelled by its runtime id. The sub-flows share the cancellation state of the top-level script.
+	 */
+	private Object runScript(Script script, String scriptName, Object[] params, Object runtimeId,
+			Deque<String> callStack, Date startTime, FlowCancellation cancellation) throws ScriptException {
+		final long startNanos = System.nanoTime();
 
 		Object flowRuntimeId;
 		if (runtimeId == null) {
@@ -266,52 +1068,312 @@ public class ScriptRuntime {
 			script.setRuntimeLogger(createRuntimeLogger(flowRuntimeId, scriptName, callStack));
 		}
 
+		final SlowFlowTraces traces = slowFlowTraces;
+		StepTrace stepTrace = null;
+		if (traces != null) {
+			stepTrace = traces.startTrace();
+			script.setStepTrace(stepTrace);
+		}
+
 		ScriptRuntimeDTO runtimeRecord = new ScriptRuntimeDTO().setRuntimeId(flowRuntimeId)
 				.setUserName(STUBBED_USER_NAME).setScriptName(scriptName).setParameters(toStrings(params))
-				.setStatus(RuntimeStatusType.INPROGRESS).setStartTime(new Date()).setCallStack(callStack);
+				.setStatus(RuntimeStatusType.INPROGRESS).setStartTime(startTime).setBranch(script.getBranch())
+				.setCallStack(callStack);
 
 		createRuntimeRecord(runtimeRecord);
+
+		final boolean topLevel = callStack == null;
+		FlowCancellation flowCancellation = cancellation;
+		if (topLevel && flowCancellation == null) {
+			flowCancellation = createCancellation(scriptName, 0);
+		}
+		script.setCancellation(flowCancellation);
+		if (script.getActionContext() == null) {
+			script.setActionContext(ActionContext.create());
+		}
+		if (topLevel) {
+			// The threads of the asynchronous actions are interrupted on the cancellation too
+			script.getActionContext().setThreadBinding(flowCancellation);
+		}
+		if (topLevel && checkpointingEnabled && checkpointRepository != null && script.getCheckpoints() == null) {
+			script.setCheckpoints(new FlowCheckpoints(checkpointRepository, flowRuntimeId, scriptName, params), "");
+		}
+		ScheduledFuture<?> deadlineTask = null;
+		if (topLevel) {
+			deadlineTask = startFlow(flowRuntimeId, flowCancellation);
+		}
+
+		boolean failed = true;
 		try {
-			script.execute();
+			// The flow is finished before the runtime record update, so the record is not written by the interrupted
+			// thread
+			try {
+				script.execute();
+			} finally {
+				if (topLevel) {
+					finishFlow(flowRuntimeId, flowCancellation, deadlineTask);
+				}
+			}
+			failed = false;
 		} catch (ScriptException e) {
-			updateRuntimeRecord(addErrorInfo(runtimeRecord, e));
-			throw e;
+			final ScriptException failure = toCancellationFailure(flowCancellation, e);
+			runtimeRecord.setInlinedSubflows(script.getInlinedSubflows());
+			updateRuntimeRecord(addErrorInfo(runtimeRecord, failure));
+			throw failure;
 		} catch (RuntimeException e) {
+			runtimeRecord.setInlinedSubflows(script.getInlinedSubflows());
+			final ScriptException failure = new ScriptException(String.format("Script [%s] failed", scriptName), e);
+			if (flowCancellation != null && flowCancellation.isCancelled()) {
+				final ScriptException cancellationFailure = flowCancellation.createException(failure);
+				updateRuntimeRecord(addErrorInfo(runtimeRecord, cancellationFailure));
+				throw cancellationFailure;
+			}
 			updateRuntimeRecord(addErrorInfo(runtimeRecord, e));
-			throw new ScriptException(String.format("Script [%s] failed", scriptName), e);
+			throw failure;
 		} catch (Error e) {
+			runtimeRecord.setInlinedSubflows(script.getInlinedSubflows());
 			updateRuntimeRecord(addErrorInfo(runtimeRecord, new Exception("System error occurred", e)));
 			throw new ScriptException(String.format("Script [%s] failed with system error", scriptName), e);
 		} finally {
 			script.cleanup();
+			SCRIPT_TIMERS.get(scriptName).record(startNanos, failed);
+			if (stepTrace != null) {
+				traces.finishTrace(stepTrace, flowRuntimeId, scriptName, callStack, failed);
+			}
+		}
+
+		if (topLevel && script.getCheckpoints() != null) {
+			script.getCheckpoints().deleteAll();
 		}
 
-		updateRuntimeRecord(runtimeRecord.setStatus(RuntimeStatusType.COMPLETED).setEndTime(new Date()));
+		updateRuntimeRecord(runtimeRecord.setStatus(RuntimeStatusType.COMPLETED).setEndTime(new Date())
+				.setInlinedSubflows(script.getInlinedSubflows()));
 
 		return flowRuntimeId;
 	}
 
-	@SuppressWarnings("unchecked")
-	private Script createInstance(String scriptName) throws ScriptException {
-		String scriptClassName = TypeNameResolver.resolveScriptClassName(scriptName);
-		Class<Script> scriptClass;
+	/**
+	 * Submits a single script of the batch to the runtime pool. The script state is passed to the batch on completion.
+	 * The failures are reported via the state too.
+	 */
+	void startBatchItem(final ScriptBatch batch, final int inputIndex, final String scriptName,
+			final Object[] params) {
+		final AdmissionControl admission = admissionControl;
+		if (admission != null) {
+			try {
+				admission.acquire(scriptName, false);
+			} catch (ScriptRejectedException e) {
+				batch.complete(inputIndex, addErrorInfo(createState(null, scriptName, params), e));
+				return;
+			}
+		}
+
+		final ScriptRuntimeDTO initialState;
 		try {
-			scriptClass = (Class<Script>) DynamicClassLoader.getInstance().loadClass(scriptClassName);
-		} catch (ClassNotFoundException e) {
-			throw new ScriptException(String.format("The script [%s] is not found in the repository", scriptName), e);
-		} catch (ClassCastException e) {
-			throw new ScriptException(
-					"Unexpected class was loaded from the repository. Expected: " + Script.class.getName(), e);
+			initialState = createState(generatedRuntimeId(scriptName), scriptName, params)
+					.setStatus(RuntimeStatusType.INPROGRESS);
+		} catch (ScriptException e) {
+			release(admission, scriptName);
+			batch.complete(inputIndex, addErrorInfo(createState(null, scriptName, params), e));
+			return;
 		}
 
-		Script script;
 		try {
-			script = scriptClass.newInstance();
-		} catch (InstantiationException | IllegalAccessException e) {
-			throw new ScriptException(String.format("Failed to create an instance of the script [%s]", scriptName), e);
+			final ScriptExecutionPool pool = getExecutionPool();
+			pool.submit(initialState, new Runnable() {
+
+				public void run() {
+					ScriptRuntimeDTO finalState;
+					try {
+						finalState = runSubmittedScript(initialState, params, 0);
+						pool.updateState(finalState);
+					} finally {
+						release(admission, scriptName);
+					}
+					batch.complete(inputIndex, finalState);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			release(admission, scriptName);
+			batch.complete(inputIndex, addErrorInfo(createState(initialState.getRuntimeId(), scriptName, params),
+					createPoolSaturatedException(scriptName, e)));
+		} catch (ScriptException e) {
+			release(admission, scriptName);
+			batch.complete(inputIndex,
+					addErrorInfo(createState(initialState.getRuntimeId(), scriptName, params), e));
 		}
+	}
 
-		return script;
+	private ScriptRuntimeDTO runSubmittedScript(ScriptRuntimeDTO initialState, Object[] params,
+			long timeoutMillis) {
+		final Object runtimeId = initialState.getRuntimeId();
+		final String scriptName = initialState.getScriptName();
+		ScriptRuntimeDTO finalState = createState(runtimeId, scriptName, params)
+				.setStartTime(initialState.getStartTime());
+		try {
+			runScript(scriptName, params, runtimeId, null, new Date(), createCancellation(scriptName, timeoutMillis));
+			finalState.setStatus(RuntimeStatusType.COMPLETED).setEndTime(new Date());
+		} catch (ScriptException | RuntimeException e) {
+			addErrorInfo(finalState, e);
+		}
+
+		return finalState;
+	}
+
+	private ScriptException createPoolSaturatedException(String scriptName, RejectedExecutionException e) {
+		return new ScriptRejectedException(
+				String.format("The script [%s] can't be started. The runtime pool is saturated", scriptName), e);
+	}
+
+	private FlowCancellation createCancellation(String scriptName, long timeoutMillis) {
+		long timeout = timeoutMillis;
+		if (timeout <= 0) {
+			final Long scriptTimeout = scriptTimeouts.get(scriptName);
+			timeout = scriptTimeout != null ? scriptTimeout : defaultTimeoutMillis;
+		}
+
+		return new FlowCancellation(scriptName, timeout);
+	}
+
+	private ScheduledFuture<?> startFlow(Object runtimeId, final FlowCancellation cancellation) {
+		runningFlows.put(runtimeId.toString(), cancellation);
+		cancellation.attach();
+
+		if (cancellation.getTimeoutMillis() <= 0) {
+			return null;
+		}
+
+		try {
+			return getDeadlineTimer().schedule(new Runnable() {
+
+				public void run() {
+					cancellation.expire();
+				}
+			}, cancellation.getTimeoutMillis(), TimeUnit.MILLISECONDS);
+		} catch (RejectedExecutionException e) {
+			// The runtime is shut down, the started scripts are completed without the deadline
+			return null;
+		}
+	}
+
+	private void finishFlow(Object runtimeId, FlowCancellation cancellation, ScheduledFuture<?> deadlineTask) {
+		if (deadlineTask != null) {
+			deadlineTask.cancel(false);
+		}
+		cancellation.detach();
+		runningFlows.remove(runtimeId.toString(), cancellation);
+	}
+
+	/*
+	 * The failure of the cancelled flow, for example, the failure of the interrupted action, is reported with the
+	 * cancellation reason.
+	 */
+	private ScriptException toCancellationFailure(FlowCancellation cancellation, ScriptException e) {
+		if (cancellation == null || !cancellation.isCancelled() || e instanceof ScriptCancelledException) {
+			return e;
+		}
+
+		return cancellation.createException(e);
+	}
+
+	private ScheduledThreadPoolExecutor getDeadlineTimer() {
+		ScheduledThreadPoolExecutor timer = deadlineTimer;
+		if (timer == null) {
+			synchronized (this) {
+				timer = deadlineTimer;
+				if (timer == null) {
+					timer = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+
+						public Thread newThread(Runnable task) {
+							Thread thread = new Thread(task, DEADLINE_TIMER_THREAD_NAME);
+							thread.setDaemon(true);
+							return thread;
+						}
+					});
+					// The tasks of the completed scripts are cancelled, so they must not occupy the queue
+					timer.setRemoveOnCancelPolicy(true);
+					deadlineTimer = timer;
+				}
+			}
+		}
+
+		return timer;
+	}
+
+	private void release(AdmissionControl admission, String scriptName) {
+		if (admission != null) {
+			admission.release(scriptName);
+		}
+	}
+
+	private RuntimeIdGenerator getIdGenerator() throws ScriptException {
+		RuntimeIdGenerator generator = idGenerator;
+		if (generator == null) {
+			synchronized (this) {
+				generator = idGenerator;
+				if (generator == null) {
+					generator = createIdGenerator();
+					idGenerator = generator;
+				}
+			}
+		}
+
+		return generator;
+	}
+
+	private RuntimeIdGenerator createIdGenerator() throws ScriptException {
+		switch (idGeneratorType) {
+		case UUID:
+			return new TimeBasedUuidGenerator();
+		case HILO:
+			if (!(repository instanceof RuntimeIdBlockAllocator)) {
+				throw new ScriptException(String.format(
+						"The runtime repository [%s] does not support the allocation of runtime id blocks",
+						repository.getClass().getName()));
+			}
+			return new HiLoRuntimeIdGenerator((RuntimeIdBlockAllocator) repository, idBlockSize);
+		default:
+			return new RepositoryRuntimeIdGenerator(repository);
+		}
+	}
+
+	private ScriptExecutionPool getExecutionPool() throws ScriptException {
+		ScriptExecutionPool pool = executionPool;
+		if (pool == null) {
+			synchronized (this) {
+				pool = executionPool;
+				if (pool == null) {
+					try {
+						pool = new ScriptExecutionPool(runtimeExecutionMode, runtimePoolSize, runtimeQueueSize,
+								subflowPoolSize, runtimeStateCacheSize);
+					} catch (ConfigurationException e) {
+						throw new ScriptException("Failed to create the runtime pool", e);
+					}
+					executionPool = pool;
+				}
+			}
+		}
+
+		return pool;
+	}
+
+	private void cancel(List<Future<Object>> results) {
+		for (Future<Object> result : results) {
+			result.cancel(true);
+		}
+	}
+
+	private ScriptException toScriptException(String scriptName, Throwable e) {
+		if (e instanceof ScriptException) {
+			return (ScriptException) e;
+		}
+
+		return new ScriptException(String.format("Script [%s] failed", scriptName), e);
+	}
+
+	private ScriptRuntimeDTO createState(Object runtimeId, String scriptName, Object[] params) {
+		return new ScriptRuntimeDTO().setRuntimeId(runtimeId).setUserName(STUBBED_USER_NAME).setScriptName(scriptName)
+				.setParameters(toStrings(params)).setStartTime(new Date());
 	}
 
 	private ScriptRuntimeDTO addErrorInfo(ScriptRuntimeDTO runtimeRecord, Exception e) {
@@ -324,7 +1386,7 @@ public class ScriptRuntime {
 	private Object generatedRuntimeId(String scriptName) throws ScriptException {
 		Object runtimeId;
 		try {
-			runtimeId = repository.getNextRuntimeId();
+			runtimeId = getIdGenerator().nextId();
 		} catch (PersistenceException e) {
 			throw new ScriptException(String.format("Failed to generate runtime id for the script [%s]", scriptName),
 					e);
@@ -374,9 +1436,25 @@ public class ScriptRuntime {
 	private List<String> toStrings(Object[] params) {
 		List<String> result = new LinkedList<>();
 		for (Object param : params) {
-			result.add(param.toString());
+			result.add(toString(param));
 		}
 
 		return result;
 	}
+
+	/*
+	 * Entities have no string representation, so they are recorded in JSON, the same way the clients pass them
+	 */
+	private String toString(Object param) {
+		if (param == null || param instanceof CharSequence || param instanceof Number || param instanceof Boolean
+				|| param instanceof Character) {
+			return String.valueOf(param);
+		}
+
+		try {
+			return JsonUtil.toJsonString(param);
+		} catch (IOException e) {
+			return param.toString();
+		}
+	}
 }
@@ -22,11 +22,15 @@ import com.github.javaparser.ast.Node;
 import com.github.javaparser.ast.body.MethodDeclaration;
 import com.github.javaparser.ast.expr.ArrayCreationExpr;
 import com.github.javaparser.ast.expr.Expression;
+import com.github.javaparser.ast.expr.IntegerLiteralExpr;
 import com.github.javaparser.ast.expr.MethodCallExpr;
+import com.github.javaparser.ast.expr.NullLiteralExpr;
 import com.github.javaparser.ast.expr.StringLiteralExpr;
 import com.github.javaparser.ast.visitor.DumpVisitor;
 import com.github.javaparser.ast.visitor.VoidVisitorAdapter;
 import com.ilsid.bfa.common.ClassNameUtil;
+import com.ilsid.bfa.flow.FlowConstants;
+import com.ilsid.bfa.flow.FlowElement;
 import com.ilsid.bfa.persistence.DynamicClassLoader;
 import com.ilsid.bfa.script.ScriptContext.VarNameParts;
 
@@ -52,9 +56,14 @@ public class ScriptSourcePreprocessor {
 
 	private static final String OBJECT_ARRAY_TEMPLATE = " new Object[] { %s }";
 
+	private static final String STRING_ARRAY_TEMPLATE = "new String[] { %s }";
+
 	private static final Pattern ACTION_OR_SUBFLOW_WITH_PARAMS_PATTERN = Pattern
 			.compile(".*(Action\\(.+?,.+?\\)|SubFlow\\(.+?,.+?\\)).*", Pattern.DOTALL);
 
+	private static final Pattern PARALLEL_SUBFLOWS_PATTERN = Pattern.compile(".*ParallelSubFlows\\((.*?)\\).*",
+			Pattern.DOTALL);
+
 	/**
 	 * This is a work-around for Javassist limitation. Javassist does not support Java <i>varargs</i>. Calls of
 	 * {@link Script#Action(String, Object...)} methods are replaced with explicit array arguments. <br/>
@@ -68,7 +77,9 @@ public class ScriptSourcePreprocessor {
 	 * 
 	 * <br/>
 	 * <br/>
-	 * The same pre-processing is applied for {@link Script#SubFlow(String, Object...)}. <br/>
+	 * The same pre-processing is applied for {@link Script#SubFlow(String, Object...)} and
+	 * {@link Script#StartAction(String, Object...)}. All arguments of
+	 * {@link Script#ParallelSubFlows(String...)} are replaced with the explicit string array. <br/>
 	 * See also <a href=
 	 * "Javassist Tutorial" >http://jboss-javassist.github.io/javassist/tutorial/tutorial3.html#varargs</a>.
 	 * 
@@ -81,6 +92,16 @@ public class ScriptSourcePreprocessor {
 		StringBuilder output = new StringBuilder();
 
 		for (String expr : expressions) {
+			Matcher parallelMatcher = PARALLEL_SUBFLOWS_PATTERN.matcher(expr);
+			if (parallelMatcher.matches()) {
+				final int argsStartIdx = parallelMatcher.start(1);
+				final int argsEndIdx = parallelMatcher.end(1);
+				output.append(expr.substring(0, argsStartIdx))
+						.append(String.format(STRING_ARRAY_TEMPLATE, parallelMatcher.group(1).trim()))
+						.append(expr.substring(argsEndIdx)).append(SEMICOLON);
+				continue;
+			}
+
 			Matcher matcher = ACTION_OR_SUBFLOW_WITH_PARAMS_PATTERN.matcher(expr);
 			if (matcher.matches()) {
 				String actionExpr = matcher.group(1);
@@ -110,10 +131,11 @@ public class ScriptSourcePreprocessor {
 	 * 
 	 * @param source
 	 *            original script code
-	 * @return a unit that contains the transformed script code (with replaced expressions) and optional input
-	 *         parameters. Note, the transformed code contains enclosing brackets.In case of expressions parsing errors,
-	 *         a list of corresponding exceptions is returned within a unit. The script code is <code>null</code> and
-	 *         input parameters are empty in case of parsing errors.
+	 * @return a unit that contains the transformed script code (with replaced expressions), optional input parameters,
+	 *         the variable names in the order of their slots and the number of the flow steps. Note, the transformed code contains enclosing
+	 *         brackets. The variables are addressed by their slots in the transformed code, so it must be executed with
+	 *         the same slots. In case of expressions parsing errors, a list of corresponding exceptions is returned within
+	 *         a unit. The script code is <code>null</code> and input parameters are empty in case of parsing errors.
 	 * @throws ParsingException
 	 *             if the passed script code is invalid
 	 */
@@ -152,6 +174,9 @@ public class ScriptSourcePreprocessor {
 
 			result.source = resultSource;
 			result.inputParameters = new LinkedHashMap<>(visitorContext.scriptInputParameters);
+			result.varSlotNames = visitorContext.scriptContext.getSlotNames();
+			result.flowStepCount = visitorContext.flowStepCount;
+			result.callsSubflows = visitorContext.callsSubflows;
 		} else {
 			result.processingErrors.addAll(visitorContext.exceptions);
 		}
@@ -167,6 +192,12 @@ public class ScriptSourcePreprocessor {
 
 		private List<Exception> processingErrors = new LinkedList<>();
 
+		private String[] varSlotNames = new String[] {};
+
+		private int flowStepCount;
+
+		private boolean callsSubflows;
+
 		public String getSource() {
 			return source;
 		}
@@ -179,6 +210,25 @@ public class ScriptSourcePreprocessor {
 			return processingErrors;
 		}
 
+		public String[] getVarSlotNames() {
+			return varSlotNames;
+		}
+
+		/**
+		 * Returns the number of the flow element calls in the script source, such as actions, conditions and
+		 * sub-flows.
+		 */
+		public int getFlowStepCount() {
+			return flowStepCount;
+		}
+
+		/**
+		 * Returns <code>true</code> if the script runs any sub-flows.
+		 */
+		public boolean callsSubflows() {
+			return callsSubflows;
+		}
+
 	}
 
 	private static class MethodVisitorContext {
@@ -194,6 +244,10 @@ public class ScriptSourcePreprocessor {
 		Map<String, String> parsedExpressions = new LinkedHashMap<>();
 
 		String scriptBody;
+
+		int flowStepCount;
+
+		boolean callsSubflows;
 	}
 
 	private static class ScriptExpressionsVisitor extends VoidVisitorAdapter<MethodVisitorContext> {
@@ -204,6 +258,24 @@ public class ScriptSourcePreprocessor {
 
 		private static final String EXPRESSION_PREFIX = "@@EXPR@@";
 
+		private static final String PRIMITIVE_EXPRESSION_PREFIX = "@@PEXPR@@";
+
+		private static final Class<?>[] PRIMITIVE_TYPES = new Class<?>[] { int.class, double.class, boolean.class };
+
+		private static final String LOCAL_VAR_SETTER_NAME = "SetLocalVar";
+
+		private static final String LOCAL_VAR_SLOT_SETTER_NAME = "setLocalVar";
+
+		private static final String EQUAL_CONDITION_NAME = "Equal";
+
+		private static final String LESS_OR_EQUAL_CONDITION_NAME = "LessOrEqual";
+
+		private static final String PRIMITIVE_EQUAL_CONDITION_NAME = "equal";
+
+		private static final String PRIMITIVE_LESS_OR_EQUAL_CONDITION_NAME = "lessOrEqual";
+
+		private static final Class<?>[] ORDERED_PRIMITIVE_TYPES = new Class<?>[] { int.class, double.class };
+
 		@Override
 		public void visit(MethodCallExpr m, MethodVisitorContext visitorContext) {
 			for (Node child : m.getChildrenNodes()) {
@@ -224,6 +296,15 @@ public class ScriptSourcePreprocessor {
 						processVariableDeclaration(methodParams, varAnnotation, visitorContext);
 					}
 
+					FlowElement flowElement = parentMethod.getAnnotation(FlowElement.class);
+					if (flowElement != null) {
+						visitorContext.flowStepCount++;
+						if (FlowConstants.SUBFLOW.equals(flowElement.type())
+								|| FlowConstants.PARALLEL_SUBFLOWS.equals(flowElement.type())) {
+							visitorContext.callsSubflows = true;
+						}
+					}
+
 					int paramIdx = 0;
 					for (Annotation[] annotations : parentMethod.getParameterAnnotations()) {
 						for (Annotation a : annotations) {
@@ -235,12 +316,140 @@ public class ScriptSourcePreprocessor {
 						}
 						paramIdx++;
 					}
+
+					if (parentMethod.getDeclaringClass() == Script.class
+							&& LOCAL_VAR_SETTER_NAME.equals(parentMethod.getName())) {
+						replaceLocalVarSetter(m, methodParams, visitorContext);
+					} else if (parentMethod.getDeclaringClass() == Script.class
+							&& EQUAL_CONDITION_NAME.equals(parentMethod.getName())) {
+						replaceCondition(m, methodParams, PRIMITIVE_TYPES, PRIMITIVE_EQUAL_CONDITION_NAME,
+								visitorContext);
+					} else if (parentMethod.getDeclaringClass() == Script.class
+							&& LESS_OR_EQUAL_CONDITION_NAME.equals(parentMethod.getName())) {
+						replaceCondition(m, methodParams, ORDERED_PRIMITIVE_TYPES,
+								PRIMITIVE_LESS_OR_EQUAL_CONDITION_NAME, visitorContext);
+					}
 					break;
 				}
 			}
 
 		}
 
+		/*
+		 * SetLocalVar("Var.Field", expr) is replaced with setLocalVar(<Var slot>, "Field", expr), so the variable is
+		 * not looked up by name in runtime. If Number, Decimal or Boolean variable is set with the expression of the
+		 * same type, the call is replaced with setLocalVar(<Var slot>, <primitive expr>), so the value is not boxed.
+		 */
+		private void replaceLocalVarSetter(MethodCallExpr m, Expression[] methodParams,
+				MethodVisitorContext visitorContext) {
+			if (!StringLiteralExpr.class.isInstance(methodParams[0])) {
+				return;
+			}
+
+			VarNameParts varNameParts;
+			try {
+				varNameParts = visitorContext.scriptContext
+						.getVariableNameParts(((StringLiteralExpr) methodParams[0]).getValue());
+			} catch (ScriptException e) {
+				// The error has been already registered on the expression parsing
+				return;
+			}
+
+			final String fieldName = varNameParts.getFieldName();
+			final int slot = visitorContext.scriptContext.getVarSlot(varNameParts.getVarName());
+			final IntegerLiteralExpr slotExpr = new IntegerLiteralExpr(String.valueOf(slot));
+
+			if (fieldName == null) {
+				final Variable var = visitorContext.scriptContext.getVar(varNameParts.getVarName());
+				final Expression primitiveExpr = replaceWithPrimitiveExpression(methodParams[1],
+						getPrimitiveType(var), visitorContext);
+				if (primitiveExpr != null) {
+					m.setName(LOCAL_VAR_SLOT_SETTER_NAME);
+					m.setArgs(Arrays.<Expression> asList(slotExpr, primitiveExpr));
+					return;
+				}
+			}
+
+			final Expression fieldNameExpr = fieldName != null ? new StringLiteralExpr(fieldName)
+					: new NullLiteralExpr();
+
+			m.setName(LOCAL_VAR_SLOT_SETTER_NAME);
+			m.setArgs(Arrays.<Expression> asList(slotExpr, fieldNameExpr, methodParams[1]));
+		}
+
+		/*
+		 * Equal(expr1, expr2) and LessOrEqual(expr1, expr2) are replaced with equal(<primitive expr1>, <primitive
+		 * expr2>) and lessOrEqual(<primitive expr1>, <primitive expr2>), if both expressions are of the same primitive
+		 * type. So, no condition object is created and the operands are not boxed. Otherwise, the condition is
+		 * evaluated in runtime.
+		 */
+		private void replaceCondition(MethodCallExpr m, Expression[] methodParams, Class<?>[] primitiveTypes,
+				String primitiveConditionName, MethodVisitorContext visitorContext) {
+			for (Class<?> type : primitiveTypes) {
+				final String leftJavaExpr = toPrimitiveJavaExpression(methodParams[0], type, visitorContext);
+				final String rightJavaExpr = toPrimitiveJavaExpression(methodParams[1], type, visitorContext);
+				if (leftJavaExpr == null || rightJavaExpr == null) {
+					continue;
+				}
+
+				m.setName(primitiveConditionName);
+				m.setArgs(Arrays.<Expression> asList(
+						registerPrimitiveExpression((StringLiteralExpr) methodParams[0], leftJavaExpr, visitorContext),
+						registerPrimitiveExpression((StringLiteralExpr) methodParams[1], rightJavaExpr,
+								visitorContext)));
+				return;
+			}
+		}
+
+		private Class<?> getPrimitiveType(Variable var) {
+			for (Class<?> type : PRIMITIVE_TYPES) {
+				if (var.hasPrimitiveType(type)) {
+					return type;
+				}
+			}
+
+			return null;
+		}
+
+		private Expression replaceWithPrimitiveExpression(Expression expression, Class<?> primitiveType,
+				MethodVisitorContext visitorContext) {
+			final String javaExpr = toPrimitiveJavaExpression(expression, primitiveType, visitorContext);
+			if (javaExpr == null) {
+				return null;
+			}
+
+			return registerPrimitiveExpression((StringLiteralExpr) expression, javaExpr, visitorContext);
+		}
+
+		private Expression registerPrimitiveExpression(StringLiteralExpr expression, String javaExpr,
+				MethodVisitorContext visitorContext) {
+			final String scriptExpr = expression.getValue().substring(EXPRESSION_PREFIX.length());
+			final String replacementExpr = PRIMITIVE_EXPRESSION_PREFIX + scriptExpr;
+			visitorContext.parsedExpressions.put(DQ + replacementExpr + DQ, javaExpr);
+
+			return new StringLiteralExpr(replacementExpr);
+		}
+
+		private String toPrimitiveJavaExpression(Expression expression, Class<?> primitiveType,
+				MethodVisitorContext visitorContext) {
+			if (primitiveType == null || !StringLiteralExpr.class.isInstance(expression)) {
+				return null;
+			}
+
+			final String markedExpr = ((StringLiteralExpr) expression).getValue();
+			if (!markedExpr.startsWith(EXPRESSION_PREFIX)) {
+				return null;
+			}
+
+			final String scriptExpr = markedExpr.substring(EXPRESSION_PREFIX.length());
+			try {
+				return visitorContext.parser.parsePrimitive(scriptExpr, primitiveType);
+			} catch (ParsingException e) {
+				// The error has been already registered on the expression parsing
+				return null;
+			}
+		}
+
 		private void processVariableDeclaration(Expression[] methodParams, Var varAnnotation,
 				MethodVisitorContext visitorContext) {
 			// Method with Var annotation must have at least two string
@@ -0,0 +1,95 @@
+package com.ilsid.bfa.script;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.LinkedList;
+import java.util.List;
+
+import com.ilsid.bfa.runtime.dto.FlowTraceDTO;
+
+/**
+ * Keeps the step traces of the scripts that exceeded the latency threshold or failed. Only the given number of the
+ * latest traces is kept.
+ *
+ * @author illia.sydorovych
+ *
+ */
+class SlowFlowTraces {
+
+	private final Deque<FlowTraceDTO> traces = new LinkedList<>();
+
+	private final long thresholdMillis;
+
+	private final int stepsPerTrace;
+
+	private final int capacity;
+
+	/**
+	 * Creates the instance.
+	 *
+	 * @param thresholdMillis
+	 *            the script execution time, in milliseconds, the trace is kept after
+	 * @param stepsPerTrace
+	 *            the maximum number of steps kept in the single trace
+	 * @param capacity
+	 *            the maximum number of kept traces
+	 */
+	SlowFlowTraces(long thresholdMillis, int stepsPerTrace, int capacity) {
+		this.thresholdMillis = thresholdMillis;
+		this.stepsPerTrace = stepsPerTrace;
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Starts the trace of the script execution.
+	 *
+	 * @return new trace
+	 */
+	StepTrace startTrace() {
+		return new StepTrace(stepsPerTrace);
+	}
+
+	/**
+	 * Completes the trace. The trace is kept if the script exceeded the latency threshold or failed.
+	 *
+	 * @param trace
+	 *            the trace started by {@link #startTrace()}
+	 * @param runtimeId
+	 *            the script runtime identifier
+	 * @param scriptName
+	 *            the script name
+	 * @param callStack
+	 *            the call stack of the sub-flow or <code>null</code>
+	 * @param failed
+	 *            whether the script failed
+	 */
+	void finishTrace(StepTrace trace, Object runtimeId, String scriptName, Collection<String> callStack,
+			boolean failed) {
+		final long durationMillis = trace.finish();
+		if (durationMillis < thresholdMillis && !failed) {
+			return;
+		}
+
+		FlowTraceDTO dto = trace.toDTO(failed).setRuntimeId(runtimeId).setScriptName(scriptName)
+				.setCallStack(callStack != null ? new ArrayList<>(callStack) : null);
+		synchronized (traces) {
+			if (traces.size() == capacity) {
+				traces.removeLast();
+			}
+			traces.addFirst(dto);
+		}
+	}
+
+	/**
+	 * Returns the kept traces.
+	 *
+	 * @return the traces, the latest first
+	 */
+	List<FlowTraceDTO> getTraces() {
+		synchronized (traces) {
+			return new ArrayList<>(traces);
+		}
+	}
+
+}
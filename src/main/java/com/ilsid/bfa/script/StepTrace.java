@@ -0,0 +1,109 @@
+package com.ilsid.bfa.script;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.ilsid.bfa.runtime.dto.FlowTraceDTO;
+
+/**
+ * Records the start time of each step of the script execution. The steps are written to the buffer allocated once per
+ * script execution, so the recording does not create any objects. If the script has more steps than the buffer size,
+ * only the last steps are kept.
+ * <p>
+ * The instance is intended for the usage by a single thread.
+ * </p>
+ *
+ * @author illia.sydorovych
+ *
+ */
+final class StepTrace {
+
+	/**
+	 * The traced steps.
+	 */
+	enum StepType {
+		ACTION, SUBFLOW, CONDITION, ASSIGNMENT
+	}
+
+	private final long[] startTimes;
+
+	private final StepType[] types;
+
+	private final String[] names;
+
+	private final long startTime = System.nanoTime();
+
+	private final long startTimeMillis = System.currentTimeMillis();
+
+	private long endTime;
+
+	private long count;
+
+	/**
+	 * Creates the instance. The trace starts on creation.
+	 *
+	 * @param capacity
+	 *            the maximum number of kept steps
+	 */
+	StepTrace(int capacity) {
+		startTimes = new long[capacity];
+		types = new StepType[capacity];
+		names = new String[capacity];
+	}
+
+	/**
+	 * Records the start of the step.
+	 *
+	 * @param type
+	 *            the step type
+	 * @param name
+	 *            the step name, such as the action or variable name
+	 */
+	void record(StepType type, String name) {
+		final int index = (int) (count % startTimes.length);
+		startTimes[index] = System.nanoTime();
+		types[index] = type;
+		names[index] = name;
+		count++;
+	}
+
+	/**
+	 * Completes the trace.
+	 *
+	 * @return the script execution time, in milliseconds
+	 */
+	long finish() {
+		endTime = System.nanoTime();
+
+		return TimeUnit.NANOSECONDS.toMillis(endTime - startTime);
+	}
+
+	/**
+	 * Converts the completed trace to the DTO. The runtime identifier, the script name and the call stack are not set.
+	 *
+	 * @param failed
+	 *            whether the script failed
+	 * @return the trace DTO
+	 */
+	FlowTraceDTO toDTO(boolean failed) {
+		final int capacity = startTimes.length;
+		final int keptCount = (int) Math.min(count, capacity);
+		final long firstStep = count - keptCount;
+
+		List<FlowTraceDTO.Step> steps = new ArrayList<>(keptCount);
+		for (long i = firstStep; i < count; i++) {
+			final int index = (int) (i % capacity);
+			final long stepEndTime = i + 1 < count ? startTimes[(int) ((i + 1) % capacity)] : endTime;
+			steps.add(new FlowTraceDTO.Step().setType(types[index].name()).setName(names[index])
+					.setOffsetMicros(TimeUnit.NANOSECONDS.toMicros(startTimes[index] - startTime))
+					.setDurationMicros(TimeUnit.NANOSECONDS.toMicros(stepEndTime - startTimes[index])));
+		}
+
+		return new FlowTraceDTO().setStartTime(new Date(startTimeMillis))
+				.setDurationMillis(TimeUnit.NANOSECONDS.toMillis(endTime - startTime)).setFailed(failed)
+				.setDroppedSteps(firstStep).setSteps(steps);
+	}
+
+}
@@ -51,6 +51,23 @@ public abstract class TypeValueResolver {
 		return resolver;
 	}
 
+	/**
+	 * Returns a resolver for the given java type. Unlike {@link #getResolver(String)}, the entity resolver does not
+	 * look up the class on each resolution.
+	 * 
+	 * @param type
+	 *            java class
+	 * @return {@link TypeValueResolver} instance
+	 */
+	static TypeValueResolver getResolver(Class<?> type) {
+		TypeValueResolver resolver = PredefinedTypes.getResolver(type.getName());
+		if (resolver == null) {
+			resolver = new EntityResolver(type);
+		}
+
+		return resolver;
+	}
+
 	static abstract class PredefinedTypeResolver extends TypeValueResolver {
 
 		protected InvalidTypeException createInvalidTypeException(Object value) {
@@ -165,43 +182,50 @@ public abstract class TypeValueResolver {
 
 	static class EntityResolver extends TypeValueResolver {
 
+		private final Class<?> typeClass;
+
 		public EntityResolver(String typeName) {
 			super(typeName);
+			typeClass = null;
 		}
 
+		EntityResolver(Class<?> typeClass) {
+			super(typeClass.getName());
+			this.typeClass = typeClass;
+		}
+
+		/**
+		 * The {@link Map} value is bound to the entity directly. Other values are parsed as JSON. The JSON is parsed
+		 * only once, so the invalid JSON is reported by the failed binding.
+		 */
 		@Override
 		public Object resolve(Object value) throws InvalidTypeException {
 			if (value.getClass().getName().equals(typeName)) {
 				return value;
-			} else if (value instanceof Map || JsonUtil.isValidJsonString(value.toString())) {
-				final Object actualValue = tryGetActualValue(value);
-				return actualValue;
+			} else if (value instanceof Map) {
+				return EntityBinder.bind((Map<?, ?>) value, getTypeClass(value));
 			} else {
-				throw new InvalidTypeException(
-						String.format(INVALID_VALUE_MSG_TPLT, value, ClassNameUtil.getShortClassName(typeName)));
+				final String stringValue = value.toString();
+				try {
+					return JsonUtil.toObject(stringValue, getTypeClass(value));
+				} catch (IOException | RuntimeException e) {
+					throw new InvalidTypeException(String.format(INVALID_VALUE_MSG_TPLT, stringValue,
+							ClassNameUtil.getShortClassName(typeName)), e);
+				}
 			}
 		}
 
-		private Object tryGetActualValue(Object value) throws InvalidTypeException {
-			Object result;
-			String stringValue = null;
-			try {
-				if (value instanceof Map) {
-					stringValue = JsonUtil.toJsonString(value);
-				} else {
-					stringValue = value.toString();
-				}
-
-				Class<?> typeClass = DynamicClassLoader.getInstance().loadClass(typeName);
-				result = JsonUtil.toObject(stringValue, typeClass);
-			} catch (ClassNotFoundException | IllegalStateException | IOException e) {
+		private Class<?> getTypeClass(Object value) throws InvalidTypeException {
+			if (typeClass != null) {
+				return typeClass;
+			}
 
+			try {
+				return DynamicClassLoader.getInstance().loadClass(typeName);
+			} catch (ClassNotFoundException | IllegalStateException e) {
 				throw new InvalidTypeException(
-						String.format(INVALID_VALUE_MSG_TPLT, stringValue, ClassNameUtil.getShortClassName(typeName)),
-						e);
+						String.format(INVALID_VALUE_MSG_TPLT, value, ClassNameUtil.getShortClassName(typeName)), e);
 			}
-
-			return result;
 		}
 
 	}
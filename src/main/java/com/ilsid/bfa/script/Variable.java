@@ -1,22 +1,50 @@
 package com.ilsid.bfa.script;
 
+/**
+ * Script variable. The values of <i>Number</i>, <i>Decimal</i> and <i>Boolean</i> variables are additionally kept as
+ * primitives, so the compiled scripts do the arithmetic without boxing. The boxed value is created only when it is
+ * requested by {@link #getValue()}.
+ * 
+ * @author illia.sydorovych
+ *
+ */
 public class Variable {
+
+	private static final String INTEGER_TYPE = Integer.class.getName();
+
+	private static final String DOUBLE_TYPE = Double.class.getName();
+
+	private static final String BOOLEAN_TYPE = Boolean.class.getName();
+
+	private enum Kind {
+		OBJECT, INTEGER, DOUBLE, BOOLEAN
+	}
 	
 	private String name;
 	
 	private String javaType;
 	
 	private Object value;
+
+	private Kind kind;
+
+	private boolean primitiveIsSet;
+
+	private int intValue;
+
+	private double doubleValue;
+
+	private boolean booleanValue;
 	
 	public Variable(String name, String javaType) {
 		this.name = name;
 		this.javaType = javaType;
+		kind = resolveKind(javaType);
 	}
 	
 	public Variable(String name, String javaType, Object value) {
-		this.name = name;
-		this.javaType = javaType;
-		this.value = value;
+		this(name, javaType);
+		setValue(value);
 	}
 
 	public String getName() {
@@ -28,11 +56,157 @@ public class Variable {
 	}
 
 	public Object getValue() {
+		if (value == null && primitiveIsSet) {
+			value = boxPrimitive();
+		}
+
 		return value;
 	}
 	
 	public void setValue(Object value) {
 		this.value = value;
+		primitiveIsSet = false;
+		if (kind == Kind.INTEGER && value instanceof Integer) {
+			intValue = (Integer) value;
+			primitiveIsSet = true;
+		} else if (kind == Kind.DOUBLE && value instanceof Double) {
+			doubleValue = (Double) value;
+			primitiveIsSet = true;
+		} else if (kind == Kind.BOOLEAN && value instanceof Boolean) {
+			booleanValue = (Boolean) value;
+			primitiveIsSet = true;
+		}
+	}
+
+	/**
+	 * Returns the value of <i>Number</i> variable.
+	 * 
+	 * @return the primitive value
+	 * @throws NullPointerException
+	 *             if the value is not set
+	 */
+	public int getIntValue() {
+		checkPrimitiveIsSet();
+		return intValue;
+	}
+
+	/**
+	 * Sets the value of <i>Number</i> variable.
+	 * 
+	 * @param value
+	 *            the primitive value
+	 */
+	public void setIntValue(int value) {
+		intValue = value;
+		setPrimitive();
+	}
+
+	/**
+	 * Returns the value of <i>Decimal</i> variable.
+	 * 
+	 * @return the primitive value
+	 * @throws NullPointerException
+	 *             if the value is not set
+	 */
+	public double getDoubleValue() {
+		checkPrimitiveIsSet();
+		return doubleValue;
+	}
+
+	/**
+	 * Sets the value of <i>Decimal</i> variable.
+	 * 
+	 * @param value
+	 *            the primitive value
+	 */
+	public void setDoubleValue(double value) {
+		doubleValue = value;
+		setPrimitive();
+	}
+
+	/**
+	 * Returns the value of <i>Boolean</i> variable.
+	 * 
+	 * @return the primitive value
+	 * @throws NullPointerException
+	 *             if the value is not set
+	 */
+	public boolean getBooleanValue() {
+		checkPrimitiveIsSet();
+		return booleanValue;
+	}
+
+	/**
+	 * Sets the value of <i>Boolean</i> variable.
+	 * 
+	 * @param value
+	 *            the primitive value
+	 */
+	public void setBooleanValue(boolean value) {
+		booleanValue = value;
+		setPrimitive();
+	}
+
+	/**
+	 * Checks whether the variable has the given primitive type.
+	 * 
+	 * @param primitiveType
+	 *            the primitive type
+	 * @return <code>true</code> if the value of the given type is kept as primitive
+	 */
+	public boolean hasPrimitiveType(Class<?> primitiveType) {
+		switch (kind) {
+		case INTEGER:
+			return primitiveType == int.class;
+		case DOUBLE:
+			return primitiveType == double.class;
+		case BOOLEAN:
+			return primitiveType == boolean.class;
+		default:
+			return false;
+		}
+	}
+
+	private void setPrimitive() {
+		if (kind == Kind.OBJECT) {
+			throw new IllegalStateException(
+					String.format("The variable [%s] of type [%s] can't keep a primitive value", name, javaType));
+		}
+
+		// The boxed value is created on demand
+		value = null;
+		primitiveIsSet = true;
+	}
+
+	private void checkPrimitiveIsSet() {
+		if (!primitiveIsSet) {
+			throw new NullPointerException(String.format("The variable [%s] has no value", name));
+		}
+	}
+
+	private Object boxPrimitive() {
+		switch (kind) {
+		case INTEGER:
+			return intValue;
+		case DOUBLE:
+			return doubleValue;
+		case BOOLEAN:
+			return booleanValue;
+		default:
+			throw new IllegalStateException("Unexpected variable kind: " + kind);
+		}
+	}
+
+	private static Kind resolveKind(String javaType) {
+		if (INTEGER_TYPE.equals(javaType)) {
+			return Kind.INTEGER;
+		} else if (DOUBLE_TYPE.equals(javaType)) {
+			return Kind.DOUBLE;
+		} else if (BOOLEAN_TYPE.equals(javaType)) {
+			return Kind.BOOLEAN;
+		} else {
+			return Kind.OBJECT;
+		}
 	}
 	
 }
@@ -16,6 +16,8 @@ public final class Paths {
 
 	public final static String ACTION_SERVICE_ROOT = SERVICE_ROOT + "/action";
 
+	public final static String METRICS_SERVICE_ROOT = SERVICE_ROOT + "/metrics";
+
 	/*
 	 * Common Paths
 	 */
@@ -80,24 +82,58 @@ public final class Paths {
 
 	public final static String RUN_OPERATION = "run";
 
+	public final static String RUN_BATCH_OPERATION = "runBatch";
+
 	public final static String START_OPERATION = "start";
 
 	public final static String SCRIPT_GET_STATUS_OPERATION = "getStatus";
 
+	public final static String CANCEL_OPERATION = "cancel";
+
+	public final static String RESUME_OPERATION = "resume";
+
 	public final static String GET_MONITORING_SERVER_URL_OPERATION = "getMonitoringServerUrl";
 
+	public final static String GET_SLOW_FLOW_TRACES_OPERATION = "getSlowFlowTraces";
+
 	public final static String SCRIPT_RUN_SERVICE = SCRIPT_SERVICE_RUNTIME_ROOT + "/" + RUN_OPERATION;
 
+	public final static String SCRIPT_RUN_BATCH_SERVICE = SCRIPT_SERVICE_RUNTIME_ROOT + "/" + RUN_BATCH_OPERATION;
+
 	public final static String SCRIPT_START_SERVICE = SCRIPT_SERVICE_RUNTIME_ROOT + "/" + START_OPERATION;
 
 	public final static String SCRIPT_GET_STATUS_SERVICE = SCRIPT_SERVICE_RUNTIME_ROOT + "/"
 			+ SCRIPT_GET_STATUS_OPERATION;
 
+	public final static String SCRIPT_CANCEL_SERVICE = SCRIPT_SERVICE_RUNTIME_ROOT + "/" + CANCEL_OPERATION;
+
+	public final static String SCRIPT_RESUME_SERVICE = SCRIPT_SERVICE_RUNTIME_ROOT + "/" + RESUME_OPERATION;
+
 	public final static String SCRIPT_RUNTIME_FETCH_SERVICE = SCRIPT_SERVICE_RUNTIME_ROOT + "/" + FETCH_OPERATION;
 
 	public final static String SCRIPT_GET_RUNTIME_MONITORING_SERVER_URL_SERVICE = SCRIPT_SERVICE_RUNTIME_ROOT + "/"
 			+ GET_MONITORING_SERVER_URL_OPERATION;
 
+	public final static String SCRIPT_GET_SLOW_FLOW_TRACES_SERVICE = SCRIPT_SERVICE_RUNTIME_ROOT + "/"
+			+ GET_SLOW_FLOW_TRACES_OPERATION;
+
+	/*
+	 * Metrics
+	 */
+
+	public final static String GET_METRICS_OPERATION = "getMetrics";
+
+	public final static String GET_PROMETHEUS_METRICS_OPERATION = "getPrometheusMetrics";
+
+	public final static String GET_METRIC_VALUES_OPERATION = "getMetricValues";
+
+	public final static String GET_METRICS_SERVICE = METRICS_SERVICE_ROOT + "/" + GET_METRICS_OPERATION;
+
+	public final static String GET_METRIC_VALUES_SERVICE = METRICS_SERVICE_ROOT + "/" + GET_METRIC_VALUES_OPERATION;
+
+	public final static String GET_PROMETHEUS_METRICS_SERVICE = METRICS_SERVICE_ROOT + "/"
+			+ GET_PROMETHEUS_METRICS_OPERATION;
+
 	/*
 	 * Entity Administration
 	 */
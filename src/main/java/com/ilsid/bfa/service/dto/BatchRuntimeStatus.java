@@ -0,0 +1,41 @@
+package com.ilsid.bfa.service.dto;
+
+/**
+ * Represents the final state of the script executed for the particular input of the batch.
+ * 
+ * @author illia.sydorovych
+ *
+ */
+public class BatchRuntimeStatus {
+
+	private int inputIndex;
+
+	private RuntimeStatus status;
+
+	public BatchRuntimeStatus() {
+	}
+
+	public BatchRuntimeStatus(int inputIndex, RuntimeStatus status) {
+		this.inputIndex = inputIndex;
+		this.status = status;
+	}
+
+	/**
+	 * Returns the index of the input parameters in the batch request.
+	 * 
+	 * @return the input index
+	 */
+	public int getInputIndex() {
+		return inputIndex;
+	}
+
+	/**
+	 * Returns the script state.
+	 * 
+	 * @return the script state
+	 */
+	public RuntimeStatus getStatus() {
+		return status;
+	}
+
+}
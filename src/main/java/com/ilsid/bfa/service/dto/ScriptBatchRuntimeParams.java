@@ -0,0 +1,28 @@
+package com.ilsid.bfa.service.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ScriptBatchRuntimeParams {
+
+	private String name;
+
+	private List<Object[]> inputParameters = new ArrayList<>();
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public List<Object[]> getInputParameters() {
+		return inputParameters;
+	}
+
+	public void setInputParameters(List<Object[]> inputParameters) {
+		this.inputParameters = inputParameters;
+	}
+
+}
@@ -6,6 +6,8 @@ public class ScriptRuntimeParams {
 	
 	private Object[] inputParameters = new Object[] {};
 	
+	private long timeout;
+	
 	public String getName() {
 		return name;
 	}
@@ -21,5 +23,18 @@ public class ScriptRuntimeParams {
 	public void setInputParameters(Object[] inputParameters) {
 		this.inputParameters = inputParameters;
 	}
+
+	/**
+	 * Returns the maximum execution time of the script, in milliseconds.
+	 * 
+	 * @return the execution time or <code>0</code> if the time configured for the script must be applied
+	 */
+	public long getTimeout() {
+		return timeout;
+	}
+
+	public void setTimeout(long timeout) {
+		this.timeout = timeout;
+	}
 	
 }
@@ -3,6 +3,7 @@ package com.ilsid.bfa.service.server;
 import java.util.HashMap;
 import java.util.Map;
 
+import javax.inject.Provider;
 import javax.inject.Singleton;
 
 import org.slf4j.Logger;
@@ -12,6 +13,7 @@ import com.google.inject.Guice;
 import com.google.inject.Injector;
 import com.google.inject.Provides;
 import com.google.inject.servlet.GuiceServletContextListener;
+import com.ilsid.bfa.ConfigurationException;
 import com.ilsid.bfa.action.persistence.ActionClassLoader;
 import com.ilsid.bfa.action.persistence.ActionRepository;
 import com.ilsid.bfa.action.persistence.filesystem.FilesystemActionRepository;
@@ -25,9 +27,17 @@ import com.ilsid.bfa.persistence.cassandra.CassandraResourceManager;
 import com.ilsid.bfa.persistence.filesystem.FilesystemScriptingRepository;
 import com.ilsid.bfa.runtime.monitor.MonitoringServer;
 import com.ilsid.bfa.runtime.monitor.MonitoringServerConfig;
+import com.ilsid.bfa.runtime.persistence.CheckpointRepository;
+import com.ilsid.bfa.runtime.persistence.MeteredRuntimeRepository;
 import com.ilsid.bfa.runtime.persistence.RuntimeRepository;
+import com.ilsid.bfa.runtime.persistence.cassandra.CassandraCheckpointRepository;
 import com.ilsid.bfa.runtime.persistence.cassandra.CassandraRuntimeRepository;
+import com.ilsid.bfa.runtime.persistence.memory.InMemoryCheckpointRepository;
+import com.ilsid.bfa.runtime.persistence.memory.InMemoryRuntimeRepository;
+import com.ilsid.bfa.runtime.persistence.spool.WriteBehindRuntimeRepository;
 import com.ilsid.bfa.script.ClassCompiler;
+import com.ilsid.bfa.script.RuntimeConfig;
+import com.ilsid.bfa.script.ScriptRuntime;
 import com.ilsid.bfa.script.ScriptLogger;
 import com.sun.jersey.api.core.PackagesResourceConfig;
 import com.sun.jersey.api.json.JSONConfiguration;
@@ -51,22 +61,41 @@ public class ApplicationConfig extends GuiceServletContextListener {
 
 	private static final String SCRIPT_LOGGER_NAME = "script_logger";
 
+	private static final long RUNTIME_RECORDS_WRITE_TIMEOUT_MILLIS = 30000;
+
+	private static final String CONFIG_PROP_RUNTIME_REPOSITORY = "bfa.persistence.runtime.repository";
+
+	private static final String CASSANDRA_RUNTIME_REPOSITORY = "cassandra";
+
+	private static final String MEMORY_RUNTIME_REPOSITORY = "memory";
+
+	private Injector injector;
+
 	@Override
 	public void contextDestroyed(javax.servlet.ServletContextEvent servletContextEvent) {
 		super.contextDestroyed(servletContextEvent);
+		if (injector != null) {
+			injector.getInstance(ScriptRuntime.class).shutdown();
+			RuntimeRepository runtimeRepository = injector.getInstance(RuntimeRepository.class);
+			if (runtimeRepository instanceof WriteBehindRuntimeRepository) {
+				((WriteBehindRuntimeRepository) runtimeRepository).close(RUNTIME_RECORDS_WRITE_TIMEOUT_MILLIS);
+			}
+		}
 		CassandraResourceManager.releaseResources();
 		MonitoringServer.stop();
 	}
 
 	@Override
 	protected Injector getInjector() {
-		return Guice.createInjector(new JerseyServletModule() {
+		injector = Guice.createInjector(new JerseyServletModule() {
 
 			@Override
 			protected void configureServlets() {
 				bind(ScriptingRepository.class).to(FilesystemScriptingRepository.class).asEagerSingleton();
 				bind(ActionRepository.class).to(FilesystemActionRepository.class).asEagerSingleton();
-				bind(RuntimeRepository.class).to(CassandraRuntimeRepository.class).asEagerSingleton();
+				if (!MEMORY_RUNTIME_REPOSITORY.equals(getApplicationConfig().get(CONFIG_PROP_RUNTIME_REPOSITORY))) {
+					bind(CassandraRuntimeRepository.class).asEagerSingleton();
+				}
 
 				requestStaticInjection(DynamicClassLoader.class);
 				requestStaticInjection(ActionClassLoader.class);
@@ -110,6 +139,61 @@ public class ApplicationConfig extends GuiceServletContextListener {
 				return getApplicationConfig();
 			}
 
+			@Provides
+			@Singleton
+			@RuntimeConfig
+			protected Map<String, String> provideRuntimeConfiguration() {
+				return getApplicationConfig();
+			}
+
+			@Provides
+			@Singleton
+			protected RuntimeRepository provideRuntimeRepository(
+					Provider<CassandraRuntimeRepository> cassandraRepository,
+					Provider<InMemoryRuntimeRepository> memoryRepository, @PersistenceLogger Logger logger)
+					throws ConfigurationException {
+				final Map<String, String> config = getApplicationConfig();
+				final String repositoryType = config.get(CONFIG_PROP_RUNTIME_REPOSITORY);
+				if (MEMORY_RUNTIME_REPOSITORY.equals(repositoryType)) {
+					// The records are written to the memory faster than to the spool, so the write-behind mode is
+					// not applied
+					return MeteredRuntimeRepository.wrap(memoryRepository.get());
+				} else if (repositoryType != null && !CASSANDRA_RUNTIME_REPOSITORY.equals(repositoryType)) {
+					throw new ConfigurationException(String.format(
+							"The value of the configuration property [%s] must be one of: cassandra, memory",
+							CONFIG_PROP_RUNTIME_REPOSITORY));
+				}
+
+				final RuntimeRepository meteredRepository = MeteredRuntimeRepository.wrap(cassandraRepository.get());
+				if (!WriteBehindRuntimeRepository.isEnabled(config)) {
+					return meteredRepository;
+				}
+
+				// Cassandra inserts the whole record on its update, so the creation may be skipped
+				WriteBehindRuntimeRepository writeBehindRepository = new WriteBehindRuntimeRepository(
+						meteredRepository, true);
+				writeBehindRepository.setLogger(logger);
+				writeBehindRepository.setConfiguration(config);
+
+				return writeBehindRepository;
+			}
+
+			@Provides
+			@Singleton
+			protected CheckpointRepository provideCheckpointRepository(
+					Provider<CassandraCheckpointRepository> cassandraRepository,
+					Provider<InMemoryCheckpointRepository> memoryRepository) {
+				// The checkpoints are kept together with the runtime records. The memory repository is not used if
+				// the checkpoints are disabled
+				final Map<String, String> config = getApplicationConfig();
+				if (ScriptRuntime.isCheckpointingEnabled(config)
+						&& !MEMORY_RUNTIME_REPOSITORY.equals(config.get(CONFIG_PROP_RUNTIME_REPOSITORY))) {
+					return cassandraRepository.get();
+				}
+
+				return memoryRepository.get();
+			}
+
 			@Provides
 			@Singleton
 			@WebAppLogger
@@ -135,6 +219,8 @@ public class ApplicationConfig extends GuiceServletContextListener {
 				return ConfigUtil.getApplicationSettings();
 			}
 		});
+
+		return injector;
 	}
 
 }
@@ -0,0 +1,61 @@
+package com.ilsid.bfa.service.server;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+
+import com.ilsid.bfa.common.Metrics;
+import com.ilsid.bfa.service.common.Paths;
+
+/**
+ * Provides the application metrics: the counters and latencies of the scripts, actions, sub-flows, class loading,
+ * script compilation, runtime repository calls and lock waits, as well as the admission control gauges.
+ * 
+ * @author illia.sydorovych
+ *
+ */
+@Path(Paths.METRICS_SERVICE_ROOT)
+public class MetricsResource {
+
+	private static final String PROMETHEUS_TEXT_MEDIA_TYPE = "text/plain; version=0.0.4";
+
+	/**
+	 * Returns the current values of all metrics.
+	 * 
+	 * @return the response with the list of {@link Metrics.TimerSnapshot} instances
+	 */
+	@GET
+	@Produces(MediaType.APPLICATION_JSON)
+	@Path(Paths.GET_METRICS_OPERATION)
+	public Response getMetrics() {
+		return Response.status(Status.OK).entity(Metrics.getSnapshots()).build();
+	}
+
+	/**
+	 * Returns the current values of the gauges and counters, such as the number of the running and queued scripts.
+	 * 
+	 * @return the response with the map of the metric names to the values
+	 */
+	@GET
+	@Produces(MediaType.APPLICATION_JSON)
+	@Path(Paths.GET_METRIC_VALUES_OPERATION)
+	public Response getMetricValues() {
+		return Response.status(Status.OK).entity(Metrics.getValues()).build();
+	}
+
+	/**
+	 * Returns the current values of all metrics in the Prometheus text exposition format.
+	 * 
+	 * @return the response with the metrics text
+	 */
+	@GET
+	@Produces(PROMETHEUS_TEXT_MEDIA_TYPE)
+	@Path(Paths.GET_PROMETHEUS_METRICS_OPERATION)
+	public Response getPrometheusMetrics() {
+		return Response.status(Status.OK).entity(Metrics.toPrometheusText()).build();
+	}
+
+}
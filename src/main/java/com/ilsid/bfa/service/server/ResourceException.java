@@ -17,7 +17,7 @@ public class ResourceException extends WebApplicationException {
 
 	private String message;
 
-	private Status status = Status.BAD_REQUEST;
+	private int statusCode = Status.BAD_REQUEST.getStatusCode();
 
 	private boolean hasCause;
 
@@ -35,14 +35,24 @@ public class ResourceException extends WebApplicationException {
 		super(e);
 		this.path = path;
 		hasCause = true;
-		this.status = status;
+		this.statusCode = status.getStatusCode();
 		this.entity = entity;
 	}
 
+	/**
+	 * Creates the exception with the status code that has no {@link Status} constant, such as <code>429</code>.
+	 */
+	public ResourceException(String path, Throwable e, int statusCode) {
+		super(e);
+		this.path = path;
+		hasCause = true;
+		this.statusCode = statusCode;
+	}
+
 	public ResourceException(String path, String message, Status status) {
 		this.path = path;
 		this.message = message;
-		this.status = status;
+		this.statusCode = status.getStatusCode();
 	}
 
 	public String getMessage() {
@@ -53,8 +63,17 @@ public class ResourceException extends WebApplicationException {
 		return path;
 	}
 
+	/**
+	 * Returns the response status.
+	 * 
+	 * @return the status or <code>null</code> if the status code has no {@link Status} constant
+	 */
 	public Status getStatus() {
-		return status;
+		return Status.fromStatusCode(statusCode);
+	}
+
+	public int getStatusCode() {
+		return statusCode;
 	}
 
 	public boolean hasCause() {
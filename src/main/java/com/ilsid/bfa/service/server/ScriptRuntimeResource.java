@@ -1,25 +1,50 @@
 package com.ilsid.bfa.service.server;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 import javax.inject.Inject;
 import javax.ws.rs.Consumes;
-import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.StreamingOutput;
+
+import org.apache.commons.lang3.StringUtils;
 
+import com.ilsid.bfa.common.JsonUtil;
+import com.ilsid.bfa.manager.ManagementException;
+import com.ilsid.bfa.manager.ScriptManager;
+import com.ilsid.bfa.persistence.DynamicClassLoader;
 import com.ilsid.bfa.persistence.QueryPage;
+import com.ilsid.bfa.runtime.dto.FlowTraceDTO;
 import com.ilsid.bfa.runtime.dto.RuntimeStatusType;
 import com.ilsid.bfa.runtime.dto.ScriptRuntimeCriteria;
 import com.ilsid.bfa.runtime.dto.ScriptRuntimeDTO;
+import com.ilsid.bfa.script.EntityBinder;
+import com.ilsid.bfa.script.ScriptBatch;
 import com.ilsid.bfa.script.ScriptException;
+import com.ilsid.bfa.script.ScriptRejectedException;
 import com.ilsid.bfa.script.ScriptRuntime;
 import com.ilsid.bfa.service.common.Paths;
+import com.ilsid.bfa.service.dto.BatchRuntimeStatus;
+import com.ilsid.bfa.service.dto.OperationStatus;
 import com.ilsid.bfa.service.dto.RuntimeStatus;
+import com.ilsid.bfa.service.dto.RuntimeStatus.RuntimeStatusBuilder;
+import com.ilsid.bfa.service.dto.ScriptBatchRuntimeParams;
 import com.ilsid.bfa.service.dto.ScriptRuntimeParams;
 import com.ilsid.bfa.service.dto.ScriptRuntimeQuery;
 
@@ -32,20 +57,49 @@ import com.ilsid.bfa.service.dto.ScriptRuntimeQuery;
 @Path(Paths.SCRIPT_SERVICE_RUNTIME_ROOT)
 public class ScriptRuntimeResource {
 
+	private static final int TOO_MANY_REQUESTS_STATUS_CODE = 429;
+
+	private static final byte[] JSON_ARRAY_START = "[".getBytes(StandardCharsets.UTF_8);
+
+	private static final byte[] JSON_ARRAY_END = "]".getBytes(StandardCharsets.UTF_8);
+
+	private static final byte[] JSON_ELEMENTS_SEPARATOR = ",".getBytes(StandardCharsets.UTF_8);
+
+	/*
+	 * The declared types of the script input parameters, loaded from the stored script meta-data. The types are
+	 * dropped after classes reloading, as the scripts may be changed.
+	 */
+	private static final Map<String, Collection<String>> parameterTypes = new ConcurrentHashMap<>();
+
+	static {
+		DynamicClassLoader.addPermanentReloadListener(new DynamicClassLoader.ReloadListener() {
+
+			public void execute() {
+				parameterTypes.clear();
+			}
+		});
+	}
+
 	private ScriptRuntime scriptRuntime;
 
+	private ScriptManager scriptManager;
+
 	/**
-	 * Runs the script specified by the input parameters.
+	 * Runs the script specified by the input parameters. The JSON objects passed as the input parameters are bound to
+	 * the entity types declared by the script.
 	 * 
 	 * @param script
 	 *            the script parameters. The script name must be specified. If the group is not specified, then the
-	 *            script is searched within the Default Group.
+	 *            script is searched within the Default Group. If the timeout is specified, the script is cancelled
+	 *            when its execution takes longer.
 	 * @return the response with {@link RuntimeStatus} instance including the script runtime identifier.
 	 * @throws ResourceException
 	 *             <ul>
 	 *             <li>if the script with the specified name does not exist in the the specified group</li>
-	 *             <li>if the execution of the script failed</li>
+	 *             <li>if the execution of the script failed, was cancelled or its timeout was exceeded</li>
 	 *             <li>in case of the repository access failure</li>
+	 *             <li>if the script is rejected as the runtime concurrency limits are exceeded. The response status is
+	 *             <code>429 Too Many Requests</code> in this case</li>
 	 *             </ul>
 	 */
 	@POST
@@ -57,10 +111,13 @@ public class ScriptRuntimeResource {
 		try {
 			final Object[] params = script.getInputParameters();
 			if (params != null && params.length > 0) {
-				runtimeId = scriptRuntime.runScript(script.getName(), params);
+				runtimeId = scriptRuntime.runScript(script.getName(), bindInputParameters(script.getName(), params),
+						script.getTimeout());
 			} else {
-				runtimeId = scriptRuntime.runScript(script.getName());
+				runtimeId = scriptRuntime.runScript(script.getName(), new Object[] {}, script.getTimeout());
 			}
+		} catch (ScriptRejectedException e) {
+			throw new ResourceException(Paths.SCRIPT_RUN_SERVICE, e, TOO_MANY_REQUESTS_STATUS_CODE);
 		} catch (ScriptException e) {
 			throw new ResourceException(Paths.SCRIPT_RUN_SERVICE, e);
 		}
@@ -69,19 +126,198 @@ public class ScriptRuntimeResource {
 		return Response.status(Status.OK).entity(status).build();
 	}
 
+	/**
+	 * Runs the script specified by the batch parameters once for each of the given inputs. The scripts are executed in
+	 * parallel in the runtime pool. The response is a JSON array of {@link BatchRuntimeStatus} instances. Each element
+	 * is streamed as soon as the corresponding script completes, so the order of the elements differs from the order
+	 * of the inputs.
+	 * 
+	 * @param batch
+	 *            the batch parameters. The script name must be specified. If the group is not specified, then the
+	 *            script is searched within the Default Group.
+	 * @return the streamed response with the state of each script execution
+	 * @throws ResourceException
+	 *             if the script with the specified name does not exist in the the specified group
+	 */
+	@POST
+	@Consumes(MediaType.APPLICATION_JSON)
+	@Produces(MediaType.APPLICATION_JSON)
+	@Path(Paths.RUN_BATCH_OPERATION)
+	public Response runBatch(ScriptBatchRuntimeParams batch) {
+		List<Object[]> inputs = batch.getInputParameters();
+		if (inputs == null) {
+			inputs = Collections.emptyList();
+		}
+
+		List<Object[]> boundInputs = new ArrayList<>(inputs.size());
+		for (Object[] params : inputs) {
+			boundInputs.add(params != null ? bindInputParameters(batch.getName(), params) : null);
+		}
+
+		final ScriptBatch scriptBatch;
+		try {
+			scriptBatch = scriptRuntime.runBatch(batch.getName(), boundInputs);
+		} catch (ScriptException e) {
+			throw new ResourceException(Paths.SCRIPT_RUN_BATCH_SERVICE, e);
+		}
+
+		StreamingOutput resultStream = new StreamingOutput() {
+
+			public void write(OutputStream output) throws IOException, WebApplicationException {
+				output.write(JSON_ARRAY_START);
+				boolean first = true;
+				while (scriptBatch.hasNext()) {
+					ScriptBatch.Result result;
+					try {
+						result = scriptBatch.next();
+					} catch (ScriptException e) {
+						throw new IOException(e);
+					}
+
+					if (!first) {
+						output.write(JSON_ELEMENTS_SEPARATOR);
+					}
+					first = false;
+
+					BatchRuntimeStatus status = new BatchRuntimeStatus(result.getInputIndex(),
+							toRuntimeStatus(result.getState()));
+					output.write(JsonUtil.toJsonString(status).getBytes(StandardCharsets.UTF_8));
+					output.flush();
+				}
+				output.write(JSON_ARRAY_END);
+			}
+		};
+
+		return Response.status(Status.OK).entity(resultStream).build();
+	}
+
+	/**
+	 * Starts the script specified by the input parameters asynchronously. The script is queued for the execution and
+	 * the response is returned immediately. The script state can be queried with {@link #getStatus(String)}.
+	 * 
+	 * @param script
+	 *            the script parameters. The script name must be specified. If the group is not specified, then the
+	 *            script is searched within the Default Group. If the timeout is specified, the script is cancelled
+	 *            when its execution takes longer.
+	 * @return the response with {@link RuntimeStatus} instance including the script runtime identifier and
+	 *         {@link RuntimeStatusType#INPROGRESS} status.
+	 * @throws ResourceException
+	 *             <ul>
+	 *             <li>if the script can't be queued for the execution. The response status is
+	 *             <code>429 Too Many Requests</code> if the runtime pool is saturated or the runtime concurrency
+	 *             limits are exceeded</li>
+	 *             <li>in case of the repository access failure</li>
+	 *             </ul>
+	 */
 	@POST
 	@Consumes(MediaType.APPLICATION_JSON)
 	@Produces(MediaType.APPLICATION_JSON)
 	@Path(Paths.START_OPERATION)
-	public Response start(String scriptName) {
-		return Response.status(Status.NOT_FOUND).build();
+	public Response start(ScriptRuntimeParams script) {
+		Object runtimeId;
+		try {
+			final Object[] params = script.getInputParameters();
+			if (params != null && params.length > 0) {
+				runtimeId = scriptRuntime.startScript(script.getName(), params, script.getTimeout());
+			} else {
+				runtimeId = scriptRuntime.startScript(script.getName(), new Object[] {}, script.getTimeout());
+			}
+		} catch (ScriptRejectedException e) {
+			throw new ResourceException(Paths.SCRIPT_START_SERVICE, e, TOO_MANY_REQUESTS_STATUS_CODE);
+		} catch (ScriptException e) {
+			throw new ResourceException(Paths.SCRIPT_START_SERVICE, e);
+		}
+		RuntimeStatus status = RuntimeStatus.runtimeId(runtimeId).statusType(RuntimeStatusType.INPROGRESS).build();
+
+		return Response.status(Status.OK).entity(status).build();
 	}
 
+	/**
+	 * Returns the state of the script started with {@link #start(ScriptRuntimeParams)}.
+	 * 
+	 * @param runtimeId
+	 *            the script runtime identifier
+	 * @return the response with {@link RuntimeStatus} instance
+	 * @throws ResourceException
+	 *             if the state of the script with such runtime identifier is not available
+	 */
 	@GET
 	@Produces(MediaType.APPLICATION_JSON)
 	@Path(Paths.SCRIPT_GET_STATUS_OPERATION)
-	public Response getStatus(@DefaultValue("0") @QueryParam("runtimeId") Integer runtimeId) {
-		return Response.status(Status.NOT_FOUND).build();
+	public Response getStatus(@QueryParam("runtimeId") String runtimeId) {
+		ScriptRuntimeDTO state = null;
+		if (runtimeId != null) {
+			state = scriptRuntime.getScriptState(runtimeId);
+		}
+
+		if (state == null) {
+			throw new ResourceException(Paths.SCRIPT_GET_STATUS_SERVICE,
+					String.format("The state of the script with runtime id [%s] is not available", runtimeId),
+					Status.NOT_FOUND);
+		}
+
+		return Response.status(Status.OK).entity(toRuntimeStatus(state)).build();
+	}
+
+	/**
+	 * Cancels the running script. The script is stopped at the nearest action, sub-flow or condition and is recorded as
+	 * failed.
+	 * 
+	 * @param runtimeId
+	 *            the script runtime identifier
+	 * @return the response with {@link OperationStatus#SUCCESS}
+	 * @throws ResourceException
+	 *             if the script with such runtime identifier is not running or has already been cancelled
+	 */
+	@POST
+	@Produces(MediaType.APPLICATION_JSON)
+	@Path(Paths.CANCEL_OPERATION)
+	public Response cancel(@QueryParam("runtimeId") String runtimeId) {
+		if (runtimeId == null || !scriptRuntime.cancelScript(runtimeId)) {
+			throw new ResourceException(Paths.SCRIPT_CANCEL_SERVICE,
+					String.format("The script with runtime id [%s] is not running", runtimeId), Status.NOT_FOUND);
+		}
+
+		return Response.status(Status.OK).entity(OperationStatus.SUCCESS).build();
+	}
+
+	/**
+	 * Resumes the failed script from its last checkpoint. The actions completed by the failed run are not called
+	 * again.
+	 * 
+	 * @param runtimeId
+	 *            the runtime identifier of the failed script
+	 * @return the response with {@link RuntimeStatus} instance including the script runtime identifier
+	 * @throws ResourceException
+	 *             <ul>
+	 *             <li>if the script with such runtime identifier is running or has no checkpoints</li>
+	 *             <li>if the execution of the resumed script failed</li>
+	 *             <li>in case of the repository access failure</li>
+	 *             <li>if the script is rejected as the runtime concurrency limits are exceeded. The response status is
+	 *             <code>429 Too Many Requests</code> in this case</li>
+	 *             </ul>
+	 */
+	@POST
+	@Produces(MediaType.APPLICATION_JSON)
+	@Path(Paths.RESUME_OPERATION)
+	public Response resume(@QueryParam("runtimeId") String runtimeId) {
+		if (runtimeId == null) {
+			throw new ResourceException(Paths.SCRIPT_RESUME_SERVICE, "The runtime id must be specified",
+					Status.BAD_REQUEST);
+		}
+
+		Object resumedRuntimeId;
+		try {
+			resumedRuntimeId = scriptRuntime.resumeScript(runtimeId);
+		} catch (ScriptRejectedException e) {
+			throw new ResourceException(Paths.SCRIPT_RESUME_SERVICE, e, TOO_MANY_REQUESTS_STATUS_CODE);
+		} catch (ScriptException e) {
+			throw new ResourceException(Paths.SCRIPT_RESUME_SERVICE, e);
+		}
+		RuntimeStatus status = RuntimeStatus.runtimeId(resumedRuntimeId).statusType(RuntimeStatusType.COMPLETED)
+				.build();
+
+		return Response.status(Status.OK).entity(status).build();
 	}
 
 	/**
@@ -126,9 +362,51 @@ public class ScriptRuntimeResource {
 		return scriptRuntime.getMonitoringServerURL();
 	}
 
+	/**
+	 * Returns the step traces of the latest scripts that exceeded the configured latency threshold or failed.
+	 * 
+	 * @return the response with the list of {@link FlowTraceDTO} instances, the most recent first. The list is empty
+	 *         if the tracing is disabled
+	 */
+	@GET
+	@Produces(MediaType.APPLICATION_JSON)
+	@Path(Paths.GET_SLOW_FLOW_TRACES_OPERATION)
+	public Response getSlowFlowTraces() {
+		return Response.status(Status.OK).entity(scriptRuntime.getSlowFlowTraces()).build();
+	}
+
+	private Object[] bindInputParameters(String scriptName, Object[] params) {
+		Collection<String> types = parameterTypes.get(scriptName);
+		if (types == null) {
+			try {
+				types = scriptManager.getScriptParametersMetadata(scriptName).values();
+			} catch (ManagementException e) {
+				// The script itself reports the failure
+				return params;
+			}
+			parameterTypes.put(scriptName, types);
+		}
+
+		return EntityBinder.bindInputParameters(params, types);
+	}
+
+	private RuntimeStatus toRuntimeStatus(ScriptRuntimeDTO state) {
+		RuntimeStatusBuilder status = RuntimeStatus.runtimeId(state.getRuntimeId()).statusType(state.getStatus());
+		if (state.getErrorDetails() != null) {
+			status.errorDetails(StringUtils.join(state.getErrorDetails(), StringUtils.LF));
+		}
+
+		return status.build();
+	}
+
 	@Inject
 	public void setScriptRuntime(ScriptRuntime scriptRuntime) {
 		this.scriptRuntime = scriptRuntime;
 	}
 
+	@Inject
+	public void setScriptManager(ScriptManager scriptManager) {
+		this.scriptManager = scriptManager;
+	}
+
 }
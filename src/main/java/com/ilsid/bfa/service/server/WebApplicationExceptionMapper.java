@@ -18,19 +18,29 @@ public class WebApplicationExceptionMapper implements ExceptionMapper<ResourceEx
 
 	private static final String ERROR_MESSAGE_TEMPLATE = "Service [{}] failed";
 
+	private static final String REJECTION_MESSAGE_TEMPLATE = "Service [{}] rejected the request: {}";
+
+	private static final int TOO_MANY_REQUESTS_STATUS_CODE = 429;
+
 	private Logger logger;
 
 	/**
-	 * Logs the exception if the logger is defined and returns response with the exception's status and entity.
+	 * Logs the exception if the logger is defined and returns response with the exception's status and entity. The
+	 * rejections caused by the overload are logged as warnings without the stack trace, as they are expected under
+	 * the high load.
 	 * 
 	 * @return response for the given exception
 	 */
 	public Response toResponse(ResourceException exception) {
 		if (logger != null) {
-			logger.error(ERROR_MESSAGE_TEMPLATE, exception.getPath(), exception.getActualCause());
+			if (exception.getStatusCode() == TOO_MANY_REQUESTS_STATUS_CODE) {
+				logger.warn(REJECTION_MESSAGE_TEMPLATE, exception.getPath(), exception.getActualCause().getMessage());
+			} else {
+				logger.error(ERROR_MESSAGE_TEMPLATE, exception.getPath(), exception.getActualCause());
+			}
 		}
 
-		return Response.status(exception.getStatus()).entity(exception.getEntity()).build();
+		return Response.status(exception.getStatusCode()).entity(exception.getEntity()).build();
 	}
 
 	/**
@@ -13,6 +13,7 @@ CREATE PROPERTY FlowRuntime.startTime DATETIME;
 CREATE PROPERTY FlowRuntime.endTime DATETIME;
 CREATE PROPERTY FlowRuntime.callStack EMBEDDEDLIST;
 CREATE PROPERTY FlowRuntime.errorDetails EMBEDDEDLIST;
+CREATE PROPERTY FlowRuntime.inlinedSubflows EMBEDDEDLIST;
 
 CREATE INDEX FlowRuntime.runtimeId NOTUNIQUE;
 CREATE INDEX FlowRuntime.runtimeId_scriptName ON FlowRuntime (runtimeId, scriptName) UNIQUE;
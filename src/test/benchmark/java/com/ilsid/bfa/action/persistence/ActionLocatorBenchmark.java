@@ -0,0 +1,55 @@
+package com.ilsid.bfa.action.persistence;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.ilsid.bfa.TestConstants;
+import com.ilsid.bfa.action.Action;
+import com.ilsid.bfa.action.ActionException;
+import com.ilsid.bfa.action.persistence.filesystem.ActionRepositoryInitializer;
+
+/**
+ * Measures the lookup of the action from the test code repository.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ActionLocatorBenchmark {
+
+	private static final String ACTION_NAME = "Reserve Amount";
+
+	private ActionLocator actionLocator;
+
+	@Setup
+	public void setUp() throws Exception {
+		actionLocator = new ActionLocator();
+		actionLocator.setRepository(ActionRepositoryInitializer.init());
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		Files.deleteIfExists(new File(TestConstants.CODE_REPOSITORY_DIR, ".version").toPath());
+	}
+
+	@Benchmark
+	public Action lookup() throws ActionException {
+		return actionLocator.lookup(ACTION_NAME);
+	}
+
+}
@@ -0,0 +1,56 @@
+package com.ilsid.bfa.persistence;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.ilsid.bfa.script.ScriptingRepositoryInitializer;
+
+/**
+ * Measures the loading of the generated class from the test code repository with the warm and the cold class cache.
+ * The reloading defines anew every cached class. Only the measured class is cached in the benchmark fork, so the cold
+ * case measures the single class loading from the repository.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DynamicClassLoaderBenchmark {
+
+	private static final String CLASS_NAME = "com.ilsid.bfa.generated.classloadertest.FooContract";
+
+	@Setup
+	public void setUp() throws Exception {
+		ScriptingRepositoryInitializer.init();
+		DynamicClassLoader.getInstance().loadClass(CLASS_NAME);
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		ScriptingRepositoryInitializer.cleanup();
+	}
+
+	@Benchmark
+	public Class<?> loadClassWithWarmCache() throws ClassNotFoundException {
+		return DynamicClassLoader.getInstance().loadClass(CLASS_NAME);
+	}
+
+	@Benchmark
+	public Class<?> loadClassWithColdCache() throws ClassNotFoundException {
+		DynamicClassLoader.reloadClasses();
+		return DynamicClassLoader.getInstance().loadClass(CLASS_NAME);
+	}
+
+}
@@ -0,0 +1,61 @@
+package com.ilsid.bfa.script;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.ilsid.bfa.common.IOHelper;
+
+/**
+ * Measures the compilation of the script and entity classes. The same class names are compiled repeatedly, as the
+ * script updates do.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClassCompilerBenchmark {
+
+	private static final String SCRIPT_CLASS_NAME = "com.ilsid.bfa.test.generated.BenchmarkScript";
+
+	private static final String ENTITY_CLASS_NAME = "com.ilsid.bfa.test.generated.entity.BenchmarkEntity";
+
+	private static final String ENTITY_BODY = "java.lang.Integer Days; java.lang.Double MonthlyFee; "
+			+ "com.ilsid.bfa.generated.compilertest.GeneratedContract Contract";
+
+	private String scriptBody;
+
+	@Setup
+	public void setUp() throws Exception {
+		ScriptingRepositoryInitializer.init();
+		scriptBody = IOHelper.loadScript("several-actions-and-subflows-with-params-script.txt");
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		ScriptingRepositoryInitializer.cleanup();
+	}
+
+	@Benchmark
+	public byte[] compileScript() throws ClassCompilationException {
+		return ClassCompiler.compileScript(SCRIPT_CLASS_NAME, scriptBody).getByteCode();
+	}
+
+	@Benchmark
+	public byte[] compileEntity() throws ClassCompilationException {
+		return ClassCompiler.compileEntity(ENTITY_CLASS_NAME, ENTITY_BODY);
+	}
+
+}
@@ -0,0 +1,94 @@
+package com.ilsid.bfa.script;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.ilsid.bfa.ConfigurationException;
+import com.ilsid.bfa.action.persistence.ActionLocator;
+import com.ilsid.bfa.action.persistence.filesystem.ActionRepositoryInitializer;
+import com.ilsid.bfa.persistence.PersistenceException;
+import com.ilsid.bfa.persistence.QueryPage;
+import com.ilsid.bfa.persistence.QueryPagingOptions;
+import com.ilsid.bfa.runtime.dto.ScriptRuntimeCriteria;
+import com.ilsid.bfa.runtime.dto.ScriptRuntimeDTO;
+import com.ilsid.bfa.runtime.persistence.RuntimeRepository;
+
+/**
+ * Measures the synchronous script execution. The script with a sub-flow is loaded from the test code repository. The
+ * runtime records are discarded by the in-memory repository stand-in, so only the runtime overhead is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RunScriptBenchmark {
+
+	private static final String SCRIPT_NAME = "SingleSubflowScript";
+
+	private ScriptRuntime runtime;
+
+	@Setup
+	public void setUp() throws Exception {
+		ScriptingRepositoryInitializer.init();
+		ActionLocator actionLocator = new ActionLocator();
+		actionLocator.setRepository(ActionRepositoryInitializer.init());
+
+		runtime = new ScriptRuntime();
+		runtime.setRepository(new DiscardingRuntimeRepository());
+		runtime.setActionLocator(actionLocator);
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		runtime.shutdown();
+		ScriptingRepositoryInitializer.cleanup();
+	}
+
+	@Benchmark
+	public Object runScript() throws ScriptException {
+		return runtime.runScript(SCRIPT_NAME);
+	}
+
+	/**
+	 * Generates the runtime identifiers and does not keep the runtime records.
+	 */
+	private static class DiscardingRuntimeRepository implements RuntimeRepository {
+
+		private final AtomicLong runtimeIdSequence = new AtomicLong();
+
+		public void setConfiguration(Map<String, String> config) throws ConfigurationException {
+		}
+
+		public Object getNextRuntimeId() throws PersistenceException {
+			return runtimeIdSequence.incrementAndGet();
+		}
+
+		public void createRuntimeRecord(ScriptRuntimeDTO record) throws PersistenceException {
+		}
+
+		public void updateRuntimeRecord(ScriptRuntimeDTO record) throws PersistenceException {
+		}
+
+		public QueryPage<ScriptRuntimeDTO> fetch(ScriptRuntimeCriteria criteria, QueryPagingOptions pagingOptions)
+				throws PersistenceException {
+			throw new UnsupportedOperationException();
+		}
+
+	}
+
+}
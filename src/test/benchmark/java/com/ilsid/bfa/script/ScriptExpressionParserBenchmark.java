@@ -0,0 +1,58 @@
+package com.ilsid.bfa.script;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the parsing of the typical script expressions.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScriptExpressionParserBenchmark {
+
+	private ScriptExpressionParser parser;
+
+	@Setup
+	public void setUp() {
+		ScriptContext context = ScriptContextUtil.createContext(new Variable("Var1", "java.lang.Integer", 3),
+				new Variable("Var2", "java.lang.Integer", 1), new Variable("Var3", "java.lang.Double", 2.5),
+				new Variable("Var4", "java.lang.String", "abc"));
+		context.setScriptName("BenchmarkScript");
+		parser = new ScriptExpressionParser(context);
+	}
+
+	@Benchmark
+	public String parseConstant() throws ParsingException {
+		return parser.parse("1");
+	}
+
+	@Benchmark
+	public String parseVariable() throws ParsingException {
+		return parser.parse("Var4");
+	}
+
+	@Benchmark
+	public String parseArithmetics() throws ParsingException {
+		return parser.parse("Var1 - Var2 + 5");
+	}
+
+	@Benchmark
+	public String parsePrimitiveArithmetics() throws ParsingException {
+		return parser.parsePrimitive("Var3 * 2.0", double.class);
+	}
+
+}
@@ -0,0 +1,59 @@
+package com.ilsid.bfa.script;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.ilsid.bfa.common.IOHelper;
+
+/**
+ * Measures the preprocessing of the script source with several actions, sub-flows and expressions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScriptSourcePreprocessorBenchmark {
+
+	private static final String SCRIPT_FILE_NAME = "several-actions-and-subflows-with-params-script.txt";
+
+	private String source;
+
+	private String sourceAfterVarargsProcessing;
+
+	@Setup
+	public void setUp() throws Exception {
+		// The entities referred by the script are resolved from the test code repository
+		ScriptingRepositoryInitializer.init();
+		source = IOHelper.loadScript(SCRIPT_FILE_NAME);
+		sourceAfterVarargsProcessing = ScriptSourcePreprocessor.processVarargs(source);
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		ScriptingRepositoryInitializer.cleanup();
+	}
+
+	@Benchmark
+	public String processVarargs() {
+		return ScriptSourcePreprocessor.processVarargs(source);
+	}
+
+	@Benchmark
+	public Object processExpressions() throws ParsingException {
+		return ScriptSourcePreprocessor.processExpressions(sourceAfterVarargsProcessing);
+	}
+
+}
@@ -0,0 +1,126 @@
+package com.ilsid.bfa.script;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.ilsid.bfa.action.persistence.ActionLocator;
+import com.ilsid.bfa.action.persistence.filesystem.ActionRepositoryInitializer;
+import com.ilsid.bfa.runtime.dto.RuntimeStatusType;
+import com.ilsid.bfa.runtime.dto.ScriptRuntimeDTO;
+
+/**
+ * Compares the throughput of the asynchronous script execution in platform and virtual thread modes. The runtime
+ * repository simulates a blocking I/O on each runtime record update. The platform thread mode queues the scripts
+ * exceeding the pool size. The virtual thread mode has no queue, so its pool size allows all the started scripts to run
+ * at once. The virtual thread mode requires Java 21 or later. It is skipped on the older Java runtimes: the benchmark
+ * does nothing and its result must be ignored.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StartScriptBenchmark {
+
+	private static final String SCRIPT_NAME = "SingleSubflowScript";
+
+	private static final int SCRIPTS_COUNT = 1000;
+
+	@Param({ "platform", "virtual" })
+	private String mode;
+
+	@Param({ "200" })
+	private int poolSize;
+
+	@Param({ "20" })
+	private long latencyMillis;
+
+	private ScriptRuntime runtime;
+
+	private boolean skipped;
+
+	@Setup
+	public void setUp() throws Exception {
+		final boolean virtualMode = "virtual".equals(mode);
+		if (virtualMode && !ScriptExecutionPool.isVirtualThreadSupported()) {
+			System.err.println("The virtual thread mode is not supported by Java " + System.getProperty("java.version")
+					+ ". The benchmark is skipped, its result must be ignored");
+			skipped = true;
+			return;
+		}
+
+		ScriptingRepositoryInitializer.init();
+		ActionLocator actionLocator = new ActionLocator();
+		actionLocator.setRepository(ActionRepositoryInitializer.init());
+
+		Map<String, String> config = new HashMap<>();
+		config.put("bfa.runtime.execution_mode", mode);
+		// The virtual thread mode rejects the scripts exceeding the pool size instead of queuing them
+		config.put("bfa.runtime.pool_size", String.valueOf(virtualMode ? SCRIPTS_COUNT : poolSize));
+		config.put("bfa.runtime.queue_size", String.valueOf(SCRIPTS_COUNT));
+		config.put("bfa.runtime.state_cache_size", String.valueOf(SCRIPTS_COUNT));
+
+		runtime = new ScriptRuntime();
+		runtime.setRepository(new StubRuntimeRepository(latencyMillis));
+		runtime.setActionLocator(actionLocator);
+		runtime.setRuntimeConfig(config);
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		if (skipped) {
+			return;
+		}
+
+		runtime.shutdown();
+		ScriptingRepositoryInitializer.cleanup();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SCRIPTS_COUNT)
+	public void startScripts() throws Exception {
+		if (skipped) {
+			return;
+		}
+
+		final List<Object> runtimeIds = new ArrayList<>(SCRIPTS_COUNT);
+		for (int i = 0; i < SCRIPTS_COUNT; i++) {
+			runtimeIds.add(runtime.startScript(SCRIPT_NAME));
+		}
+
+		for (Object runtimeId : runtimeIds) {
+			awaitCompletion(runtimeId);
+		}
+	}
+
+	private void awaitCompletion(Object runtimeId) throws Exception {
+		ScriptRuntimeDTO state = runtime.getScriptState(runtimeId);
+		while (state.getStatus() == RuntimeStatusType.INPROGRESS) {
+			TimeUnit.MILLISECONDS.sleep(1);
+			state = runtime.getScriptState(runtimeId);
+		}
+
+		if (state.getStatus() != RuntimeStatusType.COMPLETED) {
+			throw new IllegalStateException("Script failed: " + state.getErrorDetails());
+		}
+	}
+
+}
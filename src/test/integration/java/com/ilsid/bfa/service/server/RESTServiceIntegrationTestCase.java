@@ -31,9 +31,12 @@ import com.ilsid.bfa.persistence.RepositoryConfig;
 import com.ilsid.bfa.persistence.ScriptingRepository;
 import com.ilsid.bfa.persistence.cassandra.CassandraServerManager;
 import com.ilsid.bfa.runtime.monitor.MonitoringServerConfig;
+import com.ilsid.bfa.runtime.persistence.CheckpointRepository;
 import com.ilsid.bfa.runtime.persistence.RuntimeRepository;
 import com.ilsid.bfa.runtime.persistence.cassandra.CassandraRuntimeRepository;
+import com.ilsid.bfa.runtime.persistence.memory.InMemoryCheckpointRepository;
 import com.ilsid.bfa.script.ClassCompiler;
+import com.ilsid.bfa.script.RuntimeConfig;
 import com.ilsid.bfa.script.ScriptLogger;
 import com.sun.jersey.api.client.Client;
 import com.sun.jersey.api.client.WebResource;
@@ -116,12 +119,22 @@ public abstract class RESTServiceIntegrationTestCase extends BaseUnitTestCase {
 
 		private final Map<String, String> repositoryConfig;
 
+		private final Class<? extends RuntimeRepository> runtimeRepositoryClass;
+
 		public TestApplicationConfig(Class<? extends ScriptingRepository> scriptingRepositoryClass,
 				Class<? extends ActionRepository> actionRepositoryClass, Map<String, String> repositoryConfig) {
 
+			this(scriptingRepositoryClass, actionRepositoryClass, repositoryConfig, CassandraRuntimeRepository.class);
+		}
+
+		public TestApplicationConfig(Class<? extends ScriptingRepository> scriptingRepositoryClass,
+				Class<? extends ActionRepository> actionRepositoryClass, Map<String, String> repositoryConfig,
+				Class<? extends RuntimeRepository> runtimeRepositoryClass) {
+
 			this.scriptingRepositoryClass = scriptingRepositoryClass;
 			this.actionRepositoryClass = actionRepositoryClass;
 			this.repositoryConfig = repositoryConfig;
+			this.runtimeRepositoryClass = runtimeRepositoryClass;
 		}
 
 		@Override
@@ -137,7 +150,8 @@ public abstract class RESTServiceIntegrationTestCase extends BaseUnitTestCase {
 				protected void configureServlets() {
 					bind(ScriptingRepository.class).to(scriptingRepositoryClass).in(Singleton.class);
 					bind(ActionRepository.class).to(actionRepositoryClass).in(Singleton.class);
-					bind(RuntimeRepository.class).to(CassandraRuntimeRepository.class).in(Singleton.class);
+					bind(RuntimeRepository.class).to(runtimeRepositoryClass).in(Singleton.class);
+					bind(CheckpointRepository.class).to(InMemoryCheckpointRepository.class).in(Singleton.class);
 
 					requestStaticInjection(DynamicClassLoader.class);
 					requestStaticInjection(ActionClassLoader.class);
@@ -180,6 +194,13 @@ public abstract class RESTServiceIntegrationTestCase extends BaseUnitTestCase {
 					return repositoryConfig;
 				}
 
+				@Provides
+				@Singleton
+				@RuntimeConfig
+				protected Map<String, String> provideRuntimeConfiguration() {
+					return repositoryConfig;
+				}
+
 				@Provides
 				@Singleton
 				@WebAppLogger
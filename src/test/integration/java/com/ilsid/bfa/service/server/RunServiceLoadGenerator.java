@@ -0,0 +1,306 @@
+package com.ilsid.bfa.service.server;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response.Status;
+
+import org.apache.commons.io.FileUtils;
+
+import com.ilsid.bfa.TestConstants;
+import com.ilsid.bfa.action.persistence.filesystem.FilesystemActionRepository;
+import com.ilsid.bfa.common.LatencyHistogram;
+import com.ilsid.bfa.common.LoggingConfigurator;
+import com.ilsid.bfa.main.HttpServer;
+import com.ilsid.bfa.persistence.filesystem.FilesystemScriptingRepository;
+import com.ilsid.bfa.runtime.monitor.MonitoringServer;
+import com.ilsid.bfa.runtime.persistence.memory.InMemoryRuntimeRepository;
+import com.ilsid.bfa.service.common.Paths;
+import com.ilsid.bfa.service.dto.ScriptAdminParams;
+import com.ilsid.bfa.service.dto.ScriptRuntimeParams;
+import com.sun.jersey.api.client.Client;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.WebResource;
+import com.sun.jersey.api.client.config.ClientConfig;
+import com.sun.jersey.api.client.config.DefaultClientConfig;
+import com.sun.jersey.api.json.JSONConfiguration;
+
+/**
+ * Load generator for the script run service. Starts {@link HttpServer} with the file system code repository and
+ * {@link InMemoryRuntimeRepository}, creates the synthetic scripts and runs them concurrently via
+ * {@link Paths#SCRIPT_RUN_SERVICE}. The throughput and the latency percentiles are printed to the standard output.
+ * <p>
+ * The generator is not a test and is run manually, for example:
+ * </p>
+ *
+ * <pre>
+ * mvn pre-integration-test
+ * java -cp target/classes:target/test-classes:target/integration-test-classes:&lt;dependencies&gt;
+ *   -Dload.concurrency=32 -Dload.payload=mixed com.ilsid.bfa.service.server.RunServiceLoadGenerator
+ * </pre>
+ * <p>
+ * The supported system properties:
+ * </p>
+ * <ul>
+ * <li><code>load.concurrency</code> - the number of the client threads, 16 by default</li>
+ * <li><code>load.duration</code> - the measured run duration in seconds, 30 by default</li>
+ * <li><code>load.warmup</code> - the warm-up duration in seconds, 5 by default</li>
+ * <li><code>load.payload</code> - the run request shape: <code>empty</code>, <code>numbers</code>,
+ * <code>entity</code>, <code>subflow</code> or <code>mixed</code>, <code>mixed</code> by default</li>
+ * <li><code>load.port</code> - the http server port, 8093 by default</li>
+ * <li><code>bfa.*</code> - passed to the server configuration, for example, to tune the runtime</li>
+ * </ul>
+ *
+ * @author illia.sydorovych
+ *
+ */
+public class RunServiceLoadGenerator {
+
+	private static final String LOGGING_CONFIG_FILE = TestConstants.TEST_RESOURCES_DIR + "/test-log4j.xml";
+
+	private static final File CODE_REPOSITORY_DIR = new File("target/__tmp_load_code_repository");
+
+	private static final String ENTITY_DEFAULT_GROUP_DIR = "com/ilsid/bfa/generated/entity/default_group";
+
+	private static final String BFA_PROPERTY_PREFIX = "bfa.";
+
+	private static final String EMPTY_SCRIPT = "Load Empty Script";
+
+	private static final String NUMBERS_SCRIPT = "Load Numbers Script";
+
+	private static final String ENTITY_SCRIPT = "Load Entity Script";
+
+	private static final String SUBFLOW_SCRIPT = "Load Subflow Script";
+
+	private static final double NANOS_IN_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+	private final int concurrency = Integer.getInteger("load.concurrency", 16);
+
+	private final int durationSeconds = Integer.getInteger("load.duration", 30);
+
+	private final int warmupSeconds = Integer.getInteger("load.warmup", 5);
+
+	private final String payload = System.getProperty("load.payload", "mixed");
+
+	private final int port = Integer.getInteger("load.port", 8093);
+
+	private final String rootURL = "http://localhost:" + port + "/bfa/";
+
+	private Client client;
+
+	public static void main(String[] args) throws Exception {
+		int status = 0;
+		RunServiceLoadGenerator generator = new RunServiceLoadGenerator();
+		try {
+			generator.run();
+		} catch (Exception e) {
+			e.printStackTrace();
+			status = 1;
+		} finally {
+			generator.shutdown();
+		}
+
+		System.exit(status);
+	}
+
+	private void run() throws Exception {
+		final List<ScriptRuntimeParams> requests = createRequests();
+
+		// The keep-alive connections pool of HttpURLConnection is limited to 5 connections by default
+		System.setProperty("http.maxConnections", String.valueOf(concurrency));
+		ClientConfig config = new DefaultClientConfig();
+		config.getFeatures().put(JSONConfiguration.FEATURE_POJO_MAPPING, Boolean.TRUE);
+		client = Client.create(config);
+
+		startServer();
+		createScripts();
+
+		System.out.println(String.format("Running [%s] payload with %d threads: %d s warm-up, %d s measurement",
+				payload, concurrency, warmupSeconds, durationSeconds));
+
+		runPhase(requests, warmupSeconds);
+		Result result = runPhase(requests, durationSeconds);
+
+		result.print(durationSeconds);
+	}
+
+	private void startServer() throws Exception {
+		if (CODE_REPOSITORY_DIR.exists()) {
+			FileUtils.forceDelete(CODE_REPOSITORY_DIR);
+		}
+		FileUtils.copyDirectory(new File(TestConstants.TEST_RESOURCES_DIR + "/integration_tests/code_repository"),
+				CODE_REPOSITORY_DIR);
+		FileUtils.copyFileToDirectory(
+				new File(TestConstants.TEST_RESOURCES_DIR + "/integration_tests/to_copy/" + ENTITY_DEFAULT_GROUP_DIR
+						+ "/Contract.class"),
+				new File(CODE_REPOSITORY_DIR, ENTITY_DEFAULT_GROUP_DIR));
+
+		LoggingConfigurator.configureLog4j(LOGGING_CONFIG_FILE);
+
+		Map<String, String> serverConfig = new HashMap<>();
+		serverConfig.put("bfa.persistence.fs.root_dir", CODE_REPOSITORY_DIR.getPath());
+		serverConfig.put("bfa.persistence.fs.common_lib_dir", new File(CODE_REPOSITORY_DIR, "common_lib").getPath());
+		serverConfig.put("bfa.tmp_dir", CODE_REPOSITORY_DIR.getPath());
+		serverConfig.put("bfa.http.server.port", String.valueOf(port));
+		for (String name : System.getProperties().stringPropertyNames()) {
+			if (name.startsWith(BFA_PROPERTY_PREFIX)) {
+				serverConfig.put(name, System.getProperty(name));
+			}
+		}
+
+		HttpServer.start(new RESTServiceIntegrationTestCase.TestApplicationConfig(FilesystemScriptingRepository.class,
+				FilesystemActionRepository.class, serverConfig, InMemoryRuntimeRepository.class), serverConfig);
+	}
+
+	private void createScripts() throws Exception {
+		createScript(EMPTY_SCRIPT, "DeclareLocalVar(\"Var1\", \"Number\", \"1\");");
+
+		createScript(NUMBERS_SCRIPT,
+				"DeclareInputVar(\"Var1\", \"Number\");\n" + "DeclareInputVar(\"Var2\", \"Number\");\n"
+						+ "DeclareLocalVar(\"Res\", \"Number\");\n" + "if (LessOrEqual(\"Var1\", \"Var2\")) {\n"
+						+ "	SetLocalVar(\"Res\", \"Var2 - Var1\");\n" + "}");
+
+		createScript(ENTITY_SCRIPT, "DeclareInputVar(\"Var1\", \"Contract\");\n"
+				+ "DeclareLocalVar(\"Res\", \"Number\");\n" + "SetLocalVar(\"Res\", \"Var1.Days + 1\");");
+
+		createScript(SUBFLOW_SCRIPT, "SubFlow(\"" + EMPTY_SCRIPT + "\");");
+	}
+
+	private void createScript(String name, String body) throws Exception {
+		WebResource webResource = client.resource(rootURL + Paths.SCRIPT_CREATE_SERVICE);
+		ClientResponse response = webResource.type(MediaType.APPLICATION_JSON).post(ClientResponse.class,
+				new ScriptAdminParams(name, body));
+		if (response.getStatus() != Status.OK.getStatusCode()) {
+			throw new IllegalStateException(
+					"Failed to create the script [" + name + "]: " + response.getEntity(String.class));
+		}
+	}
+
+	private List<ScriptRuntimeParams> createRequests() {
+		List<ScriptRuntimeParams> requests = new ArrayList<>();
+		final boolean mixed = "mixed".equals(payload);
+		if (mixed || "empty".equals(payload)) {
+			requests.add(createRequest(EMPTY_SCRIPT));
+		}
+		if (mixed || "numbers".equals(payload)) {
+			requests.add(createRequest(NUMBERS_SCRIPT, 55, 99));
+		}
+		if (mixed || "entity".equals(payload)) {
+			requests.add(createRequest(ENTITY_SCRIPT, "{\"Days\":\"55\"}"));
+		}
+		if (mixed || "subflow".equals(payload)) {
+			requests.add(createRequest(SUBFLOW_SCRIPT));
+		}
+
+		if (requests.isEmpty()) {
+			throw new IllegalArgumentException("Unknown payload [" + payload + "]");
+		}
+
+		return requests;
+	}
+
+	private ScriptRuntimeParams createRequest(String scriptName, Object... inputParameters) {
+		ScriptRuntimeParams request = new ScriptRuntimeParams();
+		request.setName(scriptName);
+		request.setInputParameters(inputParameters);
+
+		return request;
+	}
+
+	private Result runPhase(final List<ScriptRuntimeParams> requests, int seconds) throws InterruptedException {
+		final Result result = new Result();
+		final long endTime = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+		final CountDownLatch finished = new CountDownLatch(concurrency);
+		final WebResource webResource = client.resource(rootURL + Paths.SCRIPT_RUN_SERVICE);
+
+		for (int i = 0; i < concurrency; i++) {
+			final int offset = i;
+			Thread worker = new Thread("load-client-" + i) {
+				@Override
+				public void run() {
+					try {
+						for (int n = offset; System.nanoTime() < endTime; n++) {
+							result.send(webResource, requests.get(n % requests.size()));
+						}
+					} finally {
+						finished.countDown();
+					}
+				}
+			};
+			worker.setDaemon(true);
+			worker.start();
+		}
+
+		finished.await();
+
+		return result;
+	}
+
+	private void shutdown() throws Exception {
+		HttpServer.stop();
+		MonitoringServer.stop();
+		if (CODE_REPOSITORY_DIR.exists()) {
+			FileUtils.deleteQuietly(CODE_REPOSITORY_DIR);
+		}
+	}
+
+	private static double toMillis(long nanos) {
+		return nanos / NANOS_IN_MILLI;
+	}
+
+	private static class Result {
+
+		private final LatencyHistogram latencies = new LatencyHistogram();
+
+		private final AtomicLong errors = new AtomicLong();
+
+		private final AtomicReference<String> firstError = new AtomicReference<>();
+
+		void send(WebResource webResource, ScriptRuntimeParams request) {
+			final long startTime = System.nanoTime();
+			try {
+				ClientResponse response = webResource.type(MediaType.APPLICATION_JSON).post(ClientResponse.class,
+						request);
+				// Reading the entity releases the connection
+				String entity = response.getEntity(String.class);
+				if (response.getStatus() != Status.OK.getStatusCode()) {
+					registerError(request.getName() + ": " + response.getStatus() + " " + entity);
+				}
+			} catch (RuntimeException e) {
+				registerError(request.getName() + ": " + e);
+			}
+			latencies.record(System.nanoTime() - startTime);
+		}
+
+		void print(int seconds) {
+			final long count = latencies.getCount();
+			System.out.println(String.format(Locale.ENGLISH, "Requests:   %d (%d errors)", count, errors.get()));
+			System.out.println(String.format(Locale.ENGLISH, "Throughput: %.1f req/s", (double) count / seconds));
+			System.out.println(String.format(Locale.ENGLISH,
+					"Latency ms: mean=%.3f p50=%.3f p90=%.3f p99=%.3f p99.9=%.3f max=%.3f",
+					count > 0 ? toMillis(latencies.getSum()) / count : 0,
+					toMillis(latencies.getValueAtQuantile(0.5)), toMillis(latencies.getValueAtQuantile(0.9)),
+					toMillis(latencies.getValueAtQuantile(0.99)), toMillis(latencies.getValueAtQuantile(0.999)),
+					toMillis(latencies.getMax())));
+			if (firstError.get() != null) {
+				System.out.println("First error: " + firstError.get());
+			}
+		}
+
+		private void registerError(String message) {
+			errors.incrementAndGet();
+			firstError.compareAndSet(null, message);
+		}
+
+	}
+
+}
@@ -1,6 +1,7 @@
 package com.ilsid.bfa.service.server;
 
 import java.net.Inet4Address;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -24,7 +25,9 @@ import com.ilsid.bfa.runtime.dto.ScriptRuntimeDTO;
 import com.ilsid.bfa.runtime.monitor.MonitoringServer;
 import com.ilsid.bfa.runtime.persistence.cassandra.RuntimeDatabaseFixture;
 import com.ilsid.bfa.service.common.Paths;
+import com.ilsid.bfa.service.dto.BatchRuntimeStatus;
 import com.ilsid.bfa.service.dto.RuntimeStatus;
+import com.ilsid.bfa.service.dto.ScriptBatchRuntimeParams;
 import com.ilsid.bfa.service.dto.ScriptRuntimeParams;
 import com.ilsid.bfa.service.dto.ScriptRuntimeQuery;
 import com.sun.jersey.api.client.ClientResponse;
@@ -228,6 +231,42 @@ public class ScriptRuntimeResourceWithFSRepositoryIntegrationTest extends FSCode
 		assertEquals("Test Action Value 55 9.99", System.getProperty(TEST_SYSTEM_PROP_NAME));
 	}
 
+	@Test
+	public void scriptIsRunInBatch() throws Exception {
+		WebResource webResource = getWebResource(Paths.SCRIPT_RUN_BATCH_SERVICE);
+		ScriptBatchRuntimeParams batch = new ScriptBatchRuntimeParams();
+		batch.setName("ScriptToRead");
+		batch.setInputParameters(Arrays.asList(new Object[] {}, new Object[] {}, new Object[] {}));
+
+		ClientResponse response = webResource.type(MediaType.APPLICATION_JSON).post(ClientResponse.class, batch);
+
+		assertEquals(Status.OK.getStatusCode(), response.getStatus());
+
+		BatchRuntimeStatus[] statuses = response.getEntity(BatchRuntimeStatus[].class);
+		assertEquals(3, statuses.length);
+
+		Set<Integer> inputIndexes = new HashSet<>();
+		for (BatchRuntimeStatus status : statuses) {
+			assertTrue(inputIndexes.add(status.getInputIndex()));
+			assertTrue(uniqueRuntimeIds.add(status.getStatus().getRuntimeId()));
+			assertEquals(RuntimeStatusType.COMPLETED, status.getStatus().getStatusType());
+		}
+	}
+
+	@Test
+	public void batchOfNonExistingScriptIsNotRun() throws Exception {
+		WebResource webResource = getWebResource(Paths.SCRIPT_RUN_BATCH_SERVICE);
+		ScriptBatchRuntimeParams batch = new ScriptBatchRuntimeParams();
+		batch.setName("Non Existing Script");
+		batch.setInputParameters(Arrays.asList(new Object[] {}, new Object[] {}));
+
+		ClientResponse response = webResource.type(MediaType.APPLICATION_JSON).post(ClientResponse.class, batch);
+
+		assertEquals(Status.BAD_REQUEST.getStatusCode(), response.getStatus());
+		assertTrue(response.getEntity(String.class)
+				.startsWith("The script [Non Existing Script] is not found in the repository"));
+	}
+
 	private void verifyScriptCanBeRun(String scriptName) throws Exception {
 		verifyScriptCanBeRun(scriptName, null);
 	}
@@ -54,6 +54,37 @@ public class ActionContextUnitTest extends BaseUnitTestCase {
 		assertNotSame(instances.get(1), instances.get(2));
 	}
 
+	@Test
+	public void contextCanBeAttachedToAnotherThread() throws Exception {
+		final ActionContext parentContext = ActionContext.getInstance();
+		final List<ActionContext> instances = new CopyOnWriteArrayList<>();
+
+		final Thread thread = new Thread(new Runnable() {
+
+			public void run() {
+				ActionContext.attach(parentContext);
+				try {
+					instances.add(ActionContext.getInstance());
+				} finally {
+					ActionContext.cleanup();
+				}
+			}
+		});
+		thread.start();
+		thread.join();
+
+		assertSame(parentContext, instances.get(0));
+		assertSame(parentContext, ActionContext.getInstance());
+	}
+
+	@Test
+	public void createdInstanceIsNotBoundToCurrentThread() {
+		final ActionContext created = ActionContext.create();
+
+		assertNotSame(created, ActionContext.create());
+		assertNotSame(created, ActionContext.getInstance());
+	}
+
 	private class ActionContextUser implements Runnable {
 
 		private final List<ActionContext> instances;
@@ -0,0 +1,169 @@
+package com.ilsid.bfa.action;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.ilsid.bfa.BaseUnitTestCase;
+
+public class AsyncActionUnitTest extends BaseUnitTestCase {
+
+	private static final int POOL_SIZE = 100;
+
+	@After
+	public void tearDown() {
+		ActionContext.cleanup();
+		AsyncAction.setPoolSize(POOL_SIZE);
+	}
+
+	@Test
+	public void submittedTaskHasAccessToContextAndInputParameters() throws Exception {
+		ActionContext.getInstance().putParameter("Prefix", "Hello, ");
+		AsyncAction action = new GreetingAction();
+		action.setInputParameters(new Object[] { "World" });
+
+		Object[] result = action.executeAsync().get();
+
+		assertEquals("Hello, World", result[0]);
+		assertNotSame(Thread.currentThread().getName(), result[1]);
+	}
+
+	@Test
+	public void executeWaitsForResult() throws Exception {
+		ActionContext.getInstance().putParameter("Prefix", "Hi, ");
+		AsyncAction action = new GreetingAction();
+		action.setInputParameters(new Object[] { "There" });
+
+		assertEquals("Hi, There", action.execute()[0]);
+	}
+
+	@Test
+	public void poolThreadIsBoundToFlowWhileTaskIsExecuted() throws Exception {
+		final List<String> bindings = Collections.synchronizedList(new ArrayList<String>());
+		ActionContext.getInstance().setThreadBinding(new FlowThreadBinding() {
+
+			public void attach() {
+				bindings.add("attach " + Thread.currentThread().getName());
+			}
+
+			public void detach() {
+				bindings.add("detach " + Thread.currentThread().getName());
+			}
+		});
+		ActionContext.getInstance().putParameter("Prefix", "Hello, ");
+		AsyncAction action = new GreetingAction();
+		action.setInputParameters(new Object[] { "World" });
+
+		final String threadName = (String) action.executeAsync().get()[1];
+
+		assertEquals(Arrays.asList("attach " + threadName, "detach " + threadName), bindings);
+	}
+
+	@Test
+	public void taskIsExecutedByCallingThreadWhenPoolIsFull() throws Exception {
+		// The pool threads idle after the previous tests are released
+		AsyncAction.shutdownExecutor();
+		AsyncAction.setPoolSize(1);
+		final CountDownLatch releaseLatch = new CountDownLatch(1);
+		AsyncAction blockingAction = new AsyncAction() {
+
+			@Override
+			public Future<Object[]> executeAsync() throws ActionException {
+				return submit(new Callable<Object[]>() {
+
+					public Object[] call() throws Exception {
+						releaseLatch.await();
+						return new Object[] { Thread.currentThread().getName() };
+					}
+				});
+			}
+		};
+
+		ActionContext.getInstance().putParameter("Prefix", "Hi, ");
+		AsyncAction action = new GreetingAction();
+		action.setInputParameters(new Object[] { "There" });
+		try {
+			Future<Object[]> blockedResult = blockingAction.executeAsync();
+			Future<Object[]> result = action.executeAsync();
+
+			assertTrue(result.isDone());
+			assertEquals("Hi, There", result.get()[0]);
+			assertEquals(Thread.currentThread().getName(), result.get()[1]);
+			releaseLatch.countDown();
+			assertNotSame(Thread.currentThread().getName(), blockedResult.get()[0]);
+		} finally {
+			releaseLatch.countDown();
+		}
+	}
+
+	@Test
+	public void actionCanBeStartedAfterExecutorShutdown() throws Exception {
+		ActionContext.getInstance().putParameter("Prefix", "Hello, ");
+		AsyncAction action = new GreetingAction();
+		action.setInputParameters(new Object[] { "Again" });
+		action.execute();
+
+		AsyncAction.shutdownExecutor();
+
+		assertEquals("Hello, Again", action.execute()[0]);
+	}
+
+	@Test
+	public void actionExceptionIsPropagatedAsIs() throws Exception {
+		exceptionRule.expect(ActionException.class);
+		exceptionRule.expectMessage("Test async action failed");
+
+		new FailingAction(new ActionException("Test async action failed")).execute();
+	}
+
+	@Test
+	public void otherExceptionIsWrapped() throws Exception {
+		exceptionRule.expect(ActionException.class);
+		exceptionRule.expectMessage("The action failed");
+
+		new FailingAction(new IllegalStateException("Unexpected")).execute();
+	}
+
+	private static class GreetingAction extends AsyncAction {
+
+		@Override
+		public Future<Object[]> executeAsync() throws ActionException {
+			return submit(new Callable<Object[]>() {
+
+				public Object[] call() throws Exception {
+					String greeting = getContext().getParameter("Prefix").toString() + getInputParameters()[0];
+					return new Object[] { greeting, Thread.currentThread().getName() };
+				}
+			});
+		}
+
+	}
+
+	private static class FailingAction extends AsyncAction {
+
+		private final Exception error;
+
+		FailingAction(Exception error) {
+			this.error = error;
+		}
+
+		@Override
+		public Future<Object[]> executeAsync() throws ActionException {
+			return submit(new Callable<Object[]>() {
+
+				public Object[] call() throws Exception {
+					throw error;
+				}
+			});
+		}
+
+	}
+
+}
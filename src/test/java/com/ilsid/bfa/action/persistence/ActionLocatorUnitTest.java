@@ -0,0 +1,269 @@
+package com.ilsid.bfa.action.persistence;
+
+import java.net.URL;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.jmock.Expectations;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.ilsid.bfa.BaseUnitTestCase;
+import com.ilsid.bfa.action.Action;
+import com.ilsid.bfa.action.ActionException;
+import com.ilsid.bfa.action.Stateless;
+import com.ilsid.bfa.action.persistence.filesystem.ActionRepositoryInitializer;
+import com.ilsid.bfa.script.ScriptingRepositoryInitializer;
+
+public class ActionLocatorUnitTest extends BaseUnitTestCase {
+
+	private static final String ACTION_NAME = "Reserve Amount";
+
+	private static final String STATELESS_ACTION_NAME = "Stateless Action";
+
+	private static final String STATEFUL_ACTION_NAME = "Stateful Action";
+
+	private static final String CACHEABLE_ACTION_NAME = "Cacheable Action";
+
+	private ActionLocator locator;
+
+	@BeforeClass
+	public static void beforeClass() throws Exception {
+		ScriptingRepositoryInitializer.init();
+	}
+
+	@AfterClass
+	public static void afterClass() throws Exception {
+		ScriptingRepositoryInitializer.cleanup();
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		// The loader may be left by other tests
+		ActionClassLoader.releaseResources(ACTION_NAME);
+
+		locator = new ActionLocator();
+		locator.setRepository(ActionRepositoryInitializer.init());
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		ActionClassLoader.releaseResources(ACTION_NAME);
+		ActionClassLoader.releaseResources(STATELESS_ACTION_NAME);
+		ActionClassLoader.releaseResources(STATEFUL_ACTION_NAME);
+		ActionClassLoader.releaseResources(CACHEABLE_ACTION_NAME);
+		ActionRepositoryInitializer.init();
+	}
+
+	@Test
+	public void newActionInstanceIsProvidedOnEachLookup() throws Exception {
+		Action action1 = locator.lookup(ACTION_NAME);
+		Action action2 = locator.lookup(ACTION_NAME);
+
+		assertNotSame(action1, action2);
+		assertSame(action1.getClass(), action2.getClass());
+	}
+
+	@Test
+	public void actionIsProvidedFromNewLoaderAfterReloading() throws Exception {
+		Class<?> initialClass = locator.lookup(ACTION_NAME).getClass();
+
+		ActionClassLoader.reload(ACTION_NAME);
+		Class<?> reloadedClass = locator.lookup(ACTION_NAME).getClass();
+
+		assertNotSame(initialClass, reloadedClass);
+	}
+
+	@Test
+	public void actionIsProvidedFromNewLoaderAfterResourcesReleasing() throws Exception {
+		Class<?> initialClass = locator.lookup(ACTION_NAME).getClass();
+
+		ActionClassLoader.releaseResources(ACTION_NAME);
+		Class<?> reloadedClass = locator.lookup(ACTION_NAME).getClass();
+
+		assertNotSame(initialClass, reloadedClass);
+	}
+
+	@Test
+	public void actionImplementationIsResolvedOnlyOnce() throws Exception {
+		final ActionRepository repository = mockRepository();
+		checking(new Expectations() {
+			{
+				oneOf(repository).getImplementationClassName(STATEFUL_ACTION_NAME);
+				will(returnValue(StatefulTestAction.class.getName()));
+			}
+		});
+
+		assertTrue(locator.lookup(STATEFUL_ACTION_NAME) instanceof StatefulTestAction);
+		assertTrue(locator.lookup(STATEFUL_ACTION_NAME) instanceof StatefulTestAction);
+	}
+
+	@Test
+	public void singleInstanceOfStatelessActionIsProvided() throws Exception {
+		final ActionRepository repository = mockRepository();
+		checking(new Expectations() {
+			{
+				oneOf(repository).getImplementationClassName(STATELESS_ACTION_NAME);
+				will(returnValue(StatelessTestAction.class.getName()));
+			}
+		});
+
+		Action action1 = locator.lookup(STATELESS_ACTION_NAME);
+		Action action2 = locator.lookup(STATELESS_ACTION_NAME);
+
+		assertTrue(action1 instanceof StatelessTestAction);
+		assertSame(action1, action2);
+	}
+
+	@Test
+	public void inputParametersOfStatelessActionAreBoundToCurrentThread() throws Exception {
+		final ActionRepository repository = mockRepository();
+		checking(new Expectations() {
+			{
+				oneOf(repository).getImplementationClassName(STATELESS_ACTION_NAME);
+				will(returnValue(StatelessTestAction.class.getName()));
+			}
+		});
+
+		final Action action = locator.lookup(STATELESS_ACTION_NAME);
+		action.setInputParameters(new Object[] { "Main Thread" });
+
+		final Object[][] otherThreadResult = new Object[1][];
+		Thread otherThread = new Thread() {
+
+			@Override
+			public void run() {
+				action.setInputParameters(new Object[] { "Other Thread" });
+				try {
+					otherThreadResult[0] = action.execute();
+				} catch (ActionException e) {
+					throw new IllegalStateException(e);
+				}
+			}
+		};
+		otherThread.start();
+		otherThread.join();
+
+		assertEquals("Other Thread", otherThreadResult[0][0]);
+		assertEquals("Main Thread", action.execute()[0]);
+
+		// The parameters of the completed invocation are not kept by the thread
+		action.setInputParameters(null);
+		assertEquals(0, action.execute().length);
+	}
+
+	@Test
+	public void repositoryChangeDoesNotDropImplementationsResolvedByOtherLocator() throws Exception {
+		final ActionRepository repository = mockRepository();
+		checking(new Expectations() {
+			{
+				oneOf(repository).getImplementationClassName(STATEFUL_ACTION_NAME);
+				will(returnValue(StatefulTestAction.class.getName()));
+			}
+		});
+
+		assertTrue(locator.lookup(STATEFUL_ACTION_NAME) instanceof StatefulTestAction);
+
+		ActionLocator otherLocator = new ActionLocator();
+		otherLocator.setRepository(repository);
+
+		assertTrue(locator.lookup(STATEFUL_ACTION_NAME) instanceof StatefulTestAction);
+	}
+
+	@Test
+	public void cacheableActionHasResultCache() throws Exception {
+		Map<String, String> config = new HashMap<>();
+		config.put("action.cache.ttl", "60000");
+		config.put("action.cache.size", "10");
+		final ActionRepository repository = mockRepository(config);
+		checking(new Expectations() {
+			{
+				oneOf(repository).getImplementationClassName(CACHEABLE_ACTION_NAME);
+				will(returnValue(StatelessTestAction.class.getName()));
+			}
+		});
+
+		ActionResultCache resultCache = locator.getResultCache(CACHEABLE_ACTION_NAME);
+		assertNotNull(resultCache);
+		// The cache is kept together with the resolved action implementation
+		assertSame(resultCache, locator.getResultCache(CACHEABLE_ACTION_NAME));
+	}
+
+	@Test
+	public void nonCacheableActionHasNoResultCache() throws Exception {
+		final ActionRepository repository = mockRepository();
+		checking(new Expectations() {
+			{
+				oneOf(repository).getImplementationClassName(STATELESS_ACTION_NAME);
+				will(returnValue(StatelessTestAction.class.getName()));
+			}
+		});
+
+		assertNull(locator.getResultCache(STATELESS_ACTION_NAME));
+	}
+
+	@Test
+	public void invalidResultCacheConfigurationIsRejected() throws Exception {
+		Map<String, String> config = new HashMap<>();
+		config.put("action.cache.ttl", "-1");
+		final ActionRepository repository = mockRepository(config);
+		checking(new Expectations() {
+			{
+				oneOf(repository).getImplementationClassName(CACHEABLE_ACTION_NAME);
+				will(returnValue(StatelessTestAction.class.getName()));
+			}
+		});
+
+		exceptionRule.expect(ActionException.class);
+		exceptionRule.expectMessage("Invalid result cache configuration of the action [Cacheable Action]");
+
+		locator.getResultCache(CACHEABLE_ACTION_NAME);
+	}
+
+	private ActionRepository mockRepository() throws Exception {
+		return mockRepository(null);
+	}
+
+	private ActionRepository mockRepository(final Map<String, String> config) throws Exception {
+		final ActionRepository repository = mock(ActionRepository.class);
+		checking(new Expectations() {
+			{
+				allowing(repository).getCommonLibraries();
+				will(returnValue(Collections.<URL> emptyList()));
+				allowing(repository).getDependencies(with(any(String.class)));
+				will(returnValue(Collections.<URL> emptyList()));
+				allowing(repository).loadConfiguration(with(any(String.class)));
+				will(returnValue(config));
+			}
+		});
+
+		ActionClassLoader.setRepository(repository);
+		locator.setRepository(repository);
+
+		return repository;
+	}
+
+	@Stateless
+	public static class StatelessTestAction extends Action {
+
+		@Override
+		public Object[] execute() throws ActionException {
+			return getInputParameters();
+		}
+
+	}
+
+	public static class StatefulTestAction extends Action {
+
+		@Override
+		public Object[] execute() throws ActionException {
+			return getInputParameters();
+		}
+
+	}
+
+}
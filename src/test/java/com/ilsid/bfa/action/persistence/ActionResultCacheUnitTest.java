@@ -0,0 +1,111 @@
+package com.ilsid.bfa.action.persistence;
+
+import org.junit.Test;
+
+import com.ilsid.bfa.BaseUnitTestCase;
+import com.ilsid.bfa.test.types.Contract;
+
+public class ActionResultCacheUnitTest extends BaseUnitTestCase {
+
+	@Test
+	public void resultIsCachedForEqualParameters() {
+		ActionResultCache cache = new ActionResultCache(60000, 10);
+		assertNull(cache.get(new Object[] { "abc", 1 }));
+
+		cache.put(new Object[] { "abc", 1 }, new Object[] { "Result 1" });
+
+		assertEquals("Result 1", cache.get(new Object[] { "abc", 1 })[0]);
+		assertNull(cache.get(new Object[] { "abc", 2 }));
+		assertEquals(1L, cache.getHitCount());
+		assertEquals(2L, cache.getMissCount());
+	}
+
+	@Test
+	public void nullResultIsCachedAsEmptyOne() {
+		ActionResultCache cache = new ActionResultCache(60000, 10);
+		cache.put(new Object[] {}, null);
+
+		assertEquals(0, cache.get(new Object[] {}).length);
+	}
+
+	@Test
+	public void cachedResultIsNotModifiedByCaller() {
+		ActionResultCache cache = new ActionResultCache(60000, 10);
+		Object[] params = new Object[] { "abc" };
+		Object[] result = new Object[] { "Result 1" };
+		cache.put(params, result);
+
+		params[0] = "def";
+		result[0] = "Result 2";
+		cache.get(new Object[] { "abc" })[0] = "Result 3";
+
+		assertEquals("Result 1", cache.get(new Object[] { "abc" })[0]);
+	}
+
+	@Test
+	public void entityParametersAreComparedByContent() {
+		ActionResultCache cache = new ActionResultCache(60000, 10);
+		cache.put(new Object[] { createContract("abc") }, new Object[] { "Result 1" });
+
+		assertEquals("Result 1", cache.get(new Object[] { createContract("abc") })[0]);
+		assertNull(cache.get(new Object[] { createContract("def") }));
+	}
+
+	@Test
+	public void cachedEntityResultIsNotModifiedByCaller() {
+		ActionResultCache cache = new ActionResultCache(60000, 10);
+		Contract result = createContract("abc");
+		cache.put(new Object[] { "abc" }, new Object[] { result });
+
+		result.ID = "def";
+		((Contract) cache.get(new Object[] { "abc" })[0]).Details.Discount = 5.0;
+
+		Contract cachedResult = (Contract) cache.get(new Object[] { "abc" })[0];
+		assertEquals("abc", cachedResult.ID);
+		assertEquals(4.5, cachedResult.Details.Discount);
+	}
+
+	@Test
+	public void resultNotConvertibleToJsonIsNotCached() {
+		ActionResultCache cache = new ActionResultCache(60000, 10);
+		cache.put(new Object[] { "abc" }, new Object[] { new Object() });
+
+		assertNull(cache.get(new Object[] { "abc" }));
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void expiredResultIsEvicted() throws Exception {
+		ActionResultCache cache = new ActionResultCache(50, 10);
+		cache.put(new Object[] { "abc" }, new Object[] { "Result 1" });
+
+		Thread.sleep(100);
+
+		assertNull(cache.get(new Object[] { "abc" }));
+		assertEquals(0, cache.size());
+		assertEquals(1L, cache.getEvictionCount());
+	}
+
+	@Test
+	public void leastRecentlyUsedResultIsEvictedOnSizeLimit() {
+		ActionResultCache cache = new ActionResultCache(60000, 2);
+		cache.put(new Object[] { 1 }, new Object[] { "Result 1" });
+		cache.put(new Object[] { 2 }, new Object[] { "Result 2" });
+		cache.get(new Object[] { 1 });
+		cache.put(new Object[] { 3 }, new Object[] { "Result 3" });
+
+		assertEquals(2, cache.size());
+		assertEquals(1L, cache.getEvictionCount());
+		assertNotNull(cache.get(new Object[] { 1 }));
+		assertNull(cache.get(new Object[] { 2 }));
+		assertNotNull(cache.get(new Object[] { 3 }));
+	}
+
+	private Contract createContract(String id) {
+		Contract contract = new Contract();
+		contract.ID = id;
+
+		return contract;
+	}
+
+}
@@ -62,6 +62,19 @@ public class FilesystemActionRepositoryUnitTest extends BaseUnitTestCase {
 		assertNull(repository.getImplementationClassName(NON_EXISTING_ACTION_NAME));
 	}
 
+	@Test
+	public void configurationCanBeObtainedForExistingAction() throws Exception {
+		Map<String, String> config = repository.loadConfiguration(EXISTING_ACTION_NAME);
+
+		assertEquals(1, config.size());
+		assertEquals("com.some.action.impl.SomeAction", config.get("action.class"));
+	}
+
+	@Test
+	public void noConfigurationCanBeObtainedForNonExisitingAction() throws Exception {
+		assertNull(repository.loadConfiguration(NON_EXISTING_ACTION_NAME));
+	}
+
 	@Test
 	public void dependencyURLsAreObtainedForExistingAction() throws Exception {
 		List<URL> urls = repository.getDependencies(EXISTING_ACTION_NAME);
@@ -0,0 +1,67 @@
+package com.ilsid.bfa.common;
+
+import org.junit.Test;
+
+import com.ilsid.bfa.BaseUnitTestCase;
+
+public class LatencyHistogramUnitTest extends BaseUnitTestCase {
+
+	@Test
+	public void emptyHistogramReturnsZeroValues() {
+		LatencyHistogram histogram = new LatencyHistogram();
+
+		assertEquals(0L, histogram.getCount());
+		assertEquals(0L, histogram.getSum());
+		assertEquals(0L, histogram.getMax());
+		assertEquals(0L, histogram.getValueAtQuantile(0.99));
+	}
+
+	@Test
+	public void countSumAndMaxAreExact() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(100);
+		histogram.record(5000);
+		histogram.record(300);
+
+		assertEquals(3L, histogram.getCount());
+		assertEquals(5400L, histogram.getSum());
+		assertEquals(5000L, histogram.getMax());
+	}
+
+	@Test
+	public void quantilesAreAccurateWithinBucketPrecision() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (long i = 1; i <= 1000; i++) {
+			histogram.record(i * 1000);
+		}
+
+		assertWithinPrecision(500000, histogram.getValueAtQuantile(0.5));
+		assertWithinPrecision(990000, histogram.getValueAtQuantile(0.99));
+		assertEquals(1000000L, histogram.getValueAtQuantile(1));
+	}
+
+	@Test
+	public void smallValuesAreRecordedExactly() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(3);
+		histogram.record(-10);
+
+		assertEquals(0L, histogram.getValueAtQuantile(0.5));
+		assertEquals(3L, histogram.getValueAtQuantile(1));
+	}
+
+	@Test
+	public void eachValueFallsIntoBucketWithGreaterOrEqualUpperBound() {
+		for (long value = 0; value < 100000; value += 7) {
+			final int index = LatencyHistogram.getBucketIndex(value);
+			assertTrue(LatencyHistogram.getBucketUpperBound(index) >= value);
+			assertTrue(index == 0 || LatencyHistogram.getBucketUpperBound(index - 1) < value);
+		}
+	}
+
+	private void assertWithinPrecision(long expected, long actual) {
+		assertTrue(String.format("Expected about %d but was %d", expected, actual),
+				actual >= expected && actual <= expected + expected / 8);
+	}
+
+}
@@ -0,0 +1,121 @@
+package com.ilsid.bfa.common;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.ilsid.bfa.BaseUnitTestCase;
+
+public class MetricsUnitTest extends BaseUnitTestCase {
+
+	@After
+	public void tearDown() {
+		Metrics.remove("test_operation");
+		Metrics.remove("test_single_operation");
+		Metrics.remove("test_gauge");
+		Metrics.remove("test_counter");
+	}
+
+	@Test
+	public void timersOfGroupAreReportedPerLabel() {
+		Metrics.TimerGroup group = Metrics.timerGroup("test_operation", "Test operation", "name");
+		group.get("First").recordDuration(2000000);
+		group.get("Second").record(System.nanoTime(), true);
+		group.get("First").recordDuration(4000000);
+
+		List<Metrics.TimerSnapshot> snapshots = getSnapshots("test_operation");
+
+		assertEquals(2, snapshots.size());
+		Metrics.TimerSnapshot first = snapshots.get(0);
+		assertEquals("name", first.getLabelName());
+		assertEquals("First", first.getLabelValue());
+		assertEquals(2L, first.getCount());
+		assertEquals(0L, first.getFailures());
+		assertEquals(6.0, first.getTotalMillis());
+		assertEquals(3.0, first.getMeanMillis());
+		assertEquals(4.0, first.getMaxMillis());
+
+		Metrics.TimerSnapshot second = snapshots.get(1);
+		assertEquals("Second", second.getLabelValue());
+		assertEquals(1L, second.getCount());
+		assertEquals(1L, second.getFailures());
+	}
+
+	@Test
+	public void sameTimerIsReturnedForSameName() {
+		Metrics.Timer timer = Metrics.timer("test_single_operation", "Test operation");
+
+		assertSame(timer, Metrics.timer("test_single_operation", "Test operation"));
+	}
+
+	@Test
+	public void timersAreExportedInPrometheusFormat() {
+		Metrics.timerGroup("test_operation", "Test operation", "name").get("A \"quoted\" name")
+				.record(System.nanoTime(), true);
+		Metrics.timer("test_single_operation", "Test single operation").recordDuration(1500000000L);
+
+		String text = Metrics.toPrometheusText();
+
+		assertTrue(text.contains("# TYPE test_operation_duration_seconds summary\n"));
+		assertTrue(text.contains("test_operation_duration_seconds_count{name=\"A \\\"quoted\\\" name\"} 1\n"));
+		assertTrue(text.contains("# TYPE test_operation_failures_total counter\n"));
+		assertTrue(text.contains("test_operation_failures_total{name=\"A \\\"quoted\\\" name\"} 1\n"));
+		assertTrue(text.contains("test_single_operation_duration_seconds{quantile=\"0.5\"} 1.5\n"));
+		assertTrue(text.contains("test_single_operation_duration_seconds_sum 1.5\n"));
+		assertTrue(text.contains("test_single_operation_duration_seconds_max 1.5\n"));
+		assertTrue(text.contains("test_single_operation_failures_total 0\n"));
+	}
+
+	@Test
+	public void gaugesAndCountersAreExported() {
+		Metrics.gauge("test_gauge", "Test gauge", new Metrics.Gauge() {
+
+			public long getValue() {
+				return 5;
+			}
+		});
+		Metrics.Counter counter = Metrics.counter("test_counter", "Test counter");
+		counter.increment();
+		Metrics.counter("test_counter", "Test counter").increment();
+
+		assertEquals(5L, Metrics.getValues().get("test_gauge"));
+		assertEquals(2L, Metrics.getValues().get("test_counter"));
+
+		String text = Metrics.toPrometheusText();
+
+		assertTrue(text.contains("# HELP test_gauge Test gauge\n# TYPE test_gauge gauge\ntest_gauge 5\n"));
+		assertTrue(text.contains("# TYPE test_counter counter\ntest_counter 2\n"));
+	}
+
+	@Test
+	public void gaugeIsReplacedOnRepeatedRegistration() {
+		Metrics.gauge("test_gauge", "Test gauge", new Metrics.Gauge() {
+
+			public long getValue() {
+				return 1;
+			}
+		});
+		Metrics.gauge("test_gauge", "Test gauge", new Metrics.Gauge() {
+
+			public long getValue() {
+				return 2;
+			}
+		});
+
+		assertEquals(2L, Metrics.getValues().get("test_gauge"));
+	}
+
+	private List<Metrics.TimerSnapshot> getSnapshots(String name) {
+		List<Metrics.TimerSnapshot> result = new ArrayList<>();
+		for (Metrics.TimerSnapshot snapshot : Metrics.getSnapshots()) {
+			if (name.equals(snapshot.getName())) {
+				result.add(snapshot);
+			}
+		}
+
+		return result;
+	}
+
+}
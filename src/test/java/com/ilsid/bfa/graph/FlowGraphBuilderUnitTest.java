@@ -70,6 +70,23 @@ public class FlowGraphBuilderUnitTest extends BaseUnitTestCase {
 		edge("Set Var3 = 33", FlowConstants.END);
 	}
 
+	@Test
+	public void graphForScriptWithParallelSubflowsCanBeBuilt() throws Exception {
+		String source = IOHelper.loadScript("parallel-subflows-script.txt");
+		graph = FlowGraphBuilder.buildGraph(source);
+
+		assertEquals(5, getCount(graph.getVertices()));
+		assertEquals(4, getCount(graph.getEdges()));
+
+		final String parallelSubflows = "Parallel: Some Sub-Flow 1, Some Sub-Flow 2, Some Sub-Flow 3";
+
+		edge(FlowConstants.START, "Some Action 1");
+		edge("Some Action 1", parallelSubflows);
+		edge(parallelSubflows, "Some Sub-Flow 4");
+		edge("Some Sub-Flow 4", FlowConstants.END);
+		assertEquals(FlowConstants.PARALLEL_SUBFLOWS, getVertex(parallelSubflows).getProperty(FlowConstants.TYPE_PROPERTY));
+	}
+
 	private int getCount(Iterable<?> iterable) {
 		int count = 0;
 		for (Iterator<?> iterator = iterable.iterator(); iterator.hasNext();) {
@@ -19,6 +19,12 @@ public class MermaidConverterUnitTest extends BaseUnitTestCase {
 				"mermaid-adapter-expected-output/several-actions-and-subflows-with-params-script-representation.txt");
 	}
 
+	@Test
+	public void graphWithParallelSubflowsCanBeConverted() throws Exception {
+		assertExpectedOutput("parallel-subflows-script.txt",
+				"mermaid-adapter-expected-output/parallel-subflows-script-representation.txt");
+	}
+
 	private void assertExpectedOutput(String input, String expectedOutput) throws Exception {
 		String source = IOHelper.loadScript(input);
 		String actualResult = MermaidConverter.buildFlowChart(source);
@@ -0,0 +1,47 @@
+package com.ilsid.bfa.runtime.persistence;
+
+import org.jmock.Expectations;
+import org.junit.Test;
+
+import com.ilsid.bfa.BaseUnitTestCase;
+import com.ilsid.bfa.persistence.PersistenceException;
+
+public class HiLoRuntimeIdGeneratorUnitTest extends BaseUnitTestCase {
+
+	private final RuntimeIdBlockAllocator allocator = mock(RuntimeIdBlockAllocator.class);
+
+	@Test
+	public void repositoryIsAccessedOncePerBlock() throws Exception {
+		checking(new Expectations() {
+			{
+				oneOf(allocator).allocateBlock(3);
+				will(returnValue(3L));
+				oneOf(allocator).allocateBlock(3);
+				will(returnValue(9L));
+			}
+		});
+
+		HiLoRuntimeIdGenerator generator = new HiLoRuntimeIdGenerator(allocator, 3);
+
+		// The second block is reserved by another node after the first one: ids 4-6 are not available
+		for (long expectedId : new long[] { 1, 2, 3, 7, 8, 9 }) {
+			assertEquals(expectedId, generator.nextId());
+		}
+	}
+
+	@Test
+	public void allocationFailureIsPropagated() throws Exception {
+		exceptionRule.expect(PersistenceException.class);
+		exceptionRule.expectMessage("Test allocation failure");
+
+		checking(new Expectations() {
+			{
+				oneOf(allocator).allocateBlock(10);
+				will(throwException(new PersistenceException("Test allocation failure")));
+			}
+		});
+
+		new HiLoRuntimeIdGenerator(allocator, 10).nextId();
+	}
+
+}
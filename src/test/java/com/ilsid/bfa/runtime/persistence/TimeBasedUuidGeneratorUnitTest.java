@@ -0,0 +1,73 @@
+package com.ilsid.bfa.runtime.persistence;
+
+import java.util.Collections;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.ilsid.bfa.BaseUnitTestCase;
+
+public class TimeBasedUuidGeneratorUnitTest extends BaseUnitTestCase {
+
+	private final TimeBasedUuidGenerator generator = new TimeBasedUuidGenerator();
+
+	@Test
+	public void timeBasedUuidIsGenerated() {
+		final long timeBefore = System.currentTimeMillis();
+		UUID id = (UUID) generator.nextId();
+		final long timeAfter = System.currentTimeMillis();
+
+		assertEquals(1, id.version());
+		assertEquals(2, id.variant());
+		final long idTimeMillis = (id.timestamp() - 0x01B21DD213814000L) / 10000;
+		assertTrue(idTimeMillis >= timeBefore && idTimeMillis <= timeAfter);
+	}
+
+	@Test
+	public void timestampsStrictlyIncrease() {
+		long lastTimestamp = 0;
+		for (int i = 0; i < 100000; i++) {
+			final long timestamp = ((UUID) generator.nextId()).timestamp();
+			assertTrue(timestamp > lastTimestamp);
+			lastTimestamp = timestamp;
+		}
+	}
+
+	@Test
+	public void idsGeneratedByConcurrentThreadsAreUnique() throws Exception {
+		final int threadsCount = 8;
+		final int idsPerThread = 20000;
+		final Set<Object> ids = Collections.newSetFromMap(new ConcurrentHashMap<Object, Boolean>());
+		final CountDownLatch completion = new CountDownLatch(threadsCount);
+
+		for (int i = 0; i < threadsCount; i++) {
+			new Thread(new Runnable() {
+
+				public void run() {
+					for (int j = 0; j < idsPerThread; j++) {
+						ids.add(generator.nextId());
+					}
+					completion.countDown();
+				}
+			}).start();
+		}
+
+		assertTrue(completion.await(10, TimeUnit.SECONDS));
+		assertEquals(threadsCount * idsPerThread, ids.size());
+	}
+
+	@Test
+	public void generatorsWithDifferentNodesProduceDifferentIds() {
+		UUID id1 = (UUID) new TimeBasedUuidGenerator(new Random(1)).nextId();
+		UUID id2 = (UUID) new TimeBasedUuidGenerator(new Random(2)).nextId();
+
+		assertNotEquals(id1.node(), id2.node());
+		assertNotEquals(id1, id2);
+	}
+
+}
@@ -31,8 +31,9 @@ public class RuntimeDatabaseFixture {
 			Date endTime = startTime;
 
 			CassandraEmbeddedServer.getClient().executeBoundStatement(
-					CassandraRuntimeRepository.FAILED_FLOWS_INSERT_STMT, UUID.randomUUID(), USER_NAME,
-					"Test Script " + (cnt + 1), parameters, startDate, startTime, callStack, endTime, errorDetails);
+					CassandraRuntimeRepository.FAILED_FLOWS_BRANCH_INSERT_STMT, UUID.randomUUID(), USER_NAME,
+					"Test Script " + (cnt + 1), parameters, startDate, startTime, callStack, endTime, errorDetails,
+					null, 0);
 
 		}
 	}
@@ -50,8 +51,8 @@ public class RuntimeDatabaseFixture {
 			Date startTime = DateHelper.addMinutes(initTime, cnt);
 
 			CassandraEmbeddedServer.getClient().executeBoundStatement(
-					CassandraRuntimeRepository.RUNNING_FLOWS_INSERT_STMT, UUID.randomUUID(), USER_NAME,
-					"Test Script " + (cnt + 1), parameters, startDate, startTime, callStack);
+					CassandraRuntimeRepository.RUNNING_FLOWS_BRANCH_INSERT_STMT, UUID.randomUUID(), USER_NAME,
+					"Test Script " + (cnt + 1), parameters, startDate, startTime, callStack, 0);
 
 		}
 	}
@@ -70,8 +71,8 @@ public class RuntimeDatabaseFixture {
 			Date endTime = startTime;
 
 			CassandraEmbeddedServer.getClient().executeBoundStatement(
-					CassandraRuntimeRepository.COMPLETED_FLOWS_INSERT_STMT, UUID.randomUUID(), USER_NAME,
-					"Test Script " + (cnt + 1), parameters, startDate, startTime, callStack, endTime);
+					CassandraRuntimeRepository.COMPLETED_FLOWS_BRANCH_INSERT_STMT, UUID.randomUUID(), USER_NAME,
+					"Test Script " + (cnt + 1), parameters, startDate, startTime, callStack, endTime, null, 0);
 
 		}
 	}
@@ -0,0 +1,100 @@
+package com.ilsid.bfa.runtime.persistence.memory;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.ilsid.bfa.BaseUnitTestCase;
+import com.ilsid.bfa.ConfigurationException;
+import com.ilsid.bfa.persistence.PersistenceException;
+import com.ilsid.bfa.runtime.dto.FlowCheckpointDTO;
+
+public class InMemoryCheckpointRepositoryUnitTest extends BaseUnitTestCase {
+
+	@Test
+	public void savedCheckpointsAreLoadedByRuntimeId() throws Exception {
+		InMemoryCheckpointRepository repository = createRepository(null);
+		repository.saveCheckpoint(createCheckpoint(1L, "0", "Result 1"));
+		repository.saveCheckpoint(createCheckpoint(1L, "1", "Result 2"));
+		repository.saveCheckpoint(createCheckpoint(2L, "0", "Result 3"));
+
+		List<FlowCheckpointDTO> checkpoints = repository.loadCheckpoints(1L);
+		assertEquals(2, checkpoints.size());
+
+		// The identifier passed as a string matches the numeric one
+		checkpoints = repository.loadCheckpoints("2");
+		assertEquals(1, checkpoints.size());
+		assertEquals("Result 3", checkpoints.get(0).getActionName());
+	}
+
+	@Test
+	public void checkpointWithSameStepKeyIsReplaced() throws Exception {
+		InMemoryCheckpointRepository repository = createRepository(null);
+		repository.saveCheckpoint(createCheckpoint(1L, "0", "Result 1"));
+		repository.saveCheckpoint(createCheckpoint(1L, "0", "Result 2"));
+
+		List<FlowCheckpointDTO> checkpoints = repository.loadCheckpoints(1L);
+		assertEquals(1, checkpoints.size());
+		assertEquals("Result 2", checkpoints.get(0).getActionName());
+	}
+
+	@Test
+	public void deletedCheckpointsAreNotLoaded() throws Exception {
+		InMemoryCheckpointRepository repository = createRepository(null);
+		repository.saveCheckpoint(createCheckpoint(1L, "0", "Result 1"));
+		repository.deleteCheckpoints(1L);
+
+		assertTrue(repository.loadCheckpoints(1L).isEmpty());
+		assertTrue(repository.loadCheckpoints(3L).isEmpty());
+	}
+
+	@Test
+	public void checkpointsOfOldestFlowsAreEvicted() throws Exception {
+		InMemoryCheckpointRepository repository = createRepository("2");
+		repository.saveCheckpoint(createCheckpoint(1L, "0", "Result 1"));
+		repository.saveCheckpoint(createCheckpoint(2L, "0", "Result 2"));
+		repository.saveCheckpoint(createCheckpoint(1L, "1", "Result 3"));
+		repository.saveCheckpoint(createCheckpoint(3L, "0", "Result 4"));
+
+		assertTrue(repository.loadCheckpoints(1L).isEmpty());
+		assertEquals(1, repository.loadCheckpoints(2L).size());
+		assertEquals(1, repository.loadCheckpoints(3L).size());
+	}
+
+	@Test
+	public void checkpointWithoutStepKeyIsRejected() throws Exception {
+		exceptionRule.expect(PersistenceException.class);
+		exceptionRule.expectMessage("The checkpoint must have the runtime id and the step key");
+
+		createRepository(null).saveCheckpoint(createCheckpoint(1L, null, "Result 1"));
+	}
+
+	@Test
+	public void invalidCapacityIsRejected() throws Exception {
+		exceptionRule.expect(ConfigurationException.class);
+		exceptionRule.expectMessage(
+				"The value of the configuration property [bfa.persistence.runtime.memory.checkpoint_capacity] must be a positive integer");
+
+		createRepository("abc");
+	}
+
+	private InMemoryCheckpointRepository createRepository(String capacity) throws Exception {
+		Map<String, String> config = new HashMap<>();
+		if (capacity != null) {
+			config.put("bfa.persistence.runtime.memory.checkpoint_capacity", capacity);
+		}
+		InMemoryCheckpointRepository result = new InMemoryCheckpointRepository();
+		result.setConfiguration(config);
+
+		return result;
+	}
+
+	private FlowCheckpointDTO createCheckpoint(long runtimeId, String stepKey, String actionName) {
+		return new FlowCheckpointDTO().setRuntimeId(runtimeId).setStepKey(stepKey).setScriptName("Test Script")
+				.setActionName(actionName).setCheckpointTime(new Date());
+	}
+
+}
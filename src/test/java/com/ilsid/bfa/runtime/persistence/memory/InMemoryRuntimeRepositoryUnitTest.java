@@ -0,0 +1,289 @@
+package com.ilsid.bfa.runtime.persistence.memory;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang3.time.DateUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ilsid.bfa.BaseUnitTestCase;
+import com.ilsid.bfa.ConfigurationException;
+import com.ilsid.bfa.persistence.PersistenceException;
+import com.ilsid.bfa.persistence.QueryPage;
+import com.ilsid.bfa.persistence.QueryPagingOptions;
+import com.ilsid.bfa.runtime.dto.RuntimeStatusType;
+import com.ilsid.bfa.runtime.dto.ScriptRuntimeCriteria;
+import com.ilsid.bfa.runtime.dto.ScriptRuntimeDTO;
+
+public class InMemoryRuntimeRepositoryUnitTest extends BaseUnitTestCase {
+
+	private InMemoryRuntimeRepository repository;
+
+	private Date startTime;
+
+	@Before
+	public void setUp() throws Exception {
+		repository = createRepository(null);
+		// The records of the tests are started within the same day
+		startTime = DateUtils.setHours(DateUtils.truncate(new Date(), Calendar.DATE), 10);
+	}
+
+	@Test
+	public void runtimeIdsAreUnique() throws Exception {
+		Set<Object> ids = new HashSet<>();
+		for (int i = 0; i < 100; i++) {
+			ids.add(repository.getNextRuntimeId());
+		}
+		assertEquals(100, ids.size());
+
+		// The identifiers are numeric, so they can be reserved by the blocks as well
+		assertEquals(110L, repository.allocateBlock(10));
+		assertEquals(111L, repository.getNextRuntimeId());
+	}
+
+	@Test
+	public void createdRecordIsFetchedAsRunning() throws Exception {
+		ScriptRuntimeDTO record = createRecord(1, startTime);
+		repository.createRuntimeRecord(record);
+
+		List<ScriptRuntimeDTO> records = fetch(RuntimeStatusType.INPROGRESS).getResult();
+		assertEquals(1, records.size());
+		assertEquals(1L, records.get(0).getRuntimeId());
+		assertEquals("Test Script 1", records.get(0).getScriptName());
+		assertEquals(Arrays.asList("Param 1", "Param 2"), records.get(0).getParameters());
+		assertEquals(RuntimeStatusType.INPROGRESS, records.get(0).getStatus());
+
+		assertEquals(0, fetch(RuntimeStatusType.COMPLETED).getResult().size());
+	}
+
+	@Test
+	public void updatedRecordIsFetchedAsCompletedOrFailed() throws Exception {
+		ScriptRuntimeDTO completedRecord = createRecord(1, startTime);
+		ScriptRuntimeDTO failedRecord = createRecord(2, startTime);
+		repository.createRuntimeRecord(completedRecord);
+		repository.createRuntimeRecord(failedRecord);
+
+		repository.updateRuntimeRecord(completedRecord.setStatus(RuntimeStatusType.COMPLETED).setEndTime(startTime));
+		repository.updateRuntimeRecord(failedRecord.setStatus(RuntimeStatusType.FAILED).setEndTime(startTime)
+				.setErrorDetails(Arrays.asList("Flow error")));
+
+		assertEquals(0, fetch(RuntimeStatusType.INPROGRESS).getResult().size());
+
+		List<ScriptRuntimeDTO> completed = fetch(RuntimeStatusType.COMPLETED).getResult();
+		assertEquals(1, completed.size());
+		assertEquals(1L, completed.get(0).getRuntimeId());
+		assertEquals(startTime, completed.get(0).getEndTime());
+
+		List<ScriptRuntimeDTO> failed = fetch(RuntimeStatusType.FAILED).getResult();
+		assertEquals(1, failed.size());
+		assertEquals(2L, failed.get(0).getRuntimeId());
+		assertEquals(Arrays.asList("Flow error"), failed.get(0).getErrorDetails());
+	}
+
+	@Test
+	public void storedRecordIsNotAffectedByChangesOfPassedOne() throws Exception {
+		ScriptRuntimeDTO record = createRecord(1, startTime);
+		repository.createRuntimeRecord(record);
+		record.setStatus(RuntimeStatusType.COMPLETED).setScriptName("Changed");
+
+		List<ScriptRuntimeDTO> records = fetch(RuntimeStatusType.INPROGRESS).getResult();
+		assertEquals(1, records.size());
+		assertEquals("Test Script 1", records.get(0).getScriptName());
+	}
+
+	@Test
+	public void subflowRecordIsKeptSeparatelyFromParentRecord() throws Exception {
+		ScriptRuntimeDTO record = createRecord(1, startTime);
+		ScriptRuntimeDTO subflowRecord = createRecord(1, startTime).setCallStack(Arrays.asList("Test Script 1"));
+		repository.createRuntimeRecord(record);
+		repository.createRuntimeRecord(subflowRecord);
+		repository.updateRuntimeRecord(subflowRecord.setStatus(RuntimeStatusType.COMPLETED).setEndTime(startTime));
+
+		assertEquals(1, fetch(RuntimeStatusType.INPROGRESS).getResult().size());
+		List<ScriptRuntimeDTO> completed = fetch(RuntimeStatusType.COMPLETED).getResult();
+		assertEquals(1, completed.size());
+		assertEquals(Arrays.asList("Test Script 1"), completed.get(0).getCallStack());
+	}
+
+	@Test
+	public void parallelSubflowRecordsWithSameStartTimeAreKeptSeparately() throws Exception {
+		ScriptRuntimeDTO firstRecord = createRecord(1, startTime).setCallStack(Arrays.asList("Test Script 1"));
+		ScriptRuntimeDTO secondRecord = createRecord(1, startTime).setCallStack(Arrays.asList("Test Script 1"))
+				.setBranch(1);
+		repository.createRuntimeRecord(firstRecord);
+		repository.createRuntimeRecord(secondRecord);
+		repository.updateRuntimeRecord(secondRecord.setStatus(RuntimeStatusType.COMPLETED).setEndTime(startTime));
+
+		assertEquals(1, fetch(RuntimeStatusType.INPROGRESS).getResult().size());
+		List<ScriptRuntimeDTO> completed = fetch(RuntimeStatusType.COMPLETED).getResult();
+		assertEquals(1, completed.size());
+		assertEquals(1, completed.get(0).getBranch());
+	}
+
+	@Test
+	public void recordsAreFetchedByDescendingStartTimeOrder() throws Exception {
+		for (int i = 0; i < 3; i++) {
+			repository.createRuntimeRecord(createRecord(i + 1, DateUtils.addMinutes(startTime, i)));
+		}
+
+		List<ScriptRuntimeDTO> records = fetch(RuntimeStatusType.INPROGRESS).getResult();
+		assertEquals(3, records.size());
+		assertEquals("Test Script 3", records.get(0).getScriptName());
+		assertEquals("Test Script 2", records.get(1).getScriptName());
+		assertEquals("Test Script 1", records.get(2).getScriptName());
+	}
+
+	@Test
+	public void recordsAreFetchedWithinDefinedTimeframe() throws Exception {
+		for (int i = 0; i < 3; i++) {
+			repository.createRuntimeRecord(createRecord(i + 1, DateUtils.addMinutes(startTime, i)));
+		}
+
+		QueryPage<ScriptRuntimeDTO> fetchResult = repository.fetch(
+				new ScriptRuntimeCriteria().setStatus(RuntimeStatusType.INPROGRESS).setStartDate(startTime)
+						.setMinStartTime(DateUtils.addMinutes(startTime, 1))
+						.setMaxStartTime(DateUtils.addMinutes(startTime, 3)),
+				new QueryPagingOptions());
+
+		assertEquals(2, fetchResult.getResult().size());
+		assertEquals("Test Script 3", fetchResult.getResult().get(0).getScriptName());
+		assertEquals("Test Script 2", fetchResult.getResult().get(1).getScriptName());
+	}
+
+	@Test
+	public void recordsOfOtherDaysAreNotFetched() throws Exception {
+		repository.createRuntimeRecord(createRecord(1, startTime));
+		repository.createRuntimeRecord(createRecord(2, DateUtils.addDays(startTime, -1)));
+		repository.createRuntimeRecord(createRecord(3, DateUtils.addDays(startTime, 1)));
+
+		List<ScriptRuntimeDTO> records = fetch(RuntimeStatusType.INPROGRESS).getResult();
+		assertEquals(1, records.size());
+		assertEquals(1L, records.get(0).getRuntimeId());
+	}
+
+	@Test
+	public void fetchedResultIsPaginated() throws Exception {
+		for (int i = 0; i < 100; i++) {
+			// Some records have the same start time
+			repository.createRuntimeRecord(createRecord(i + 1, DateUtils.addSeconds(startTime, i / 3)));
+		}
+
+		final ScriptRuntimeCriteria criteria = new ScriptRuntimeCriteria().setStatus(RuntimeStatusType.INPROGRESS)
+				.setStartDate(startTime);
+		final QueryPagingOptions pagingOptions = new QueryPagingOptions().setResultsPerPage(40);
+
+		Set<Object> fetchedIds = new HashSet<>();
+		QueryPage<ScriptRuntimeDTO> page = repository.fetch(criteria, pagingOptions);
+		int pageCount = 1;
+		addRuntimeIds(fetchedIds, page);
+		while (page.getNextPageToken() != null) {
+			page = repository.fetch(criteria, pagingOptions.setPageToken(page.getNextPageToken()));
+			pageCount++;
+			addRuntimeIds(fetchedIds, page);
+		}
+
+		assertEquals(3, pageCount);
+		assertEquals(20, page.getResult().size());
+		assertEquals(100, fetchedIds.size());
+	}
+
+	@Test
+	public void noPageTokenIsReturnedIfAllRecordsFitPage() throws Exception {
+		for (int i = 0; i < 10; i++) {
+			repository.createRuntimeRecord(createRecord(i + 1, startTime));
+		}
+
+		QueryPage<ScriptRuntimeDTO> page = repository.fetch(
+				new ScriptRuntimeCriteria().setStatus(RuntimeStatusType.INPROGRESS).setStartDate(startTime),
+				new QueryPagingOptions().setResultsPerPage(10));
+
+		assertEquals(10, page.getResult().size());
+		assertNull(page.getNextPageToken());
+	}
+
+	@Test
+	public void oldestCompletedRecordsAreEvicted() throws Exception {
+		repository = createRepository("3");
+		ScriptRuntimeDTO runningRecord = createRecord(100, startTime);
+		repository.createRuntimeRecord(runningRecord);
+
+		for (int i = 0; i < 5; i++) {
+			ScriptRuntimeDTO record = createRecord(i + 1, DateUtils.addMinutes(startTime, i));
+			repository.createRuntimeRecord(record);
+			repository.updateRuntimeRecord(record.setStatus(RuntimeStatusType.COMPLETED).setEndTime(startTime));
+		}
+
+		List<ScriptRuntimeDTO> completed = fetch(RuntimeStatusType.COMPLETED).getResult();
+		assertEquals(3, completed.size());
+		assertEquals(5L, completed.get(0).getRuntimeId());
+		assertEquals(3L, completed.get(2).getRuntimeId());
+		assertEquals(1, fetch(RuntimeStatusType.INPROGRESS).getResult().size());
+	}
+
+	@Test
+	public void recordCannotBeUpdatedWithRunningStatus() throws Exception {
+		ScriptRuntimeDTO record = createRecord(1, startTime);
+		repository.createRuntimeRecord(record);
+
+		exceptionRule.expect(PersistenceException.class);
+		exceptionRule.expectMessage("Illegal flow runtime status: In Progress");
+
+		repository.updateRuntimeRecord(record);
+	}
+
+	@Test
+	public void wrongPageTokenIsNotAccepted() throws Exception {
+		exceptionRule.expect(PersistenceException.class);
+		exceptionRule.expectMessage("Wrong query paging token");
+
+		repository.fetch(new ScriptRuntimeCriteria().setStatus(RuntimeStatusType.INPROGRESS).setStartDate(startTime),
+				new QueryPagingOptions().setPageToken("abc"));
+	}
+
+	@Test
+	public void capacityMustBePositiveInteger() throws Exception {
+		exceptionRule.expect(ConfigurationException.class);
+		exceptionRule.expectMessage(
+				"The value of the configuration property [bfa.persistence.runtime.memory.capacity] must be a positive integer");
+
+		createRepository("0");
+	}
+
+	private InMemoryRuntimeRepository createRepository(String capacity) throws Exception {
+		Map<String, String> config = new HashMap<>();
+		if (capacity != null) {
+			config.put("bfa.persistence.runtime.memory.capacity", capacity);
+		}
+		InMemoryRuntimeRepository result = new InMemoryRuntimeRepository();
+		result.setConfiguration(config);
+
+		return result;
+	}
+
+	private ScriptRuntimeDTO createRecord(long runtimeId, Date recordStartTime) {
+		return new ScriptRuntimeDTO().setRuntimeId(runtimeId).setUserName("Test User")
+				.setScriptName("Test Script " + runtimeId).setParameters(Arrays.asList("Param 1", "Param 2"))
+				.setStatus(RuntimeStatusType.INPROGRESS).setStartTime(recordStartTime)
+				.setCallStack(Collections.<String> emptyList());
+	}
+
+	private QueryPage<ScriptRuntimeDTO> fetch(RuntimeStatusType status) throws Exception {
+		return repository.fetch(new ScriptRuntimeCriteria().setStatus(status).setStartDate(startTime),
+				new QueryPagingOptions());
+	}
+
+	private void addRuntimeIds(Set<Object> ids, QueryPage<ScriptRuntimeDTO> page) {
+		for (ScriptRuntimeDTO record : page.getResult()) {
+			ids.add(record.getRuntimeId());
+		}
+	}
+
+}
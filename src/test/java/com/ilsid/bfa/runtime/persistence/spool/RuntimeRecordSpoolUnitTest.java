@@ -0,0 +1,93 @@
+package com.ilsid.bfa.runtime.persistence.spool;
+
+import java.io.File;
+import java.util.Date;
+import java.util.LinkedList;
+import java.util.UUID;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ilsid.bfa.BaseUnitTestCase;
+import com.ilsid.bfa.persistence.PersistenceException;
+import com.ilsid.bfa.runtime.dto.RuntimeStatusType;
+import com.ilsid.bfa.runtime.dto.ScriptRuntimeDTO;
+import com.ilsid.bfa.runtime.persistence.spool.RuntimeRecordSpool.Entry;
+import com.ilsid.bfa.runtime.persistence.spool.RuntimeRecordSpool.Operation;
+
+public class RuntimeRecordSpoolUnitTest extends BaseUnitTestCase {
+
+	private static final File SPOOL_FILE = new File(new File(REPOSITORY_ROOT_DIR, "spool"), "records.spool");
+
+	private static final int SPOOL_SIZE = 4096;
+
+	private static final long APPEND_TIMEOUT_MILLIS = 100;
+
+	private RuntimeRecordSpool spool;
+
+	@Before
+	public void setUp() throws Exception {
+		spool = RuntimeRecordSpool.open(SPOOL_FILE, SPOOL_SIZE);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		spool.close();
+		FileUtils.deleteDirectory(REPOSITORY_ROOT_DIR);
+	}
+
+	@Test
+	public void spaceOfAcknowledgedRecordsIsReusedWhileSpoolIsNeverDrained() throws Exception {
+		final int pendingCount = 10;
+		final int recordsCount = 1000;
+		LinkedList<Entry> pendingEntries = new LinkedList<>();
+		for (int i = 0; i < recordsCount; i++) {
+			// The records size exceeds the spool size many times, but the spool is never empty
+			spool.append(Operation.CREATE, createRecord("Script " + i), APPEND_TIMEOUT_MILLIS);
+			pendingEntries.add(spool.poll(0));
+			if (pendingEntries.size() > pendingCount) {
+				spool.acknowledge(pendingEntries.removeFirst());
+			}
+		}
+		spool.close();
+
+		spool = RuntimeRecordSpool.open(SPOOL_FILE, SPOOL_SIZE);
+		assertEquals(pendingCount, spool.getAppendedCount());
+		for (int i = recordsCount - pendingCount; i < recordsCount; i++) {
+			assertEquals("Script " + i, spool.poll(0).getRecord().getScriptName());
+		}
+	}
+
+	@Test
+	public void entriesAreTakenInAppendingOrder() throws Exception {
+		spool.append(Operation.CREATE, createRecord("Script 1"), APPEND_TIMEOUT_MILLIS);
+		spool.append(Operation.UPDATE, createRecord("Script 1").setStatus(RuntimeStatusType.COMPLETED),
+				APPEND_TIMEOUT_MILLIS);
+
+		Entry creation = spool.poll(0);
+		Entry update = spool.poll(0);
+		assertEquals(Operation.CREATE, creation.getOperation());
+		assertEquals(RuntimeStatusType.INPROGRESS, creation.getRecord().getStatus());
+		assertEquals(Operation.UPDATE, update.getOperation());
+		assertEquals(RuntimeStatusType.COMPLETED, update.getRecord().getStatus());
+		assertNull(spool.poll(0));
+	}
+
+	@Test
+	public void appendFailsIfNotAcknowledgedRecordsOccupyWholeSpool() throws Exception {
+		exceptionRule.expect(PersistenceException.class);
+		exceptionRule.expectMessage("The runtime records spool is full");
+
+		while (true) {
+			spool.append(Operation.CREATE, createRecord("Script"), APPEND_TIMEOUT_MILLIS);
+		}
+	}
+
+	private ScriptRuntimeDTO createRecord(String scriptName) {
+		return new ScriptRuntimeDTO().setRuntimeId(UUID.randomUUID()).setUserName("system").setScriptName(scriptName)
+				.setStatus(RuntimeStatusType.INPROGRESS).setStartTime(new Date());
+	}
+
+}
@@ -0,0 +1,329 @@
+package com.ilsid.bfa.runtime.persistence.spool;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ilsid.bfa.BaseUnitTestCase;
+import com.ilsid.bfa.ConfigurationException;
+import com.ilsid.bfa.persistence.PersistenceException;
+import com.ilsid.bfa.persistence.QueryPage;
+import com.ilsid.bfa.persistence.QueryPagingOptions;
+import com.ilsid.bfa.runtime.dto.RuntimeStatusType;
+import com.ilsid.bfa.runtime.dto.ScriptRuntimeCriteria;
+import com.ilsid.bfa.runtime.dto.ScriptRuntimeDTO;
+import com.ilsid.bfa.runtime.persistence.RuntimeRepository;
+
+public class WriteBehindRuntimeRepositoryUnitTest extends BaseUnitTestCase {
+
+	private static final File SPOOL_DIR = new File(REPOSITORY_ROOT_DIR, "spool");
+
+	private static final long WAIT_TIMEOUT_MILLIS = 10000;
+
+	private static final long CLOSE_TIMEOUT_MILLIS = 1000;
+
+	private WriteBehindRuntimeRepository repository;
+
+	@Before
+	public void setUp() throws Exception {
+		FileUtils.forceMkdir(SPOOL_DIR);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		if (repository != null) {
+			repository.close(CLOSE_TIMEOUT_MILLIS);
+		}
+		FileUtils.deleteDirectory(REPOSITORY_ROOT_DIR);
+	}
+
+	@Test
+	public void recordsAreWrittenAsynchronously() throws Exception {
+		RecordingRepository delegate = new RecordingRepository();
+		repository = createRepository(delegate, "1");
+
+		ScriptRuntimeDTO record = createRecord();
+		repository.createRuntimeRecord(record);
+		repository.updateRuntimeRecord(completed(record));
+
+		delegate.awaitWrites(1);
+		assertEquals(RuntimeStatusType.COMPLETED, delegate.writes.get(delegate.writes.size() - 1).getStatus());
+	}
+
+	@Test
+	public void creationIsSkippedIfUpdateIsInSameBatch() throws Exception {
+		RecordingRepository delegate = new RecordingRepository();
+		delegate.blockFirstWrite();
+		repository = createRepository(delegate, "1", true);
+
+		ScriptRuntimeDTO blockingRecord = createRecord();
+		repository.createRuntimeRecord(blockingRecord);
+		delegate.awaitFirstWriteStarted();
+
+		ScriptRuntimeDTO record = createRecord();
+		ScriptRuntimeDTO subflowRecord = createRecord().setRuntimeId(record.getRuntimeId())
+				.setCallStack(Arrays.asList("Parent"));
+		repository.createRuntimeRecord(record);
+		repository.createRuntimeRecord(subflowRecord);
+		repository.updateRuntimeRecord(completed(subflowRecord));
+		repository.updateRuntimeRecord(completed(record));
+		delegate.releaseFirstWrite();
+
+		delegate.awaitWrites(3);
+		assertEquals(3, delegate.writes.size());
+		assertEquals(blockingRecord.getRuntimeId(), delegate.writes.get(0).getRuntimeId());
+		assertEquals(RuntimeStatusType.COMPLETED, delegate.writes.get(1).getStatus());
+		assertEquals(1, delegate.writes.get(1).getCallStack().size());
+		assertEquals(RuntimeStatusType.COMPLETED, delegate.writes.get(2).getStatus());
+		assertNull(delegate.writes.get(2).getCallStack());
+	}
+
+	@Test
+	public void creationIsWrittenIfCoalescingIsNotAllowed() throws Exception {
+		RecordingRepository delegate = new RecordingRepository();
+		delegate.blockFirstWrite();
+		repository = createRepository(delegate, "1");
+
+		repository.createRuntimeRecord(createRecord());
+		delegate.awaitFirstWriteStarted();
+
+		ScriptRuntimeDTO record = createRecord();
+		repository.createRuntimeRecord(record);
+		repository.updateRuntimeRecord(completed(record));
+		delegate.releaseFirstWrite();
+
+		delegate.awaitWrites(3);
+		assertEquals(RuntimeStatusType.INPROGRESS, delegate.writes.get(1).getStatus());
+		assertEquals(RuntimeStatusType.COMPLETED, delegate.writes.get(2).getStatus());
+	}
+
+	@Test
+	public void appendedRecordIsNotAffectedByFurtherChanges() throws Exception {
+		RecordingRepository delegate = new RecordingRepository();
+		delegate.blockFirstWrite();
+		repository = createRepository(delegate, "1");
+
+		repository.createRuntimeRecord(createRecord());
+		delegate.awaitFirstWriteStarted();
+
+		ScriptRuntimeDTO record = createRecord();
+		repository.createRuntimeRecord(record);
+		record.setStatus(RuntimeStatusType.COMPLETED).setScriptName("Changed");
+		delegate.releaseFirstWrite();
+
+		delegate.awaitWrites(2);
+		assertEquals(RuntimeStatusType.INPROGRESS, delegate.writes.get(1).getStatus());
+		assertEquals("Test Script", delegate.writes.get(1).getScriptName());
+	}
+
+	@Test
+	public void recordThatCanNotBeWrittenIsMovedToDeadLetterFile() throws Exception {
+		RecordingRepository delegate = new RecordingRepository();
+		delegate.failedScriptName = "Failed Script";
+		delegate.blockFirstWrite();
+		Map<String, String> config = createConfig("1");
+		config.put("bfa.persistence.runtime.write_behind.max_attempts", "2");
+		repository = createRepository(delegate, config, false);
+
+		repository.createRuntimeRecord(createRecord());
+		delegate.awaitFirstWriteStarted();
+
+		ScriptRuntimeDTO failedRecord = createRecord().setScriptName("Failed Script");
+		ScriptRuntimeDTO record = createRecord();
+		repository.createRuntimeRecord(failedRecord);
+		repository.createRuntimeRecord(record);
+		delegate.releaseFirstWrite();
+
+		delegate.awaitWrites(2);
+		// The next records are not blocked
+		repository.createRuntimeRecord(createRecord());
+		delegate.awaitWrites(3);
+
+		assertEquals(record.getRuntimeId(), delegate.writes.get(1).getRuntimeId());
+		String deadLetters = FileUtils.readFileToString(new File(SPOOL_DIR, "records.spool.failed"), "UTF-8");
+		assertTrue(deadLetters.startsWith("CREATE {"));
+		assertTrue(deadLetters.contains(failedRecord.getRuntimeId().toString()));
+		assertTrue(deadLetters.contains("Failed Script"));
+	}
+
+	@Test
+	public void notWrittenRecordsAreRecoveredFromSpool() throws Exception {
+		RecordingRepository failingDelegate = new RecordingRepository();
+		failingDelegate.failWrites = true;
+		repository = createRepository(failingDelegate, "1");
+
+		ScriptRuntimeDTO record = createRecord().setParameters(Arrays.asList("abc", "\u0442\u0435\u0441\u0442"));
+		repository.createRuntimeRecord(record);
+		repository.close(CLOSE_TIMEOUT_MILLIS);
+
+		RecordingRepository delegate = new RecordingRepository();
+		repository = createRepository(delegate, "1");
+
+		delegate.awaitWrites(1);
+		ScriptRuntimeDTO recovered = delegate.writes.get(0);
+		assertEquals(record.getRuntimeId(), recovered.getRuntimeId());
+		assertEquals(record.getScriptName(), recovered.getScriptName());
+		assertEquals(record.getStartTime(), recovered.getStartTime());
+		assertEquals(record.getParameters(), recovered.getParameters());
+		assertEquals(RuntimeStatusType.INPROGRESS, recovered.getStatus());
+		assertNull(recovered.getEndTime());
+	}
+
+	@Test
+	public void spoolIsReusedAfterRecordsAreWritten() throws Exception {
+		RecordingRepository delegate = new RecordingRepository();
+		repository = createRepository(delegate, "1");
+
+		// Total size of the records exceeds the spool size
+		final int recordsCount = 20000;
+		for (int i = 0; i < recordsCount; i++) {
+			repository.updateRuntimeRecord(completed(createRecord()));
+		}
+
+		delegate.awaitWrites(recordsCount);
+		assertEquals(recordsCount, delegate.writes.size());
+	}
+
+	@Test
+	public void invalidSpoolSizeIsRejected() throws Exception {
+		exceptionRule.expect(ConfigurationException.class);
+		exceptionRule.expectMessage(
+				"The value of the configuration property [bfa.persistence.runtime.write_behind.spool_size] must be a positive integer");
+
+		createRepository(new RecordingRepository(), "0");
+	}
+
+	@Test
+	@SuppressWarnings("serial")
+	public void writeBehindModeIsDisabledByDefault() {
+		assertFalse(WriteBehindRuntimeRepository.isEnabled(new HashMap<String, String>()));
+		assertTrue(WriteBehindRuntimeRepository.isEnabled(new HashMap<String, String>() {
+			{
+				put("bfa.persistence.runtime.write_behind.enabled", "true");
+			}
+		}));
+	}
+
+	private WriteBehindRuntimeRepository createRepository(RuntimeRepository delegate, String spoolSize)
+			throws Exception {
+		return createRepository(delegate, spoolSize, false);
+	}
+
+	private WriteBehindRuntimeRepository createRepository(RuntimeRepository delegate, String spoolSize,
+			boolean coalescing) throws Exception {
+		return createRepository(delegate, createConfig(spoolSize), coalescing);
+	}
+
+	private WriteBehindRuntimeRepository createRepository(RuntimeRepository delegate, Map<String, String> config,
+			boolean coalescing) throws Exception {
+		WriteBehindRuntimeRepository result = new WriteBehindRuntimeRepository(delegate, coalescing);
+		result.setConfiguration(config);
+
+		return result;
+	}
+
+	private Map<String, String> createConfig(String spoolSize) {
+		Map<String, String> config = new HashMap<>();
+		config.put("bfa.persistence.runtime.write_behind.spool_file", new File(SPOOL_DIR, "records.spool").getPath());
+		config.put("bfa.persistence.runtime.write_behind.spool_size", spoolSize);
+
+		return config;
+	}
+
+	private ScriptRuntimeDTO createRecord() {
+		return new ScriptRuntimeDTO().setRuntimeId(UUID.randomUUID()).setUserName("system")
+				.setScriptName("Test Script").setStatus(RuntimeStatusType.INPROGRESS).setStartTime(new Date());
+	}
+
+	private ScriptRuntimeDTO completed(ScriptRuntimeDTO record) {
+		return new ScriptRuntimeDTO().setRuntimeId(record.getRuntimeId()).setUserName(record.getUserName())
+				.setScriptName(record.getScriptName()).setStartTime(record.getStartTime())
+				.setCallStack(record.getCallStack()).setStatus(RuntimeStatusType.COMPLETED).setEndTime(new Date());
+	}
+
+	private static class RecordingRepository implements RuntimeRepository {
+
+		final List<ScriptRuntimeDTO> writes = new CopyOnWriteArrayList<>();
+
+		volatile boolean failWrites;
+
+		volatile String failedScriptName;
+
+		private CountDownLatch firstWriteStarted;
+
+		private CountDownLatch firstWriteRelease;
+
+		void blockFirstWrite() {
+			firstWriteStarted = new CountDownLatch(1);
+			firstWriteRelease = new CountDownLatch(1);
+		}
+
+		void awaitFirstWriteStarted() throws InterruptedException {
+			Assert.assertTrue(firstWriteStarted.await(WAIT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+		}
+
+		void releaseFirstWrite() {
+			firstWriteRelease.countDown();
+		}
+
+		void awaitWrites(int count) throws InterruptedException {
+			final long deadline = System.currentTimeMillis() + WAIT_TIMEOUT_MILLIS;
+			while (writes.size() < count && System.currentTimeMillis() < deadline) {
+				Thread.sleep(10);
+			}
+			Assert.assertTrue(writes.size() >= count);
+		}
+
+		public void setConfiguration(Map<String, String> config) {
+		}
+
+		public Object getNextRuntimeId() throws PersistenceException {
+			return UUID.randomUUID();
+		}
+
+		public void createRuntimeRecord(ScriptRuntimeDTO record) throws PersistenceException {
+			write(record);
+		}
+
+		public void updateRuntimeRecord(ScriptRuntimeDTO record) throws PersistenceException {
+			write(record);
+		}
+
+		public QueryPage<ScriptRuntimeDTO> fetch(ScriptRuntimeCriteria criteria, QueryPagingOptions pagingOptions)
+				throws PersistenceException {
+			return new QueryPage<>(new ArrayList<ScriptRuntimeDTO>(), null);
+		}
+
+		private void write(ScriptRuntimeDTO record) throws PersistenceException {
+			if (failWrites || record.getScriptName().equals(failedScriptName)) {
+				throw new PersistenceException("Test write failure");
+			}
+
+			if (firstWriteStarted != null && firstWriteStarted.getCount() > 0) {
+				firstWriteStarted.countDown();
+				try {
+					firstWriteRelease.await(WAIT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			writes.add(record);
+		}
+
+	}
+
+}
@@ -0,0 +1,155 @@
+package com.ilsid.bfa.script;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import com.ilsid.bfa.BaseUnitTestCase;
+
+public class AdmissionControlUnitTest extends BaseUnitTestCase {
+
+	private static final long WAIT_TIMEOUT_MILLIS = 10000;
+
+	@Test
+	public void scriptsAreAdmittedWithinGlobalLimit() throws Exception {
+		AdmissionControl admission = new AdmissionControl(2, 0, 0, 0);
+		admission.acquire("Script A", false);
+		admission.acquire("Script B", false);
+
+		assertEquals(2, admission.getActiveCount());
+
+		exceptionRule.expect(ScriptRejectedException.class);
+		exceptionRule.expectMessage(
+				"The script [Script C] is rejected. The limit of concurrently executed scripts is reached");
+
+		admission.acquire("Script C", true);
+	}
+
+	@Test
+	public void releasedPermitCanBeReused() throws Exception {
+		AdmissionControl admission = new AdmissionControl(1, 1, 0, 0);
+		admission.acquire("Script A", false);
+		admission.release("Script A");
+		admission.acquire("Script A", false);
+
+		assertEquals(1, admission.getActiveCount());
+	}
+
+	@Test
+	public void scriptsAreAdmittedWithinPerScriptLimit() throws Exception {
+		AdmissionControl admission = new AdmissionControl(0, 1, 0, 0);
+		admission.acquire("Script A", false);
+		admission.acquire("Script B", false);
+
+		exceptionRule.expect(ScriptRejectedException.class);
+		exceptionRule.expectMessage(
+				"The script [Script A] is rejected. The limit of concurrently executed scripts with such name is reached");
+
+		admission.acquire("Script A", true);
+	}
+
+	@Test
+	public void rejectionByGlobalLimitDoesNotHoldPerScriptPermit() throws Exception {
+		AdmissionControl admission = new AdmissionControl(1, 1, 0, 0);
+		admission.acquire("Script A", false);
+		try {
+			admission.acquire("Script B", false);
+			fail("Script B must be rejected");
+		} catch (ScriptRejectedException e) {
+			// Expected
+		}
+		admission.release("Script A");
+
+		admission.acquire("Script B", false);
+		assertEquals(1, admission.getActiveCount());
+	}
+
+	@Test
+	public void waitingCallerIsAdmittedAfterRelease() throws Exception {
+		final AdmissionControl admission = new AdmissionControl(1, 0, 1, WAIT_TIMEOUT_MILLIS);
+		admission.acquire("Script A", false);
+
+		final CountDownLatch admitted = new CountDownLatch(1);
+		final AtomicReference<Exception> failure = new AtomicReference<>();
+		Thread waitingThread = new Thread(new Runnable() {
+
+			public void run() {
+				try {
+					admission.acquire("Script B", true);
+					admitted.countDown();
+				} catch (ScriptRejectedException e) {
+					failure.set(e);
+				}
+			}
+		});
+		waitingThread.start();
+
+		waitForWaitingCount(admission, 1);
+		assertEquals(1L, admitted.getCount());
+		admission.release("Script A");
+
+		assertTrue(admitted.await(WAIT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+		waitingThread.join(WAIT_TIMEOUT_MILLIS);
+		assertNull(failure.get());
+		assertEquals(0, admission.getWaitingCount());
+		assertEquals(1, admission.getActiveCount());
+	}
+
+	@Test
+	public void callerIsRejectedIfQueueIsFull() throws Exception {
+		final AdmissionControl admission = new AdmissionControl(1, 0, 1, WAIT_TIMEOUT_MILLIS);
+		admission.acquire("Script A", false);
+
+		Thread waitingThread = new Thread(new Runnable() {
+
+			public void run() {
+				try {
+					admission.acquire("Script B", true);
+				} catch (ScriptRejectedException e) {
+					// Not expected, verified by the waiting count
+				}
+			}
+		});
+		waitingThread.start();
+		waitForWaitingCount(admission, 1);
+
+		try {
+			admission.acquire("Script C", true);
+			fail("Script C must be rejected");
+		} catch (ScriptRejectedException e) {
+			assertEquals("The script [Script C] is rejected. The limit of concurrently executed scripts is reached",
+					e.getMessage());
+		} finally {
+			admission.release("Script A");
+			waitingThread.join(WAIT_TIMEOUT_MILLIS);
+		}
+	}
+
+	@Test
+	public void callerIsRejectedIfWaitingTimeIsExceeded() throws Exception {
+		AdmissionControl admission = new AdmissionControl(1, 0, 1, 50);
+		admission.acquire("Script A", false);
+
+		exceptionRule.expect(ScriptRejectedException.class);
+		exceptionRule.expectMessage("The script [Script B] is rejected. The waiting time for the execution is exceeded");
+
+		try {
+			admission.acquire("Script B", true);
+		} finally {
+			assertEquals(0, admission.getWaitingCount());
+		}
+	}
+
+	private void waitForWaitingCount(AdmissionControl admission, int expectedCount) throws InterruptedException {
+		final long deadline = System.currentTimeMillis() + WAIT_TIMEOUT_MILLIS;
+		while (admission.getWaitingCount() != expectedCount) {
+			if (System.currentTimeMillis() > deadline) {
+				fail("The waiting count is not reached: " + expectedCount);
+			}
+			Thread.sleep(10);
+		}
+	}
+
+}
@@ -1,6 +1,7 @@
 package com.ilsid.bfa.script;
 
 import java.lang.reflect.Field;
+import java.util.Arrays;
 import java.util.Map;
 
 import org.apache.commons.lang3.StringUtils;
@@ -52,6 +53,14 @@ public class ClassCompilerUnitTest extends BaseUnitTestCase {
 		script.execute();
 	}
 
+	@Test
+	public void scriptWithoutVariablesCanBeCompiled() throws Exception {
+		final String scriptClassName = "scriptWithoutVariablesCanBeCompiled.TestScript71";
+		ScriptCompilationUnit scriptUnit = compileScript(scriptClassName, "empty-script.txt");
+
+		assertNotNull(loadFromBytecode(scriptClassName, scriptUnit.getByteCode()));
+	}
+
 	@Test
 	public void scriptWithSameNameCanBeCompiledMultipleTimes() {
 		try {
@@ -94,6 +103,77 @@ public class ClassCompilerUnitTest extends BaseUnitTestCase {
 		script.execute();
 	}
 
+	@Test
+	public void variablesAreAccessedBySlotsAssignedOnCompilation() throws Exception {
+		final String scriptClassName = "variablesAreAccessedBySlotsAssignedOnCompilation.TestScript66";
+		ScriptCompilationUnit scriptUnit = compileScript(scriptClassName, "conditional-declarations-script.txt");
+		assertTrue(scriptUnit.getGeneratedSource().contains("setLocalVar(3, scriptContext.getVar(2).getIntValue() + "));
+
+		Script script = (Script) loadFromBytecode(scriptClassName, scriptUnit.getByteCode()).newInstance();
+		assertEquals(Arrays.asList("Var1", "Var2", "Var3", "Res"), Arrays.asList(script.getVarSlotNames()));
+
+		// Var2 is not declared in runtime, but Var3 and Res keep the slots assigned on compilation
+		script.execute();
+		assertNull(script.scriptContext.getVar(1));
+		assertEquals(2, script.scriptContext.getVar(2).getValue());
+		assertEquals(3, script.scriptContext.getVar(3).getValue());
+		assertEquals(3, script.scriptContext.getVar("Res").getValue());
+	}
+
+	@Test
+	public void conditionsWithOperandsOfSamePrimitiveTypeAreCompiledInline() throws Exception {
+		final String scriptClassName = "conditionsWithOperandsOfSamePrimitiveTypeAreCompiledInline.TestScript67";
+		ScriptCompilationUnit scriptUnit = compileScript(scriptClassName, "single-loop-script.txt");
+		assertTrue(scriptUnit.getGeneratedSource()
+				.contains("while (lessOrEqual(scriptContext.getVar(0).getIntValue(), 10))"));
+
+		Script script = (Script) loadFromBytecode(scriptClassName, scriptUnit.getByteCode()).newInstance();
+		script.execute();
+		assertEquals(11, script.scriptContext.getVar(0).getValue());
+	}
+
+	@Test
+	public void conditionsWithOperandsOfDifferentTypesAreEvaluatedInRuntime() throws Exception {
+		ScriptCompilationUnit scriptUnit = compileScript("conditionsWithOperandsOfDifferentTypesAreEvaluatedInRuntime.TestScript68",
+				"composite-condition-script.txt");
+		final String source = scriptUnit.getGeneratedSource();
+
+		assertTrue(source.contains("equal(scriptContext.getVar(0).getIntValue(), 1)"));
+		// Decimal variable is compared with Number value
+		assertTrue(
+				source.contains("Equal(Double.valueOf(scriptContext.getVar(1).getDoubleValue()), Integer.valueOf(33))"));
+	}
+
+	@Test
+	public void scriptWithParallelSubflowsCanBeCompiled() throws Exception {
+		final String scriptClassName = "scriptWithParallelSubflowsCanBeCompiled.TestScript55";
+		ScriptCompilationUnit scriptUnit = compileScript(scriptClassName, "parallel-subflows-script.txt");
+
+		assertTrue(scriptUnit.getGeneratedSource().contains(
+				"ParallelSubFlows(new String[] { \"Some Sub-Flow 1\", \"Some Sub-Flow 2\", \"Some Sub-Flow 3\" })"));
+		assertNotNull(loadFromBytecode(scriptClassName, scriptUnit.getByteCode()));
+	}
+
+	@Test
+	public void smallScriptWithoutSubflowsIsInlinable() throws Exception {
+		final String scriptClassName = "smallScriptWithoutSubflowsIsInlinable.TestScript72";
+		ScriptCompilationUnit scriptUnit = compileScript(scriptClassName, "single-action-with-params-script.txt");
+
+		assertTrue(scriptUnit.isInlinable());
+		Script script = (Script) loadFromBytecode(scriptClassName, scriptUnit.getByteCode()).newInstance();
+		assertTrue(script.isInlinable());
+	}
+
+	@Test
+	public void scriptWithSubflowsIsNotInlinable() throws Exception {
+		final String scriptClassName = "scriptWithSubflowsIsNotInlinable.TestScript73";
+		ScriptCompilationUnit scriptUnit = compileScript(scriptClassName, "parallel-subflows-script.txt");
+
+		assertFalse(scriptUnit.isInlinable());
+		Script script = (Script) loadFromBytecode(scriptClassName, scriptUnit.getByteCode()).newInstance();
+		assertFalse(script.isInlinable());
+	}
+
 	@Test
 	public void errorDetailsAreProvidedIfScriptContainsInvalidExpression() throws Exception {
 		exceptionRule.expect(ClassCompilationException.class);
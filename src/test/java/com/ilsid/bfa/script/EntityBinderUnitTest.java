@@ -0,0 +1,95 @@
+package com.ilsid.bfa.script;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.ilsid.bfa.BaseUnitTestCase;
+import com.ilsid.bfa.test.types.Contract;
+import com.ilsid.bfa.test.types.ContractHolder;
+
+public class EntityBinderUnitTest extends BaseUnitTestCase {
+
+	@Test
+	public void entityIsPopulatedFromMap() throws Exception {
+		Map<String, Object> values = new HashMap<>();
+		values.put("Days", 33);
+		values.put("MonthlyFee", "77.99");
+		values.put("ID", "abc");
+
+		Contract contract = (Contract) EntityBinder.bind(values, Contract.class);
+
+		assertEquals(33, contract.Days);
+		assertEquals(77.99, contract.MonthlyFee);
+		assertEquals("abc", contract.ID);
+		// The fields missing in the map keep their initial values
+		assertEquals(true, contract.IsValid);
+	}
+
+	@Test
+	public void nestedEntityIsPopulatedFromNestedMap() throws Exception {
+		Map<String, Object> details = new HashMap<>();
+		details.put("Discount", "1.5");
+
+		Map<String, Object> contract = new HashMap<>();
+		contract.put("Days", "5");
+		contract.put("Details", details);
+
+		Map<String, Object> values = new HashMap<>();
+		values.put("ID", 11);
+		values.put("Contract", contract);
+
+		ContractHolder holder = (ContractHolder) EntityBinder.bind(values, ContractHolder.class);
+
+		assertEquals(11, holder.ID);
+		assertEquals(5, holder.Contract.Days);
+		assertEquals(1.5, holder.Contract.Details.Discount);
+	}
+
+	@Test
+	public void nullValueResetsField() throws Exception {
+		Map<String, Object> values = new HashMap<>();
+		values.put("Details", null);
+
+		Contract contract = (Contract) EntityBinder.bind(values, Contract.class);
+
+		assertNull(contract.Details);
+	}
+
+	@Test
+	public void mapWithNonExistentFieldIsNotBound() throws Exception {
+		exceptionRule.expect(InvalidTypeException.class);
+		exceptionRule.expectMessage("[{nonContractField=someValue}] is not a value of type Contract");
+
+		Map<String, Object> values = new HashMap<>();
+		values.put("nonContractField", "someValue");
+
+		EntityBinder.bind(values, Contract.class);
+	}
+
+	@Test
+	public void mapWithValueOfInvalidTypeIsNotBound() throws Exception {
+		exceptionRule.expect(InvalidTypeException.class);
+		exceptionRule.expectMessage("[{Days=abc}] is not a value of type Contract");
+
+		Map<String, Object> values = new HashMap<>();
+		values.put("Days", "abc");
+
+		EntityBinder.bind(values, Contract.class);
+	}
+
+	@Test
+	public void inputParametersOfPredefinedTypesAreNotChanged() throws Exception {
+		Map<String, Object> map = new HashMap<>();
+		Object[] params = new Object[] { "1", map };
+
+		Object[] boundParams = EntityBinder.bindInputParameters(params, Arrays.asList("Number", "String"));
+
+		assertEquals(2, boundParams.length);
+		assertSame(params[0], boundParams[0]);
+		assertSame(map, boundParams[1]);
+	}
+
+}
@@ -0,0 +1,60 @@
+package com.ilsid.bfa.script;
+
+import org.junit.Test;
+
+import com.ilsid.bfa.BaseUnitTestCase;
+import com.ilsid.bfa.test.types.Contract;
+import com.ilsid.bfa.test.types.ContractDetails;
+
+public class EntityFieldsUnitTest extends BaseUnitTestCase {
+
+	@Test
+	public void fieldValueCanBeSet() throws Exception {
+		Contract contract = new Contract();
+		EntityFields.setValue(contract, "Days", 5);
+		EntityFields.setValue(contract, "ID", "abc");
+
+		assertEquals(5, contract.Days);
+		assertEquals("abc", contract.ID);
+	}
+
+	@Test
+	public void fieldValueIsConvertedToFieldType() throws Exception {
+		Contract contract = new Contract();
+		EntityFields.setValue(contract, "MonthlyFee", "7.5");
+
+		assertEquals(7.5, contract.MonthlyFee);
+	}
+
+	@Test
+	public void fieldValueCanBeReset() throws Exception {
+		Contract contract = new Contract();
+		EntityFields.setValue(contract, "Details", null);
+
+		assertNull(contract.Details);
+	}
+
+	@Test
+	public void valueOfInvalidTypeIsNotAllowed() throws Exception {
+		exceptionRule.expect(InvalidTypeException.class);
+
+		EntityFields.setValue(new Contract(), "Days", "abc");
+	}
+
+	@Test
+	public void nonExistentFieldCanNotBeSet() throws Exception {
+		exceptionRule.expect(IllegalStateException.class);
+		exceptionRule.expectMessage(
+				"Failed to set the field [NonExistent] for [class com.ilsid.bfa.test.types.Contract] instance");
+
+		EntityFields.setValue(new Contract(), "NonExistent", 1);
+	}
+
+	@Test
+	public void fieldTypeIsProvided() {
+		assertSame(Integer.class, EntityFields.getType(Contract.class, "Days"));
+		assertSame(ContractDetails.class, EntityFields.getType(Contract.class, "Details"));
+		assertNull(EntityFields.getType(Contract.class, "NonExistent"));
+	}
+
+}
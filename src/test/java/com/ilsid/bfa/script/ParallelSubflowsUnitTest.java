@@ -0,0 +1,92 @@
+package com.ilsid.bfa.script;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.ilsid.bfa.BaseUnitTestCase;
+import com.ilsid.bfa.action.persistence.ActionLocator;
+import com.ilsid.bfa.action.persistence.filesystem.ActionRepositoryInitializer;
+import com.ilsid.bfa.runtime.dto.RuntimeStatusType;
+import com.ilsid.bfa.runtime.dto.ScriptRuntimeDTO;
+
+public class ParallelSubflowsUnitTest extends BaseUnitTestCase {
+
+	private static final String PARENT_SCRIPT_NAME = "Parent Script";
+
+	private static ScriptRuntime runtime;
+
+	private static StubRuntimeRepository repository;
+
+	@BeforeClass
+	public static void beforeClass() throws Exception {
+		ScriptingRepositoryInitializer.init();
+
+		repository = new StubRuntimeRepository();
+		runtime = new ScriptRuntime();
+		runtime.setRepository(repository);
+
+		final ActionLocator actionLocator = new ActionLocator();
+		actionLocator.setRepository(ActionRepositoryInitializer.init());
+		runtime.setActionLocator(actionLocator);
+	}
+
+	@AfterClass
+	public static void afterClass() throws Exception {
+		runtime.shutdown();
+		ScriptingRepositoryInitializer.cleanup();
+	}
+
+	@Test
+	public void subflowsShareRuntimeIdAndCallStack() throws Exception {
+		final Object runtimeId = repository.getNextRuntimeId();
+
+		runtime.runSubflowsInParallel(new String[] { "Script001", "SingleSubflowScript" }, runtimeId,
+				createCallStack());
+
+		List<ScriptRuntimeDTO> records = repository.getAllRecords(runtimeId);
+		// SingleSubflowScript runs one more sub-flow
+		assertEquals(3, records.size());
+
+		Set<Integer> branches = new HashSet<>();
+		for (ScriptRuntimeDTO record : records) {
+			assertEquals(RuntimeStatusType.COMPLETED, record.getStatus());
+			assertEquals(PARENT_SCRIPT_NAME, record.getCallStack().toArray()[record.getCallStack().size() - 1]);
+			if (record.getCallStack().size() == 1) {
+				assertTrue(branches.add(record.getBranch()));
+			}
+		}
+		assertEquals(new HashSet<>(Arrays.asList(0, 1)), branches);
+	}
+
+	@Test
+	public void failureOfSubflowIsReportedAfterAllSubflowsAreCompleted() throws Exception {
+		final Object runtimeId = repository.getNextRuntimeId();
+
+		try {
+			runtime.runSubflowsInParallel(
+					new String[] { "Script001", "Custom Group 003::Failed Script", "SingleSubflowScript" }, runtimeId,
+					createCallStack());
+			fail(ScriptException.class.getSimpleName() + " is expected");
+		} catch (ScriptException e) {
+			assertEquals("Execution of the action [Failed Action] failed", e.getMessage());
+		}
+
+		List<ScriptRuntimeDTO> records = repository.getAllRecords(runtimeId);
+		assertEquals(4, records.size());
+		for (ScriptRuntimeDTO record : records) {
+			assertTrue(record.getStatus() != RuntimeStatusType.INPROGRESS);
+		}
+	}
+
+	private LinkedList<String> createCallStack() {
+		return new LinkedList<>(Arrays.asList(PARENT_SCRIPT_NAME));
+	}
+
+}
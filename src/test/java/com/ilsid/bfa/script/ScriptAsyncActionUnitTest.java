@@ -0,0 +1,266 @@
+package com.ilsid.bfa.script;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.jmock.Expectations;
+import org.junit.After;
+import org.junit.Test;
+
+import com.ilsid.bfa.BaseUnitTestCase;
+import com.ilsid.bfa.action.Action;
+import com.ilsid.bfa.action.ActionContext;
+import com.ilsid.bfa.action.ActionException;
+import com.ilsid.bfa.action.AsyncAction;
+import com.ilsid.bfa.action.Stateless;
+import com.ilsid.bfa.action.persistence.ActionLocator;
+
+public class ScriptAsyncActionUnitTest extends BaseUnitTestCase {
+
+	private static final long WAIT_TIMEOUT_SECONDS = 10;
+
+	private final ActionLocator actionLocator = mock(ActionLocator.class);
+
+	@After
+	public void tearDown() {
+		ActionContext.cleanup();
+	}
+
+	@Test
+	public void startedActionsAreExecutedInParallel() throws Exception {
+		// Each action waits for the other one, so the actions would never complete if executed sequentially
+		final CountDownLatch latch = new CountDownLatch(2);
+		lookupReturns("Action 1", new LatchAction(latch, "Result 1"));
+		lookupReturns("Action 2", new LatchAction(latch, "Result 2"));
+
+		Script script = new Script() {
+
+			@Override
+			protected void doExecute() throws ScriptException {
+				DeclareLocalVar("Var1", PredefinedTypes.STRING);
+				DeclareLocalVar("Var2", PredefinedTypes.STRING);
+				StartAction("Action 1");
+				StartAction("Action 2");
+				JoinAction("Action 2").SetLocalVar("Var2");
+				JoinAction("Action 1").SetLocalVar("Var1");
+			}
+		};
+		execute(script);
+
+		assertEquals("Result 1", script.scriptContext.getVar("Var1").getValue());
+		assertEquals("Result 2", script.scriptContext.getVar("Var2").getValue());
+	}
+
+	@Test
+	public void blockingActionCanBeStartedAndJoined() throws Exception {
+		lookupReturns("Action 1", new Action() {
+
+			@Override
+			public Object[] execute() throws ActionException {
+				return new Object[] { getInputParameters()[0] };
+			}
+		});
+
+		Script script = new Script() {
+
+			@Override
+			protected void doExecute() throws ScriptException {
+				DeclareLocalVar("Var1", PredefinedTypes.STRING);
+				StartAction("Action 1", new Object[] { "Input 1" });
+				JoinAction("Action 1").SetLocalVar("Var1");
+			}
+		};
+		execute(script);
+
+		assertEquals("Input 1", script.scriptContext.getVar("Var1").getValue());
+	}
+
+	@Test
+	public void failureOfNotJoinedActionIsReported() throws Exception {
+		exceptionRule.expect(ScriptException.class);
+		exceptionRule.expectMessage("Execution of the action [Action 1] failed");
+
+		lookupReturns("Action 1", new AsyncAction() {
+
+			@Override
+			public Future<Object[]> executeAsync() throws ActionException {
+				return submit(new Callable<Object[]>() {
+
+					public Object[] call() throws Exception {
+						throw new ActionException("Test action failed");
+					}
+				});
+			}
+		});
+
+		execute(new Script() {
+
+			@Override
+			protected void doExecute() throws ScriptException {
+				StartAction("Action 1");
+			}
+		});
+	}
+
+	@Test
+	public void notStartedActionCanNotBeJoined() throws Exception {
+		exceptionRule.expect(ScriptException.class);
+		exceptionRule.expectMessage("The action [Action 1] has not been started");
+
+		execute(new Script() {
+
+			@Override
+			protected void doExecute() throws ScriptException {
+				JoinAction("Action 1");
+			}
+		});
+	}
+
+	@Test
+	public void actionCanNotBeStartedTwiceWithoutJoin() throws Exception {
+		exceptionRule.expect(ScriptException.class);
+		exceptionRule.expectMessage("The action [Action 1] is already started");
+
+		lookupReturns("Action 1", new LatchAction(new CountDownLatch(0), "Result 1"));
+
+		execute(new Script() {
+
+			@Override
+			protected void doExecute() throws ScriptException {
+				StartAction("Action 1");
+				StartAction("Action 1");
+			}
+		});
+	}
+
+	@Test
+	public void actionsGetFlowContextInsteadOfThreadContext() throws Exception {
+		ActionContext.getInstance().putParameter("Prefix", "Thread ");
+		final ActionContext flowContext = ActionContext.create();
+		flowContext.putParameter("Prefix", "Flow ");
+
+		lookupReturns("Action 1", new Action() {
+
+			@Override
+			public Object[] execute() throws ActionException {
+				return new Object[] { getContext().getParameter("Prefix") };
+			}
+		});
+		lookupReturns("Action 2", new AsyncAction() {
+
+			@Override
+			public Future<Object[]> executeAsync() throws ActionException {
+				return submit(new Callable<Object[]>() {
+
+					public Object[] call() throws Exception {
+						return new Object[] { getContext().getParameter("Prefix"),
+								ActionContext.getInstance().getParameter("Prefix") };
+					}
+				});
+			}
+		});
+
+		Script script = new Script() {
+
+			@Override
+			protected void doExecute() throws ScriptException {
+				DeclareLocalVar("Var1", PredefinedTypes.STRING);
+				DeclareLocalVar("Var2", PredefinedTypes.STRING);
+				DeclareLocalVar("Var3", PredefinedTypes.STRING);
+				Action("Action 1").SetLocalVar("Var1");
+				StartAction("Action 2");
+				JoinAction("Action 2").SetLocalVar("Var2").SetLocalVar("Var3");
+			}
+		};
+		script.setActionContext(flowContext);
+		execute(script);
+
+		assertEquals("Flow ", script.scriptContext.getVar("Var1").getValue());
+		assertEquals("Flow ", script.scriptContext.getVar("Var2").getValue());
+		// The thread local view refers to the flow context in the action thread as well
+		assertEquals("Flow ", script.scriptContext.getVar("Var3").getValue());
+	}
+
+	@Test
+	public void contextOfStatelessActionIsNotKeptByThread() throws Exception {
+		final ActionContext flowContext = ActionContext.create();
+		flowContext.putParameter("Prefix", "Flow ");
+		final Action action = new StatelessPrefixAction();
+		lookupReturns("Action 1", action);
+
+		Script script = new Script() {
+
+			@Override
+			protected void doExecute() throws ScriptException {
+				DeclareLocalVar("Var1", PredefinedTypes.STRING);
+				Action("Action 1").SetLocalVar("Var1");
+			}
+		};
+		script.setActionContext(flowContext);
+		execute(script);
+		assertEquals("Flow ", script.scriptContext.getVar("Var1").getValue());
+
+		// The completed invocation does not bind the flow context to the thread any more
+		ActionContext.cleanup();
+		ActionContext.getInstance().putParameter("Prefix", "Thread ");
+		assertEquals("Thread ", action.execute()[0]);
+	}
+
+	private void lookupReturns(final String actionName, final Action action) throws Exception {
+		checking(new Expectations() {
+			{
+				allowing(actionLocator).lookup(actionName);
+				will(returnValue(action));
+				allowing(actionLocator).getResultCache(actionName);
+				will(returnValue(null));
+			}
+		});
+	}
+
+	private void execute(Script script) throws ScriptException {
+		script.setName("Test Script");
+		script.setActionLocator(actionLocator);
+		script.execute();
+	}
+
+	@Stateless
+	public static class StatelessPrefixAction extends Action {
+
+		@Override
+		public Object[] execute() throws ActionException {
+			return new Object[] { getContext().getParameter("Prefix") };
+		}
+
+	}
+
+	private static class LatchAction extends AsyncAction {
+
+		private final CountDownLatch latch;
+
+		private final String result;
+
+		LatchAction(CountDownLatch latch, String result) {
+			this.latch = latch;
+			this.result = result;
+		}
+
+		@Override
+		public Future<Object[]> executeAsync() throws ActionException {
+			return submit(new Callable<Object[]>() {
+
+				public Object[] call() throws Exception {
+					latch.countDown();
+					if (!latch.await(WAIT_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+						throw new ActionException("The other action has not been started");
+					}
+
+					return new Object[] { result };
+				}
+			});
+		}
+
+	}
+
+}
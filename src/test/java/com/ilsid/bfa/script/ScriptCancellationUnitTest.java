@@ -0,0 +1,184 @@
+package com.ilsid.bfa.script;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.ilsid.bfa.BaseUnitTestCase;
+import com.ilsid.bfa.ConfigurationException;
+import com.ilsid.bfa.action.persistence.ActionLocator;
+import com.ilsid.bfa.action.persistence.filesystem.ActionRepositoryInitializer;
+import com.ilsid.bfa.runtime.dto.RuntimeStatusType;
+import com.ilsid.bfa.runtime.dto.ScriptRuntimeDTO;
+
+public class ScriptCancellationUnitTest extends BaseUnitTestCase {
+
+	private static final long WAIT_TIMEOUT_MILLIS = 10000;
+
+	private static final String ENDLESS_SCRIPT_NAME = "Custom Group 003::Endless Loop Script";
+
+	private static final String ENDLESS_SUBFLOW_SCRIPT_NAME = "Custom Group 003::Endless Subflow Script";
+
+	private static final String STUCK_SUBFLOW_SCRIPT_NAME = "Custom Group 003::Stuck Subflow";
+
+	private static final String STUCK_PARALLEL_SUBFLOWS_SCRIPT_NAME = "Custom Group 003::Stuck Parallel Subflows Script";
+
+	private static ScriptRuntime runtime;
+
+	private static StubRuntimeRepository repository;
+
+	@BeforeClass
+	@SuppressWarnings("serial")
+	public static void beforeClass() throws Exception {
+		ScriptingRepositoryInitializer.init();
+
+		repository = new StubRuntimeRepository();
+		runtime = new ScriptRuntime();
+		runtime.setRepository(repository);
+
+		final ActionLocator actionLocator = new ActionLocator();
+		actionLocator.setRepository(ActionRepositoryInitializer.init());
+		runtime.setActionLocator(actionLocator);
+
+		runtime.setRuntimeConfig(new HashMap<String, String>() {
+			{
+				put("bfa.runtime.deadline", String.valueOf(WAIT_TIMEOUT_MILLIS));
+				put("bfa.runtime.deadline.script." + ENDLESS_SUBFLOW_SCRIPT_NAME, "100");
+			}
+		});
+	}
+
+	@AfterClass
+	public static void afterClass() throws Exception {
+		runtime.shutdown();
+		ScriptingRepositoryInitializer.cleanup();
+	}
+
+	@Test
+	public void scriptIsCancelledIfRequestedDeadlineIsExceeded() throws Exception {
+		try {
+			runtime.runScript(ENDLESS_SCRIPT_NAME, new Object[] {}, 100);
+			fail(ScriptCancelledException.class.getSimpleName() + " is expected");
+		} catch (ScriptCancelledException e) {
+			assertEquals("The script [Custom Group 003::Endless Loop Script] is cancelled. "
+					+ "The deadline of [100] ms is exceeded", e.getMessage());
+		}
+	}
+
+	@Test
+	public void configuredDeadlineIsSharedBySubflows() throws Exception {
+		final Object runtimeId = repository.getNextRuntimeId();
+
+		try {
+			runtime.runScript(ENDLESS_SUBFLOW_SCRIPT_NAME, runtimeId, null);
+			fail(ScriptCancelledException.class.getSimpleName() + " is expected");
+		} catch (ScriptCancelledException e) {
+			assertEquals("The script [Custom Group 003::Endless Subflow Script] is cancelled. "
+					+ "The deadline of [100] ms is exceeded", e.getMessage());
+		}
+
+		List<ScriptRuntimeDTO> records = repository.getAllRecords(runtimeId);
+		assertEquals(2, records.size());
+		for (ScriptRuntimeDTO record : records) {
+			assertEquals(RuntimeStatusType.FAILED, record.getStatus());
+			assertEquals("The script [Custom Group 003::Endless Subflow Script] is cancelled. "
+					+ "The deadline of [100] ms is exceeded", record.getErrorDetails().iterator().next());
+		}
+	}
+
+	@Test
+	public void startedScriptCanBeCancelled() throws Exception {
+		final Object runtimeId = runtime.startScript(ENDLESS_SCRIPT_NAME);
+
+		cancel(runtimeId);
+
+		ScriptRuntimeDTO state = waitForCompletion(runtimeId);
+		assertEquals(RuntimeStatusType.FAILED, state.getStatus());
+		assertEquals("The script [Custom Group 003::Endless Loop Script] is cancelled",
+				state.getErrorDetails().iterator().next());
+		assertFalse(runtime.cancelScript(runtimeId));
+	}
+
+	@Test
+	public void stuckParallelSubflowIsInterruptedOnCancellation() throws Exception {
+		final Object runtimeId = runtime.startScript(STUCK_PARALLEL_SUBFLOWS_SCRIPT_NAME);
+
+		// The stuck sub-flow is run by the sub-flows pool thread and it is not released without the interruption
+		waitForRecord(runtimeId, STUCK_SUBFLOW_SCRIPT_NAME, false);
+		cancel(runtimeId);
+
+		assertEquals(RuntimeStatusType.FAILED, waitForCompletion(runtimeId).getStatus());
+		ScriptRuntimeDTO stuckSubflowRecord = waitForRecord(runtimeId, STUCK_SUBFLOW_SCRIPT_NAME, true);
+		assertEquals(RuntimeStatusType.FAILED, stuckSubflowRecord.getStatus());
+		assertEquals("The script [Custom Group 003::Stuck Parallel Subflows Script] is cancelled",
+				stuckSubflowRecord.getErrorDetails().iterator().next());
+	}
+
+	@Test
+	public void notRunningScriptIsNotCancelled() throws Exception {
+		final Object runtimeId = runtime.runScript("Script001");
+
+		assertFalse(runtime.cancelScript(runtimeId));
+		assertFalse(runtime.cancelScript("unknown"));
+	}
+
+	@Test
+	public void invalidDeadlineIsRejected() throws Exception {
+		Map<String, String> config = new HashMap<>();
+		config.put("bfa.runtime.deadline.script.Script001", "abc");
+
+		exceptionRule.expect(ConfigurationException.class);
+		exceptionRule.expectMessage(
+				"The value of the configuration property [bfa.runtime.deadline.script.Script001] must be a positive integer");
+
+		new ScriptRuntime().setRuntimeConfig(config);
+	}
+
+	private void cancel(Object runtimeId) throws Exception {
+		final long deadline = System.currentTimeMillis() + WAIT_TIMEOUT_MILLIS;
+		while (!runtime.cancelScript(runtimeId.toString())) {
+			if (System.currentTimeMillis() > deadline) {
+				fail("The script [" + runtimeId + "] has not been started in time");
+			}
+			TimeUnit.MILLISECONDS.sleep(10);
+		}
+	}
+
+	private ScriptRuntimeDTO waitForRecord(Object runtimeId, String scriptName, boolean completed) throws Exception {
+		final long deadline = System.currentTimeMillis() + WAIT_TIMEOUT_MILLIS;
+		while (true) {
+			for (ScriptRuntimeDTO record : repository.getAllRecords(runtimeId)) {
+				if (scriptName.equals(record.getScriptName())
+						&& (!completed || record.getStatus() != RuntimeStatusType.INPROGRESS)) {
+					return record;
+				}
+			}
+			if (System.currentTimeMillis() > deadline) {
+				fail("The record of the script [" + scriptName + "] has not been "
+						+ (completed ? "completed" : "created") + " in time");
+			}
+			TimeUnit.MILLISECONDS.sleep(10);
+		}
+	}
+
+	private ScriptRuntimeDTO waitForCompletion(Object runtimeId) throws Exception {
+		final long deadline = System.currentTimeMillis() + WAIT_TIMEOUT_MILLIS;
+		ScriptRuntimeDTO state = runtime.getScriptState(runtimeId);
+		while (state != null && state.getStatus() == RuntimeStatusType.INPROGRESS) {
+			if (System.currentTimeMillis() > deadline) {
+				fail("The script [" + runtimeId + "] has not been completed in time");
+			}
+			TimeUnit.MILLISECONDS.sleep(10);
+			state = runtime.getScriptState(runtimeId);
+		}
+
+		assertNotNull(state);
+		return state;
+	}
+
+}
@@ -0,0 +1,239 @@
+package com.ilsid.bfa.script;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.ilsid.bfa.BaseUnitTestCase;
+import com.ilsid.bfa.action.Action;
+import com.ilsid.bfa.action.ActionException;
+import com.ilsid.bfa.action.persistence.ActionLocator;
+import com.ilsid.bfa.action.persistence.ActionResultCache;
+import com.ilsid.bfa.runtime.dto.FlowCheckpointDTO;
+import com.ilsid.bfa.runtime.dto.RuntimeStatusType;
+import com.ilsid.bfa.runtime.dto.ScriptRuntimeDTO;
+import com.ilsid.bfa.runtime.persistence.memory.InMemoryCheckpointRepository;
+
+public class ScriptCheckpointUnitTest extends BaseUnitTestCase {
+
+	private static final String CHECKPOINTED_SCRIPT_NAME = "Custom Group 003::Checkpointed Script";
+
+	private static ScriptRuntime runtime;
+
+	private static StubRuntimeRepository repository;
+
+	private static InMemoryCheckpointRepository checkpointRepository;
+
+	private static StubActionLocator actionLocator;
+
+	@BeforeClass
+	@SuppressWarnings("serial")
+	public static void beforeClass() throws Exception {
+		ScriptingRepositoryInitializer.init();
+
+		repository = new StubRuntimeRepository();
+		checkpointRepository = new InMemoryCheckpointRepository();
+		actionLocator = new StubActionLocator();
+
+		runtime = new ScriptRuntime();
+		runtime.setRepository(repository);
+		runtime.setCheckpointRepository(checkpointRepository);
+		runtime.setActionLocator(actionLocator);
+		runtime.setRuntimeConfig(new HashMap<String, String>() {
+			{
+				put("bfa.runtime.checkpoint.enabled", "true");
+			}
+		});
+	}
+
+	@AfterClass
+	public static void afterClass() throws Exception {
+		runtime.shutdown();
+		ScriptingRepositoryInitializer.cleanup();
+	}
+
+	@Before
+	public void setUp() {
+		actionLocator.reset();
+	}
+
+	@Test
+	public void completedActionsAreNotCalledByResumedScript() throws Exception {
+		final Object runtimeId = runFailedScript();
+		assertEquals(2, actionLocator.reserveCalls.get());
+
+		// The top-level action, the sub-flow action and the root checkpoint are saved
+		List<FlowCheckpointDTO> checkpoints = checkpointRepository.loadCheckpoints(runtimeId);
+		assertEquals(3, checkpoints.size());
+
+		actionLocator.failing = false;
+		assertEquals(runtimeId, runtime.resumeScript(runtimeId.toString()));
+
+		assertEquals(2, actionLocator.reserveCalls.get());
+		// The variable gets the result restored from the checkpoint
+		assertEquals("Result 1", actionLocator.failedActionParams[0]);
+
+		List<ScriptRuntimeDTO> records = repository.getAllRecords(runtimeId);
+		assertEquals(RuntimeStatusType.COMPLETED, records.get(records.size() - 1).getStatus());
+
+		// The checkpoints of the completed script are not kept
+		assertTrue(checkpointRepository.loadCheckpoints(runtimeId).isEmpty());
+	}
+
+	@Test
+	public void scriptCanBeResumedTillCompletion() throws Exception {
+		final Object runtimeId = runFailedScript();
+
+		try {
+			runtime.resumeScript(runtimeId);
+			fail(ScriptException.class.getSimpleName() + " is expected");
+		} catch (ScriptException e) {
+			assertEquals("Execution of the action [Failed Action] failed", e.getMessage());
+		}
+		assertEquals(2, actionLocator.reserveCalls.get());
+
+		actionLocator.failing = false;
+		runtime.resumeScript(runtimeId);
+		assertEquals(2, actionLocator.reserveCalls.get());
+	}
+
+	@Test
+	public void scriptCanNotBeResumedWhileItIsRunning() throws Exception {
+		final Object runtimeId = runFailedScript();
+		actionLocator.failing = false;
+		actionLocator.actionStarted = new CountDownLatch(1);
+		actionLocator.actionReleased = new CountDownLatch(1);
+
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<Object> resumed = executor.submit(new Callable<Object>() {
+
+				public Object call() throws Exception {
+					return runtime.resumeScript(runtimeId);
+				}
+			});
+			assertTrue(actionLocator.actionStarted.await(10, TimeUnit.SECONDS));
+
+			try {
+				runtime.resumeScript(runtimeId);
+				fail(ScriptException.class.getSimpleName() + " is expected");
+			} catch (ScriptException e) {
+				assertEquals(String.format("The script with runtime id [%s] is running", runtimeId), e.getMessage());
+			}
+
+			actionLocator.actionReleased.countDown();
+			assertEquals(runtimeId, resumed.get(10, TimeUnit.SECONDS));
+		} finally {
+			actionLocator.actionReleased.countDown();
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void completedScriptCanNotBeResumed() throws Exception {
+		actionLocator.failing = false;
+		final Object runtimeId = runtime.runScript(CHECKPOINTED_SCRIPT_NAME);
+
+		exceptionRule.expect(ScriptException.class);
+		exceptionRule.expectMessage(
+				String.format("No checkpoints of the script with runtime id [%s] are found", runtimeId));
+
+		runtime.resumeScript(runtimeId);
+	}
+
+	@Test
+	public void scriptIsNotResumedIfCheckpointsAreDisabled() throws Exception {
+		ScriptRuntime defaultRuntime = new ScriptRuntime();
+		defaultRuntime.setRepository(repository);
+		defaultRuntime.setCheckpointRepository(checkpointRepository);
+		defaultRuntime.setActionLocator(actionLocator);
+
+		exceptionRule.expect(ScriptException.class);
+		exceptionRule.expectMessage("The script checkpoints are not enabled");
+
+		defaultRuntime.resumeScript(1L);
+	}
+
+	private Object runFailedScript() throws Exception {
+		final Object runtimeId = repository.getNextRuntimeId();
+		try {
+			runtime.runScript(CHECKPOINTED_SCRIPT_NAME, runtimeId, null);
+			fail(ScriptException.class.getSimpleName() + " is expected");
+		} catch (ScriptException e) {
+			assertEquals("Execution of the action [Failed Action] failed", e.getMessage());
+		}
+
+		return runtimeId;
+	}
+
+	private static class StubActionLocator extends ActionLocator {
+
+		final AtomicInteger reserveCalls = new AtomicInteger();
+
+		volatile boolean failing;
+
+		volatile Object[] failedActionParams;
+
+		volatile CountDownLatch actionStarted;
+
+		volatile CountDownLatch actionReleased;
+
+		void reset() {
+			reserveCalls.set(0);
+			failing = true;
+			failedActionParams = null;
+			actionStarted = null;
+			actionReleased = null;
+		}
+
+		@Override
+		public Action lookup(String actionName) throws ActionException {
+			if ("Reserve Amount".equals(actionName)) {
+				return new Action() {
+
+					public Object[] execute() throws ActionException {
+						return new Object[] { "Result " + reserveCalls.incrementAndGet() };
+					}
+				};
+			}
+
+			return new Action() {
+
+				public Object[] execute() throws ActionException {
+					failedActionParams = getInputParameters();
+					if (actionStarted != null) {
+						actionStarted.countDown();
+						try {
+							actionReleased.await();
+						} catch (InterruptedException e) {
+							throw new ActionException("Interrupted", e);
+						}
+					}
+					if (failing) {
+						throw new ActionException("Test failure");
+					}
+
+					return null;
+				}
+			};
+		}
+
+		@Override
+		public ActionResultCache getResultCache(String actionName) throws ActionException {
+			return null;
+		}
+
+	}
+
+}
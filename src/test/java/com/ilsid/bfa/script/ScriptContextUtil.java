@@ -13,6 +13,16 @@ public class ScriptContextUtil {
 				}
 				return null;
 			}
+
+			@Override
+			public int getVarSlot(String name) {
+				for (int i = 0; i < vars.length; i++) {
+					if (name.equals(vars[i].getName())) {
+						return i;
+					}
+				}
+				return -1;
+			}
 		};
 	}
 
@@ -114,14 +114,14 @@ public class ScriptExpressionParserUnitTest extends BaseUnitTestCase {
 	@Test
 	public void singleIntegerVariableCanBeParsed() throws Exception {
 		createContext(new Variable("Var1", "java.lang.Integer", 3));
-		assertOutput("Var1", "Integer.valueOf(((Integer)scriptContext.getVar(\"Var1\").getValue()).intValue())");
+		assertOutput("Var1", "Integer.valueOf(scriptContext.getVar(0).getIntValue())");
 	}
 
 	@Test
 	public void arithmeticsWithTwoIntegerVariablesCanBeParsed() throws Exception {
 		createContext(new Variable("Var1", "java.lang.Integer", 3), new Variable("Var2", "java.lang.Integer", 1));
-		assertOutput("Var1 - Var2", "Integer.valueOf(((Integer)scriptContext.getVar(\"Var1\").getValue()).intValue()"
-				+ " - ((Integer)scriptContext.getVar(\"Var2\").getValue()).intValue())");
+		assertOutput("Var1 - Var2", "Integer.valueOf(scriptContext.getVar(0).getIntValue()"
+				+ " - scriptContext.getVar(1).getIntValue())");
 
 	}
 
@@ -130,16 +130,29 @@ public class ScriptExpressionParserUnitTest extends BaseUnitTestCase {
 		createContext(new Variable("Var1", "java.lang.Integer", 3), new Variable("Var2", "java.lang.Integer", 1),
 				new Variable("Var3", "java.lang.Integer", 2));
 		assertOutput("Var1 - Var2 + Var3",
-				"Integer.valueOf(((Integer)scriptContext.getVar(\"Var1\").getValue()).intValue()"
-						+ " - ((Integer)scriptContext.getVar(\"Var2\").getValue()).intValue()"
-						+ " + ((Integer)scriptContext.getVar(\"Var3\").getValue()).intValue())");
+				"Integer.valueOf(scriptContext.getVar(0).getIntValue()"
+						+ " - scriptContext.getVar(1).getIntValue()"
+						+ " + scriptContext.getVar(2).getIntValue())");
 	}
 
 	@Test
 	public void arithmeticsWithIntegerVariableAndIntegerPrimitiveCanBeParsed() throws Exception {
 		createContext(new Variable("Var1", "java.lang.Integer", 3));
 		assertOutput("Var1 - 1",
-				"Integer.valueOf(((Integer)scriptContext.getVar(\"Var1\").getValue()).intValue() - 1)");
+				"Integer.valueOf(scriptContext.getVar(0).getIntValue() - 1)");
+	}
+
+	@Test
+	public void integerExpressionCanBeParsedToPrimitive() throws Exception {
+		createContext(new Variable("Var1", "java.lang.Integer", 3));
+		assertEquals("scriptContext.getVar(0).getIntValue() - 1", parser.parsePrimitive("Var1 - 1", int.class));
+	}
+
+	@Test
+	public void expressionOfOtherTypeIsNotParsedToPrimitive() throws Exception {
+		createContext(new Variable("Var1", "java.lang.Integer", 3), new Variable("Var2", "java.lang.String", "abc"));
+		assertNull(parser.parsePrimitive("Var1 - 1", double.class));
+		assertNull(parser.parsePrimitive("Var2", int.class));
 	}
 
 	@Test
@@ -172,14 +185,14 @@ public class ScriptExpressionParserUnitTest extends BaseUnitTestCase {
 	@Test
 	public void singleDoubleVariableCanBeParsed() throws Exception {
 		createContext(new Variable("Var1", "java.lang.Double", 3.0));
-		assertOutput("Var1", "Double.valueOf(((Double)scriptContext.getVar(\"Var1\").getValue()).doubleValue())");
+		assertOutput("Var1", "Double.valueOf(scriptContext.getVar(0).getDoubleValue())");
 	}
 
 	@Test
 	public void arithmeticsWithTwoDoubleVariablesCanBeParsed() throws Exception {
 		createContext(new Variable("Var1", "java.lang.Double", 3.0), new Variable("Var2", "java.lang.Double", 1.0));
-		assertOutput("Var1 - Var2", "Double.valueOf(((Double)scriptContext.getVar(\"Var1\").getValue()).doubleValue()"
-				+ " - ((Double)scriptContext.getVar(\"Var2\").getValue()).doubleValue())");
+		assertOutput("Var1 - Var2", "Double.valueOf(scriptContext.getVar(0).getDoubleValue()"
+				+ " - scriptContext.getVar(1).getDoubleValue())");
 
 	}
 
@@ -188,16 +201,16 @@ public class ScriptExpressionParserUnitTest extends BaseUnitTestCase {
 		createContext(new Variable("Var1", "java.lang.Double", 3.0), new Variable("Var2", "java.lang.Double", 1.0),
 				new Variable("Var3", "java.lang.Double", 2.0));
 		assertOutput("Var1 - Var2 + Var3",
-				"Double.valueOf(((Double)scriptContext.getVar(\"Var1\").getValue()).doubleValue()"
-						+ " - ((Double)scriptContext.getVar(\"Var2\").getValue()).doubleValue()"
-						+ " + ((Double)scriptContext.getVar(\"Var3\").getValue()).doubleValue())");
+				"Double.valueOf(scriptContext.getVar(0).getDoubleValue()"
+						+ " - scriptContext.getVar(1).getDoubleValue()"
+						+ " + scriptContext.getVar(2).getDoubleValue())");
 	}
 
 	@Test
 	public void arithmeticsWithDoubleVariableAndDoublePrimitiveCanBeParsed() throws Exception {
 		createContext(new Variable("Var1", "java.lang.Double", 3));
 		assertOutput("Var1 - 1.0",
-				"Double.valueOf(((Double)scriptContext.getVar(\"Var1\").getValue()).doubleValue() - 1.0)");
+				"Double.valueOf(scriptContext.getVar(0).getDoubleValue() - 1.0)");
 	}
 
 	@Test
@@ -231,7 +244,7 @@ public class ScriptExpressionParserUnitTest extends BaseUnitTestCase {
 	public void singleIntegerFieldCanBeParsed() throws Exception {
 		createContext(new Variable("Contract", Contract.class.getName(), new Contract()));
 		assertOutput("Contract.Days",
-				"Integer.valueOf(((com.ilsid.bfa.test.types.Contract)scriptContext.getVar(\"Contract\").getValue()).Days.intValue())");
+				"Integer.valueOf(((com.ilsid.bfa.test.types.Contract)scriptContext.getVar(0).getValue()).Days.intValue())");
 	}
 
 	@Test
@@ -240,8 +253,8 @@ public class ScriptExpressionParserUnitTest extends BaseUnitTestCase {
 				new Variable("Subscriber", Subscriber.class.getName(), new Subscriber()));
 
 		assertOutput("Contract.Days - Subscriber.PrepaidDays",
-				"Integer.valueOf(((com.ilsid.bfa.test.types.Contract)scriptContext.getVar(\"Contract\").getValue()).Days.intValue()"
-						+ " - ((com.ilsid.bfa.test.types.Subscriber)scriptContext.getVar(\"Subscriber\").getValue()).PrepaidDays.intValue())");
+				"Integer.valueOf(((com.ilsid.bfa.test.types.Contract)scriptContext.getVar(0).getValue()).Days.intValue()"
+						+ " - ((com.ilsid.bfa.test.types.Subscriber)scriptContext.getVar(1).getValue()).PrepaidDays.intValue())");
 	}
 
 	@Test
@@ -250,9 +263,9 @@ public class ScriptExpressionParserUnitTest extends BaseUnitTestCase {
 				new Variable("Subscriber", Subscriber.class.getName(), new Subscriber()));
 
 		assertOutput("Contract.Days + Contract.ProlongDays - Subscriber.PrepaidDays",
-				"Integer.valueOf(((com.ilsid.bfa.test.types.Contract)scriptContext.getVar(\"Contract\").getValue()).Days.intValue()"
-						+ " + ((com.ilsid.bfa.test.types.Contract)scriptContext.getVar(\"Contract\").getValue()).ProlongDays.intValue()"
-						+ " - ((com.ilsid.bfa.test.types.Subscriber)scriptContext.getVar(\"Subscriber\").getValue()).PrepaidDays.intValue())");
+				"Integer.valueOf(((com.ilsid.bfa.test.types.Contract)scriptContext.getVar(0).getValue()).Days.intValue()"
+						+ " + ((com.ilsid.bfa.test.types.Contract)scriptContext.getVar(0).getValue()).ProlongDays.intValue()"
+						+ " - ((com.ilsid.bfa.test.types.Subscriber)scriptContext.getVar(1).getValue()).PrepaidDays.intValue())");
 	}
 
 	@Test
@@ -261,8 +274,8 @@ public class ScriptExpressionParserUnitTest extends BaseUnitTestCase {
 				new Variable("PrepaidDays", "java.lang.Integer", 30));
 
 		assertOutput("Contract.Days - PrepaidDays",
-				"Integer.valueOf(((com.ilsid.bfa.test.types.Contract)scriptContext.getVar(\"Contract\").getValue()).Days.intValue()"
-						+ " - ((Integer)scriptContext.getVar(\"PrepaidDays\").getValue()).intValue())");
+				"Integer.valueOf(((com.ilsid.bfa.test.types.Contract)scriptContext.getVar(0).getValue()).Days.intValue()"
+						+ " - scriptContext.getVar(1).getIntValue())");
 
 	}
 
@@ -271,7 +284,7 @@ public class ScriptExpressionParserUnitTest extends BaseUnitTestCase {
 		createContext(new Variable("Contract", Contract.class.getName(), new Contract()));
 
 		assertOutput("Contract.Days - 1",
-				"Integer.valueOf(((com.ilsid.bfa.test.types.Contract)scriptContext.getVar(\"Contract\").getValue()).Days.intValue() - 1)");
+				"Integer.valueOf(((com.ilsid.bfa.test.types.Contract)scriptContext.getVar(0).getValue()).Days.intValue() - 1)");
 	}
 
 	@Test
@@ -286,7 +299,7 @@ public class ScriptExpressionParserUnitTest extends BaseUnitTestCase {
 	public void singleDoubleFieldCanBeParsed() throws Exception {
 		createContext(new Variable("Contract", Contract.class.getName(), new Contract()));
 		assertOutput("Contract.MonthlyFee",
-				"Double.valueOf(((com.ilsid.bfa.test.types.Contract)scriptContext.getVar(\"Contract\").getValue()).MonthlyFee.doubleValue())");
+				"Double.valueOf(((com.ilsid.bfa.test.types.Contract)scriptContext.getVar(0).getValue()).MonthlyFee.doubleValue())");
 	}
 
 	@Test
@@ -295,8 +308,8 @@ public class ScriptExpressionParserUnitTest extends BaseUnitTestCase {
 				new Variable("Subscriber", Subscriber.class.getName(), new Subscriber()));
 
 		assertOutput("Contract.MonthlyFee - Subscriber.PrepaidAmount",
-				"Double.valueOf(((com.ilsid.bfa.test.types.Contract)scriptContext.getVar(\"Contract\").getValue()).MonthlyFee.doubleValue()"
-						+ " - ((com.ilsid.bfa.test.types.Subscriber)scriptContext.getVar(\"Subscriber\").getValue()).PrepaidAmount.doubleValue())");
+				"Double.valueOf(((com.ilsid.bfa.test.types.Contract)scriptContext.getVar(0).getValue()).MonthlyFee.doubleValue()"
+						+ " - ((com.ilsid.bfa.test.types.Subscriber)scriptContext.getVar(1).getValue()).PrepaidAmount.doubleValue())");
 	}
 
 	@Test
@@ -305,9 +318,9 @@ public class ScriptExpressionParserUnitTest extends BaseUnitTestCase {
 				new Variable("Subscriber", Subscriber.class.getName(), new Subscriber()));
 
 		assertOutput("Contract.MonthlyFee - Subscriber.PrepaidAmount + Subscriber.PrepaidReserved",
-				"Double.valueOf(((com.ilsid.bfa.test.types.Contract)scriptContext.getVar(\"Contract\").getValue()).MonthlyFee.doubleValue()"
-						+ " - ((com.ilsid.bfa.test.types.Subscriber)scriptContext.getVar(\"Subscriber\").getValue()).PrepaidAmount.doubleValue()"
-						+ " + ((com.ilsid.bfa.test.types.Subscriber)scriptContext.getVar(\"Subscriber\").getValue()).PrepaidReserved.doubleValue())");
+				"Double.valueOf(((com.ilsid.bfa.test.types.Contract)scriptContext.getVar(0).getValue()).MonthlyFee.doubleValue()"
+						+ " - ((com.ilsid.bfa.test.types.Subscriber)scriptContext.getVar(1).getValue()).PrepaidAmount.doubleValue()"
+						+ " + ((com.ilsid.bfa.test.types.Subscriber)scriptContext.getVar(1).getValue()).PrepaidReserved.doubleValue())");
 	}
 
 	@Test
@@ -316,8 +329,8 @@ public class ScriptExpressionParserUnitTest extends BaseUnitTestCase {
 				new Variable("PrepaidAmount", "java.lang.Double", 30.0));
 
 		assertOutput("Contract.MonthlyFee - PrepaidAmount",
-				"Double.valueOf(((com.ilsid.bfa.test.types.Contract)scriptContext.getVar(\"Contract\").getValue()).MonthlyFee.doubleValue()"
-						+ " - ((Double)scriptContext.getVar(\"PrepaidAmount\").getValue()).doubleValue())");
+				"Double.valueOf(((com.ilsid.bfa.test.types.Contract)scriptContext.getVar(0).getValue()).MonthlyFee.doubleValue()"
+						+ " - scriptContext.getVar(1).getDoubleValue())");
 	}
 
 	@Test
@@ -325,7 +338,7 @@ public class ScriptExpressionParserUnitTest extends BaseUnitTestCase {
 		createContext(new Variable("Contract", Contract.class.getName(), new Contract()));
 
 		assertOutput("Contract.MonthlyFee - 1.0",
-				"Double.valueOf(((com.ilsid.bfa.test.types.Contract)scriptContext.getVar(\"Contract\").getValue()).MonthlyFee.doubleValue() - 1.0)");
+				"Double.valueOf(((com.ilsid.bfa.test.types.Contract)scriptContext.getVar(0).getValue()).MonthlyFee.doubleValue() - 1.0)");
 	}
 
 	@Test
@@ -383,7 +396,7 @@ public class ScriptExpressionParserUnitTest extends BaseUnitTestCase {
 	@Test
 	public void singleBooleanVariableCanBeParsed() throws Exception {
 		createContext(new Variable("Var1", "java.lang.Boolean", true));
-		assertOutput("Var1", "Boolean.valueOf(((Boolean)scriptContext.getVar(\"Var1\").getValue()).booleanValue())");
+		assertOutput("Var1", "Boolean.valueOf(scriptContext.getVar(0).getBooleanValue())");
 	}
 
 	@Test
@@ -391,8 +404,8 @@ public class ScriptExpressionParserUnitTest extends BaseUnitTestCase {
 		createContext(new Variable("Var1", "java.lang.Boolean", true),
 				new Variable("Var2", "java.lang.Boolean", false));
 		assertOutput("Var1 && Var2",
-				"Boolean.valueOf(((Boolean)scriptContext.getVar(\"Var1\").getValue()).booleanValue()"
-						+ " && ((Boolean)scriptContext.getVar(\"Var2\").getValue()).booleanValue())");
+				"Boolean.valueOf(scriptContext.getVar(0).getBooleanValue()"
+						+ " && scriptContext.getVar(1).getBooleanValue())");
 	}
 
 	@Test
@@ -400,16 +413,16 @@ public class ScriptExpressionParserUnitTest extends BaseUnitTestCase {
 		createContext(new Variable("Var1", "java.lang.Boolean", true), new Variable("Var2", "java.lang.Boolean", false),
 				new Variable("Var3", "java.lang.Boolean", true));
 		assertOutput("Var1 && Var2 || Var3",
-				"Boolean.valueOf(((Boolean)scriptContext.getVar(\"Var1\").getValue()).booleanValue()"
-						+ " && ((Boolean)scriptContext.getVar(\"Var2\").getValue()).booleanValue()"
-						+ " || ((Boolean)scriptContext.getVar(\"Var3\").getValue()).booleanValue())");
+				"Boolean.valueOf(scriptContext.getVar(0).getBooleanValue()"
+						+ " && scriptContext.getVar(1).getBooleanValue()"
+						+ " || scriptContext.getVar(2).getBooleanValue())");
 	}
 
 	@Test
 	public void logicalOperationWithBooleanVariableAndBooleanPrimitiveCanBeParsed() throws Exception {
 		createContext(new Variable("Var1", "java.lang.Boolean", true));
 		assertOutput("Var1 && true",
-				"Boolean.valueOf(((Boolean)scriptContext.getVar(\"Var1\").getValue()).booleanValue() && true)");
+				"Boolean.valueOf(scriptContext.getVar(0).getBooleanValue() && true)");
 	}
 
 	@Test
@@ -429,7 +442,7 @@ public class ScriptExpressionParserUnitTest extends BaseUnitTestCase {
 	public void singleBooleanFieldCanBeParsed() throws Exception {
 		createContext(new Variable("Contract", Contract.class.getName(), new Contract()));
 		assertOutput("Contract.IsValid",
-				"Boolean.valueOf(((com.ilsid.bfa.test.types.Contract)scriptContext.getVar(\"Contract\").getValue()).IsValid.booleanValue())");
+				"Boolean.valueOf(((com.ilsid.bfa.test.types.Contract)scriptContext.getVar(0).getValue()).IsValid.booleanValue())");
 	}
 
 	@Test
@@ -438,8 +451,8 @@ public class ScriptExpressionParserUnitTest extends BaseUnitTestCase {
 				new Variable("Subscriber", Subscriber.class.getName(), new Subscriber()));
 
 		assertOutput("Contract.IsValid && Subscriber.IsPrepaid",
-				"Boolean.valueOf(((com.ilsid.bfa.test.types.Contract)scriptContext.getVar(\"Contract\").getValue()).IsValid.booleanValue()"
-						+ " && ((com.ilsid.bfa.test.types.Subscriber)scriptContext.getVar(\"Subscriber\").getValue()).IsPrepaid.booleanValue())");
+				"Boolean.valueOf(((com.ilsid.bfa.test.types.Contract)scriptContext.getVar(0).getValue()).IsValid.booleanValue()"
+						+ " && ((com.ilsid.bfa.test.types.Subscriber)scriptContext.getVar(1).getValue()).IsPrepaid.booleanValue())");
 	}
 
 	@Test
@@ -448,9 +461,9 @@ public class ScriptExpressionParserUnitTest extends BaseUnitTestCase {
 				new Variable("Subscriber", Subscriber.class.getName(), new Subscriber()));
 
 		assertOutput("Contract.IsValid && Contract.IsAnnual && Subscriber.IsPrepaid",
-				"Boolean.valueOf(((com.ilsid.bfa.test.types.Contract)scriptContext.getVar(\"Contract\").getValue()).IsValid.booleanValue()"
-						+ " && ((com.ilsid.bfa.test.types.Contract)scriptContext.getVar(\"Contract\").getValue()).IsAnnual.booleanValue()"
-						+ " && ((com.ilsid.bfa.test.types.Subscriber)scriptContext.getVar(\"Subscriber\").getValue()).IsPrepaid.booleanValue())");
+				"Boolean.valueOf(((com.ilsid.bfa.test.types.Contract)scriptContext.getVar(0).getValue()).IsValid.booleanValue()"
+						+ " && ((com.ilsid.bfa.test.types.Contract)scriptContext.getVar(0).getValue()).IsAnnual.booleanValue()"
+						+ " && ((com.ilsid.bfa.test.types.Subscriber)scriptContext.getVar(1).getValue()).IsPrepaid.booleanValue())");
 	}
 
 	@Test
@@ -459,8 +472,8 @@ public class ScriptExpressionParserUnitTest extends BaseUnitTestCase {
 				new Variable("IsPrepaid", "java.lang.Boolean", true));
 
 		assertOutput("Contract.IsValid && IsPrepaid",
-				"Boolean.valueOf(((com.ilsid.bfa.test.types.Contract)scriptContext.getVar(\"Contract\").getValue()).IsValid.booleanValue()"
-						+ " && ((Boolean)scriptContext.getVar(\"IsPrepaid\").getValue()).booleanValue())");
+				"Boolean.valueOf(((com.ilsid.bfa.test.types.Contract)scriptContext.getVar(0).getValue()).IsValid.booleanValue()"
+						+ " && scriptContext.getVar(1).getBooleanValue())");
 
 	}
 
@@ -469,7 +482,7 @@ public class ScriptExpressionParserUnitTest extends BaseUnitTestCase {
 		createContext(new Variable("Contract", Contract.class.getName(), new Contract()));
 
 		assertOutput("Contract.IsValid && true",
-				"Boolean.valueOf(((com.ilsid.bfa.test.types.Contract)scriptContext.getVar(\"Contract\").getValue()).IsValid.booleanValue() && true)");
+				"Boolean.valueOf(((com.ilsid.bfa.test.types.Contract)scriptContext.getVar(0).getValue()).IsValid.booleanValue() && true)");
 	}
 
 	@Test
@@ -477,7 +490,7 @@ public class ScriptExpressionParserUnitTest extends BaseUnitTestCase {
 		createContext(new Variable("contractHolder", ContractHolder.class.getName(), new ContractHolder()));
 
 		assertOutput("contractHolder.Contract.Days",
-				"Integer.valueOf(((com.ilsid.bfa.test.types.ContractHolder)scriptContext.getVar(\"contractHolder\").getValue()).Contract.Days.intValue())");
+				"Integer.valueOf(((com.ilsid.bfa.test.types.ContractHolder)scriptContext.getVar(0).getValue()).Contract.Days.intValue())");
 	}
 
 	@Test
@@ -485,7 +498,7 @@ public class ScriptExpressionParserUnitTest extends BaseUnitTestCase {
 		createContext(new Variable("contractHolder", ContractHolder.class.getName(), new ContractHolder()));
 
 		assertOutput("contractHolder.Contract.Details.Discount",
-				"Double.valueOf(((com.ilsid.bfa.test.types.ContractHolder)scriptContext.getVar(\"contractHolder\").getValue()).Contract.Details.Discount.doubleValue())");
+				"Double.valueOf(((com.ilsid.bfa.test.types.ContractHolder)scriptContext.getVar(0).getValue()).Contract.Details.Discount.doubleValue())");
 	}
 
 	@Test
@@ -573,14 +586,14 @@ public class ScriptExpressionParserUnitTest extends BaseUnitTestCase {
 	@Test
 	public void singleStringVariableCanBeParsed() throws Exception {
 		createContext(new Variable("Var1", "java.lang.String", "abc"));
-		assertOutput("Var1", "((String)scriptContext.getVar(\"Var1\").getValue())");
+		assertOutput("Var1", "((String)scriptContext.getVar(0).getValue())");
 	}
 
 	@Test
 	public void concatenationOfTwoStringVariablesCanBeParsed() throws Exception {
 		createContext(new Variable("Var1", "java.lang.String", "abc"), new Variable("Var2", "java.lang.String", "fgh"));
-		assertOutput("Var1 + Var2", "((String)scriptContext.getVar(\"Var1\").getValue() "
-				+ "+ (String)scriptContext.getVar(\"Var2\").getValue())");
+		assertOutput("Var1 + Var2", "((String)scriptContext.getVar(0).getValue() "
+				+ "+ (String)scriptContext.getVar(1).getValue())");
 	}
 
 	@Test
@@ -588,22 +601,22 @@ public class ScriptExpressionParserUnitTest extends BaseUnitTestCase {
 		createContext(new Variable("Var1", "java.lang.String", "abc"), new Variable("Var2", "java.lang.String", "fgh"),
 				new Variable("Var3", "java.lang.String", "xyz"));
 		assertOutput("Var1 + Var2 + Var3",
-				"((String)scriptContext.getVar(\"Var1\").getValue() "
-						+ "+ (String)scriptContext.getVar(\"Var2\").getValue() "
-						+ "+ (String)scriptContext.getVar(\"Var3\").getValue())");
+				"((String)scriptContext.getVar(0).getValue() "
+						+ "+ (String)scriptContext.getVar(1).getValue() "
+						+ "+ (String)scriptContext.getVar(2).getValue())");
 	}
 
 	@Test
 	public void concatenationOfStringVariableAndStringLiteralCanBeParsed() throws Exception {
 		createContext(new Variable("Var1", "java.lang.String", "abc"));
-		assertOutput("Var1 + 'xyz'", "((String)scriptContext.getVar(\"Var1\").getValue() + \"xyz\")");
+		assertOutput("Var1 + 'xyz'", "((String)scriptContext.getVar(0).getValue() + \"xyz\")");
 	}
 
 	@Test
 	public void singleStringFieldCanBeParsed() throws Exception {
 		createContext(new Variable("Subscriber", Subscriber.class.getName(), new Subscriber()));
 		assertOutput("Subscriber.MSISDN",
-				"(((com.ilsid.bfa.test.types.Subscriber)scriptContext.getVar(\"Subscriber\").getValue()).MSISDN)");
+				"(((com.ilsid.bfa.test.types.Subscriber)scriptContext.getVar(0).getValue()).MSISDN)");
 	}
 
 	@Test
@@ -611,8 +624,8 @@ public class ScriptExpressionParserUnitTest extends BaseUnitTestCase {
 		createContext(new Variable("Contract", Contract.class.getName(), new Contract()),
 				new Variable("Subscriber", Subscriber.class.getName(), new Subscriber()));
 		assertOutput("'{' + Contract.ID + ': ' + Subscriber.MSISDN + '}'",
-				"(\"{\" + ((com.ilsid.bfa.test.types.Contract)scriptContext.getVar(\"Contract\").getValue()).ID "
-						+ "+ \": \" + ((com.ilsid.bfa.test.types.Subscriber)scriptContext.getVar(\"Subscriber\").getValue()).MSISDN + \"}\")");
+				"(\"{\" + ((com.ilsid.bfa.test.types.Contract)scriptContext.getVar(0).getValue()).ID "
+						+ "+ \": \" + ((com.ilsid.bfa.test.types.Subscriber)scriptContext.getVar(1).getValue()).MSISDN + \"}\")");
 	}
 
 	@Test
@@ -620,14 +633,14 @@ public class ScriptExpressionParserUnitTest extends BaseUnitTestCase {
 		createContext(new Variable("Contract", Contract.class.getName(), new Contract()),
 				new Variable("Var1", "java.lang.String", "abc"));
 		assertOutput("Contract.ID + ': ' + Var1",
-				"(((com.ilsid.bfa.test.types.Contract)scriptContext.getVar(\"Contract\").getValue()).ID "
-						+ "+ \": \" + (String)scriptContext.getVar(\"Var1\").getValue())");
+				"(((com.ilsid.bfa.test.types.Contract)scriptContext.getVar(0).getValue()).ID "
+						+ "+ \": \" + (String)scriptContext.getVar(1).getValue())");
 	}
 
 	@Test
 	public void entityVariableCanBeParsed() throws Exception {
 		createContext(new Variable("Contract", Contract.class.getName(), new Contract()));
-		assertOutput("Contract", "(com.ilsid.bfa.test.types.Contract)scriptContext.getVar(\"Contract\").getValue()");
+		assertOutput("Contract", "(com.ilsid.bfa.test.types.Contract)scriptContext.getVar(0).getValue()");
 	}
 
 	@Test
@@ -662,9 +675,9 @@ public class ScriptExpressionParserUnitTest extends BaseUnitTestCase {
 		createContext(new Variable("Var", Object[].class.getCanonicalName()));
 
 		// Script arrays are started with index of 1 while Java arrays are started with 0
-		assertOutput("Var[1]", "((Object[])scriptContext.getVar(\"Var\").getValue())[0]");
-		assertOutput("Var[55]", "((Object[])scriptContext.getVar(\"Var\").getValue())[54]");
-		assertOutput("Var[999]", "((Object[])scriptContext.getVar(\"Var\").getValue())[998]");
+		assertOutput("Var[1]", "((Object[])scriptContext.getVar(0).getValue())[0]");
+		assertOutput("Var[55]", "((Object[])scriptContext.getVar(0).getValue())[54]");
+		assertOutput("Var[999]", "((Object[])scriptContext.getVar(0).getValue())[998]");
 	}
 
 	@Test
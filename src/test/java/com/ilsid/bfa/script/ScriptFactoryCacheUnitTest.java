@@ -0,0 +1,51 @@
+package com.ilsid.bfa.script;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.ilsid.bfa.BaseUnitTestCase;
+import com.ilsid.bfa.persistence.DynamicClassLoader;
+
+public class ScriptFactoryCacheUnitTest extends BaseUnitTestCase {
+
+	@BeforeClass
+	public static void beforeClass() throws Exception {
+		ScriptingRepositoryInitializer.init();
+	}
+
+	@AfterClass
+	public static void afterClass() throws Exception {
+		ScriptingRepositoryInitializer.cleanup();
+	}
+
+	@Test
+	public void newScriptInstanceIsCreatedOnEachInvocation() throws Exception {
+		Script script1 = ScriptFactoryCache.newInstance("Script001");
+		Script script2 = ScriptFactoryCache.newInstance("Script001");
+
+		assertEquals(TypeNameResolver.resolveScriptClassName("Script001"), script1.getClass().getName());
+		assertNotSame(script1, script2);
+		assertSame(script1.getClass(), script2.getClass());
+	}
+
+	@Test
+	public void scriptIsInstantiatedFromReloadedClassAfterReloading() throws Exception {
+		Class<?> initialClass = ScriptFactoryCache.newInstance("Script001").getClass();
+
+		DynamicClassLoader.reloadClasses();
+		Class<?> reloadedClass = ScriptFactoryCache.newInstance("Script001").getClass();
+
+		assertNotSame(initialClass, reloadedClass);
+		assertSame(DynamicClassLoader.getInstance(), reloadedClass.getClassLoader());
+	}
+
+	@Test
+	public void nonExistingScriptIsNotInstantiated() throws Exception {
+		exceptionRule.expect(ScriptException.class);
+		exceptionRule.expectMessage("The script [Non Existing Script] is not found in the repository");
+
+		ScriptFactoryCache.newInstance("Non Existing Script");
+	}
+
+}
@@ -0,0 +1,407 @@
+package com.ilsid.bfa.script;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.ilsid.bfa.BaseUnitTestCase;
+import com.ilsid.bfa.ConfigurationException;
+import com.ilsid.bfa.action.persistence.ActionLocator;
+import com.ilsid.bfa.action.persistence.filesystem.ActionRepositoryInitializer;
+import com.ilsid.bfa.common.JsonUtil;
+import com.ilsid.bfa.runtime.dto.RuntimeStatusType;
+import com.ilsid.bfa.runtime.dto.ScriptRuntimeDTO;
+import com.ilsid.bfa.test.types.Contract;
+
+public class ScriptRuntimeAsyncUnitTest extends BaseUnitTestCase {
+
+	private static final long WAIT_TIMEOUT_MILLIS = 10000;
+
+	private static ScriptRuntime runtime;
+
+	private static StubRuntimeRepository repository;
+
+	private static ActionLocator actionLocator;
+
+	@BeforeClass
+	public static void beforeClass() throws Exception {
+		ScriptingRepositoryInitializer.init();
+
+		repository = new StubRuntimeRepository();
+		runtime = new ScriptRuntime();
+		runtime.setRepository(repository);
+
+		actionLocator = new ActionLocator();
+		actionLocator.setRepository(ActionRepositoryInitializer.init());
+		runtime.setActionLocator(actionLocator);
+	}
+
+	private static ScriptRuntime createRuntime(Map<String, String> config) throws Exception {
+		ScriptRuntime result = new ScriptRuntime();
+		result.setRuntimeConfig(config);
+		result.setRepository(repository);
+		result.setActionLocator(actionLocator);
+
+		return result;
+	}
+
+	@AfterClass
+	public static void afterClass() throws Exception {
+		runtime.shutdown();
+		ScriptingRepositoryInitializer.cleanup();
+	}
+
+	@Test
+	public void scriptCanBeStarted() throws Exception {
+		Object runtimeId = runtime.startScript("Script001");
+
+		assertNotNull(runtimeId);
+		ScriptRuntimeDTO state = waitForCompletion(runtimeId);
+		assertEquals(RuntimeStatusType.COMPLETED, state.getStatus());
+		assertEquals("Script001", state.getScriptName());
+		assertNotNull(state.getEndTime());
+		assertEquals(RuntimeStatusType.COMPLETED, repository.getRecord(runtimeId).getStatus());
+	}
+
+	@Test
+	public void entityParameterIsRecordedInJson() throws Exception {
+		Contract contract = new Contract();
+		contract.ID = "abc";
+		contract.Days = 7;
+
+		Object runtimeId = runtime.startScript("Script001", new Object[] { "Param 1", 2, contract });
+
+		waitForCompletion(runtimeId);
+		List<String> parameters = repository.getRecord(runtimeId).getParameters();
+		assertEquals("Param 1", parameters.get(0));
+		assertEquals("2", parameters.get(1));
+		Contract recordedContract = JsonUtil.toObject(parameters.get(2), Contract.class);
+		assertEquals("abc", recordedContract.ID);
+		assertEquals(7, recordedContract.Days);
+	}
+
+	@Test
+	public void scriptWithSubflowCanBeStarted() throws Exception {
+		Object runtimeId = runtime.startScript("SingleSubflowScript");
+
+		assertEquals(RuntimeStatusType.COMPLETED, waitForCompletion(runtimeId).getStatus());
+	}
+
+	@Test
+	public void errorDetailsAreAvailableForFailedScript() throws Exception {
+		Object runtimeId = runtime.startScript("Custom Group 003::Failed Script");
+
+		ScriptRuntimeDTO state = waitForCompletion(runtimeId);
+		assertEquals(RuntimeStatusType.FAILED, state.getStatus());
+		assertEquals("Execution of the action [Failed Action] failed", state.getErrorDetails().iterator().next());
+	}
+
+	@Test
+	public void startOfNonExistingScriptIsReportedAsFailure() throws Exception {
+		Object runtimeId = runtime.startScript("Non Existing Script");
+
+		ScriptRuntimeDTO state = waitForCompletion(runtimeId);
+		assertEquals(RuntimeStatusType.FAILED, state.getStatus());
+		assertEquals("The script [Non Existing Script] is not found in the repository",
+				state.getErrorDetails().iterator().next());
+	}
+
+	@Test
+	public void scriptCanBeRunInBatch() throws Exception {
+		final int batchSize = 120;
+		List<Object[]> inputs = new ArrayList<>();
+		for (int i = 0; i < batchSize; i++) {
+			inputs.add(new Object[] {});
+		}
+
+		ScriptBatch batch = runtime.runBatch("Script001", inputs);
+
+		Set<Integer> inputIndexes = new HashSet<>();
+		Set<Object> runtimeIds = new HashSet<>();
+		while (batch.hasNext()) {
+			ScriptBatch.Result result = batch.next();
+			assertTrue(inputIndexes.add(result.getInputIndex()));
+			assertTrue(runtimeIds.add(result.getState().getRuntimeId()));
+			assertEquals(RuntimeStatusType.COMPLETED, result.getState().getStatus());
+			assertEquals(RuntimeStatusType.COMPLETED,
+					runtime.getScriptState(result.getState().getRuntimeId()).getStatus());
+		}
+		assertEquals(batchSize, inputIndexes.size());
+	}
+
+	@Test
+	public void failuresInBatchAreReportedPerInput() throws Exception {
+		List<Object[]> inputs = new ArrayList<>();
+		inputs.add(new Object[] {});
+		inputs.add(null);
+
+		ScriptBatch batch = runtime.runBatch("Custom Group 003::Failed Script", inputs);
+
+		assertEquals(2, batch.size());
+		while (batch.hasNext()) {
+			ScriptRuntimeDTO state = batch.next().getState();
+			assertEquals(RuntimeStatusType.FAILED, state.getStatus());
+			assertEquals("Execution of the action [Failed Action] failed", state.getErrorDetails().iterator().next());
+		}
+	}
+
+	@Test
+	public void batchOfNonExistingScriptIsNotStarted() throws Exception {
+		exceptionRule.expect(ScriptException.class);
+		exceptionRule.expectMessage("The script [Non Existing Script] is not found in the repository");
+
+		runtime.runBatch("Non Existing Script", Collections.singletonList(new Object[] {}));
+	}
+
+	@Test
+	public void stateIsNotAvailableForUnknownRuntimeId() throws Exception {
+		assertNull(runtime.getScriptState("unknown"));
+	}
+
+	@Test
+	public void stateCanBeQueriedByStringRuntimeId() throws Exception {
+		Object runtimeId = runtime.startScript("Script001");
+		waitForCompletion(runtimeId);
+
+		assertNotNull(runtime.getScriptState(runtimeId.toString()));
+	}
+
+	@Test
+	public void scriptIsRejectedWhenPoolIsSaturated() throws Exception {
+		ScriptExecutionPool pool = new ScriptExecutionPool(1, 1, 10);
+		final CountDownLatch releaseLatch = new CountDownLatch(1);
+		Runnable blockingTask = new Runnable() {
+
+			public void run() {
+				try {
+					releaseLatch.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		};
+
+		pool.submit(new ScriptRuntimeDTO().setRuntimeId(1).setStatus(RuntimeStatusType.INPROGRESS), blockingTask);
+		pool.submit(new ScriptRuntimeDTO().setRuntimeId(2).setStatus(RuntimeStatusType.INPROGRESS), blockingTask);
+		try {
+			pool.submit(new ScriptRuntimeDTO().setRuntimeId(3).setStatus(RuntimeStatusType.INPROGRESS),
+					blockingTask);
+			fail(RejectedExecutionException.class.getSimpleName() + " is expected");
+		} catch (RejectedExecutionException e) {
+			assertNull(pool.getState(3));
+		} finally {
+			releaseLatch.countDown();
+			pool.shutdown();
+		}
+
+		assertEquals(RuntimeStatusType.INPROGRESS, pool.getState(1).getStatus());
+	}
+
+	@Test
+	public void subflowIsRunByCallerWhenSubflowThreadsAreBusy() throws Exception {
+		ScriptExecutionPool pool = new ScriptExecutionPool(1, 1, 10);
+		final CountDownLatch releaseLatch = new CountDownLatch(1);
+		Callable<Thread> blockingTask = new Callable<Thread>() {
+
+			public Thread call() throws Exception {
+				releaseLatch.await();
+				return Thread.currentThread();
+			}
+		};
+		Callable<Thread> task = new Callable<Thread>() {
+
+			public Thread call() {
+				return Thread.currentThread();
+			}
+		};
+
+		try {
+			Future<Thread> blockedResult = pool.submitSubflow(blockingTask);
+			Future<Thread> result = pool.submitSubflow(task);
+
+			assertTrue(result.isDone());
+			assertSame(Thread.currentThread(), result.get());
+			releaseLatch.countDown();
+			assertNotSame(Thread.currentThread(), blockedResult.get());
+		} finally {
+			releaseLatch.countDown();
+			pool.shutdown();
+		}
+
+		try {
+			pool.submitSubflow(task);
+			fail(RejectedExecutionException.class.getSimpleName() + " is expected");
+		} catch (RejectedExecutionException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void oldestFinishedStatesAreEvicted() throws Exception {
+		ScriptExecutionPool pool = new ScriptExecutionPool(1, 1, 2);
+
+		pool.updateState(new ScriptRuntimeDTO().setRuntimeId(1).setStatus(RuntimeStatusType.COMPLETED));
+		pool.updateState(new ScriptRuntimeDTO().setRuntimeId(2).setStatus(RuntimeStatusType.FAILED));
+		pool.updateState(new ScriptRuntimeDTO().setRuntimeId(3).setStatus(RuntimeStatusType.INPROGRESS));
+		pool.updateState(new ScriptRuntimeDTO().setRuntimeId(4).setStatus(RuntimeStatusType.COMPLETED));
+		pool.shutdown();
+
+		assertNull(pool.getState(1));
+		assertNotNull(pool.getState(2));
+		assertNotNull(pool.getState(3));
+		assertNotNull(pool.getState(4));
+	}
+
+	@Test
+	@SuppressWarnings("serial")
+	public void invalidRuntimeConfigIsRejected() throws Exception {
+		Map<String, String> config = new HashMap<String, String>() {
+			{
+				put("bfa.runtime.pool_size", "0");
+			}
+		};
+
+		try {
+			new ScriptRuntime().setRuntimeConfig(config);
+			fail(ConfigurationException.class.getSimpleName() + " is expected");
+		} catch (ConfigurationException e) {
+			assertEquals("The value of the configuration property [bfa.runtime.pool_size] must be a positive integer",
+					e.getMessage());
+		}
+	}
+
+	@Test
+	@SuppressWarnings("serial")
+	public void unknownExecutionModeIsRejected() throws Exception {
+		Map<String, String> config = new HashMap<String, String>() {
+			{
+				put("bfa.runtime.execution_mode", "green");
+			}
+		};
+
+		try {
+			new ScriptRuntime().setRuntimeConfig(config);
+			fail(ConfigurationException.class.getSimpleName() + " is expected");
+		} catch (ConfigurationException e) {
+			assertEquals(
+					"The value of the configuration property [bfa.runtime.execution_mode] must be one of: platform, virtual",
+					e.getMessage());
+		}
+	}
+
+	@Test
+	@SuppressWarnings("serial")
+	public void unknownIdGeneratorIsRejected() throws Exception {
+		Map<String, String> config = new HashMap<String, String>() {
+			{
+				put("bfa.runtime.id_generator", "sequence");
+			}
+		};
+
+		try {
+			new ScriptRuntime().setRuntimeConfig(config);
+			fail(ConfigurationException.class.getSimpleName() + " is expected");
+		} catch (ConfigurationException e) {
+			assertEquals(
+					"The value of the configuration property [bfa.runtime.id_generator] must be one of: repository, uuid, hilo",
+					e.getMessage());
+		}
+	}
+
+	@Test
+	@SuppressWarnings("serial")
+	public void runtimeIdCanBeGeneratedLocally() throws Exception {
+		Map<String, String> config = new HashMap<String, String>() {
+			{
+				put("bfa.runtime.id_generator", "uuid");
+			}
+		};
+
+		ScriptRuntime uuidRuntime = createRuntime(config);
+		Object runtimeId = uuidRuntime.runScript("Script001");
+
+		assertEquals(1, ((UUID) runtimeId).version());
+		assertEquals(RuntimeStatusType.COMPLETED, repository.getRecord(runtimeId).getStatus());
+	}
+
+	@Test
+	@SuppressWarnings("serial")
+	public void hiloIdGeneratorRequiresBlockAllocatingRepository() throws Exception {
+		exceptionRule.expect(ScriptException.class);
+		exceptionRule.expectMessage("does not support the allocation of runtime id blocks");
+
+		Map<String, String> config = new HashMap<String, String>() {
+			{
+				put("bfa.runtime.id_generator", "hilo");
+			}
+		};
+
+		createRuntime(config).runScript("Script001");
+	}
+
+	@Test
+	@SuppressWarnings("serial")
+	public void virtualExecutionModeRequiresVirtualThreadSupport() throws Exception {
+		Map<String, String> config = new HashMap<String, String>() {
+			{
+				put("bfa.runtime.execution_mode", "virtual");
+			}
+		};
+
+		ScriptRuntime virtualRuntime = new ScriptRuntime();
+		try {
+			virtualRuntime.setRuntimeConfig(config);
+			assertTrue(ScriptExecutionPool.isVirtualThreadSupported());
+		} catch (ConfigurationException e) {
+			assertFalse(ScriptExecutionPool.isVirtualThreadSupported());
+			return;
+		}
+
+		virtualRuntime.setRepository(repository);
+		virtualRuntime.setActionLocator(actionLocator);
+		try {
+			Object runtimeId = virtualRuntime.startScript("SingleSubflowScript");
+			assertEquals(RuntimeStatusType.COMPLETED, waitForCompletion(virtualRuntime, runtimeId).getStatus());
+
+			// The synchronous run is executed by the virtual thread too
+			runtimeId = virtualRuntime.runScript("SingleSubflowScript");
+			assertEquals(RuntimeStatusType.COMPLETED, repository.getRecord(runtimeId).getStatus());
+		} finally {
+			virtualRuntime.shutdown();
+		}
+	}
+
+	private ScriptRuntimeDTO waitForCompletion(Object runtimeId) throws Exception {
+		return waitForCompletion(runtime, runtimeId);
+	}
+
+	private ScriptRuntimeDTO waitForCompletion(ScriptRuntime scriptRuntime, Object runtimeId) throws Exception {
+		final long deadline = System.currentTimeMillis() + WAIT_TIMEOUT_MILLIS;
+		ScriptRuntimeDTO state = scriptRuntime.getScriptState(runtimeId);
+		while (state != null && state.getStatus() == RuntimeStatusType.INPROGRESS) {
+			if (System.currentTimeMillis() > deadline) {
+				fail("The script [" + runtimeId + "] has not been completed in time");
+			}
+			TimeUnit.MILLISECONDS.sleep(10);
+			state = scriptRuntime.getScriptState(runtimeId);
+		}
+
+		assertNotNull(state);
+		return state;
+	}
+
+}
@@ -34,6 +34,16 @@ public class ScriptSourcePreprocessorUnitTest extends BaseUnitTestCase {
 				result);
 	}
 
+	@Test
+	public void parallelSubflowNamesAreReplacedWithArrayExpression() throws Exception {
+		String result = ScriptSourcePreprocessor.processVarargs(IOHelper.loadScript("parallel-subflows-script.txt"));
+
+		assertEquals(
+				IOHelper.loadScript(
+						"preprocessor-expected-output/parallel-subflows-script-after-varargs-processing.txt"),
+				result);
+	}
+
 	@Test
 	public void noChangesIfNoVarargs() throws Exception {
 		final String origScript = IOHelper.loadScript("duplicated-expression-script.txt");
@@ -0,0 +1,60 @@
+package com.ilsid.bfa.script;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.ilsid.bfa.BaseUnitTestCase;
+import com.ilsid.bfa.runtime.dto.FlowTraceDTO;
+
+public class SlowFlowTracesUnitTest extends BaseUnitTestCase {
+
+	@Test
+	public void traceOfFastScriptIsNotKept() throws Exception {
+		SlowFlowTraces traces = new SlowFlowTraces(10000, 10, 10);
+		traces.finishTrace(traces.startTrace(), 1, "Fast Script", null, false);
+
+		assertTrue(traces.getTraces().isEmpty());
+	}
+
+	@Test
+	public void traceOfSlowScriptIsKept() throws Exception {
+		SlowFlowTraces traces = new SlowFlowTraces(10, 10, 10);
+		StepTrace trace = traces.startTrace();
+		trace.record(StepTrace.StepType.ACTION, "Slow Action");
+		Thread.sleep(20);
+		traces.finishTrace(trace, 1, "Slow Script", Arrays.asList("Parent Script"), false);
+
+		List<FlowTraceDTO> result = traces.getTraces();
+		assertEquals(1, result.size());
+		assertEquals(1, result.get(0).getRuntimeId());
+		assertEquals("Slow Script", result.get(0).getScriptName());
+		assertEquals(Arrays.asList("Parent Script"), result.get(0).getCallStack());
+		assertEquals("Slow Action", result.get(0).getSteps().get(0).getName());
+	}
+
+	@Test
+	public void traceOfFailedScriptIsKept() throws Exception {
+		SlowFlowTraces traces = new SlowFlowTraces(10000, 10, 10);
+		traces.finishTrace(traces.startTrace(), 1, "Failed Script", null, true);
+
+		List<FlowTraceDTO> result = traces.getTraces();
+		assertEquals(1, result.size());
+		assertTrue(result.get(0).isFailed());
+	}
+
+	@Test
+	public void onlyLatestTracesAreKept() throws Exception {
+		SlowFlowTraces traces = new SlowFlowTraces(10000, 10, 2);
+		traces.finishTrace(traces.startTrace(), 1, "Failed Script", null, true);
+		traces.finishTrace(traces.startTrace(), 2, "Failed Script", null, true);
+		traces.finishTrace(traces.startTrace(), 3, "Failed Script", null, true);
+
+		List<FlowTraceDTO> result = traces.getTraces();
+		assertEquals(2, result.size());
+		assertEquals(3, result.get(0).getRuntimeId());
+		assertEquals(2, result.get(1).getRuntimeId());
+	}
+
+}
@@ -0,0 +1,72 @@
+package com.ilsid.bfa.script;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import com.ilsid.bfa.BaseUnitTestCase;
+import com.ilsid.bfa.runtime.dto.FlowTraceDTO;
+
+public class StepTraceUnitTest extends BaseUnitTestCase {
+
+	@Test
+	public void stepsAreKeptInOrder() throws Exception {
+		StepTrace trace = new StepTrace(10);
+		trace.record(StepTrace.StepType.ASSIGNMENT, "Var1");
+		trace.record(StepTrace.StepType.CONDITION, "Equal");
+		trace.record(StepTrace.StepType.ACTION, "Some Action");
+		trace.finish();
+
+		FlowTraceDTO dto = trace.toDTO(false);
+		List<FlowTraceDTO.Step> steps = dto.getSteps();
+
+		assertEquals(3, steps.size());
+		assertStep(steps.get(0), "ASSIGNMENT", "Var1");
+		assertStep(steps.get(1), "CONDITION", "Equal");
+		assertStep(steps.get(2), "ACTION", "Some Action");
+		assertEquals(0L, dto.getDroppedSteps());
+		assertEquals(false, dto.isFailed());
+		assertNotNull(dto.getStartTime());
+	}
+
+	@Test
+	public void stepLastsTillNextStep() throws Exception {
+		StepTrace trace = new StepTrace(10);
+		trace.record(StepTrace.StepType.ACTION, "Slow Action");
+		Thread.sleep(20);
+		trace.record(StepTrace.StepType.ASSIGNMENT, "Var1");
+		final long durationMillis = trace.finish();
+
+		List<FlowTraceDTO.Step> steps = trace.toDTO(true).getSteps();
+		final FlowTraceDTO.Step slowStep = steps.get(0);
+		final FlowTraceDTO.Step lastStep = steps.get(1);
+
+		assertTrue(slowStep.getDurationMicros() >= 20000);
+		assertTrue(lastStep.getOffsetMicros() >= slowStep.getOffsetMicros() + slowStep.getDurationMicros() - 1);
+		assertTrue(durationMillis >= 20);
+	}
+
+	@Test
+	public void onlyLastStepsAreKeptIfBufferIsFull() throws Exception {
+		StepTrace trace = new StepTrace(3);
+		for (int i = 0; i < 5; i++) {
+			trace.record(StepTrace.StepType.ASSIGNMENT, "Var" + i);
+		}
+		trace.finish();
+
+		FlowTraceDTO dto = trace.toDTO(false);
+		List<FlowTraceDTO.Step> steps = dto.getSteps();
+
+		assertEquals(2L, dto.getDroppedSteps());
+		assertEquals(3, steps.size());
+		assertStep(steps.get(0), "ASSIGNMENT", "Var2");
+		assertStep(steps.get(1), "ASSIGNMENT", "Var3");
+		assertStep(steps.get(2), "ASSIGNMENT", "Var4");
+	}
+
+	private void assertStep(FlowTraceDTO.Step step, String type, String name) {
+		assertEquals(type, step.getType());
+		assertEquals(name, step.getName());
+	}
+
+}
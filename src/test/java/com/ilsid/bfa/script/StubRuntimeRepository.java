@@ -0,0 +1,95 @@
+package com.ilsid.bfa.script;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.ilsid.bfa.ConfigurationException;
+import com.ilsid.bfa.persistence.PersistenceException;
+import com.ilsid.bfa.persistence.QueryPage;
+import com.ilsid.bfa.persistence.QueryPagingOptions;
+import com.ilsid.bfa.runtime.dto.ScriptRuntimeCriteria;
+import com.ilsid.bfa.runtime.dto.ScriptRuntimeDTO;
+import com.ilsid.bfa.runtime.persistence.RuntimeRepository;
+
+/**
+ * Thread-safe runtime repository stub that does not require a database.
+ */
+public class StubRuntimeRepository implements RuntimeRepository {
+
+	private final AtomicLong runtimeIdSequence = new AtomicLong();
+
+	private final Map<Object, ScriptRuntimeDTO> records = new ConcurrentHashMap<>();
+
+	private final Queue<ScriptRuntimeDTO> createdRecords = new ConcurrentLinkedQueue<>();
+
+	private final long latencyMillis;
+
+	public StubRuntimeRepository() {
+		this(0);
+	}
+
+	/**
+	 * Creates the repository that simulates a blocking I/O by sleeping the given time on each record update.
+	 */
+	public StubRuntimeRepository(long latencyMillis) {
+		this.latencyMillis = latencyMillis;
+	}
+
+	public void setConfiguration(Map<String, String> config) throws ConfigurationException {
+	}
+
+	public Object getNextRuntimeId() throws PersistenceException {
+		return runtimeIdSequence.incrementAndGet();
+	}
+
+	public void createRuntimeRecord(ScriptRuntimeDTO record) throws PersistenceException {
+		simulateLatency();
+		records.put(record.getRuntimeId(), record);
+		createdRecords.add(record);
+	}
+
+	public void updateRuntimeRecord(ScriptRuntimeDTO record) throws PersistenceException {
+		simulateLatency();
+		records.put(record.getRuntimeId(), record);
+	}
+
+	public QueryPage<ScriptRuntimeDTO> fetch(ScriptRuntimeCriteria criteria, QueryPagingOptions pagingOptions)
+			throws PersistenceException {
+		throw new UnsupportedOperationException();
+	}
+
+	public ScriptRuntimeDTO getRecord(Object runtimeId) {
+		return records.get(runtimeId);
+	}
+
+	/**
+	 * Returns all records created for the given runtime identifier, including the sub-flow records.
+	 */
+	public List<ScriptRuntimeDTO> getAllRecords(Object runtimeId) {
+		List<ScriptRuntimeDTO> result = new ArrayList<>();
+		for (ScriptRuntimeDTO record : createdRecords) {
+			if (record.getRuntimeId().equals(runtimeId)) {
+				result.add(record);
+			}
+		}
+
+		return result;
+	}
+
+	private void simulateLatency() throws PersistenceException {
+		if (latencyMillis > 0) {
+			try {
+				Thread.sleep(latencyMillis);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new PersistenceException("Interrupted", e);
+			}
+		}
+	}
+
+}
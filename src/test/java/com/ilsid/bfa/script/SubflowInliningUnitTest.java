@@ -0,0 +1,100 @@
+package com.ilsid.bfa.script;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.ilsid.bfa.BaseUnitTestCase;
+import com.ilsid.bfa.action.persistence.ActionLocator;
+import com.ilsid.bfa.action.persistence.filesystem.ActionRepositoryInitializer;
+import com.ilsid.bfa.runtime.dto.RuntimeStatusType;
+import com.ilsid.bfa.runtime.dto.ScriptRuntimeDTO;
+
+public class SubflowInliningUnitTest extends BaseUnitTestCase {
+
+	private static final String INLINABLE_SUBFLOW_NAME = "Custom Group 003::Inlinable Subflow";
+
+	private static ScriptRuntime inliningRuntime;
+
+	private static ScriptRuntime defaultRuntime;
+
+	private static StubRuntimeRepository repository;
+
+	@BeforeClass
+	public static void beforeClass() throws Exception {
+		ScriptingRepositoryInitializer.init();
+
+		repository = new StubRuntimeRepository();
+		final ActionLocator actionLocator = new ActionLocator();
+		actionLocator.setRepository(ActionRepositoryInitializer.init());
+
+		inliningRuntime = createRuntime(actionLocator);
+		inliningRuntime.setRuntimeConfig(Collections.singletonMap("bfa.runtime.subflow.inline", "true"));
+
+		defaultRuntime = createRuntime(actionLocator);
+	}
+
+	@AfterClass
+	public static void afterClass() throws Exception {
+		inliningRuntime.shutdown();
+		defaultRuntime.shutdown();
+		ScriptingRepositoryInitializer.cleanup();
+	}
+
+	@Test
+	public void inlinedSubflowsAreRecordedInParentRecord() throws Exception {
+		final Object runtimeId = repository.getNextRuntimeId();
+
+		inliningRuntime.runScript("Custom Group 003::Inlined Subflows Script", runtimeId, null);
+
+		// Script001 is not inlinable, as it is too large
+		List<ScriptRuntimeDTO> records = repository.getAllRecords(runtimeId);
+		assertEquals(2, records.size());
+		assertEquals("Script001", records.get(1).getScriptName());
+
+		ScriptRuntimeDTO parentRecord = repository.getRecord(runtimeId);
+		assertEquals(RuntimeStatusType.COMPLETED, parentRecord.getStatus());
+		assertEquals(Arrays.asList(INLINABLE_SUBFLOW_NAME, INLINABLE_SUBFLOW_NAME), parentRecord.getInlinedSubflows());
+	}
+
+	@Test
+	public void subflowsAreNotInlinedByDefault() throws Exception {
+		final Object runtimeId = repository.getNextRuntimeId();
+
+		defaultRuntime.runScript("Custom Group 003::Inlined Subflows Script", runtimeId, null);
+
+		assertEquals(4, repository.getAllRecords(runtimeId).size());
+		assertNull(repository.getRecord(runtimeId).getInlinedSubflows());
+	}
+
+	@Test
+	public void failureOfInlinedSubflowFailsParent() throws Exception {
+		final Object runtimeId = repository.getNextRuntimeId();
+
+		try {
+			inliningRuntime.runScript("Custom Group 003::Inlined Failed Subflow Script", runtimeId, null);
+			fail(ScriptException.class.getSimpleName() + " is expected");
+		} catch (ScriptException e) {
+			assertEquals("Inlined sub-flow [Custom Group 003::Failed Inlinable Subflow] failed", e.getMessage());
+		}
+
+		assertEquals(1, repository.getAllRecords(runtimeId).size());
+		ScriptRuntimeDTO parentRecord = repository.getRecord(runtimeId);
+		assertEquals(RuntimeStatusType.FAILED, parentRecord.getStatus());
+		assertEquals(Arrays.asList(INLINABLE_SUBFLOW_NAME, "Custom Group 003::Failed Inlinable Subflow"),
+				parentRecord.getInlinedSubflows());
+	}
+
+	private static ScriptRuntime createRuntime(ActionLocator actionLocator) {
+		final ScriptRuntime result = new ScriptRuntime();
+		result.setRepository(repository);
+		result.setActionLocator(actionLocator);
+
+		return result;
+	}
+
+}